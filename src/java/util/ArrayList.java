@@ -1438,4 +1438,21 @@ public class ArrayList<E> extends AbstractList<E>
 		}
 		modCount++;
 	}
+
+	/**
+	 * 同sort(Comparator)，但归并用的临时数组取自传入的Sorter，直接对elementData原地排序，不分配内存
+	 *
+	 * @param c      比较器
+	 * @param sorter 复用临时数组的排序器
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void sort(Comparator<? super E> c, Sorter sorter) {
+		final int expectedModCount = modCount;
+		Arrays.sort((E[]) elementData, 0, size, c, sorter);
+		if (modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+		modCount++;
+	}
 }
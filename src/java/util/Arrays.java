@@ -36,6 +36,9 @@ import java.util.function.IntToDoubleFunction;
 import java.util.function.IntToLongFunction;
 import java.util.function.IntUnaryOperator;
 import java.util.function.LongBinaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
@@ -169,6 +172,39 @@ public class Arrays {
         DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
     }
 
+    /**
+     * Sorts the specified range of the array into ascending order, using
+     * the given array as workspace. The range to be sorted extends from
+     * the index {@code fromIndex}, inclusive, to the index {@code toIndex},
+     * exclusive. If {@code fromIndex == toIndex}, the range to be sorted
+     * is empty.
+     *
+     * <p>Implementation note: Ranges with little existing order and more
+     * than 65536 elements are sorted by an LSD radix sort, which needs
+     * workspace of the same size as the range; ranges made of a few long
+     * ascending or descending runs are merged, which needs it too. If
+     * {@code work} holds at least {@code toIndex - fromIndex} elements it
+     * is used for this, so that repeated sorts of large arrays do not
+     * allocate workspace; otherwise a temporary array is allocated as
+     * needed. Small fixed-size tables (radix digit counts and run
+     * boundaries, a few kilobytes) are still allocated on each call. The
+     * contents of {@code work} on return are unspecified.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param work the workspace array, may be {@code null}
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     */
+    public static void sort(int[] a, int fromIndex, int toIndex, int[] work) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        DualPivotQuicksort.sort(a, fromIndex, toIndex - 1,
+                                work, 0, work == null ? 0 : work.length);
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -209,6 +245,39 @@ public class Arrays {
         DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
     }
 
+    /**
+     * Sorts the specified range of the array into ascending order, using
+     * the given array as workspace. The range to be sorted extends from
+     * the index {@code fromIndex}, inclusive, to the index {@code toIndex},
+     * exclusive. If {@code fromIndex == toIndex}, the range to be sorted
+     * is empty.
+     *
+     * <p>Implementation note: Ranges with little existing order and more
+     * than 65536 elements are sorted by an LSD radix sort, which needs
+     * workspace of the same size as the range; ranges made of a few long
+     * ascending or descending runs are merged, which needs it too. If
+     * {@code work} holds at least {@code toIndex - fromIndex} elements it
+     * is used for this, so that repeated sorts of large arrays do not
+     * allocate workspace; otherwise a temporary array is allocated as
+     * needed. Small fixed-size tables (radix digit counts and run
+     * boundaries, a few kilobytes) are still allocated on each call. The
+     * contents of {@code work} on return are unspecified.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param work the workspace array, may be {@code null}
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     */
+    public static void sort(long[] a, int fromIndex, int toIndex, long[] work) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        DualPivotQuicksort.sort(a, fromIndex, toIndex - 1,
+                                work, 0, work == null ? 0 : work.length);
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -385,6 +454,42 @@ public class Arrays {
         DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
     }
 
+    /**
+     * Sorts the specified range of the array into ascending order, using
+     * the given array as workspace. The range to be sorted extends from
+     * the index {@code fromIndex}, inclusive, to the index {@code toIndex},
+     * exclusive. If {@code fromIndex == toIndex}, the range to be sorted
+     * is empty.
+     *
+     * <p>{@code NaN} and {@code -0.0f} are ordered as by
+     * {@link #sort(float[], int, int)}.
+     *
+     * <p>Implementation note: Ranges with little existing order and more
+     * than 65536 elements are sorted by an LSD radix sort, which needs
+     * workspace of the same size as the range; ranges made of a few long
+     * ascending or descending runs are merged, which needs it too. If
+     * {@code work} holds at least {@code toIndex - fromIndex} elements it
+     * is used for this, so that repeated sorts of large arrays do not
+     * allocate workspace; otherwise a temporary array is allocated as
+     * needed. Small fixed-size tables (radix digit counts and run
+     * boundaries, a few kilobytes) are still allocated on each call. The
+     * contents of {@code work} on return are unspecified.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param work the workspace array, may be {@code null}
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     */
+    public static void sort(float[] a, int fromIndex, int toIndex, float[] work) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        DualPivotQuicksort.sort(a, fromIndex, toIndex - 1,
+                                work, 0, work == null ? 0 : work.length);
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -441,6 +546,42 @@ public class Arrays {
         DualPivotQuicksort.sort(a, fromIndex, toIndex - 1, null, 0, 0);
     }
 
+    /**
+     * Sorts the specified range of the array into ascending order, using
+     * the given array as workspace. The range to be sorted extends from
+     * the index {@code fromIndex}, inclusive, to the index {@code toIndex},
+     * exclusive. If {@code fromIndex == toIndex}, the range to be sorted
+     * is empty.
+     *
+     * <p>{@code NaN} and {@code -0.0d} are ordered as by
+     * {@link #sort(double[], int, int)}.
+     *
+     * <p>Implementation note: Ranges with little existing order and more
+     * than 65536 elements are sorted by an LSD radix sort, which needs
+     * workspace of the same size as the range; ranges made of a few long
+     * ascending or descending runs are merged, which needs it too. If
+     * {@code work} holds at least {@code toIndex - fromIndex} elements it
+     * is used for this, so that repeated sorts of large arrays do not
+     * allocate workspace; otherwise a temporary array is allocated as
+     * needed. Small fixed-size tables (radix digit counts and run
+     * boundaries, a few kilobytes) are still allocated on each call. The
+     * contents of {@code work} on return are unspecified.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param work the workspace array, may be {@code null}
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     */
+    public static void sort(double[] a, int fromIndex, int toIndex, double[] work) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        DualPivotQuicksort.sort(a, fromIndex, toIndex - 1,
+                                work, 0, work == null ? 0 : work.length);
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -721,6 +862,96 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
 
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * running any parallel tasks in the given pool. The range to be sorted
+     * extends from the index {@code fromIndex}, inclusive, to the index
+     * {@code toIndex}, exclusive. If {@code fromIndex == toIndex}, the range
+     * to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort. The digit histograms of the range are counted in parallel
+     * chunks, the elements are moved into a working array by their leading
+     * byte, and the resulting buckets are sorted independently, splitting on
+     * the next byte while they are longer than the granularity. Buckets at or
+     * below the granularity are sorted using the appropriate {@link
+     * Arrays#sort(int[]) Arrays.sort} method. The algorithm requires a working
+     * space no greater than the size of the specified range of the original
+     * array.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public static void parallelSort(int[] a, int fromIndex, int toIndex,
+                                    ForkJoinPool pool, int granularity) {
+        parallelSort(a, fromIndex, toIndex, pool, granularity, null);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * running any parallel tasks in the given pool. The range to be sorted
+     * extends from the index {@code fromIndex}, inclusive, to the index
+     * {@code toIndex}, exclusive. If {@code fromIndex == toIndex}, the range
+     * to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort. The digit histograms of the range are counted in parallel
+     * chunks, the elements are moved into a working array by their leading
+     * byte, and the resulting buckets are sorted independently, splitting on
+     * the next byte while they are longer than the granularity. Buckets at or
+     * below the granularity are sorted using the appropriate {@link
+     * Arrays#sort(int[]) Arrays.sort} method. The algorithm requires a working
+     * space no greater than the size of the specified range of the original
+     * array.
+     *
+     * <p>If {@code work} holds at least {@code toIndex - fromIndex}
+     * elements it is used as the working space, so that repeated sorts of
+     * large arrays do not allocate it; otherwise a temporary array is
+     * allocated. The contents of {@code work} on return are unspecified.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     * @param work the workspace array, may be {@code null}
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public static void parallelSort(int[] a, int fromIndex, int toIndex,
+                                    ForkJoinPool pool, int granularity,
+                                    int[] work) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p = pool.getParallelism(),
+            g = parallelSortGranularity(n, p, granularity);
+        if (work != null && work.length < n)
+            work = null;
+        if (n <= g || p == 1)
+            DualPivotQuicksort.sort(a, fromIndex, toIndex - 1,
+                                    work, 0, work == null ? 0 : n);
+        else
+            pool.invoke(new ArraysParallelSortHelpers.FJIntRadix.Sorter
+                        (a, work != null ? work : new int[n],
+                         fromIndex, n, 0, 24, g, p << 2, false));
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -791,6 +1022,96 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
 
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * running any parallel tasks in the given pool. The range to be sorted
+     * extends from the index {@code fromIndex}, inclusive, to the index
+     * {@code toIndex}, exclusive. If {@code fromIndex == toIndex}, the range
+     * to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort. The digit histograms of the range are counted in parallel
+     * chunks, the elements are moved into a working array by their leading
+     * byte, and the resulting buckets are sorted independently, splitting on
+     * the next byte while they are longer than the granularity. Buckets at or
+     * below the granularity are sorted using the appropriate {@link
+     * Arrays#sort(long[]) Arrays.sort} method. The algorithm requires a working
+     * space no greater than the size of the specified range of the original
+     * array.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public static void parallelSort(long[] a, int fromIndex, int toIndex,
+                                    ForkJoinPool pool, int granularity) {
+        parallelSort(a, fromIndex, toIndex, pool, granularity, null);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * running any parallel tasks in the given pool. The range to be sorted
+     * extends from the index {@code fromIndex}, inclusive, to the index
+     * {@code toIndex}, exclusive. If {@code fromIndex == toIndex}, the range
+     * to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort. The digit histograms of the range are counted in parallel
+     * chunks, the elements are moved into a working array by their leading
+     * byte, and the resulting buckets are sorted independently, splitting on
+     * the next byte while they are longer than the granularity. Buckets at or
+     * below the granularity are sorted using the appropriate {@link
+     * Arrays#sort(long[]) Arrays.sort} method. The algorithm requires a working
+     * space no greater than the size of the specified range of the original
+     * array.
+     *
+     * <p>If {@code work} holds at least {@code toIndex - fromIndex}
+     * elements it is used as the working space, so that repeated sorts of
+     * large arrays do not allocate it; otherwise a temporary array is
+     * allocated. The contents of {@code work} on return are unspecified.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     * @param work the workspace array, may be {@code null}
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public static void parallelSort(long[] a, int fromIndex, int toIndex,
+                                    ForkJoinPool pool, int granularity,
+                                    long[] work) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p = pool.getParallelism(),
+            g = parallelSortGranularity(n, p, granularity);
+        if (work != null && work.length < n)
+            work = null;
+        if (n <= g || p == 1)
+            DualPivotQuicksort.sort(a, fromIndex, toIndex - 1,
+                                    work, 0, work == null ? 0 : n);
+        else
+            pool.invoke(new ArraysParallelSortHelpers.FJLongRadix.Sorter
+                        (a, work != null ? work : new long[n],
+                         fromIndex, n, 0, 56, g, p << 2, false));
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -877,6 +1198,102 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
 
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * running any parallel tasks in the given pool. The range to be sorted
+     * extends from the index {@code fromIndex}, inclusive, to the index
+     * {@code toIndex}, exclusive. If {@code fromIndex == toIndex}, the range
+     * to be sorted is empty.
+     *
+     * <p>{@code NaN} and {@code -0.0f} are ordered as by
+     * {@link #parallelSort(float[], int, int)}.
+     *
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort. The digit histograms of the range are counted in parallel
+     * chunks, the elements are moved into a working array by their leading
+     * byte, and the resulting buckets are sorted independently, splitting on
+     * the next byte while they are longer than the granularity. Buckets at or
+     * below the granularity are sorted using the appropriate {@link
+     * Arrays#sort(float[]) Arrays.sort} method. The algorithm requires a working
+     * space no greater than the size of the specified range of the original
+     * array.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public static void parallelSort(float[] a, int fromIndex, int toIndex,
+                                    ForkJoinPool pool, int granularity) {
+        parallelSort(a, fromIndex, toIndex, pool, granularity, null);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * running any parallel tasks in the given pool. The range to be sorted
+     * extends from the index {@code fromIndex}, inclusive, to the index
+     * {@code toIndex}, exclusive. If {@code fromIndex == toIndex}, the range
+     * to be sorted is empty.
+     *
+     * <p>{@code NaN} and {@code -0.0f} are ordered as by
+     * {@link #parallelSort(float[], int, int)}.
+     *
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort. The digit histograms of the range are counted in parallel
+     * chunks, the elements are moved into a working array by their leading
+     * byte, and the resulting buckets are sorted independently, splitting on
+     * the next byte while they are longer than the granularity. Buckets at or
+     * below the granularity are sorted using the appropriate {@link
+     * Arrays#sort(float[]) Arrays.sort} method. The algorithm requires a working
+     * space no greater than the size of the specified range of the original
+     * array.
+     *
+     * <p>If {@code work} holds at least {@code toIndex - fromIndex}
+     * elements it is used as the working space, so that repeated sorts of
+     * large arrays do not allocate it; otherwise a temporary array is
+     * allocated. The contents of {@code work} on return are unspecified.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     * @param work the workspace array, may be {@code null}
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public static void parallelSort(float[] a, int fromIndex, int toIndex,
+                                    ForkJoinPool pool, int granularity,
+                                    float[] work) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p = pool.getParallelism(),
+            g = parallelSortGranularity(n, p, granularity);
+        if (work != null && work.length < n)
+            work = null;
+        if (n <= g || p == 1)
+            DualPivotQuicksort.sort(a, fromIndex, toIndex - 1,
+                                    work, 0, work == null ? 0 : n);
+        else
+            pool.invoke(new ArraysParallelSortHelpers.FJFloatRadix.Sorter
+                        (a, work != null ? work : new float[n],
+                         fromIndex, n, 0, 24, g, p << 2, false));
+    }
+
     /**
      * Sorts the specified array into ascending numerical order.
      *
@@ -963,6 +1380,102 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g).invoke();
     }
 
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * running any parallel tasks in the given pool. The range to be sorted
+     * extends from the index {@code fromIndex}, inclusive, to the index
+     * {@code toIndex}, exclusive. If {@code fromIndex == toIndex}, the range
+     * to be sorted is empty.
+     *
+     * <p>{@code NaN} and {@code -0.0d} are ordered as by
+     * {@link #parallelSort(double[], int, int)}.
+     *
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort. The digit histograms of the range are counted in parallel
+     * chunks, the elements are moved into a working array by their leading
+     * byte, and the resulting buckets are sorted independently, splitting on
+     * the next byte while they are longer than the granularity. Buckets at or
+     * below the granularity are sorted using the appropriate {@link
+     * Arrays#sort(double[]) Arrays.sort} method. The algorithm requires a working
+     * space no greater than the size of the specified range of the original
+     * array.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public static void parallelSort(double[] a, int fromIndex, int toIndex,
+                                    ForkJoinPool pool, int granularity) {
+        parallelSort(a, fromIndex, toIndex, pool, granularity, null);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order,
+     * running any parallel tasks in the given pool. The range to be sorted
+     * extends from the index {@code fromIndex}, inclusive, to the index
+     * {@code toIndex}, exclusive. If {@code fromIndex == toIndex}, the range
+     * to be sorted is empty.
+     *
+     * <p>{@code NaN} and {@code -0.0d} are ordered as by
+     * {@link #parallelSort(double[], int, int)}.
+     *
+     * @implNote The sorting algorithm is a parallel most-significant-digit
+     * radix sort. The digit histograms of the range are counted in parallel
+     * chunks, the elements are moved into a working array by their leading
+     * byte, and the resulting buckets are sorted independently, splitting on
+     * the next byte while they are longer than the granularity. Buckets at or
+     * below the granularity are sorted using the appropriate {@link
+     * Arrays#sort(double[]) Arrays.sort} method. The algorithm requires a working
+     * space no greater than the size of the specified range of the original
+     * array.
+     *
+     * <p>If {@code work} holds at least {@code toIndex - fromIndex}
+     * elements it is used as the working space, so that repeated sorts of
+     * large arrays do not allocate it; otherwise a temporary array is
+     * allocated. The contents of {@code work} on return are unspecified.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     * @param work the workspace array, may be {@code null}
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public static void parallelSort(double[] a, int fromIndex, int toIndex,
+                                    ForkJoinPool pool, int granularity,
+                                    double[] work) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        int n = toIndex - fromIndex, p = pool.getParallelism(),
+            g = parallelSortGranularity(n, p, granularity);
+        if (work != null && work.length < n)
+            work = null;
+        if (n <= g || p == 1)
+            DualPivotQuicksort.sort(a, fromIndex, toIndex - 1,
+                                    work, 0, work == null ? 0 : n);
+        else
+            pool.invoke(new ArraysParallelSortHelpers.FJDoubleRadix.Sorter
+                        (a, work != null ? work : new double[n],
+                         fromIndex, n, 0, 56, g, p << 2, false));
+    }
+
     /**
      * Sorts the specified array of objects into ascending order, according
      * to the {@linkplain Comparable natural ordering} of its elements.
@@ -1180,6 +1693,131 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g, cmp).invoke();
     }
 
+    /**
+     * Sorts the specified range of the specified array of objects according
+     * to the order induced by the specified comparator, running any parallel
+     * tasks in the given pool. The range to be sorted extends from index
+     * {@code fromIndex}, inclusive, to index {@code toIndex}, exclusive.  (If
+     * {@code fromIndex==toIndex}, the range to be sorted is empty.)  All
+     * elements in the range must be <i>mutually comparable</i> by the
+     * specified comparator.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is the parallel sort-merge used by
+     * {@link #parallelSort(Object[], int, int, Comparator)}, with its tasks
+     * run in {@code pool} and the minimum granularity taken from the
+     * {@code granularity} hint.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element (inclusive) to be
+     *        sorted
+     * @param toIndex the index of the last element (exclusive) to be sorted
+     * @param cmp the comparator to determine the order of the array.  A
+     *        {@code null} value indicates that the elements'
+     *        {@linkplain Comparable natural ordering} should be used.
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex} or
+     *         (optional) if the natural ordering of the array elements is
+     *         found to violate the {@link Comparable} contract
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > a.length}
+     * @throws ClassCastException if the array contains elements that are
+     *         not <i>mutually comparable</i> (for example, strings and
+     *         integers).
+     * @throws NullPointerException if {@code pool} is null
+     */
+    public static <T> void parallelSort(T[] a, int fromIndex, int toIndex,
+                                        Comparator<? super T> cmp,
+                                        ForkJoinPool pool, int granularity) {
+        parallelSort(a, fromIndex, toIndex, cmp, pool, granularity, null);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of objects according
+     * to the order induced by the specified comparator, running any parallel
+     * tasks in the given pool. The range to be sorted extends from index
+     * {@code fromIndex}, inclusive, to index {@code toIndex}, exclusive.  (If
+     * {@code fromIndex==toIndex}, the range to be sorted is empty.)  All
+     * elements in the range must be <i>mutually comparable</i> by the
+     * specified comparator.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @implNote The sorting algorithm is the parallel sort-merge used by
+     * {@link #parallelSort(Object[], int, int, Comparator)}, with its tasks
+     * run in {@code pool} and the minimum granularity taken from the
+     * {@code granularity} hint.
+     *
+     * <p>If {@code work} holds at least {@code toIndex - fromIndex}
+     * elements it is used as the working space, so that repeated sorts of
+     * large arrays do not allocate it; otherwise a temporary array is
+     * allocated. The contents of {@code work} on return are unspecified.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element (inclusive) to be
+     *        sorted
+     * @param toIndex the index of the last element (exclusive) to be sorted
+     * @param cmp the comparator to determine the order of the array.  A
+     *        {@code null} value indicates that the elements'
+     *        {@linkplain Comparable natural ordering} should be used.
+     * @param pool the pool used to execute any parallel tasks
+     * @param granularity the length at or below which a part of the range
+     *        is sorted sequentially, or zero or less to derive it from the
+     *        length of the range and the parallelism of the pool; values
+     *        smaller than an internal minimum are raised to that minimum
+     * @param work the workspace array, may be {@code null}
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex} or
+     *         (optional) if the natural ordering of the array elements is
+     *         found to violate the {@link Comparable} contract
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > a.length}
+     * @throws ClassCastException if the array contains elements that are
+     *         not <i>mutually comparable</i> (for example, strings and
+     *         integers).
+     * @throws ArrayStoreException if the runtime type of {@code work}
+     *         cannot hold the elements of the array
+     * @throws NullPointerException if {@code pool} is null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void parallelSort(T[] a, int fromIndex, int toIndex,
+                                        Comparator<? super T> cmp,
+                                        ForkJoinPool pool, int granularity,
+                                        T[] work) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        if (cmp == null)
+            cmp = NaturalOrder.INSTANCE;
+        int n = toIndex - fromIndex, p = pool.getParallelism(),
+            g = parallelSortGranularity(n, p, granularity);
+        if (work != null && work.length < n)
+            work = null;
+        if (n <= g || p == 1)
+            TimSort.sort(a, fromIndex, toIndex, cmp,
+                         work, 0, work == null ? 0 : n);
+        else
+            pool.invoke(new ArraysParallelSortHelpers.FJObject.Sorter<T>
+                        (null, a, work != null ? work :
+                         (T[])Array.newInstance(a.getClass().getComponentType(), n),
+                         fromIndex, n, 0, g, cmp));
+    }
+
+    /**
+     * Returns the granularity for a parallel sort of n elements with
+     * the given parallelism and caller hint (zero or less for none).
+     */
+    private static int parallelSortGranularity(int n, int p, int granularity) {
+        int g = (granularity > 0) ? granularity : n / (p << 2);
+        return (g <= MIN_ARRAY_SORT_GRAN) ? MIN_ARRAY_SORT_GRAN : g;
+    }
+
     /*
      * Sorting of complex type arrays.
      */
@@ -1513,6 +2151,241 @@ public class Arrays {
         }
     }
 
+    /**
+     * Sorts the specified array of objects according to the order induced
+     * by the specified comparator, using the temp storage of the given
+     * {@link Sorter}. The order, stability and exceptions are those of
+     * {@link #sort(Object[], Comparator)}; the only difference is that
+     * repeated sorts through the same sorter do not allocate temp storage
+     * once it is large enough.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param c the comparator to determine the order of the array.  A
+     *        {@code null} value indicates that the elements'
+     *        {@linkplain Comparable natural ordering} should be used.
+     * @param sorter the sorter whose temp storage is used
+     * @throws ClassCastException if the array contains elements that are
+     *         not <i>mutually comparable</i> using the specified comparator
+     * @throws IllegalArgumentException (optional) if the comparator is
+     *         found to violate the {@link Comparator} contract
+     * @throws NullPointerException if {@code sorter} is null
+     */
+    public static <T> void sort(T[] a, Comparator<? super T> c, Sorter sorter) {
+        sort(a, 0, a.length, c, sorter);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of objects according
+     * to the order induced by the specified comparator, using the temp
+     * storage of the given {@link Sorter}. The order, stability and
+     * exceptions are those of {@link #sort(Object[], int, int, Comparator)};
+     * the only difference is that repeated sorts through the same sorter do
+     * not allocate temp storage once it is large enough.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element (inclusive) to be
+     *        sorted
+     * @param toIndex the index of the last element (exclusive) to be sorted
+     * @param c the comparator to determine the order of the array.  A
+     *        {@code null} value indicates that the elements'
+     *        {@linkplain Comparable natural ordering} should be used.
+     * @param sorter the sorter whose temp storage is used
+     * @throws ClassCastException if the array contains elements that are not
+     *         <i>mutually comparable</i> using the specified comparator.
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex} or
+     *         (optional) if the comparator is found to violate the
+     *         {@link Comparator} contract
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > a.length}
+     * @throws NullPointerException if {@code sorter} is null
+     */
+    public static <T> void sort(T[] a, int fromIndex, int toIndex,
+                                Comparator<? super T> c, Sorter sorter) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        if (LegacyMergeSort.userRequested) {
+            if (c == null)
+                legacyMergeSort(a, fromIndex, toIndex);
+            else
+                legacyMergeSort(a, fromIndex, toIndex, c);
+        } else {
+            sorter.sort(a, fromIndex, toIndex, c);
+        }
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code int} keys extracted by the given function. The result is the
+     * same as that of
+     * {@code sort(a, Comparator.comparingInt(keyExtractor))}, but the function is
+     * applied only once per element and the keys are compared as primitives.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * <p>Implementation note: The keys are extracted into a primitive array
+     * together with the positions of their elements, that array is sorted,
+     * and the elements are then moved into the sorted order. Temporary
+     * storage of about 16 bytes per element is needed.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function extracting the sort key of an element
+     * @throws NullPointerException if {@code keyExtractor} is null and the
+     *         array has more than one element
+     */
+    public static <T> void sortByInt(T[] a, ToIntFunction<? super T> keyExtractor) {
+        KeySort.sortByInt(a, 0, a.length, keyExtractor);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of objects into
+     * ascending order of the {@code int} keys extracted by the given
+     * function. The range to be sorted extends from index {@code fromIndex},
+     * inclusive, to index {@code toIndex}, exclusive.  (If
+     * {@code fromIndex==toIndex}, the range to be sorted is empty.)  The
+     * result is the same as that of
+     * {@code sort(a, fromIndex, toIndex, Comparator.comparingInt(keyExtractor))},
+     * but the function is applied only once per element.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element (inclusive) to be
+     *        sorted
+     * @param toIndex the index of the last element (exclusive) to be sorted
+     * @param keyExtractor the function extracting the sort key of an element
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > a.length}
+     * @throws NullPointerException if {@code keyExtractor} is null and the
+     *         range has more than one element
+     */
+    public static <T> void sortByInt(T[] a, int fromIndex, int toIndex,
+                                     ToIntFunction<? super T> keyExtractor) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        KeySort.sortByInt(a, fromIndex, toIndex, keyExtractor);
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code long} keys extracted by the given function. The result is the
+     * same as that of
+     * {@code sort(a, Comparator.comparingLong(keyExtractor))}, but the function is
+     * applied only once per element and the keys are compared as primitives.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * <p>Implementation note: The keys are extracted into a primitive array
+     * together with the positions of their elements, that array is sorted,
+     * and the elements are then moved into the sorted order. Temporary
+     * storage of about 32 bytes per element is needed.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function extracting the sort key of an element
+     * @throws NullPointerException if {@code keyExtractor} is null and the
+     *         array has more than one element
+     */
+    public static <T> void sortByLong(T[] a, ToLongFunction<? super T> keyExtractor) {
+        KeySort.sortByLong(a, 0, a.length, keyExtractor);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of objects into
+     * ascending order of the {@code long} keys extracted by the given
+     * function. The range to be sorted extends from index {@code fromIndex},
+     * inclusive, to index {@code toIndex}, exclusive.  (If
+     * {@code fromIndex==toIndex}, the range to be sorted is empty.)  The
+     * result is the same as that of
+     * {@code sort(a, fromIndex, toIndex, Comparator.comparingLong(keyExtractor))},
+     * but the function is applied only once per element.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element (inclusive) to be
+     *        sorted
+     * @param toIndex the index of the last element (exclusive) to be sorted
+     * @param keyExtractor the function extracting the sort key of an element
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > a.length}
+     * @throws NullPointerException if {@code keyExtractor} is null and the
+     *         range has more than one element
+     */
+    public static <T> void sortByLong(T[] a, int fromIndex, int toIndex,
+                                      ToLongFunction<? super T> keyExtractor) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        KeySort.sortByLong(a, fromIndex, toIndex, keyExtractor);
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code double} keys extracted by the given function. The result is the
+     * same as that of
+     * {@code sort(a, Comparator.comparingDouble(keyExtractor))}, but the function is
+     * applied only once per element and the keys are compared as primitives.
+     *
+     * Keys are ordered as by {@link Double#compare}: {@code -0.0d} is
+     * treated as less than {@code 0.0d}, and {@code Double.NaN} is greater
+     * than any other value and equal to itself.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * <p>Implementation note: The keys are extracted into a primitive array
+     * together with the positions of their elements, that array is sorted,
+     * and the elements are then moved into the sorted order. Temporary
+     * storage of about 32 bytes per element is needed.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function extracting the sort key of an element
+     * @throws NullPointerException if {@code keyExtractor} is null and the
+     *         array has more than one element
+     */
+    public static <T> void sortByDouble(T[] a, ToDoubleFunction<? super T> keyExtractor) {
+        KeySort.sortByDouble(a, 0, a.length, keyExtractor);
+    }
+
+    /**
+     * Sorts the specified range of the specified array of objects into
+     * ascending order of the {@code double} keys extracted by the given
+     * function. The range to be sorted extends from index {@code fromIndex},
+     * inclusive, to index {@code toIndex}, exclusive.  (If
+     * {@code fromIndex==toIndex}, the range to be sorted is empty.)  The
+     * result is the same as that of
+     * {@code sort(a, fromIndex, toIndex, Comparator.comparingDouble(keyExtractor))},
+     * but the function is applied only once per element.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element (inclusive) to be
+     *        sorted
+     * @param toIndex the index of the last element (exclusive) to be sorted
+     * @param keyExtractor the function extracting the sort key of an element
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > a.length}
+     * @throws NullPointerException if {@code keyExtractor} is null and the
+     *         range has more than one element
+     */
+    public static <T> void sortByDouble(T[] a, int fromIndex, int toIndex,
+                                        ToDoubleFunction<? super T> keyExtractor) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        KeySort.sortByDouble(a, fromIndex, toIndex, keyExtractor);
+    }
+
     /** To be removed in a future release. */
     private static <T> void legacyMergeSort(T[] a, int fromIndex, int toIndex,
                                             Comparator<? super T> c) {
@@ -3894,6 +4767,11 @@ public class Arrays {
         public void sort(Comparator<? super E> c) {
             Arrays.sort(a, c);
         }
+
+        @Override
+        public void sort(Comparator<? super E> c, Sorter sorter) {
+            Arrays.sort(a, c, sorter);
+        }
     }
 
     /**
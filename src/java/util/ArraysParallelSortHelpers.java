@@ -66,6 +66,18 @@ import java.util.concurrent.CountedCompleter;
  * The primitive class versions (FJByte... FJDouble) are
  * identical to each other except for type declarations.
  *
+ * The FJInt, FJLong, FJFloat and FJDouble classes have radix
+ * counterparts (FJIntRadix... FJDoubleRadix) used when the caller
+ * supplies a pool. Their Sorter is an MSD radix sort on the bits of
+ * each element mapped to an unsigned key: the range is split into
+ * chunks whose digit histograms are counted in parallel, the chunks
+ * are then moved in parallel into the workspace at the bucket offsets
+ * computed from the histograms, and each bucket is copied back and
+ * sorted as an independent subtask on the next lower digit. A digit
+ * shared by all elements of a range is skipped without moving
+ * anything. Buckets no larger than the granularity use the sequential
+ * sort, which itself picks merging, LSD radix sort or Quicksort.
+ *
  * The base sequential sorts rely on non-public versions of TimSort,
  * ComparableTimSort, and DualPivotQuicksort sort methods that accept
  * temp workspace array slices that we will have already allocated, so
@@ -82,6 +94,12 @@ import java.util.concurrent.CountedCompleter;
      * reduce distraction.
      */
 
+    /** The number of bits in a radix sort digit */
+    static final int RADIX_BITS = 8;
+
+    /** The number of buckets per radix sort digit */
+    static final int RADIX = 1 << RADIX_BITS;
+
     /**
      * A placeholder task for Sorters, used for the lowest
      * quartile task, that does not need to maintain array state.
@@ -1007,4 +1025,404 @@ import java.util.concurrent.CountedCompleter;
         }
     } // FJDouble
 
+    /** int radix support class */
+    static final class FJIntRadix {
+        static final class Sorter extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w;
+            final int base, size, wbase, shift, gran, chunks;
+            final boolean moved;
+            Sorter(int[] a, int[] w, int base, int size, int wbase,
+                   int shift, int gran, int chunks, boolean moved) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.shift = shift; this.gran = gran;
+                this.chunks = chunks; this.moved = moved;
+            }
+            public final void compute() {
+                int[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase,
+                    s = this.shift, g = this.gran, c;
+                if (moved) {
+                    System.arraycopy(w, wb, a, b, n);
+                    if (s < 0) // all keys equal
+                        return;
+                }
+                int[][] counts;
+                int[] total = new int[RADIX];
+                for (;;) {  // find a digit that splits the range
+                    if (n <= g) {
+                        DualPivotQuicksort.sort(a, b, b + n - 1, w, wb, n);
+                        return;
+                    }
+                    counts = new int[c = Math.min(chunks, n / g)][RADIX];
+                    Pass[] ps = new Pass[c];
+                    for (int i = 0; i < c; ++i)
+                        ps[i] = new Pass(a, null, b + (int)((long)n * i / c),
+                                         b + (int)((long)n * (i + 1) / c),
+                                         s, counts[i]);
+                    invokeAll(ps);
+                    for (int[] cnt : counts)
+                        for (int d = 0; d < RADIX; ++d)
+                            total[d] += cnt[d];
+                    if (total[((a[b] ^ Integer.MIN_VALUE) >>> s) & 0xFF] < n)
+                        break;
+                    if ((s -= RADIX_BITS) < 0) // all keys equal
+                        return;
+                    Arrays.fill(total, 0);
+                }
+                for (int d = 0, k = wb; d < RADIX; ++d) {
+                    for (int[] cnt : counts) {
+                        int t = cnt[d]; cnt[d] = k; k += t;
+                    }
+                }
+                Pass[] ps = new Pass[c];
+                for (int i = 0; i < c; ++i)
+                    ps[i] = new Pass(a, w, b + (int)((long)n * i / c),
+                                     b + (int)((long)n * (i + 1) / c),
+                                     s, counts[i]);
+                invokeAll(ps);
+                ArrayList<Sorter> buckets = new ArrayList<>();
+                for (int d = 0, k = 0; d < RADIX; k += total[d++]) {
+                    if (total[d] != 0)
+                        buckets.add(new Sorter(a, w, b + k, total[d], wb + k,
+                                               s - RADIX_BITS, g, chunks, true));
+                }
+                invokeAll(buckets);
+            }
+        }
+
+        /**
+         * Counts the digits of a chunk, or if w is non-null, moves
+         * the chunk into w at the bucket offsets held in count.
+         */
+        static final class Pass extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final int[] a, w;
+            final int lo, hi, shift;
+            final int[] count;
+            Pass(int[] a, int[] w, int lo, int hi, int shift, int[] count) {
+                this.a = a; this.w = w; this.lo = lo; this.hi = hi;
+                this.shift = shift; this.count = count;
+            }
+            public final void compute() {
+                int[] a = this.a, w = this.w; // localize all params
+                int lo = this.lo, hi = this.hi, s = this.shift;
+                int[] count = this.count;
+                if (w == null) {
+                    for (int i = lo; i < hi; ++i)
+                        ++count[((a[i] ^ Integer.MIN_VALUE) >>> s) & 0xFF];
+                }
+                else {
+                    for (int i = lo; i < hi; ++i) {
+                        int v = a[i];
+                        w[count[((v ^ Integer.MIN_VALUE) >>> s) & 0xFF]++] = v;
+                    }
+                }
+            }
+        }
+    } // FJIntRadix
+
+    /** long radix support class */
+    static final class FJLongRadix {
+        static final class Sorter extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w;
+            final int base, size, wbase, shift, gran, chunks;
+            final boolean moved;
+            Sorter(long[] a, long[] w, int base, int size, int wbase,
+                   int shift, int gran, int chunks, boolean moved) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.shift = shift; this.gran = gran;
+                this.chunks = chunks; this.moved = moved;
+            }
+            public final void compute() {
+                long[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase,
+                    s = this.shift, g = this.gran, c;
+                if (moved) {
+                    System.arraycopy(w, wb, a, b, n);
+                    if (s < 0) // all keys equal
+                        return;
+                }
+                int[][] counts;
+                int[] total = new int[RADIX];
+                for (;;) {  // find a digit that splits the range
+                    if (n <= g) {
+                        DualPivotQuicksort.sort(a, b, b + n - 1, w, wb, n);
+                        return;
+                    }
+                    counts = new int[c = Math.min(chunks, n / g)][RADIX];
+                    Pass[] ps = new Pass[c];
+                    for (int i = 0; i < c; ++i)
+                        ps[i] = new Pass(a, null, b + (int)((long)n * i / c),
+                                         b + (int)((long)n * (i + 1) / c),
+                                         s, counts[i]);
+                    invokeAll(ps);
+                    for (int[] cnt : counts)
+                        for (int d = 0; d < RADIX; ++d)
+                            total[d] += cnt[d];
+                    if (total[(int)((a[b] ^ Long.MIN_VALUE) >>> s) & 0xFF] < n)
+                        break;
+                    if ((s -= RADIX_BITS) < 0) // all keys equal
+                        return;
+                    Arrays.fill(total, 0);
+                }
+                for (int d = 0, k = wb; d < RADIX; ++d) {
+                    for (int[] cnt : counts) {
+                        int t = cnt[d]; cnt[d] = k; k += t;
+                    }
+                }
+                Pass[] ps = new Pass[c];
+                for (int i = 0; i < c; ++i)
+                    ps[i] = new Pass(a, w, b + (int)((long)n * i / c),
+                                     b + (int)((long)n * (i + 1) / c),
+                                     s, counts[i]);
+                invokeAll(ps);
+                ArrayList<Sorter> buckets = new ArrayList<>();
+                for (int d = 0, k = 0; d < RADIX; k += total[d++]) {
+                    if (total[d] != 0)
+                        buckets.add(new Sorter(a, w, b + k, total[d], wb + k,
+                                               s - RADIX_BITS, g, chunks, true));
+                }
+                invokeAll(buckets);
+            }
+        }
+
+        /**
+         * Counts the digits of a chunk, or if w is non-null, moves
+         * the chunk into w at the bucket offsets held in count.
+         */
+        static final class Pass extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final long[] a, w;
+            final int lo, hi, shift;
+            final int[] count;
+            Pass(long[] a, long[] w, int lo, int hi, int shift, int[] count) {
+                this.a = a; this.w = w; this.lo = lo; this.hi = hi;
+                this.shift = shift; this.count = count;
+            }
+            public final void compute() {
+                long[] a = this.a, w = this.w; // localize all params
+                int lo = this.lo, hi = this.hi, s = this.shift;
+                int[] count = this.count;
+                if (w == null) {
+                    for (int i = lo; i < hi; ++i)
+                        ++count[(int)((a[i] ^ Long.MIN_VALUE) >>> s) & 0xFF];
+                }
+                else {
+                    for (int i = lo; i < hi; ++i) {
+                        long v = a[i];
+                        w[count[(int)((v ^ Long.MIN_VALUE) >>> s) & 0xFF]++] = v;
+                    }
+                }
+            }
+        }
+    } // FJLongRadix
+
+    /** float radix support class */
+    static final class FJFloatRadix {
+        static final class Sorter extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final float[] a, w;
+            final int base, size, wbase, shift, gran, chunks;
+            final boolean moved;
+            Sorter(float[] a, float[] w, int base, int size, int wbase,
+                   int shift, int gran, int chunks, boolean moved) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.shift = shift; this.gran = gran;
+                this.chunks = chunks; this.moved = moved;
+            }
+            public final void compute() {
+                float[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase,
+                    s = this.shift, g = this.gran, c;
+                if (moved) {
+                    System.arraycopy(w, wb, a, b, n);
+                    if (s < 0) // all keys equal
+                        return;
+                }
+                int[][] counts;
+                int[] total = new int[RADIX];
+                for (;;) {  // find a digit that splits the range
+                    if (n <= g) {
+                        DualPivotQuicksort.sort(a, b, b + n - 1, w, wb, n);
+                        return;
+                    }
+                    counts = new int[c = Math.min(chunks, n / g)][RADIX];
+                    Pass[] ps = new Pass[c];
+                    for (int i = 0; i < c; ++i)
+                        ps[i] = new Pass(a, null, b + (int)((long)n * i / c),
+                                         b + (int)((long)n * (i + 1) / c),
+                                         s, counts[i]);
+                    invokeAll(ps);
+                    for (int[] cnt : counts)
+                        for (int d = 0; d < RADIX; ++d)
+                            total[d] += cnt[d];
+                    if (total[(key(a[b]) >>> s) & 0xFF] < n)
+                        break;
+                    if ((s -= RADIX_BITS) < 0) // all keys equal
+                        return;
+                    Arrays.fill(total, 0);
+                }
+                for (int d = 0, k = wb; d < RADIX; ++d) {
+                    for (int[] cnt : counts) {
+                        int t = cnt[d]; cnt[d] = k; k += t;
+                    }
+                }
+                Pass[] ps = new Pass[c];
+                for (int i = 0; i < c; ++i)
+                    ps[i] = new Pass(a, w, b + (int)((long)n * i / c),
+                                     b + (int)((long)n * (i + 1) / c),
+                                     s, counts[i]);
+                invokeAll(ps);
+                ArrayList<Sorter> buckets = new ArrayList<>();
+                for (int d = 0, k = 0; d < RADIX; k += total[d++]) {
+                    if (total[d] != 0)
+                        buckets.add(new Sorter(a, w, b + k, total[d], wb + k,
+                                               s - RADIX_BITS, g, chunks, true));
+                }
+                invokeAll(buckets);
+            }
+        }
+
+        /**
+         * Counts the digits of a chunk, or if w is non-null, moves
+         * the chunk into w at the bucket offsets held in count.
+         */
+        static final class Pass extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final float[] a, w;
+            final int lo, hi, shift;
+            final int[] count;
+            Pass(float[] a, float[] w, int lo, int hi, int shift, int[] count) {
+                this.a = a; this.w = w; this.lo = lo; this.hi = hi;
+                this.shift = shift; this.count = count;
+            }
+            public final void compute() {
+                float[] a = this.a, w = this.w; // localize all params
+                int lo = this.lo, hi = this.hi, s = this.shift;
+                int[] count = this.count;
+                if (w == null) {
+                    for (int i = lo; i < hi; ++i)
+                        ++count[(key(a[i]) >>> s) & 0xFF];
+                }
+                else {
+                    for (int i = lo; i < hi; ++i) {
+                        float v = a[i];
+                        w[count[(key(v) >>> s) & 0xFF]++] = v;
+                    }
+                }
+            }
+        }
+
+        /** Maps a float to a key whose unsigned order is Float.compare order. */
+        static int key(float f) {
+            int bits = Float.floatToIntBits(f); // collapses NaNs
+            return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+        }
+    } // FJFloatRadix
+
+    /** double radix support class */
+    static final class FJDoubleRadix {
+        static final class Sorter extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final double[] a, w;
+            final int base, size, wbase, shift, gran, chunks;
+            final boolean moved;
+            Sorter(double[] a, double[] w, int base, int size, int wbase,
+                   int shift, int gran, int chunks, boolean moved) {
+                this.a = a; this.w = w; this.base = base; this.size = size;
+                this.wbase = wbase; this.shift = shift; this.gran = gran;
+                this.chunks = chunks; this.moved = moved;
+            }
+            public final void compute() {
+                double[] a = this.a, w = this.w; // localize all params
+                int b = this.base, n = this.size, wb = this.wbase,
+                    s = this.shift, g = this.gran, c;
+                if (moved) {
+                    System.arraycopy(w, wb, a, b, n);
+                    if (s < 0) // all keys equal
+                        return;
+                }
+                int[][] counts;
+                int[] total = new int[RADIX];
+                for (;;) {  // find a digit that splits the range
+                    if (n <= g) {
+                        DualPivotQuicksort.sort(a, b, b + n - 1, w, wb, n);
+                        return;
+                    }
+                    counts = new int[c = Math.min(chunks, n / g)][RADIX];
+                    Pass[] ps = new Pass[c];
+                    for (int i = 0; i < c; ++i)
+                        ps[i] = new Pass(a, null, b + (int)((long)n * i / c),
+                                         b + (int)((long)n * (i + 1) / c),
+                                         s, counts[i]);
+                    invokeAll(ps);
+                    for (int[] cnt : counts)
+                        for (int d = 0; d < RADIX; ++d)
+                            total[d] += cnt[d];
+                    if (total[(int)(key(a[b]) >>> s) & 0xFF] < n)
+                        break;
+                    if ((s -= RADIX_BITS) < 0) // all keys equal
+                        return;
+                    Arrays.fill(total, 0);
+                }
+                for (int d = 0, k = wb; d < RADIX; ++d) {
+                    for (int[] cnt : counts) {
+                        int t = cnt[d]; cnt[d] = k; k += t;
+                    }
+                }
+                Pass[] ps = new Pass[c];
+                for (int i = 0; i < c; ++i)
+                    ps[i] = new Pass(a, w, b + (int)((long)n * i / c),
+                                     b + (int)((long)n * (i + 1) / c),
+                                     s, counts[i]);
+                invokeAll(ps);
+                ArrayList<Sorter> buckets = new ArrayList<>();
+                for (int d = 0, k = 0; d < RADIX; k += total[d++]) {
+                    if (total[d] != 0)
+                        buckets.add(new Sorter(a, w, b + k, total[d], wb + k,
+                                               s - RADIX_BITS, g, chunks, true));
+                }
+                invokeAll(buckets);
+            }
+        }
+
+        /**
+         * Counts the digits of a chunk, or if w is non-null, moves
+         * the chunk into w at the bucket offsets held in count.
+         */
+        static final class Pass extends RecursiveAction {
+            static final long serialVersionUID = 2446542900576103244L;
+            final double[] a, w;
+            final int lo, hi, shift;
+            final int[] count;
+            Pass(double[] a, double[] w, int lo, int hi, int shift, int[] count) {
+                this.a = a; this.w = w; this.lo = lo; this.hi = hi;
+                this.shift = shift; this.count = count;
+            }
+            public final void compute() {
+                double[] a = this.a, w = this.w; // localize all params
+                int lo = this.lo, hi = this.hi, s = this.shift;
+                int[] count = this.count;
+                if (w == null) {
+                    for (int i = lo; i < hi; ++i)
+                        ++count[(int)(key(a[i]) >>> s) & 0xFF];
+                }
+                else {
+                    for (int i = lo; i < hi; ++i) {
+                        double v = a[i];
+                        w[count[(int)(key(v) >>> s) & 0xFF]++] = v;
+                    }
+                }
+            }
+        }
+
+        /** Maps a double to a key whose unsigned order is Double.compare order. */
+        static long key(double d) {
+            long bits = Double.doubleToLongBits(d); // collapses NaNs
+            return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+        }
+    } // FJDoubleRadix
+
 }
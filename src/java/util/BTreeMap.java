@@ -0,0 +1,1800 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A B+tree based {@link NavigableMap} implementation. The map is sorted
+ * according to the {@linkplain Comparable natural ordering} of its keys,
+ * or by a {@link Comparator} provided at map creation time, depending on
+ * which constructor is used.
+ *
+ * <p>Keys and values are kept in wide array nodes rather than in one
+ * linked entry object per mapping: every leaf holds up to 64 keys and
+ * values in two parallel arrays, and the leaves are chained in key order.
+ * Lookups binary search a few nodes instead of chasing a pointer per
+ * comparison, and iteration, including over {@code subMap}, {@code
+ * headMap} and {@code tailMap} views, walks the arrays of consecutive
+ * leaves. Keys inserted in ascending order, as in a time series, leave
+ * the leaves full; random insertion leaves them about 70% full. Either
+ * way the map uses considerably less memory than a {@link TreeMap}.
+ *
+ * <p>This implementation provides guaranteed log(n) time cost for the
+ * {@code containsKey}, {@code get}, {@code put} and {@code remove}
+ * operations. Inserting or removing a mapping shifts up to 64 array
+ * slots, so for small maps with frequent updates a {@code TreeMap} may
+ * be faster.
+ *
+ * <p>As with {@code TreeMap}, the ordering must be <em>consistent with
+ * {@code equals}</em> if this sorted map is to correctly implement the
+ * {@code Map} interface.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <em>must</em> be synchronized
+ * externally. (A structural modification is any operation that adds or
+ * deletes one or more mappings; merely changing the value associated
+ * with an existing key is not a structural modification.)
+ *
+ * <p>The iterators returned by the {@code iterator} method of the
+ * collections returned by all of this class's "collection view methods"
+ * are <em>fail-fast</em>, as described for {@code TreeMap}.
+ *
+ * <p>All {@code Map.Entry} pairs returned by the navigation methods of
+ * this class and its views represent snapshots of mappings at the time
+ * they were produced, and do not support the {@code Entry.setValue}
+ * method. Entries returned by entry set iterators do support it, for
+ * as long as their key remains in the map.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see TreeMap
+ * @see LongBTreeMap
+ */
+public class BTreeMap<K,V>
+    extends AbstractMap<K,V>
+    implements NavigableMap<K,V>, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = 3516209254377316742L;
+
+    /**
+     * The maximum number of mappings in a leaf, and of children of an
+     * inner node.
+     */
+    static final int ORDER = 64;
+
+    /**
+     * The number of mappings or children below which a node, other
+     * than the root, is merged with or refilled from a sibling.
+     */
+    static final int MIN_SIZE = ORDER / 2;
+
+    /**
+     * The comparator used to maintain order in this map, or null if
+     * it uses the natural ordering of its keys.
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    /**
+     * The root node, null if the map is empty.
+     */
+    private transient Node root;
+
+    /**
+     * The number of inner levels above the leaves.
+     */
+    private transient int height;
+
+    /**
+     * The first and last leaves of the leaf chain.
+     */
+    private transient Leaf head, tail;
+
+    /**
+     * The number of mappings in the map.
+     */
+    private transient int size;
+
+    /**
+     * The number of structural modifications to the map.
+     */
+    private transient int modCount;
+
+    /**
+     * The inner nodes, and the child indexes taken in them, on the
+     * path of the current put or remove; kept to avoid allocating a
+     * path on every update.
+     */
+    private transient Inner[] pathNodes;
+    private transient int[] pathIndexes;
+
+    private transient EntrySet entrySet;
+    private transient KeySet<K> navigableKeySet;
+    private transient NavigableMap<K,V> descendingMap;
+
+    /**
+     * Constructs a new, empty map, sorted according to the natural
+     * ordering of its keys. All keys inserted into the map must
+     * implement the {@link Comparable} interface and be mutually
+     * comparable.
+     */
+    public BTreeMap() {
+        comparator = null;
+    }
+
+    /**
+     * Constructs a new, empty map, sorted according to the given
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this
+     *        map. If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public BTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given
+     * map, sorted according to the natural ordering of its keys.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in m are not {@link Comparable},
+     *         or are not mutually comparable
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(Map<? extends K, ? extends V> m) {
+        comparator = null;
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the
+     * same ordering as the specified sorted map.
+     *
+     * @param  m the sorted map whose mappings are to be placed in this
+     *         map, and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(SortedMap<K, ? extends V> m) {
+        comparator = m.comparator();
+        putAll(m);
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * A node of the tree. In a leaf, keys holds the keys of its
+     * mappings in order. In an inner node, keys[i] for i > 0 is a
+     * separator: no key in children[i - 1] is greater than or equal
+     * to it, and no key in children[i] or later children is less than
+     * it. keys[0] of an inner node is unused.
+     */
+    static class Node {
+        final Object[] keys = new Object[ORDER];
+        int size;
+    }
+
+    /** A leaf, holding mappings, chained to its neighbours. */
+    static final class Leaf extends Node {
+        final Object[] vals = new Object[ORDER];
+        Leaf prev, next;
+    }
+
+    /** An inner node, holding children. */
+    static final class Inner extends Node {
+        final Node[] children = new Node[ORDER];
+    }
+
+    /**
+     * The position of a mapping: a leaf and an index into it.
+     */
+    static final class Pos {
+        final Leaf leaf;
+        final int index;
+        Pos(Leaf leaf, int index) {
+            this.leaf = leaf;
+            this.index = index;
+        }
+        Object key() { return leaf.keys[index]; }
+    }
+
+    /* ---------------- Searching -------------- */
+
+    /**
+     * Compares two keys using the correct comparison method for this map.
+     */
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return comparator == null ? ((Comparable<? super K>)k1).compareTo((K)k2)
+            : comparator.compare((K)k1, (K)k2);
+    }
+
+    /**
+     * Returns the index of the key in the leaf, or (-(insertion point) - 1)
+     * if it is absent, like {@link Arrays#binarySearch(Object[], Object)}.
+     */
+    @SuppressWarnings("unchecked")
+    final int indexOf(Leaf leaf, Object key) {
+        Object[] keys = leaf.keys;
+        int lo = 0, hi = leaf.size - 1;
+        Comparator<? super K> cpr = comparator;
+        if (cpr != null) {
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = cpr.compare((K)keys[mid], (K)key);
+                if (c < 0)
+                    lo = mid + 1;
+                else if (c > 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        else {
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = k.compareTo((K)keys[mid]);
+                if (c > 0)
+                    lo = mid + 1;
+                else if (c < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the index of the child of the inner node whose subtree
+     * may contain the key.
+     */
+    @SuppressWarnings("unchecked")
+    final int childIndex(Inner node, Object key) {
+        Object[] keys = node.keys;
+        int lo = 1, hi = node.size - 1;
+        Comparator<? super K> cpr = comparator;
+        if (cpr != null) {
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cpr.compare((K)keys[mid], (K)key) <= 0)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+        }
+        else {
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (k.compareTo((K)keys[mid]) >= 0)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+        }
+        return lo - 1;
+    }
+
+    /**
+     * Returns the leaf that holds the key if it is present. The map
+     * must not be empty.
+     */
+    final Leaf leafFor(Object key) {
+        Node x = root;
+        for (int h = height; h > 0; --h) {
+            Inner in = (Inner)x;
+            x = in.children[childIndex(in, key)];
+        }
+        return (Leaf)x;
+    }
+
+    /*
+     * Relations for find.
+     */
+    static final int CEILING = 0;
+    static final int HIGHER  = 1;
+    static final int FLOOR   = 2;
+    static final int LOWER   = 3;
+
+    /**
+     * Returns the position of the least key greater than or equal to
+     * (CEILING), or greater than (HIGHER), the given key, or of the
+     * greatest key less than or equal to (FLOOR), or less than (LOWER)
+     * it; or null if there is no such key.
+     */
+    final Pos find(Object key, int rel) {
+        if (root == null)
+            return null;
+        Leaf leaf = leafFor(key);
+        int i = indexOf(leaf, key);
+        switch (rel) {
+        case CEILING: i = (i >= 0) ? i : -(i + 1);     break;
+        case HIGHER:  i = (i >= 0) ? i + 1 : -(i + 1); break;
+        case FLOOR:   i = (i >= 0) ? i : -(i + 1) - 1; break;
+        default:      i = (i >= 0) ? i - 1 : -(i + 1) - 1;
+        }
+        // The key sought is in this leaf or at the near end of a neighbour
+        if (i >= leaf.size) {
+            leaf = leaf.next;
+            i = 0;
+        }
+        else if (i < 0) {
+            leaf = leaf.prev;
+            i = (leaf == null) ? 0 : leaf.size - 1;
+        }
+        return (leaf == null) ? null : new Pos(leaf, i);
+    }
+
+    final Pos firstPos() {
+        return (head == null) ? null : new Pos(head, 0);
+    }
+
+    final Pos lastPos() {
+        return (tail == null) ? null : new Pos(tail, tail.size - 1);
+    }
+
+    /**
+     * Returns a snapshot entry for the position, or null if it is null.
+     */
+    @SuppressWarnings("unchecked")
+    static <K,V> Map.Entry<K,V> exportEntry(Pos p) {
+        return (p == null) ? null :
+            new AbstractMap.SimpleImmutableEntry<>((K)p.leaf.keys[p.index],
+                                                   (V)p.leaf.vals[p.index]);
+    }
+
+    /**
+     * Returns the key at the position, or null if it is null.
+     */
+    @SuppressWarnings("unchecked")
+    static <K> K keyOrNull(Pos p) {
+        return (p == null) ? null : (K)p.key();
+    }
+
+    /**
+     * Returns the key at the position.
+     *
+     * @throws NoSuchElementException if the position is null
+     */
+    @SuppressWarnings("unchecked")
+    static <K> K key(Pos p) {
+        if (p == null)
+            throw new NoSuchElementException();
+        return (K)p.key();
+    }
+
+    /* ---------------- Query Operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the
+     *         specified key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public boolean containsKey(Object key) {
+        if (key == null && comparator == null)
+            throw new NullPointerException();
+        return root != null && indexOf(leafFor(key), key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value. This operation requires time linear in the map
+     * size.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     */
+    public boolean containsValue(Object value) {
+        for (Leaf l = head; l != null; l = l.next) {
+            Object[] vals = l.vals;
+            for (int i = 0, n = l.size; i < n; ++i) {
+                if (Objects.equals(value, vals[i]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null && comparator == null)
+            throw new NullPointerException();
+        if (root == null)
+            return null;
+        Leaf leaf = leafFor(key);
+        int i = indexOf(leaf, key);
+        return (i >= 0) ? (V)leaf.vals[i] : null;
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(firstPos());
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(lastPos());
+    }
+
+    /* ---------------- Updates -------------- */
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (root == null) {
+            compare(key, key); // type (and possibly null) check
+            Leaf leaf = new Leaf();
+            leaf.keys[0] = key;
+            leaf.vals[0] = value;
+            leaf.size = 1;
+            root = head = tail = leaf;
+            size = 1;
+            modCount++;
+            return null;
+        }
+        int h = height;
+        Inner[] path = pathNodes;
+        int[] idx = pathIndexes;
+        if (path == null || path.length < h) {
+            pathNodes = path = new Inner[h + 1];
+            pathIndexes = idx = new int[h + 1];
+        }
+        Node x = root;
+        for (int level = 0; level < h; ++level) {
+            Inner in = (Inner)x;
+            int ci = childIndex(in, key);
+            path[level] = in;
+            idx[level] = ci;
+            x = in.children[ci];
+        }
+        Leaf leaf = (Leaf)x;
+        int i = indexOf(leaf, key);
+        if (i >= 0) {
+            Arrays.fill(path, 0, h, null);
+            V oldValue = (V)leaf.vals[i];
+            leaf.vals[i] = value;
+            return oldValue;
+        }
+        i = -(i + 1);
+        modCount++;
+        size++;
+        if (leaf.size < ORDER) {
+            insertAt(leaf, i, key, value);
+            Arrays.fill(path, 0, h, null);
+            return null;
+        }
+
+        // Split the leaf, keeping it full when appending to the last one
+        Leaf right = splitLeaf(leaf, (i == ORDER && leaf.next == null) ?
+                               ORDER : ORDER / 2);
+        if (i < leaf.size || (i == leaf.size && i < ORDER))
+            insertAt(leaf, i, key, value);
+        else
+            insertAt(right, i - leaf.size, key, value);
+        Node child = right;
+        Object sep = right.keys[0];
+        for (int level = h - 1; level >= 0; --level) {
+            Inner p = path[level];
+            int ci = idx[level] + 1;
+            path[level] = null;
+            if (p.size < ORDER) {
+                insertChild(p, ci, sep, child);
+                Arrays.fill(path, 0, level, null);
+                return null;
+            }
+            Inner pr = splitInner(p);
+            if (ci <= p.size)
+                insertChild(p, ci, sep, child);
+            else
+                insertChild(pr, ci - p.size, sep, child);
+            sep = pr.keys[0];
+            pr.keys[0] = null;
+            child = pr;
+        }
+        Inner newRoot = new Inner();
+        newRoot.children[0] = root;
+        newRoot.children[1] = child;
+        newRoot.keys[1] = sep;
+        newRoot.size = 2;
+        root = newRoot;
+        height = h + 1;
+        return null;
+    }
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (key == null && comparator == null)
+            throw new NullPointerException();
+        if (root == null)
+            return null;
+        int h = height;
+        Inner[] path = pathNodes;
+        int[] idx = pathIndexes;
+        if (path == null || path.length < h) {
+            pathNodes = path = new Inner[h + 1];
+            pathIndexes = idx = new int[h + 1];
+        }
+        Node x = root;
+        for (int level = 0; level < h; ++level) {
+            Inner in = (Inner)x;
+            int ci = childIndex(in, key);
+            path[level] = in;
+            idx[level] = ci;
+            x = in.children[ci];
+        }
+        Leaf leaf = (Leaf)x;
+        int i = indexOf(leaf, key);
+        if (i < 0) {
+            Arrays.fill(path, 0, h, null);
+            return null;
+        }
+        V oldValue = (V)leaf.vals[i];
+        modCount++;
+        if (--size == 0) {
+            height = 0;
+            root = head = tail = null;
+            return oldValue;
+        }
+        removeAt(leaf, i);
+        Node child = leaf;
+        for (int level = h - 1; level >= 0 && child.size < MIN_SIZE; --level) {
+            fixUnderflow(path[level], idx[level], level == h - 1);
+            child = path[level];
+        }
+        Arrays.fill(path, 0, h, null);
+        while (height > 0 && root.size == 1) {
+            root = ((Inner)root).children[0];
+            --height;
+        }
+        return oldValue;
+    }
+
+    /**
+     * Replaces the value of the key if it is present, without changing
+     * the structure of the map.
+     *
+     * @return true if the key was present
+     */
+    final boolean setValue(Object key, Object value) {
+        if (root == null)
+            return false;
+        Leaf leaf = leafFor(key);
+        int i = indexOf(leaf, key);
+        if (i < 0)
+            return false;
+        leaf.vals[i] = value;
+        return true;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+        height = 0;
+        root = head = tail = null;
+    }
+
+    /* ---------------- Node surgery -------------- */
+
+    private static void insertAt(Leaf leaf, int i, Object key, Object value) {
+        int n = leaf.size;
+        if (i < n) {
+            System.arraycopy(leaf.keys, i, leaf.keys, i + 1, n - i);
+            System.arraycopy(leaf.vals, i, leaf.vals, i + 1, n - i);
+        }
+        leaf.keys[i] = key;
+        leaf.vals[i] = value;
+        leaf.size = n + 1;
+    }
+
+    private static void removeAt(Leaf leaf, int i) {
+        int n = leaf.size - 1;
+        if (i < n) {
+            System.arraycopy(leaf.keys, i + 1, leaf.keys, i, n - i);
+            System.arraycopy(leaf.vals, i + 1, leaf.vals, i, n - i);
+        }
+        leaf.keys[n] = null;
+        leaf.vals[n] = null;
+        leaf.size = n;
+    }
+
+    private static void insertChild(Inner node, int i, Object sep, Node child) {
+        int n = node.size;
+        if (i < n) {
+            System.arraycopy(node.keys, i, node.keys, i + 1, n - i);
+            System.arraycopy(node.children, i, node.children, i + 1, n - i);
+        }
+        node.keys[i] = sep;
+        node.children[i] = child;
+        node.size = n + 1;
+    }
+
+    private static void removeChild(Inner node, int i) {
+        int n = node.size - 1;
+        if (i < n) {
+            System.arraycopy(node.keys, i + 1, node.keys, i, n - i);
+            System.arraycopy(node.children, i + 1, node.children, i, n - i);
+        }
+        node.keys[n] = null;
+        node.children[n] = null;
+        node.size = n;
+    }
+
+    /**
+     * Moves the mappings of a full leaf from index keep on into a new
+     * leaf linked after it, and returns the new leaf.
+     */
+    private Leaf splitLeaf(Leaf leaf, int keep) {
+        Leaf right = new Leaf();
+        int n = leaf.size - keep;
+        System.arraycopy(leaf.keys, keep, right.keys, 0, n);
+        System.arraycopy(leaf.vals, keep, right.vals, 0, n);
+        Arrays.fill(leaf.keys, keep, leaf.size, null);
+        Arrays.fill(leaf.vals, keep, leaf.size, null);
+        right.size = n;
+        leaf.size = keep;
+        Leaf next = leaf.next;
+        right.prev = leaf;
+        right.next = next;
+        leaf.next = right;
+        if (next != null)
+            next.prev = right;
+        else
+            tail = right;
+        return right;
+    }
+
+    /**
+     * Moves the upper half of the children of a full inner node into a
+     * new node, and returns it. The separator between the two nodes is
+     * left in keys[0] of the new node.
+     */
+    private static Inner splitInner(Inner node) {
+        Inner right = new Inner();
+        int keep = ORDER / 2, n = node.size - keep;
+        System.arraycopy(node.keys, keep, right.keys, 0, n);
+        System.arraycopy(node.children, keep, right.children, 0, n);
+        Arrays.fill(node.keys, keep, node.size, null);
+        Arrays.fill(node.children, keep, node.size, null);
+        right.size = n;
+        node.size = keep;
+        return right;
+    }
+
+    /**
+     * Restores the minimum size of child ci of the parent, by merging
+     * it with a sibling if both fit in one node, and otherwise by
+     * evening out the two.
+     */
+    private void fixUnderflow(Inner parent, int ci, boolean leaves) {
+        int li = (ci > 0) ? ci - 1 : ci;
+        Node a = parent.children[li], b = parent.children[li + 1];
+        if (a.size + b.size <= ORDER) {
+            if (leaves)
+                mergeLeaves((Leaf)a, (Leaf)b);
+            else
+                mergeInner((Inner)a, (Inner)b, parent.keys[li + 1]);
+            removeChild(parent, li + 1);
+        }
+        else if (leaves)
+            parent.keys[li + 1] = balanceLeaves((Leaf)a, (Leaf)b);
+        else
+            parent.keys[li + 1] = balanceInner((Inner)a, (Inner)b,
+                                               parent.keys[li + 1]);
+    }
+
+    private void mergeLeaves(Leaf a, Leaf b) {
+        int n = a.size;
+        System.arraycopy(b.keys, 0, a.keys, n, b.size);
+        System.arraycopy(b.vals, 0, a.vals, n, b.size);
+        a.size = n + b.size;
+        Leaf next = b.next;
+        a.next = next;
+        if (next != null)
+            next.prev = a;
+        else
+            tail = a;
+    }
+
+    private static void mergeInner(Inner a, Inner b, Object sep) {
+        int n = a.size;
+        a.keys[n] = sep;
+        a.children[n] = b.children[0];
+        System.arraycopy(b.keys, 1, a.keys, n + 1, b.size - 1);
+        System.arraycopy(b.children, 1, a.children, n + 1, b.size - 1);
+        a.size = n + b.size;
+    }
+
+    /**
+     * Moves mappings between adjacent leaves so that each holds half,
+     * and returns the new separator.
+     */
+    private static Object balanceLeaves(Leaf a, Leaf b) {
+        int total = a.size + b.size, na = total >>> 1;
+        if (a.size < na) {
+            int k = na - a.size;
+            System.arraycopy(b.keys, 0, a.keys, a.size, k);
+            System.arraycopy(b.vals, 0, a.vals, a.size, k);
+            System.arraycopy(b.keys, k, b.keys, 0, b.size - k);
+            System.arraycopy(b.vals, k, b.vals, 0, b.size - k);
+            Arrays.fill(b.keys, b.size - k, b.size, null);
+            Arrays.fill(b.vals, b.size - k, b.size, null);
+        }
+        else {
+            int k = a.size - na;
+            System.arraycopy(b.keys, 0, b.keys, k, b.size);
+            System.arraycopy(b.vals, 0, b.vals, k, b.size);
+            System.arraycopy(a.keys, na, b.keys, 0, k);
+            System.arraycopy(a.vals, na, b.vals, 0, k);
+            Arrays.fill(a.keys, na, a.size, null);
+            Arrays.fill(a.vals, na, a.size, null);
+        }
+        a.size = na;
+        b.size = total - na;
+        return b.keys[0];
+    }
+
+    /**
+     * Moves children between adjacent inner nodes, rotating separators
+     * through the parent, so that each holds half, and returns the new
+     * separator.
+     */
+    private static Object balanceInner(Inner a, Inner b, Object sep) {
+        int total = a.size + b.size, na = total >>> 1;
+        Object newSep;
+        if (a.size < na) {
+            int k = na - a.size;
+            a.keys[a.size] = sep;
+            a.children[a.size] = b.children[0];
+            System.arraycopy(b.keys, 1, a.keys, a.size + 1, k - 1);
+            System.arraycopy(b.children, 1, a.children, a.size + 1, k - 1);
+            newSep = b.keys[k];
+            System.arraycopy(b.keys, k, b.keys, 0, b.size - k);
+            System.arraycopy(b.children, k, b.children, 0, b.size - k);
+            Arrays.fill(b.keys, b.size - k, b.size, null);
+            Arrays.fill(b.children, b.size - k, b.size, null);
+            b.keys[0] = null;
+        }
+        else {
+            int k = a.size - na;
+            System.arraycopy(b.keys, 0, b.keys, k, b.size);
+            System.arraycopy(b.children, 0, b.children, k, b.size);
+            b.keys[k] = sep;
+            System.arraycopy(a.keys, na, b.keys, 0, k);
+            System.arraycopy(a.children, na, b.children, 0, k);
+            newSep = b.keys[0];
+            b.keys[0] = null;
+            Arrays.fill(a.keys, na, a.size, null);
+            Arrays.fill(a.children, na, a.size, null);
+        }
+        a.size = na;
+        b.size = total - na;
+        return newSep;
+    }
+
+    /* ---------------- NavigableMap API methods -------------- */
+
+    public Map.Entry<K,V> firstEntry() {
+        return exportEntry(firstPos());
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return exportEntry(lastPos());
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        Map.Entry<K,V> e = exportEntry(firstPos());
+        if (e != null)
+            remove(e.getKey());
+        return e;
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        Map.Entry<K,V> e = exportEntry(lastPos());
+        if (e != null)
+            remove(e.getKey());
+        return e;
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return exportEntry(find(key, LOWER));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(find(key, LOWER));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return exportEntry(find(key, FLOOR));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K floorKey(K key) {
+        return keyOrNull(find(key, FLOOR));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return exportEntry(find(key, CEILING));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(find(key, CEILING));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return exportEntry(find(key, HIGHER));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K higherKey(K key) {
+        return keyOrNull(find(key, HIGHER));
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map, in
+     * ascending order. See {@link TreeMap#keySet} for the semantics of
+     * the view.
+     */
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> nks = navigableKeySet;
+        return (nks != null) ? nks : (navigableKeySet = new KeySet<>(this));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, in the ascending order of their keys.
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new AbstractCollection<V>() {
+                public Iterator<V> iterator() {
+                    return new ValueIterator(firstPos(), null, false);
+                }
+                public int size() { return BTreeMap.this.size(); }
+                public boolean contains(Object o) { return containsValue(o); }
+                public void clear() { BTreeMap.this.clear(); }
+            };
+            values = vs;
+        }
+        return vs;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map,
+     * in ascending key order.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet());
+    }
+
+    public NavigableMap<K, V> descendingMap() {
+        NavigableMap<K, V> km = descendingMap;
+        return (km != null) ? km :
+            (descendingMap = new SubMap<>(this,
+                                          true, null, true,
+                                          true, null, true, true));
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, fromInclusive,
+                            false, toKey,   toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            true,  null,  true,
+                            false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, inclusive,
+                            true,  null,    true, false);
+    }
+
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (Leaf l = head; l != null; l = l.next) {
+            Object[] keys = l.keys, vals = l.vals;
+            for (int i = 0, n = l.size; i < n; ++i)
+                action.accept((K)keys[i], (V)vals[i]);
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        int expectedModCount = modCount;
+        for (Leaf l = head; l != null; l = l.next) {
+            Object[] keys = l.keys, vals = l.vals;
+            for (int i = 0, n = l.size; i < n; ++i)
+                vals[i] = function.apply((K)keys[i], (V)vals[i]);
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    Iterator<K> keyIterator() {
+        return new KeyIterator(firstPos(), null, false);
+    }
+
+    Iterator<K> descendingKeyIterator() {
+        return new KeyIterator(lastPos(), null, true);
+    }
+
+    /**
+     * Returns the number of mappings from the position up to, but not
+     * including, the fence, or to the end if the fence is null.
+     */
+    static int countBetween(Pos from, Pos fence) {
+        if (from == null)
+            return 0;
+        Leaf end = (fence == null) ? null : fence.leaf;
+        int count = -from.index;
+        for (Leaf l = from.leaf; l != end; l = l.next)
+            count += l.size;
+        return (fence == null) ? count : count + fence.index;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code BTreeMap} instance. (The keys
+     * and values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        BTreeMap<K,V> clone;
+        try {
+            clone = (BTreeMap<K,V>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        clone.root = clone.head = clone.tail = null;
+        clone.height = clone.size = clone.modCount = 0;
+        clone.pathNodes = null;
+        clone.pathIndexes = null;
+        clone.entrySet = null;
+        clone.navigableKeySet = null;
+        clone.descendingMap = null;
+        for (Leaf l = head; l != null; l = l.next) {
+            for (int i = 0, n = l.size; i < n; ++i)
+                clone.put((K)l.keys[i], (V)l.vals[i]);
+        }
+        return clone;
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    /**
+     * Base class for iterators. An iterator walks the leaf chain from a
+     * position in either direction and stops at a fence position, if
+     * any. Its remove method removes the last key through the map and
+     * then looks the next position and the fence up again, since the
+     * removal may have moved mappings between leaves.
+     */
+    abstract class PrivateIterator<T> implements Iterator<T> {
+        final boolean descending;
+        Leaf leaf;          // next leaf, null when exhausted
+        int index;          // next index in leaf
+        Leaf fenceLeaf;     // position to stop at, if fenced
+        int fenceIndex;
+        Object fenceKey;
+        final boolean fenced;
+        Object lastKey;
+        boolean canRemove;
+        int expectedModCount;
+
+        PrivateIterator(Pos first, Pos fence, boolean descending) {
+            this.descending = descending;
+            this.expectedModCount = modCount;
+            if (first != null) {
+                leaf = first.leaf;
+                index = first.index;
+            }
+            if (fenced = (fence != null)) {
+                fenceLeaf = fence.leaf;
+                fenceIndex = fence.index;
+                fenceKey = fence.key();
+                if (leaf == fenceLeaf && index == fenceIndex)
+                    leaf = null;
+            }
+        }
+
+        public final boolean hasNext() {
+            return leaf != null;
+        }
+
+        /**
+         * Advances past the next position and returns its index in
+         * the leaf that was current.
+         */
+        final int advance() {
+            if (leaf == null)
+                throw new NoSuchElementException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Leaf l = leaf;
+            int i = index;
+            lastKey = l.keys[i];
+            canRemove = true;
+            if (!descending) {
+                if (++index == l.size) {
+                    leaf = l.next;
+                    index = 0;
+                }
+            }
+            else if (--index < 0) {
+                leaf = l.prev;
+                index = (leaf == null) ? 0 : leaf.size - 1;
+            }
+            if (leaf == fenceLeaf && index == fenceIndex)
+                leaf = null;
+            return i;
+        }
+
+        public final void remove() {
+            if (!canRemove)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            boolean exhausted = (leaf == null);
+            BTreeMap.this.remove(lastKey);
+            expectedModCount = modCount;
+            canRemove = false;
+            if (!exhausted) {
+                Pos p = find(lastKey, descending ? LOWER : HIGHER);
+                leaf = p.leaf;
+                index = p.index;
+            }
+            if (fenced) {
+                Pos f = find(fenceKey, CEILING);
+                fenceLeaf = f.leaf;
+                fenceIndex = f.index;
+            }
+            lastKey = null;
+        }
+    }
+
+    final class EntryIterator extends PrivateIterator<Map.Entry<K,V>> {
+        EntryIterator(Pos first, Pos fence, boolean descending) {
+            super(first, fence, descending);
+        }
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K,V> next() {
+            Leaf l = leaf;
+            int i = advance();
+            return new IteratorEntry((K)l.keys[i], (V)l.vals[i]);
+        }
+    }
+
+    final class KeyIterator extends PrivateIterator<K> {
+        KeyIterator(Pos first, Pos fence, boolean descending) {
+            super(first, fence, descending);
+        }
+        @SuppressWarnings("unchecked")
+        public K next() {
+            Leaf l = leaf;
+            return (K)l.keys[advance()];
+        }
+    }
+
+    final class ValueIterator extends PrivateIterator<V> {
+        ValueIterator(Pos first, Pos fence, boolean descending) {
+            super(first, fence, descending);
+        }
+        @SuppressWarnings("unchecked")
+        public V next() {
+            Leaf l = leaf;
+            return (V)l.vals[advance()];
+        }
+    }
+
+    /**
+     * An entry returned by an entry set iterator, whose setValue writes
+     * through to the map while its key is still present.
+     */
+    final class IteratorEntry extends AbstractMap.SimpleEntry<K,V> {
+        private static final long serialVersionUID = -2367194563410263725L;
+        IteratorEntry(K key, V value) {
+            super(key, value);
+        }
+        public V setValue(V value) {
+            BTreeMap.this.setValue(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator(firstPos(), null, false);
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object key = entry.getKey();
+            if (root == null || (key == null && comparator == null))
+                return false;
+            Leaf leaf = leafFor(key);
+            int i = indexOf(leaf, key);
+            return i >= 0 && Objects.equals(leaf.vals[i], entry.getValue());
+        }
+
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            BTreeMap.this.remove(((Map.Entry<?,?>) o).getKey());
+            return true;
+        }
+
+        public int size() {
+            return BTreeMap.this.size();
+        }
+
+        public void clear() {
+            BTreeMap.this.clear();
+        }
+    }
+
+    /* ---------------- Key set -------------- */
+
+    /**
+     * The navigable key set of a BTreeMap or of one of its sub maps.
+     */
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final NavigableMap<E, ?> m;
+        KeySet(NavigableMap<E,?> map) { m = map; }
+
+        public Iterator<E> iterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).keyIterator();
+            else
+                return ((SubMap<E,?>)m).keyIterator();
+        }
+
+        public Iterator<E> descendingIterator() {
+            if (m instanceof BTreeMap)
+                return ((BTreeMap<E,?>)m).descendingKeyIterator();
+            else
+                return ((SubMap<E,?>)m).descendingKeyIterator();
+        }
+
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public boolean remove(Object o) {
+            int oldSize = size();
+            m.remove(o);
+            return size() != oldSize;
+        }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return new KeySet<>(m.subMap(fromElement, fromInclusive,
+                                          toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(m.tailMap(fromElement, inclusive));
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(m.descendingMap());
+        }
+    }
+
+    /* ---------------- Sub maps -------------- */
+
+    /**
+     * A view of a key range of a BTreeMap, in ascending or descending
+     * order. Bounds follow TreeMap.NavigableSubMap: the abs* methods
+     * navigate in the order of the backing map, and the sub* methods
+     * translate them for descending views.
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V> {
+        final BTreeMap<K,V> m;
+        final K lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+        final boolean descending;
+
+        private transient KeySet<K> navigableKeySetView;
+        private transient Set<Map.Entry<K,V>> entrySetView;
+
+        SubMap(BTreeMap<K,V> m,
+               boolean fromStart, K lo, boolean loInclusive,
+               boolean toEnd,     K hi, boolean hiInclusive,
+               boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (m.compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    m.compare(lo, lo);
+                if (!toEnd)
+                    m.compare(hi, hi);
+            }
+            this.m = m;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        /* Range checks */
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        final boolean inClosedRange(Object key) {
+            return (fromStart || m.compare(key, lo) >= 0)
+                && (toEnd || m.compare(hi, key) >= 0);
+        }
+
+        final boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        /* Absolute versions of relation operations */
+
+        final Pos absLowest() {
+            Pos p = fromStart ? m.firstPos() :
+                m.find(lo, loInclusive ? CEILING : HIGHER);
+            return (p == null || tooHigh(p.key())) ? null : p;
+        }
+
+        final Pos absHighest() {
+            Pos p = toEnd ? m.lastPos() :
+                m.find(hi, hiInclusive ? FLOOR : LOWER);
+            return (p == null || tooLow(p.key())) ? null : p;
+        }
+
+        final Pos absCeiling(K key) {
+            if (tooLow(key))
+                return absLowest();
+            Pos p = m.find(key, CEILING);
+            return (p == null || tooHigh(p.key())) ? null : p;
+        }
+
+        final Pos absHigher(K key) {
+            if (tooLow(key))
+                return absLowest();
+            Pos p = m.find(key, HIGHER);
+            return (p == null || tooHigh(p.key())) ? null : p;
+        }
+
+        final Pos absFloor(K key) {
+            if (tooHigh(key))
+                return absHighest();
+            Pos p = m.find(key, FLOOR);
+            return (p == null || tooLow(p.key())) ? null : p;
+        }
+
+        final Pos absLower(K key) {
+            if (tooHigh(key))
+                return absHighest();
+            Pos p = m.find(key, LOWER);
+            return (p == null || tooLow(p.key())) ? null : p;
+        }
+
+        /** Returns the position just past the range, or null. */
+        final Pos absHighFence() {
+            return toEnd ? null : m.find(hi, hiInclusive ? HIGHER : CEILING);
+        }
+
+        /** Returns the position just before the range, or null. */
+        final Pos absLowFence() {
+            return fromStart ? null : m.find(lo, loInclusive ? LOWER : FLOOR);
+        }
+
+        /* Relation operations in the order of this view */
+
+        final Pos subLowest()        { return descending ? absHighest() : absLowest(); }
+        final Pos subHighest()       { return descending ? absLowest() : absHighest(); }
+        final Pos subCeiling(K key)  { return descending ? absFloor(key) : absCeiling(key); }
+        final Pos subHigher(K key)   { return descending ? absLower(key) : absHigher(key); }
+        final Pos subFloor(K key)    { return descending ? absCeiling(key) : absFloor(key); }
+        final Pos subLower(K key)    { return descending ? absHigher(key) : absLower(key); }
+
+        Iterator<K> keyIterator() {
+            return descending ?
+                m.new KeyIterator(absHighest(), absLowFence(), true) :
+                m.new KeyIterator(absLowest(), absHighFence(), false);
+        }
+
+        Iterator<K> descendingKeyIterator() {
+            return descending ?
+                m.new KeyIterator(absLowest(), absHighFence(), false) :
+                m.new KeyIterator(absHighest(), absLowFence(), true);
+        }
+
+        /* Map methods */
+
+        public boolean isEmpty() {
+            return (fromStart && toEnd) ? m.isEmpty() : absLowest() == null;
+        }
+
+        public int size() {
+            return (fromStart && toEnd) ? m.size() :
+                countBetween(absLowest(), absHighFence());
+        }
+
+        public final boolean containsKey(Object key) {
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public final V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return m.put(key, value);
+        }
+
+        public final V get(Object key) {
+            return !inRange(key) ? null :  m.get(key);
+        }
+
+        public final V remove(Object key) {
+            return !inRange(key) ? null : m.remove(key);
+        }
+
+        public final Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(m.comparator()) :
+                m.comparator();
+        }
+
+        public final Map.Entry<K,V> ceilingEntry(K key) {
+            return exportEntry(subCeiling(key));
+        }
+
+        public final K ceilingKey(K key) {
+            return keyOrNull(subCeiling(key));
+        }
+
+        public final Map.Entry<K,V> higherEntry(K key) {
+            return exportEntry(subHigher(key));
+        }
+
+        public final K higherKey(K key) {
+            return keyOrNull(subHigher(key));
+        }
+
+        public final Map.Entry<K,V> floorEntry(K key) {
+            return exportEntry(subFloor(key));
+        }
+
+        public final K floorKey(K key) {
+            return keyOrNull(subFloor(key));
+        }
+
+        public final Map.Entry<K,V> lowerEntry(K key) {
+            return exportEntry(subLower(key));
+        }
+
+        public final K lowerKey(K key) {
+            return keyOrNull(subLower(key));
+        }
+
+        public final K firstKey() {
+            return key(subLowest());
+        }
+
+        public final K lastKey() {
+            return key(subHighest());
+        }
+
+        public final Map.Entry<K,V> firstEntry() {
+            return exportEntry(subLowest());
+        }
+
+        public final Map.Entry<K,V> lastEntry() {
+            return exportEntry(subHighest());
+        }
+
+        public final Map.Entry<K,V> pollFirstEntry() {
+            Map.Entry<K,V> e = exportEntry(subLowest());
+            if (e != null)
+                m.remove(e.getKey());
+            return e;
+        }
+
+        public final Map.Entry<K,V> pollLastEntry() {
+            Map.Entry<K,V> e = exportEntry(subHighest());
+            if (e != null)
+                m.remove(e.getKey());
+            return e;
+        }
+
+        /* Views */
+
+        public final NavigableSet<K> navigableKeySet() {
+            KeySet<K> nksv = navigableKeySetView;
+            return (nksv != null) ? nksv :
+                (navigableKeySetView = new KeySet<>(this));
+        }
+
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            Set<Map.Entry<K,V>> es = entrySetView;
+            if (es == null) {
+                es = new AbstractSet<Map.Entry<K,V>>() {
+                    public Iterator<Map.Entry<K,V>> iterator() {
+                        return descending ?
+                            m.new EntryIterator(absHighest(), absLowFence(), true) :
+                            m.new EntryIterator(absLowest(), absHighFence(), false);
+                    }
+                    public int size() { return SubMap.this.size(); }
+                    public boolean isEmpty() { return SubMap.this.isEmpty(); }
+                    public boolean contains(Object o) {
+                        if (!(o instanceof Map.Entry))
+                            return false;
+                        Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+                        Object key = entry.getKey();
+                        return inRange(key) && m.entrySet().contains(entry);
+                    }
+                    public boolean remove(Object o) {
+                        if (!contains(o))
+                            return false;
+                        m.remove(((Map.Entry<?,?>) o).getKey());
+                        return true;
+                    }
+                };
+                entrySetView = es;
+            }
+            return es;
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            return new SubMap<>(m,
+                                fromStart, lo, loInclusive,
+                                toEnd,     hi, hiInclusive, !descending);
+        }
+
+        public final NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                              K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return descending ?
+                new SubMap<>(m,
+                             false, toKey,   toInclusive,
+                             false, fromKey, fromInclusive, true) :
+                new SubMap<>(m,
+                             false, fromKey, fromInclusive,
+                             false, toKey,   toInclusive, false);
+        }
+
+        public final NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return descending ?
+                new SubMap<>(m,
+                             false, toKey, inclusive,
+                             toEnd, hi,    hiInclusive, true) :
+                new SubMap<>(m,
+                             fromStart, lo,    loInclusive,
+                             false,     toKey, inclusive, false);
+        }
+
+        public final NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            return descending ?
+                new SubMap<>(m,
+                             fromStart, lo,      loInclusive,
+                             false,     fromKey, inclusive, true) :
+                new SubMap<>(m,
+                             false, fromKey, inclusive,
+                             toEnd, hi,      hiInclusive, false);
+        }
+
+        public final SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public final SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public final SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves the state of the {@code BTreeMap} instance to a stream (i.e.,
+     * serializes it).
+     *
+     * @serialData The <em>size</em> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key (Object)
+     *             and value (Object) for each key-value mapping represented
+     *             by the map. The key-value mappings are emitted in
+     *             key-order (as determined by the map's Comparator,
+     *             or by the keys' natural ordering if the map has no
+     *             Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (Leaf l = head; l != null; l = l.next) {
+            for (int i = 0, n = l.size; i < n; ++i) {
+                s.writeObject(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes the {@code BTreeMap} instance from a stream (i.e.,
+     * deserializes it).
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0)
+            throw new java.io.InvalidObjectException("Illegal mappings count: " + n);
+        for (int i = 0; i < n; ++i)
+            put((K)s.readObject(), (V)s.readObject());
+    }
+}
@@ -29,6 +29,7 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.LongBuffer;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
@@ -1011,6 +1012,335 @@ public class BitSet implements Cloneable, java.io.Serializable {
         checkInvariants();
     }
 
+    /* ---------------- Bulk operations -------------- */
+
+    /*
+     * The methods below share two kernels.  combineWords computes a
+     * range of the words of "x op y" and reads and writes each index
+     * once, so the destination may be either operand.  combineAll
+     * folds any number of operands into a fresh array one block of
+     * words at a time, so that the block stays in cache while each
+     * operand streams through it: one pass over the result instead of
+     * one per operand.  The parallel variants hand ranges of
+     * PARALLEL_GRANULARITY words to the common pool.
+     */
+
+    private static final int AND = 0, OR = 1, XOR = 2, AND_NOT = 3;
+
+    /**
+     * The number of words combined at a time by combineAll.
+     */
+    private static final int COMBINE_BLOCK = 1 << 10;
+
+    /**
+     * The number of words at or below which a bulk operation is not
+     * split into parallel tasks, and the size of those tasks.
+     */
+    private static final int PARALLEL_GRANULARITY = 1 << 13;
+
+    /**
+     * Sets dst[from, to) to the words of x op y, where x and y have nx
+     * and ny words in use.  Words of dst past the longer operand must
+     * not be in [from, to), and for AND not past the shorter one.
+     */
+    private static void combineWords(int op, long[] x, int nx, long[] y, int ny,
+                                     long[] dst, int from, int to) {
+        int common = Math.max(from, Math.min(to, Math.min(nx, ny)));
+        int i = from;
+        switch (op) {
+        case AND:
+            for (; i < common; i++)
+                dst[i] = x[i] & y[i];
+            break;
+        case OR:
+            for (; i < common; i++)
+                dst[i] = x[i] | y[i];
+            break;
+        case XOR:
+            for (; i < common; i++)
+                dst[i] = x[i] ^ y[i];
+            break;
+        default:
+            for (; i < common; i++)
+                dst[i] = x[i] & ~y[i];
+            break;
+        }
+        // Only the longer operand has words left; for OR, XOR and
+        // AND_NOT they are copied unchanged
+        if (common < to)
+            System.arraycopy(nx > ny ? x : y, common, dst, common, to - common);
+    }
+
+    /**
+     * Sets this bit set to a op b, splitting the work over the common
+     * pool if parallel is true.
+     */
+    private void combine(int op, BitSet a, BitSet b, boolean parallel) {
+        int n = (op == AND) ? Math.min(a.wordsInUse, b.wordsInUse) :
+            (op == AND_NOT) ? a.wordsInUse : Math.max(a.wordsInUse, b.wordsInUse);
+        ensureCapacity(n);
+        // Read the arrays after ensureCapacity, which may replace this.words
+        long[] x = a.words, y = b.words, dst = words;
+        int nx = a.wordsInUse, ny = b.wordsInUse;
+        if (!parallel || n <= PARALLEL_GRANULARITY ||
+            ForkJoinPool.getCommonPoolParallelism() == 1)
+            combineWords(op, x, nx, y, ny, dst, 0, n);
+        else
+            IntStream.range(0, (n - 1) / PARALLEL_GRANULARITY + 1).parallel()
+                .forEach(c -> {
+                    int from = c * PARALLEL_GRANULARITY;
+                    combineWords(op, x, nx, y, ny, dst, from,
+                                 Math.min(n, from + PARALLEL_GRANULARITY));
+                });
+        if (wordsInUse > n)
+            Arrays.fill(words, n, wordsInUse, 0L);
+        wordsInUse = n;
+        recalculateWordsInUse();
+        checkInvariants();
+    }
+
+    /**
+     * Sets dst[from, to) to the OR, or the AND, of the given sets,
+     * dst being zero in that range on entry.  For AND, every set must
+     * have at least to words in use.
+     */
+    private static void combineAll(int op, BitSet[] sets, long[] dst,
+                                   int from, int to) {
+        for (int lo = from; lo < to; lo += COMBINE_BLOCK) {
+            int hi = Math.min(to, lo + COMBINE_BLOCK);
+            if (op == OR) {
+                for (BitSet s : sets) {
+                    long[] w = s.words;
+                    for (int i = lo, m = Math.min(hi, s.wordsInUse); i < m; i++)
+                        dst[i] |= w[i];
+                }
+            }
+            else {
+                System.arraycopy(sets[0].words, lo, dst, lo, hi - lo);
+                for (int k = 1; k < sets.length; k++) {
+                    long[] w = sets[k].words;
+                    long any = 0;
+                    for (int i = lo; i < hi; i++)
+                        any |= (dst[i] &= w[i]);
+                    if (any == 0)   // the rest of the sets cannot set a bit
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a new bit set holding the OR or AND of the given sets.
+     */
+    private static BitSet combineAll(int op, BitSet[] sets, boolean parallel) {
+        BitSet result = new BitSet();
+        if (sets.length == 0)
+            return result;
+        int words = sets[0].wordsInUse;
+        for (BitSet s : sets)
+            words = (op == OR) ? Math.max(words, s.wordsInUse) :
+                Math.min(words, s.wordsInUse);
+        int n = words;
+        long[] dst = new long[n];
+        if (!parallel || n <= PARALLEL_GRANULARITY ||
+            ForkJoinPool.getCommonPoolParallelism() == 1)
+            combineAll(op, sets, dst, 0, n);
+        else
+            IntStream.range(0, (n - 1) / PARALLEL_GRANULARITY + 1).parallel()
+                .forEach(c -> {
+                    int from = c * PARALLEL_GRANULARITY;
+                    combineAll(op, sets, dst, from,
+                               Math.min(n, from + PARALLEL_GRANULARITY));
+                });
+        result.words = dst;
+        result.wordsInUse = n;
+        result.recalculateWordsInUse();
+        result.checkInvariants();
+        return result;
+    }
+
+    /**
+     * Sets {@code result} to the logical <b>AND</b> of {@code a} and
+     * {@code b}, reusing the storage of {@code result}.  The outcome
+     * is the same as that of {@code result = (BitSet) a.clone();
+     * result.and(b)}, but without allocating a new bit set when
+     * {@code result} is large enough.  {@code result} may be the same
+     * object as {@code a} or {@code b}.
+     *
+     * @param a the first operand
+     * @param b the second operand
+     * @param result the bit set to receive the result
+     */
+    public static void and(BitSet a, BitSet b, BitSet result) {
+        result.combine(AND, a, b, false);
+    }
+
+    /**
+     * Sets {@code result} to the logical <b>OR</b> of {@code a} and
+     * {@code b}, reusing the storage of {@code result}.  {@code result}
+     * may be the same object as {@code a} or {@code b}.
+     *
+     * @param a the first operand
+     * @param b the second operand
+     * @param result the bit set to receive the result
+     * @see #and(BitSet, BitSet, BitSet)
+     */
+    public static void or(BitSet a, BitSet b, BitSet result) {
+        result.combine(OR, a, b, false);
+    }
+
+    /**
+     * Sets {@code result} to the logical <b>XOR</b> of {@code a} and
+     * {@code b}, reusing the storage of {@code result}.  {@code result}
+     * may be the same object as {@code a} or {@code b}.
+     *
+     * @param a the first operand
+     * @param b the second operand
+     * @param result the bit set to receive the result
+     * @see #and(BitSet, BitSet, BitSet)
+     */
+    public static void xor(BitSet a, BitSet b, BitSet result) {
+        result.combine(XOR, a, b, false);
+    }
+
+    /**
+     * Sets {@code result} to the bits of {@code a} that are not set in
+     * {@code b}, reusing the storage of {@code result}.  {@code result}
+     * may be the same object as {@code a} or {@code b}.
+     *
+     * @param a the bit set to be masked
+     * @param b the mask
+     * @param result the bit set to receive the result
+     * @see #and(BitSet, BitSet, BitSet)
+     */
+    public static void andNot(BitSet a, BitSet b, BitSet result) {
+        result.combine(AND_NOT, a, b, false);
+    }
+
+    /**
+     * Returns a new bit set holding the logical <b>OR</b> of the given
+     * bit sets.  The result is computed in a single pass, a block of
+     * words at a time, rather than by one pass of {@link #or} per
+     * operand.  Returns an empty bit set if no sets are given.
+     *
+     * @param sets the bit sets to combine
+     * @return a bit set in which a bit is set if and only if it is set
+     *         in at least one of {@code sets}
+     */
+    public static BitSet orAll(BitSet... sets) {
+        return combineAll(OR, sets, false);
+    }
+
+    /**
+     * Returns a new bit set holding the logical <b>AND</b> of the given
+     * bit sets, computed in a single pass as for {@link #orAll}.  A
+     * block of the result that becomes empty is not combined with the
+     * remaining sets.  Returns an empty bit set if no sets are given.
+     *
+     * @param sets the bit sets to combine
+     * @return a bit set in which a bit is set if and only if it is set
+     *         in every one of {@code sets}
+     */
+    public static BitSet andAll(BitSet... sets) {
+        return combineAll(AND, sets, false);
+    }
+
+    /**
+     * Performs a logical <b>AND</b> of this target bit set with the
+     * argument bit set, as {@link #and}, splitting large bit sets into
+     * ranges of words that are combined in parallel in the {@link
+     * ForkJoinPool#commonPool() common pool}.
+     *
+     * @param set a bit set
+     */
+    public void parallelAnd(BitSet set) {
+        if (this != set)
+            combine(AND, this, set, true);
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this bit set with the bit set
+     * argument, as {@link #or}, in parallel as for {@link #parallelAnd}.
+     *
+     * @param set a bit set
+     */
+    public void parallelOr(BitSet set) {
+        if (this != set)
+            combine(OR, this, set, true);
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this bit set with the bit set
+     * argument, as {@link #xor}, in parallel as for {@link #parallelAnd}.
+     *
+     * @param set a bit set
+     */
+    public void parallelXor(BitSet set) {
+        combine(XOR, this, set, true);
+    }
+
+    /**
+     * Clears all of the bits in this {@code BitSet} whose corresponding
+     * bit is set in the specified {@code BitSet}, as {@link #andNot},
+     * in parallel as for {@link #parallelAnd}.
+     *
+     * @param set the {@code BitSet} with which to mask this
+     *         {@code BitSet}
+     */
+    public void parallelAndNot(BitSet set) {
+        combine(AND_NOT, this, set, true);
+    }
+
+    /**
+     * Returns a new bit set holding the logical <b>OR</b> of the given
+     * bit sets, as {@link #orAll}, computing ranges of words in
+     * parallel in the {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @param sets the bit sets to combine
+     * @return a bit set in which a bit is set if and only if it is set
+     *         in at least one of {@code sets}
+     */
+    public static BitSet parallelOrAll(BitSet... sets) {
+        return combineAll(OR, sets, true);
+    }
+
+    /**
+     * Returns a new bit set holding the logical <b>AND</b> of the given
+     * bit sets, as {@link #andAll}, computing ranges of words in
+     * parallel as for {@link #parallelOrAll}.
+     *
+     * @param sets the bit sets to combine
+     * @return a bit set in which a bit is set if and only if it is set
+     *         in every one of {@code sets}
+     */
+    public static BitSet parallelAndAll(BitSet... sets) {
+        return combineAll(AND, sets, true);
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this
+     * {@code BitSet}, as {@link #cardinality}, counting ranges of
+     * words in parallel in the {@link ForkJoinPool#commonPool() common
+     * pool}.
+     *
+     * @return the number of bits set to {@code true} in this {@code BitSet}
+     */
+    public int parallelCardinality() {
+        int n = wordsInUse;
+        if (n <= PARALLEL_GRANULARITY ||
+            ForkJoinPool.getCommonPoolParallelism() == 1)
+            return cardinality();
+        long[] w = words;
+        return IntStream.range(0, (n - 1) / PARALLEL_GRANULARITY + 1).parallel()
+            .map(c -> {
+                int sum = 0;
+                for (int i = c * PARALLEL_GRANULARITY,
+                         m = Math.min(n, i + PARALLEL_GRANULARITY); i < m; i++)
+                    sum += Long.bitCount(w[i]);
+                return sum;
+            }).sum();
+    }
+
     /**
      * Returns the hash code value for this bit set. The hash code depends
      * only on which bits are set within this {@code BitSet}.
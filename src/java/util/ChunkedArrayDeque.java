@@ -0,0 +1,951 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.io.Serializable;
+import java.util.function.Consumer;
+
+/**
+ * Segmented-array implementation of the {@link Deque} interface, for
+ * deques that grow very large.  An {@link ArrayDeque} keeps its elements
+ * in one array and doubles it when full, copying every element; at tens
+ * of millions of elements each doubling is a long pause and briefly needs
+ * memory for both arrays.  This class instead stores its elements in
+ * fixed-size <em>segments</em>, by default of 1024 elements each, held in
+ * a circular directory.  A segment is added when an end of the deque
+ * runs out of room and released as soon as it empties, so growing and
+ * shrinking never copy elements.  Only the directory, which holds one
+ * reference per segment, is ever doubled.
+ *
+ * <p>A few released segments are kept in a small pool and reused for
+ * the next segment needed, so a deque used as a queue, in which elements
+ * enter at one end and leave at the other, does not allocate in its
+ * steady state.
+ *
+ * <p>Locating an element takes a little more work than in an
+ * {@code ArrayDeque}, so for deques that stay small {@code ArrayDeque} is
+ * somewhat faster.  This class is meant for deques that may grow to
+ * millions of elements, where it bounds the cost of any single insertion.
+ *
+ * <p>Like {@code ArrayDeque}, this class has no capacity restrictions,
+ * prohibits null elements, and is not thread-safe.  Most operations run
+ * in amortized constant time.  Exceptions include {@link #remove(Object)
+ * remove}, {@link #removeFirstOccurrence removeFirstOccurrence}, {@link
+ * #removeLastOccurrence removeLastOccurrence}, {@link #contains contains},
+ * {@link #iterator iterator.remove()}, and the bulk operations, all of
+ * which run in linear time.
+ *
+ * <p>The iterators returned by this class's {@code iterator} method are
+ * <i>fail-fast</i>: If the deque is modified at any time after the iterator
+ * is created, in any way except through the iterator's own {@code remove}
+ * method, the iterator will generally throw a {@link
+ * ConcurrentModificationException}.  Fail-fast iterators throw
+ * {@code ConcurrentModificationException} on a best-effort basis.
+ *
+ * @param <E> the type of elements held in this collection
+ * @see ArrayDeque
+ */
+public class ChunkedArrayDeque<E> extends AbstractCollection<E>
+                                  implements Deque<E>, Cloneable, Serializable
+{
+    /**
+     * The segment size used when none specified in constructor.
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 10;
+
+    /**
+     * The largest segment size.
+     */
+    static final int MAXIMUM_SEGMENT_SIZE = 1 << 20;
+
+    /**
+     * The largest number of elements, as for ArrayDeque.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The initial length of the directory.  Must be a power of 2.
+     */
+    private static final int MIN_DIRECTORY_LENGTH = 8;
+
+    /**
+     * The number of empty segments kept for reuse.
+     */
+    static final int MAX_POOLED_SEGMENTS = 4;
+
+    /**
+     * The directory: a circular array of segments, always a power of two
+     * in length.  The segments of the deque, in order, are in slots
+     * {@code first} through {@code first + segmentCount - 1} (modulo the
+     * length); the other slots are null.
+     */
+    transient Object[][] segments;
+
+    /**
+     * The directory slot of the first segment.
+     */
+    transient int first;
+
+    /**
+     * The number of segments in the directory.  Every segment holds at
+     * least one element, except that an empty deque keeps one segment
+     * once it has allocated any.
+     */
+    transient int segmentCount;
+
+    /**
+     * The index within the first segment of the first element.  The
+     * element at logical index {@code i} is at position {@code head + i}
+     * of the concatenated segments.
+     */
+    transient int head;
+
+    /**
+     * The number of elements in the deque.
+     */
+    transient int size;
+
+    /**
+     * The number of times this deque has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * Empty segments available for reuse, and their number.
+     */
+    transient Object[][] pool;
+    transient int pooled;
+
+    /**
+     * log2 of the segment size.
+     *
+     * @serial
+     */
+    private final int segmentShift;
+
+    /**
+     * Constructs an empty deque with the default segment size (1024).
+     */
+    public ChunkedArrayDeque() {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructs an empty deque whose segments hold the specified number
+     * of elements, rounded up to a power of two no smaller than 2.
+     *
+     * @param segmentSize the number of elements in each segment
+     * @throws IllegalArgumentException if {@code segmentSize} is less than
+     *         1 or greater than 2<sup>20</sup>
+     */
+    public ChunkedArrayDeque(int segmentSize) {
+        if (segmentSize < 1 || segmentSize > MAXIMUM_SEGMENT_SIZE)
+            throw new IllegalArgumentException("Illegal segment size: " +
+                                               segmentSize);
+        this.segmentShift =
+            Math.max(1, 32 - Integer.numberOfLeadingZeros(segmentSize - 1));
+        this.segments = new Object[MIN_DIRECTORY_LENGTH][];
+    }
+
+    /**
+     * Constructs a deque containing the elements of the specified
+     * collection, in the order they are returned by the collection's
+     * iterator, with the default segment size.
+     *
+     * @param c the collection whose elements are to be placed into the deque
+     * @throws NullPointerException if the specified collection is null
+     */
+    public ChunkedArrayDeque(Collection<? extends E> c) {
+        this(DEFAULT_SEGMENT_SIZE);
+        addAll(c);
+    }
+
+    // ****** Segment management ******
+
+    private Object[] newSegment() {
+        int n = pooled;
+        if (n > 0) {
+            Object[] s = pool[--n];
+            pool[n] = null;
+            pooled = n;
+            return s;
+        }
+        return new Object[1 << segmentShift];
+    }
+
+    /**
+     * Returns a segment, all of whose slots are null, to the pool, or
+     * drops it if the pool is full.
+     */
+    private void releaseSegment(Object[] s) {
+        Object[][] p = pool;
+        if (p == null)
+            pool = p = new Object[MAX_POOLED_SEGMENTS][];
+        if (pooled < p.length)
+            p[pooled++] = s;
+    }
+
+    /**
+     * Doubles the length of the directory, moving its segments, in order,
+     * to the start of the new directory.  Only segment references are
+     * copied.
+     */
+    private void growDirectory() {
+        Object[][] d = segments;
+        int n = d.length;
+        if ((long) n << (segmentShift + 1) > MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Sorry, deque too big");
+        Object[][] a = new Object[n << 1][];
+        int f = first, r = n - f, c = segmentCount;
+        if (c <= r)
+            System.arraycopy(d, f, a, 0, c);
+        else {
+            System.arraycopy(d, f, a, 0, r);
+            System.arraycopy(d, 0, a, r, c - r);
+        }
+        segments = a;
+        first = 0;
+    }
+
+    /**
+     * Called when the deque has become empty: releases all segments but
+     * the first, and centres the head in that one so that either end can
+     * grow without allocating.  (Segments hold at least two elements, so
+     * the head is never left at index 0 of a segment, which would make
+     * addFirst allocate a segment in front of an empty one.)
+     */
+    private void emptied() {
+        Object[][] d = segments;
+        int m = d.length - 1;
+        for (int k = 1; k < segmentCount; k++) {
+            int j = (first + k) & m;
+            releaseSegment(d[j]);
+            d[j] = null;
+        }
+        segmentCount = 1;
+        head = (1 << segmentShift) >>> 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    final E elementAt(int i) {
+        int p = head + i, sh = segmentShift;
+        Object[][] d = segments;
+        return (E) d[(first + (p >>> sh)) & (d.length - 1)][p & ((1 << sh) - 1)];
+    }
+
+    private void setElementAt(int i, Object e) {
+        int p = head + i, sh = segmentShift;
+        Object[][] d = segments;
+        d[(first + (p >>> sh)) & (d.length - 1)][p & ((1 << sh) - 1)] = e;
+    }
+
+    // The main insertion and extraction methods are addFirst,
+    // addLast, pollFirst, pollLast. The other methods are defined in
+    // terms of these.
+
+    /**
+     * Inserts the specified element at the front of this deque.
+     *
+     * @param e the element to add
+     * @throws NullPointerException if the specified element is null
+     */
+    public void addFirst(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        Object[][] d = segments;
+        int h = head;
+        if (h == 0) {
+            if (segmentCount == d.length) {
+                growDirectory();
+                d = segments;
+            }
+            d[first = (first - 1) & (d.length - 1)] = newSegment();
+            segmentCount++;
+            h = 1 << segmentShift;
+        }
+        d[first][head = h - 1] = e;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Inserts the specified element at the end of this deque.
+     *
+     * <p>This method is equivalent to {@link #add}.
+     *
+     * @param e the element to add
+     * @throws NullPointerException if the specified element is null
+     */
+    public void addLast(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        Object[][] d = segments;
+        int p = head + size, sh = segmentShift;
+        int k = p >>> sh;
+        if (k == segmentCount) {
+            if (k == d.length) {
+                growDirectory();
+                d = segments;
+            }
+            d[(first + k) & (d.length - 1)] = newSegment();
+            segmentCount = k + 1;
+        }
+        d[(first + k) & (d.length - 1)][p & ((1 << sh) - 1)] = e;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Inserts the specified element at the front of this deque.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Deque#offerFirst})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offerFirst(E e) {
+        addFirst(e);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the end of this deque.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Deque#offerLast})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offerLast(E e) {
+        addLast(e);
+        return true;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public E removeFirst() {
+        E x = pollFirst();
+        if (x == null)
+            throw new NoSuchElementException();
+        return x;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public E removeLast() {
+        E x = pollLast();
+        if (x == null)
+            throw new NoSuchElementException();
+        return x;
+    }
+
+    public E pollFirst() {
+        if (size == 0)
+            return null;
+        Object[][] d = segments;
+        int f = first, h = head;
+        Object[] s = d[f];
+        @SuppressWarnings("unchecked")
+        E result = (E) s[h];
+        s[h] = null;            // Must null out slot
+        modCount++;
+        if (--size == 0)
+            emptied();
+        else if (++h == s.length) {
+            d[f] = null;
+            releaseSegment(s);
+            first = (f + 1) & (d.length - 1);
+            segmentCount--;
+            head = 0;
+        } else
+            head = h;
+        return result;
+    }
+
+    public E pollLast() {
+        if (size == 0)
+            return null;
+        Object[][] d = segments;
+        int p = head + size - 1, sh = segmentShift;
+        int j = (first + (p >>> sh)) & (d.length - 1);
+        int i = p & ((1 << sh) - 1);
+        Object[] s = d[j];
+        @SuppressWarnings("unchecked")
+        E result = (E) s[i];
+        s[i] = null;
+        modCount++;
+        if (--size == 0)
+            emptied();
+        else if (i == 0) {      // the last segment is now empty
+            d[j] = null;
+            releaseSegment(s);
+            segmentCount--;
+        }
+        return result;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public E getFirst() {
+        E result = peekFirst();
+        if (result == null)
+            throw new NoSuchElementException();
+        return result;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public E getLast() {
+        E result = peekLast();
+        if (result == null)
+            throw new NoSuchElementException();
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peekFirst() {
+        return (size == 0) ? null : (E) segments[first][head];
+    }
+
+    public E peekLast() {
+        return (size == 0) ? null : elementAt(size - 1);
+    }
+
+    /**
+     * Removes the first occurrence of the specified element in this
+     * deque (when traversing the deque from head to tail).
+     * If the deque does not contain the element, it is unchanged.
+     * More formally, removes the first element {@code e} such that
+     * {@code o.equals(e)} (if such an element exists).
+     * Returns {@code true} if this deque contained the specified element
+     * (or equivalently, if this deque changed as a result of the call).
+     *
+     * @param o element to be removed from this deque, if present
+     * @return {@code true} if the deque contained the specified element
+     */
+    public boolean removeFirstOccurrence(Object o) {
+        if (o != null) {
+            for (int i = 0, n = size; i < n; i++) {
+                if (o.equals(elementAt(i))) {
+                    delete(i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the last occurrence of the specified element in this
+     * deque (when traversing the deque from head to tail).
+     * If the deque does not contain the element, it is unchanged.
+     * More formally, removes the last element {@code e} such that
+     * {@code o.equals(e)} (if such an element exists).
+     * Returns {@code true} if this deque contained the specified element
+     * (or equivalently, if this deque changed as a result of the call).
+     *
+     * @param o element to be removed from this deque, if present
+     * @return {@code true} if the deque contained the specified element
+     */
+    public boolean removeLastOccurrence(Object o) {
+        if (o != null) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (o.equals(elementAt(i))) {
+                    delete(i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // *** Queue methods ***
+
+    /**
+     * Inserts the specified element at the end of this deque.
+     *
+     * <p>This method is equivalent to {@link #addLast}.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Collection#add})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean add(E e) {
+        addLast(e);
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the end of this deque.
+     *
+     * <p>This method is equivalent to {@link #offerLast}.
+     *
+     * @param e the element to add
+     * @return {@code true} (as specified by {@link Queue#offer})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        return offerLast(e);
+    }
+
+    /**
+     * Retrieves and removes the head of the queue represented by this deque.
+     *
+     * This method differs from {@link #poll poll} only in that it throws an
+     * exception if this deque is empty.
+     *
+     * <p>This method is equivalent to {@link #removeFirst}.
+     *
+     * @return the head of the queue represented by this deque
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public E remove() {
+        return removeFirst();
+    }
+
+    /**
+     * Retrieves and removes the head of the queue represented by this deque
+     * (in other words, the first element of this deque), or returns
+     * {@code null} if this deque is empty.
+     *
+     * <p>This method is equivalent to {@link #pollFirst}.
+     *
+     * @return the head of the queue represented by this deque, or
+     *         {@code null} if this deque is empty
+     */
+    public E poll() {
+        return pollFirst();
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of the queue represented by
+     * this deque.  This method differs from {@link #peek peek} only in
+     * that it throws an exception if this deque is empty.
+     *
+     * <p>This method is equivalent to {@link #getFirst}.
+     *
+     * @return the head of the queue represented by this deque
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public E element() {
+        return getFirst();
+    }
+
+    /**
+     * Retrieves, but does not remove, the head of the queue represented by
+     * this deque, or returns {@code null} if this deque is empty.
+     *
+     * <p>This method is equivalent to {@link #peekFirst}.
+     *
+     * @return the head of the queue represented by this deque, or
+     *         {@code null} if this deque is empty
+     */
+    public E peek() {
+        return peekFirst();
+    }
+
+    // *** Stack methods ***
+
+    /**
+     * Pushes an element onto the stack represented by this deque.  In other
+     * words, inserts the element at the front of this deque.
+     *
+     * <p>This method is equivalent to {@link #addFirst}.
+     *
+     * @param e the element to push
+     * @throws NullPointerException if the specified element is null
+     */
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    /**
+     * Pops an element from the stack represented by this deque.  In other
+     * words, removes and returns the first element of this deque.
+     *
+     * <p>This method is equivalent to {@link #removeFirst()}.
+     *
+     * @return the element at the front of this deque (which is the top
+     *         of the stack represented by this deque)
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public E pop() {
+        return removeFirst();
+    }
+
+    /**
+     * Removes the element at logical index i, moving the elements on the
+     * shorter side of it by one position and then trimming that end.
+     */
+    void delete(int i) {
+        int n = size;
+        if (i < (n >>> 1)) {
+            for (int j = i; j > 0; j--)
+                setElementAt(j, elementAt(j - 1));
+            pollFirst();
+        } else {
+            for (int j = i; j < n - 1; j++)
+                setElementAt(j, elementAt(j + 1));
+            pollLast();
+        }
+    }
+
+    // *** Collection Methods ***
+
+    /**
+     * Returns the number of elements in this deque.
+     *
+     * @return the number of elements in this deque
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this deque contains no elements.
+     *
+     * @return {@code true} if this deque contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns an iterator over the elements in this deque.  The elements
+     * will be ordered from first (head) to last (tail).  This is the same
+     * order that elements would be dequeued (via successive calls to
+     * {@link #remove} or popped (via successive calls to {@link #pop}).
+     *
+     * @return an iterator over the elements in this deque
+     */
+    public Iterator<E> iterator() {
+        return new DeqIterator();
+    }
+
+    public Iterator<E> descendingIterator() {
+        return new DescendingIterator();
+    }
+
+    private class DeqIterator implements Iterator<E> {
+        /**
+         * Logical index of element to be returned by subsequent call to
+         * next.
+         */
+        int cursor;
+
+        /**
+         * Index of element returned by most recent call to next.
+         * Reset to -1 if element is deleted by a call to remove.
+         */
+        int lastRet = -1;
+
+        int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public E next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            E result = elementAt(i);
+            lastRet = i;
+            cursor = i + 1;
+            return result;
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            delete(lastRet);
+            cursor = lastRet;   // the next element has moved into its place
+            lastRet = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private class DescendingIterator implements Iterator<E> {
+        int cursor = size - 1;
+        int lastRet = -1;
+        int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor >= 0;
+        }
+
+        public E next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = cursor;
+            if (i < 0 || i >= size)
+                throw new NoSuchElementException();
+            E result = elementAt(i);
+            lastRet = i;
+            cursor = i - 1;
+            return result;
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            delete(lastRet);    // elements before lastRet keep their index
+            lastRet = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this deque contains the specified element.
+     * More formally, returns {@code true} if and only if this deque contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this deque
+     * @return {@code true} if this deque contains the specified element
+     */
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (int i = 0, n = size; i < n; i++) {
+                if (o.equals(elementAt(i)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this deque.
+     * If the deque does not contain the element, it is unchanged.
+     * More formally, removes the first element {@code e} such that
+     * {@code o.equals(e)} (if such an element exists).
+     * Returns {@code true} if this deque contained the specified element
+     * (or equivalently, if this deque changed as a result of the call).
+     *
+     * <p>This method is equivalent to {@link #removeFirstOccurrence(Object)}.
+     *
+     * @param o element to be removed from this deque, if present
+     * @return {@code true} if this deque contained the specified element
+     */
+    public boolean remove(Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    /**
+     * Removes all of the elements from this deque.
+     * The deque will be empty after this call returns.  Up to
+     * {@value #MAX_POOLED_SEGMENTS} segments are kept for reuse; the
+     * others, and an enlarged directory, are released.
+     */
+    public void clear() {
+        Object[][] d = segments;
+        int m = d.length - 1;
+        for (int k = 0; k < segmentCount; k++) {
+            int j = (first + k) & m;
+            if (pool == null || pooled < pool.length) {
+                Arrays.fill(d[j], null);
+                releaseSegment(d[j]);
+            }
+            d[j] = null;
+        }
+        if (d.length > MIN_DIRECTORY_LENGTH)
+            segments = new Object[MIN_DIRECTORY_LENGTH][];
+        first = segmentCount = head = size = 0;
+        modCount++;
+    }
+
+    /**
+     * Copies the elements of this deque, in order, into a[0 .. size-1].
+     */
+    private <T> T[] copyElements(T[] a) {
+        Object[][] d = segments;
+        int m = d.length - 1, n = size, segmentSize = 1 << segmentShift;
+        for (int i = 0, j = first, off = head; i < n; j = (j + 1) & m) {
+            int c = Math.min(segmentSize - off, n - i);
+            System.arraycopy(d[j], off, a, i, c);
+            i += c;
+            off = 0;
+        }
+        return a;
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        Object[][] d = segments;
+        int m = d.length - 1, n = size, segmentSize = 1 << segmentShift;
+        for (int i = 0, j = first, off = head; i < n; j = (j + 1) & m) {
+            Object[] s = d[j];
+            int end = Math.min(segmentSize, off + n - i);
+            for (int k = off; k < end; k++) {
+                @SuppressWarnings("unchecked") E e = (E) s[k];
+                action.accept(e);
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            i += end - off;
+            off = 0;
+        }
+    }
+
+    /**
+     * Returns an array containing all of the elements in this deque
+     * in proper sequence (from first to last element).
+     *
+     * <p>The returned array will be "safe" in that no references to it are
+     * maintained by this deque.  (In other words, this method must allocate
+     * a new array).  The caller is thus free to modify the returned array.
+     *
+     * @return an array containing all of the elements in this deque
+     */
+    public Object[] toArray() {
+        return copyElements(new Object[size]);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this deque in
+     * proper sequence (from first to last element); the runtime type of the
+     * returned array is that of the specified array.  If the deque fits in
+     * the specified array, it is returned therein.  Otherwise, a new array
+     * is allocated with the runtime type of the specified array and the
+     * size of this deque.
+     *
+     * <p>If this deque fits in the specified array with room to spare
+     * (i.e., the array has more elements than this deque), the element in
+     * the array immediately following the end of the deque is set to
+     * {@code null}.
+     *
+     * @param a the array into which the elements of the deque are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose
+     * @return an array containing all of the elements in this deque
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this deque
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        int size = size();
+        if (a.length < size)
+            a = (T[])java.lang.reflect.Array.newInstance(
+                    a.getClass().getComponentType(), size);
+        copyElements(a);
+        if (a.length > size)
+            a[size] = null;
+        return a;
+    }
+
+    /**
+     * Creates a <em>fail-fast</em> {@link Spliterator} over the elements
+     * in this deque.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#ORDERED}, and {@link Spliterator#NONNULL}.
+     *
+     * @return a {@code Spliterator} over the elements in this deque
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(this, Spliterator.ORDERED |
+                                              Spliterator.NONNULL);
+    }
+
+    // *** Object methods ***
+
+    /**
+     * Returns a copy of this deque.
+     *
+     * @return a copy of this deque
+     */
+    public ChunkedArrayDeque<E> clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            ChunkedArrayDeque<E> result = (ChunkedArrayDeque<E>) super.clone();
+            Object[][] d = segments.clone();
+            int m = d.length - 1;
+            for (int k = 0; k < segmentCount; k++) {
+                int j = (first + k) & m;
+                d[j] = d[j].clone();
+            }
+            result.segments = d;
+            result.pool = null;
+            result.pooled = 0;
+            result.modCount = 0;
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError();
+        }
+    }
+
+    private static final long serialVersionUID = -4372613187043129251L;
+
+    /**
+     * Saves this deque to a stream (that is, serializes it).
+     *
+     * @serialData The segment shift is written by the default mechanism,
+     * followed by the current size ({@code int}) of the deque and all of
+     * its elements (each an object reference) in first-to-last order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+        s.defaultWriteObject();
+
+        // Write out size
+        s.writeInt(size);
+
+        // Write out elements in order.
+        for (int i = 0, n = size; i < n; i++)
+            s.writeObject(elementAt(i));
+    }
+
+    /**
+     * Reconstitutes this deque from a stream (that is, deserializes it).
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (segmentShift < 1 ||
+            segmentShift > Integer.numberOfTrailingZeros(MAXIMUM_SEGMENT_SIZE))
+            throw new java.io.InvalidObjectException("Illegal segment shift: " +
+                                                     segmentShift);
+
+        // Read in size and allocate the directory
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+        segments = new Object[MIN_DIRECTORY_LENGTH][];
+
+        // Read in all elements in the proper order.
+        for (int i = 0; i < size; i++)
+            addLast((E) s.readObject());
+    }
+}
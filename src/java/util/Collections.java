@@ -33,6 +33,9 @@ import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -175,6 +178,112 @@ public class Collections {
         list.sort(c);
     }
 
+    /**
+     * Sorts the specified list into ascending order of the {@code int}
+     * keys extracted by the given function.  The result is the same as that
+     * of {@code sort(list, Comparator.comparingInt(keyExtractor))}, but the
+     * function is applied only once per element.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * <p>The specified list must be modifiable, but need not be resizable.
+     *
+     * @implNote
+     * This implementation dumps the list into an array, sorts it with
+     * {@link Arrays#sortByInt(Object[], ToIntFunction)}, and sets each
+     * element of the list from the corresponding position of the array.
+     *
+     * @param  <T> the class of the objects in the list
+     * @param  list the list to be sorted.
+     * @param  keyExtractor the function extracting the sort key of an element
+     * @throws UnsupportedOperationException if the specified list's
+     *         list-iterator does not support the {@code set} operation.
+     * @throws NullPointerException if {@code keyExtractor} is null and the
+     *         list has more than one element
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sortByInt(List<T> list, ToIntFunction<? super T> keyExtractor) {
+        Object[] a = list.toArray();
+        Arrays.sortByInt((T[]) a, keyExtractor);
+        setAll(list, a);
+    }
+
+    /**
+     * Sorts the specified list into ascending order of the {@code long}
+     * keys extracted by the given function.  The result is the same as that
+     * of {@code sort(list, Comparator.comparingLong(keyExtractor))}, but the
+     * function is applied only once per element.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * <p>The specified list must be modifiable, but need not be resizable.
+     *
+     * @implNote
+     * This implementation dumps the list into an array, sorts it with
+     * {@link Arrays#sortByLong(Object[], ToLongFunction)}, and sets each
+     * element of the list from the corresponding position of the array.
+     *
+     * @param  <T> the class of the objects in the list
+     * @param  list the list to be sorted.
+     * @param  keyExtractor the function extracting the sort key of an element
+     * @throws UnsupportedOperationException if the specified list's
+     *         list-iterator does not support the {@code set} operation.
+     * @throws NullPointerException if {@code keyExtractor} is null and the
+     *         list has more than one element
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sortByLong(List<T> list, ToLongFunction<? super T> keyExtractor) {
+        Object[] a = list.toArray();
+        Arrays.sortByLong((T[]) a, keyExtractor);
+        setAll(list, a);
+    }
+
+    /**
+     * Sorts the specified list into ascending order of the {@code double}
+     * keys extracted by the given function.  The result is the same as that
+     * of {@code sort(list, Comparator.comparingDouble(keyExtractor))}, but the
+     * function is applied only once per element.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * <p>The specified list must be modifiable, but need not be resizable.
+     *
+     * @implNote
+     * This implementation dumps the list into an array, sorts it with
+     * {@link Arrays#sortByDouble(Object[], ToDoubleFunction)}, and sets each
+     * element of the list from the corresponding position of the array.
+     *
+     * @param  <T> the class of the objects in the list
+     * @param  list the list to be sorted.
+     * @param  keyExtractor the function extracting the sort key of an element
+     * @throws UnsupportedOperationException if the specified list's
+     *         list-iterator does not support the {@code set} operation.
+     * @throws NullPointerException if {@code keyExtractor} is null and the
+     *         list has more than one element
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sortByDouble(List<T> list, ToDoubleFunction<? super T> keyExtractor) {
+        Object[] a = list.toArray();
+        Arrays.sortByDouble((T[]) a, keyExtractor);
+        setAll(list, a);
+    }
+
+    /**
+     * Sets the elements of the list, in order, to those of the array,
+     * which has the same length as the list.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void setAll(List<T> list, Object[] a) {
+        ListIterator<T> i = list.listIterator();
+        for (Object e : a) {
+            i.next();
+            i.set((T) e);
+        }
+    }
+
 
     /**
      * Searches the specified list for the specified object using the binary
@@ -1330,6 +1439,10 @@ public class Collections {
         public void sort(Comparator<? super E> c) {
             throw new UnsupportedOperationException();
         }
+        @Override
+        public void sort(Comparator<? super E> c, Sorter sorter) {
+            throw new UnsupportedOperationException();
+        }
 
         public ListIterator<E> listIterator()   {return listIterator(0);}
 
@@ -2460,6 +2573,10 @@ public class Collections {
         public void sort(Comparator<? super E> c) {
             synchronized (mutex) {list.sort(c);}
         }
+        @Override
+        public void sort(Comparator<? super E> c, Sorter sorter) {
+            synchronized (mutex) {list.sort(c, sorter);}
+        }
 
         /**
          * SynchronizedRandomAccessList instances are serialized as
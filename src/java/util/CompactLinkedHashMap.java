@@ -0,0 +1,1002 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A hash table based implementation of the {@code Map} interface with
+ * predictable, insertion-ordered iteration, laid out for a small memory
+ * footprint.  Like {@link LinkedHashMap} with its default insertion
+ * order, this class iterates over mappings in the order in which their
+ * keys were first inserted; re-inserting a key that is already present
+ * does not change its position.  Unlike {@code LinkedHashMap}, it
+ * allocates no per-mapping node objects: keys and values are held side
+ * by side in a dense array in insertion order, and the hash table
+ * itself is an {@code int[]} of positions in that array.  A mapping
+ * therefore costs two array slots, a cached hash code and an index
+ * slot or two, rather than an entry object with five references, and
+ * iteration is a sequential walk over a single array.
+ *
+ * <p>Removing a mapping leaves a tombstone in its slot of the dense
+ * array, so removal does not move other mappings and does not disturb
+ * iteration order.  Tombstones are compacted away lazily, when an
+ * insertion finds the array full; compaction preserves the order of
+ * the remaining mappings.  Until then a map that has had many removals
+ * iterates over its tombstones as well as its mappings.
+ *
+ * <p>This class permits {@code null} values and the {@code null} key.
+ * It provides constant-time performance for the basic operations
+ * ({@code get}, {@code put} and {@code remove}), assuming the hash
+ * function disperses the elements properly.  The index table is kept
+ * at most half full, so unlike {@link HashMap} this class has no load
+ * factor parameter.  The <i>capacity</i> is the number of mappings
+ * (and tombstones) the map can hold before it must compact or grow.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies the map structurally, it <em>must</em> be
+ * synchronized externally, for example with {@link
+ * Collections#synchronizedMap Collections.synchronizedMap}.
+ *
+ * <p>The iterators returned by the collection views of this class are
+ * <em>fail-fast</em> in the same sense as those of {@link HashMap}.  The
+ * entries they return reflect {@code setValue} through to the map; once
+ * their mapping is removed from the map they keep the last value they
+ * saw.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap
+ * @see HashMap
+ */
+public class CompactLinkedHashMap<K,V> extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable
+{
+    private static final long serialVersionUID = -2473912530846208516L;
+
+    /*
+     * Implementation notes.
+     *
+     * Mapping number p keeps its key in entries[2*p] and its value in
+     * entries[2*p+1], and its (spread) hash code in hashes[p].
+     * Mappings are appended at position "used"; the positions below
+     * "used" hold either live mappings or tombstones, whose key slot
+     * is TOMBSTONE.  The null key is stored as NULL_KEY so that a key
+     * slot is never null.
+     *
+     * The index table is an open-addressing (linear probing) table of
+     * length 2 * capacity, a power of two, whose slots hold p + 1 for
+     * a mapping at position p, or zero if free.  Every position below
+     * "used" is referenced from exactly one index slot, whether or not
+     * it has since become a tombstone, so at most half the index
+     * slots are ever in use and probing always finds a free slot.
+     * Removal clears the mapping but leaves its index slot in place,
+     * where it serves as the index's own tombstone.
+     *
+     * When an insertion finds used == capacity, the table is rebuilt:
+     * at the same capacity if at least half the positions are
+     * tombstones, else at twice the capacity.  Either way the rebuild
+     * costs O(capacity) and is followed by at least capacity / 2
+     * appends, so insertion is amortized constant time.  Rebuilding
+     * re-inserts the cached hashes and never calls hashCode or
+     * equals.
+     */
+
+    /**
+     * The default initial capacity - MUST be a power of two.  Small,
+     * because maps of this class are meant to be numerous.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 1 << 3;
+
+    /**
+     * The maximum capacity, used if a higher value is implicitly specified
+     * by either of the constructors with arguments.  The index table is
+     * twice as long as the capacity and must remain a legal array length.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    /**
+     * Marks the key slot of a removed mapping.
+     */
+    static final Object TOMBSTONE = new Object();
+
+    /**
+     * Value representing the null key inside the entries array.
+     */
+    static final Object NULL_KEY = new Object();
+
+    /**
+     * Keys and values in insertion order, interleaved; allocated on
+     * first use, with length 2 * capacity.
+     */
+    transient Object[] entries;
+
+    /**
+     * The spread hash codes of the keys in {@link #entries}.
+     */
+    transient int[] hashes;
+
+    /**
+     * The index table: for each occupied slot, one plus the position
+     * of a mapping (or tombstone) in {@link #entries}.
+     */
+    transient int[] index;
+
+    /**
+     * The number of positions of {@link #entries} in use, counting
+     * tombstones.
+     */
+    transient int used;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The capacity to allocate on first use.
+     */
+    int initialCapacity;
+
+    // Views
+    transient Set<K> keySet;
+    transient Collection<V> values;
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty map with the specified initial capacity.
+     *
+     * @param  initialCapacity the number of mappings the map can hold
+     *         before it must grow
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public CompactLinkedHashMap(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        this.initialCapacity = capacityFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (8).
+     */
+    public CompactLinkedHashMap() {
+        this.initialCapacity = DEFAULT_INITIAL_CAPACITY;
+    }
+
+    /**
+     * Constructs a map with the same mappings as the specified map, in
+     * the iteration order of the specified map.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public CompactLinkedHashMap(Map<? extends K, ? extends V> m) {
+        this.initialCapacity = capacityFor(m.size());
+        putMapEntries(m);
+    }
+
+    /**
+     * Returns the power of two capacity for the given number of
+     * mappings.
+     */
+    static int capacityFor(int n) {
+        return (n <= 1) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY :
+            HashMap.tableSizeFor(n);
+    }
+
+    static Object maskNull(Object key) {
+        return (key == null) ? NULL_KEY : key;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K> K unmaskNull(Object key) {
+        return (key == NULL_KEY) ? null : (K) key;
+    }
+
+    /**
+     * Implements Map.putAll and the Map constructor.
+     */
+    final void putMapEntries(Map<? extends K, ? extends V> m) {
+        int s = m.size();
+        if (s > 0) {
+            if (entries == null) {
+                if (s > initialCapacity)
+                    initialCapacity = capacityFor(s);
+            }
+            else if (used + s > entries.length >>> 1)
+                rebuild(Math.max(entries.length >>> 1, capacityFor(size + s)));
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+                K key = e.getKey();
+                putVal(HashMap.hash(key), key, e.getValue(), false);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains no key-value mappings.
+     *
+     * @return <tt>true</tt> if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the position of the mapping for the given key, or -1.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @return the position in entries / 2, or -1 if absent
+     */
+    final int findEntry(int hash, Object key) {
+        int[] ix; Object[] es;
+        if ((ix = index) != null) {
+            Object k = maskNull(key);
+            es = entries;
+            int[] hs = hashes;
+            int mask = ix.length - 1;
+            for (int i = hash & mask, e; (e = ix[i]) != 0; i = (i + 1) & mask) {
+                int p = e - 1;
+                Object pk;
+                if (hs[p] == hash &&
+                    ((pk = es[p << 1]) == k ||
+                     (pk != TOMBSTONE && k.equals(pk))))
+                    return p;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * <p>A return value of {@code null} does not <i>necessarily</i>
+     * indicate that the map contains no mapping for the key; it's also
+     * possible that the map explicitly maps the key to {@code null}.
+     * The {@link #containsKey containsKey} operation may be used to
+     * distinguish these two cases.
+     *
+     * @see #put(Object, Object)
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int p = findEntry(HashMap.hash(key), key);
+        return (p < 0) ? null : (V) entries[(p << 1) + 1];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int p = findEntry(HashMap.hash(key), key);
+        return (p < 0) ? defaultValue : (V) entries[(p << 1) + 1];
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key   The key whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean containsKey(Object key) {
+        return findEntry(HashMap.hash(key), key) >= 0;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced, and the mapping keeps its place in the
+     * iteration order.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     *         (A <tt>null</tt> return can also indicate that the map
+     *         previously associated <tt>null</tt> with <tt>key</tt>.)
+     */
+    public V put(K key, V value) {
+        return putVal(HashMap.hash(key), key, value, false);
+    }
+
+    /**
+     * Implements Map.put and related methods.
+     *
+     * @param hash hash for key
+     * @param key the key
+     * @param value the value to put
+     * @param onlyIfAbsent if true, don't change existing value
+     * @return previous value, or null if none
+     */
+    final V putVal(int hash, K key, V value, boolean onlyIfAbsent) {
+        int p = findEntry(hash, key);
+        if (p >= 0) {
+            int vi = (p << 1) + 1;
+            @SuppressWarnings("unchecked") V oldValue = (V) entries[vi];
+            if (!onlyIfAbsent || oldValue == null)
+                entries[vi] = value;
+            return oldValue;
+        }
+        append(hash, maskNull(key), value);
+        return null;
+    }
+
+    /**
+     * Appends a new mapping for a key known to be absent, compacting
+     * or growing the table first if it is full.
+     */
+    final void append(int hash, Object k, Object value) {
+        Object[] es = entries;
+        if (es == null)
+            es = rebuild(initialCapacity);
+        else if (used == es.length >>> 1) {
+            int cap = es.length >>> 1;
+            if (size > cap >>> 1) {
+                if (cap == MAXIMUM_CAPACITY)
+                    throw new IllegalStateException("Map too large");
+                cap <<= 1;
+            }
+            es = rebuild(cap);
+        }
+        int p = used++;
+        es[p << 1] = k;
+        es[(p << 1) + 1] = value;
+        hashes[p] = hash;
+        insertIndex(index, hash, p);
+        ++size;
+        ++modCount;
+    }
+
+    /**
+     * Adds a reference to position p to the given index table.
+     */
+    static void insertIndex(int[] ix, int hash, int p) {
+        int mask = ix.length - 1;
+        int i = hash & mask;
+        while (ix[i] != 0)
+            i = (i + 1) & mask;
+        ix[i] = p + 1;
+    }
+
+    /**
+     * Reallocates the table with the given capacity, dropping
+     * tombstones and keeping the order of the remaining mappings.
+     *
+     * @param cap the new capacity, a power of two at least size
+     * @return the new entries array
+     */
+    final Object[] rebuild(int cap) {
+        Object[] oldEs = entries;
+        int[] oldHs = hashes;
+        Object[] es = new Object[cap << 1];
+        int[] hs = new int[cap];
+        int[] ix = new int[cap << 1];
+        int n = 0;
+        if (oldEs != null) {
+            for (int p = 0, u = used; p < u; ++p) {
+                Object k = oldEs[p << 1];
+                if (k != TOMBSTONE) {
+                    int h = oldHs[p];
+                    es[n << 1] = k;
+                    es[(n << 1) + 1] = oldEs[(p << 1) + 1];
+                    hs[n] = h;
+                    insertIndex(ix, h, n);
+                    ++n;
+                }
+            }
+        }
+        entries = es;
+        hashes = hs;
+        index = ix;
+        used = n;
+        return es;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * These mappings will replace any mappings that this map had for
+     * any of the keys currently in the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        putMapEntries(m);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with <tt>key</tt>, or
+     *         <tt>null</tt> if there was no mapping for <tt>key</tt>.
+     *         (A <tt>null</tt> return can also indicate that the map
+     *         previously associated <tt>null</tt> with <tt>key</tt>.)
+     */
+    public V remove(Object key) {
+        int p = findEntry(HashMap.hash(key), key);
+        return (p < 0) ? null : removeAt(p);
+    }
+
+    /**
+     * Replaces the mapping at position p with a tombstone.
+     *
+     * @return the removed value
+     */
+    final V removeAt(int p) {
+        Object[] es = entries;
+        int vi = (p << 1) + 1;
+        @SuppressWarnings("unchecked") V oldValue = (V) es[vi];
+        es[p << 1] = TOMBSTONE;
+        es[vi] = null;
+        --size;
+        ++modCount;
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns, and keeps its
+     * capacity.
+     */
+    public void clear() {
+        Object[] es;
+        modCount++;
+        if ((es = entries) != null && used > 0) {
+            Arrays.fill(es, 0, used << 1, null);
+            Arrays.fill(index, 0);
+            used = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return <tt>true</tt> if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        Object[] es;
+        if ((es = entries) != null) {
+            for (int p = 0, u = used; p < u; ++p) {
+                Object v;
+                if (es[p << 1] != TOMBSTONE &&
+                    ((v = es[(p << 1) + 1]) == value ||
+                     (value != null && value.equals(v))))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    // Overrides of JDK8 Map extension methods
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putVal(HashMap.hash(key), key, value, true);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int p = findEntry(HashMap.hash(key), key);
+        if (p >= 0 && Objects.equals(entries[(p << 1) + 1], value)) {
+            removeAt(p);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        int p = findEntry(HashMap.hash(key), key);
+        int vi = (p << 1) + 1;
+        if (p >= 0 && Objects.equals(entries[vi], oldValue)) {
+            entries[vi] = newValue;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        int p = findEntry(HashMap.hash(key), key);
+        if (p >= 0) {
+            int vi = (p << 1) + 1;
+            @SuppressWarnings("unchecked") V oldValue = (V) entries[vi];
+            entries[vi] = value;
+            return oldValue;
+        }
+        return null;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        Object[] es;
+        if (size > 0 && (es = entries) != null) {
+            int mc = modCount;
+            for (int p = 0, u = used; p < u && modCount == mc; ++p) {
+                Object k = es[p << 1];
+                if (k != TOMBSTONE) {
+                    @SuppressWarnings("unchecked") V v = (V) es[(p << 1) + 1];
+                    action.accept(unmaskNull(k), v);
+                }
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        Object[] es;
+        if (size > 0 && (es = entries) != null) {
+            int mc = modCount;
+            for (int p = 0, u = used; p < u && modCount == mc; ++p) {
+                Object k = es[p << 1];
+                if (k != TOMBSTONE) {
+                    int vi = (p << 1) + 1;
+                    @SuppressWarnings("unchecked") V v = (V) es[vi];
+                    es[vi] = function.apply(unmaskNull(k), v);
+                }
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // Cloning and serialization
+
+    /**
+     * Returns a shallow copy of this <tt>CompactLinkedHashMap</tt>
+     * instance: the keys and values themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object clone() {
+        CompactLinkedHashMap<K,V> result;
+        try {
+            result = (CompactLinkedHashMap<K,V>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keySet = null;
+        result.values = null;
+        result.entrySet = null;
+        result.modCount = 0;
+        if (entries != null) {
+            result.entries = entries.clone();
+            result.hashes = hashes.clone();
+            result.index = index.clone();
+        }
+        return result;
+    }
+
+    /**
+     * Save the state of the <tt>CompactLinkedHashMap</tt> instance to a
+     * stream (i.e., serialize it).
+     *
+     * @serialData The <i>size</i> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key
+     *             (Object) and value (Object) for each key-value
+     *             mapping, in iteration order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        // Write out the initial capacity and any hidden stuff
+        s.defaultWriteObject();
+        s.writeInt(size);
+        Object[] es;
+        if ((es = entries) != null) {
+            for (int p = 0, u = used; p < u; ++p) {
+                Object k = es[p << 1];
+                if (k != TOMBSTONE) {
+                    s.writeObject(unmaskNull(k));
+                    s.writeObject(es[(p << 1) + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the {@code CompactLinkedHashMap} instance from a
+     * stream (i.e., deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        // Read in the initial capacity and any hidden stuff
+        s.defaultReadObject();
+        int mappings = s.readInt(); // Read number of mappings (size)
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        int ic = initialCapacity;
+        if (ic < 1 || ic > MAXIMUM_CAPACITY || (ic & (ic - 1)) != 0)
+            throw new InvalidObjectException("Illegal initial capacity: " +
+                                             ic);
+        if (mappings > 0) {
+            rebuild(capacityFor(mappings));
+            // Read the keys and values, and put the mappings in the map
+            for (int i = 0; i < mappings; i++) {
+                @SuppressWarnings("unchecked")
+                    K key = (K) s.readObject();
+                @SuppressWarnings("unchecked")
+                    V value = (V) s.readObject();
+                putVal(HashMap.hash(key), key, value, false);
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // Views
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map, in
+     * insertion order.  The set is backed by the map, so changes to the
+     * map are reflected in the set, and vice-versa.  If the map is
+     * modified while an iteration over the set is in progress (except
+     * through the iterator's own <tt>remove</tt> operation), the results
+     * of the iteration are undefined.  The set supports element removal,
+     * which removes the corresponding mapping from the map, via the
+     * <tt>Iterator.remove</tt>, <tt>Set.remove</tt>, <tt>removeAll</tt>,
+     * <tt>retainAll</tt>, and <tt>clear</tt> operations.  It does not
+     * support the <tt>add</tt> or <tt>addAll</tt> operations.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<K> keySet() {
+        Set<K> ks;
+        return (ks = keySet) == null ? (keySet = new KeySet()) : ks;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int p = findEntry(HashMap.hash(key), key);
+            if (p < 0)
+                return false;
+            removeAt(p);
+            return true;
+        }
+        public final Spliterator<K> spliterator()  {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED |
+                                            Spliterator.DISTINCT);
+        }
+        public final void forEach(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            Object[] es;
+            if (size > 0 && (es = entries) != null) {
+                int mc = modCount;
+                for (int p = 0, u = used; p < u && modCount == mc; ++p) {
+                    Object k = es[p << 1];
+                    if (k != TOMBSTONE)
+                        action.accept(unmaskNull(k));
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, in insertion order of their keys.  The collection is backed
+     * by the map, so changes to the map are reflected in the collection,
+     * and vice-versa.  If the map is modified while an iteration over
+     * the collection is in progress (except through the iterator's own
+     * <tt>remove</tt> operation), the results of the iteration are
+     * undefined.  The collection supports element removal, which
+     * removes the corresponding mapping from the map, via the
+     * <tt>Iterator.remove</tt>, <tt>Collection.remove</tt>,
+     * <tt>removeAll</tt>, <tt>retainAll</tt> and <tt>clear</tt>
+     * operations.  It does not support the <tt>add</tt> or
+     * <tt>addAll</tt> operations.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs;
+        return (vs = values) == null ? (values = new Values()) : vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator<V> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED);
+        }
+        public final void forEach(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            Object[] es;
+            if (size > 0 && (es = entries) != null) {
+                int mc = modCount;
+                for (int p = 0, u = used; p < u && modCount == mc; ++p) {
+                    if (es[p << 1] != TOMBSTONE) {
+                        @SuppressWarnings("unchecked") V v = (V) es[(p << 1) + 1];
+                        action.accept(v);
+                    }
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map,
+     * in insertion order.  The set is backed by the map, so changes to
+     * the map are reflected in the set, and vice-versa.  If the map is
+     * modified while an iteration over the set is in progress (except
+     * through the iterator's own <tt>remove</tt> operation, or through
+     * the <tt>setValue</tt> operation on a map entry returned by the
+     * iterator) the results of the iteration are undefined.  The set
+     * supports element removal, which removes the corresponding
+     * mapping from the map, via the <tt>Iterator.remove</tt>,
+     * <tt>Set.remove</tt>, <tt>removeAll</tt>, <tt>retainAll</tt> and
+     * <tt>clear</tt> operations.  It does not support the
+     * <tt>add</tt> or <tt>addAll</tt> operations.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactLinkedHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            int p = findEntry(HashMap.hash(key), key);
+            return p >= 0 && Objects.equals(entries[(p << 1) + 1], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                return CompactLinkedHashMap.this.remove(e.getKey(), e.getValue());
+            }
+            return false;
+        }
+        public final Spliterator<Map.Entry<K,V>> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED |
+                                            Spliterator.DISTINCT);
+        }
+        public final void forEach(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            Object[] es;
+            if (size > 0 && (es = entries) != null) {
+                int mc = modCount;
+                for (int p = 0, u = used; p < u && modCount == mc; ++p) {
+                    if (es[p << 1] != TOMBSTONE)
+                        action.accept(new Entry(p));
+                }
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * The entries handed out by entry set iteration.  An entry records
+     * its key, its position and the last value it saw.  While the
+     * mapping is still at that position, reads and writes go to the
+     * map; after the mapping is removed, or moved by compaction, the
+     * entry writes through to the key's current mapping if it has one,
+     * and otherwise keeps the value for itself, as a removed node of
+     * {@link HashMap} does.
+     */
+    final class Entry implements Map.Entry<K,V> {
+        final Object key;   // masked
+        V value;
+        int pos;
+
+        @SuppressWarnings("unchecked")
+        Entry(int p) {
+            pos = p;
+            key = entries[p << 1];
+            value = (V) entries[(p << 1) + 1];
+        }
+
+        /**
+         * Returns whether the mapping is still at pos, relocating it
+         * first if compaction has moved it.
+         */
+        private boolean locate() {
+            Object[] es = entries;
+            if (pos < used && es[pos << 1] == key)
+                return true;
+            K k = unmaskNull(key);
+            int p = findEntry(HashMap.hash(k), k);
+            if (p < 0)
+                return false;
+            pos = p;
+            return true;
+        }
+
+        public final K getKey() {
+            return unmaskNull(key);
+        }
+
+        @SuppressWarnings("unchecked")
+        public final V getValue() {
+            return locate() ? value = (V) entries[(pos << 1) + 1] : value;
+        }
+
+        public final V setValue(V newValue) {
+            V oldValue = getValue();
+            value = newValue;
+            if (locate())
+                entries[(pos << 1) + 1] = newValue;
+            return oldValue;
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                if (Objects.equals(getKey(), e.getKey()) &&
+                    Objects.equals(getValue(), e.getValue()))
+                    return true;
+            }
+            return false;
+        }
+
+        public final int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        public final String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    // Iterators
+
+    abstract class CompactIterator {
+        // Appending can reallocate entries, but also bumps modCount, so
+        // the array and its bound may be read once.
+        final Object[] es;    // entries at construction
+        final int end;        // used at construction
+        int next;             // position of next entry to return
+        int current;          // position of current entry, or -1
+        int expectedModCount; // for fast-fail
+
+        CompactIterator() {
+            expectedModCount = modCount;
+            es = entries;
+            end = used;
+            current = -1;
+            next = advance(0);
+        }
+
+        /**
+         * Returns the first live position at or after p, or end.
+         */
+        final int advance(int p) {
+            Object[] a = es;
+            int u = end;
+            while (p < u && a[p << 1] == TOMBSTONE)
+                ++p;
+            return p;
+        }
+
+        public final boolean hasNext() {
+            return next < end;
+        }
+
+        final int nextPosition() {
+            int p = next;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (p >= end)
+                throw new NoSuchElementException();
+            current = p;
+            next = advance(p + 1);
+            return p;
+        }
+
+        public final void remove() {
+            int p = current;
+            if (p < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -1;
+            removeAt(p);
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends CompactIterator
+        implements Iterator<K> {
+        public final K next() { return unmaskNull(es[nextPosition() << 1]); }
+    }
+
+    final class ValueIterator extends CompactIterator
+        implements Iterator<V> {
+        @SuppressWarnings("unchecked")
+        public final V next() { return (V) es[(nextPosition() << 1) + 1]; }
+    }
+
+    final class EntryIterator extends CompactIterator
+        implements Iterator<Map.Entry<K,V>> {
+        public final Map.Entry<K,V> next() { return new Entry(nextPosition()); }
+    }
+}
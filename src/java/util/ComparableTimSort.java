@@ -37,6 +37,9 @@ package java.util;
  * If this is the case, you are better off deleting ComparableTimSort to
  * eliminate the code duplication.  (See Arrays.java for details.)
  *
+ * <p>A {@link Sorter} keeps an instance across sorts, so that the temp
+ * storage and the run stack are allocated once rather than per sort.
+ *
  * @author Josh Bloch
  */
 class ComparableTimSort {
@@ -62,7 +65,7 @@ class ComparableTimSort {
     /**
      * The array being sorted.
      */
-    private final Object[] a;
+    private Object[] a;
 
     /**
      * When we get into galloping mode, we stay there until both runs win less
@@ -190,12 +193,25 @@ class ComparableTimSort {
             return;
         }
 
+        new ComparableTimSort(a, work, workBase, workLen).sortRuns(lo, hi);
+    }
+
+    /**
+     * Sorts a range of at least MIN_MERGE elements of the array being
+     * sorted by this instance.
+     *
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     */
+    private void sortRuns(int lo, int hi) {
+        Object[] a = this.a;
+
         /**
          * March over the array once, left to right, finding natural runs,
          * extending short natural runs to minRun elements, and merging runs
          * to maintain stack invariant.
          */
-        ComparableTimSort ts = new ComparableTimSort(a, work, workBase, workLen);
+        int nRemaining = hi - lo;
         int minRun = minRunLength(nRemaining);
         do {
             // Identify next run
@@ -209,8 +225,8 @@ class ComparableTimSort {
             }
 
             // Push run onto pending-run stack, and maybe merge
-            ts.pushRun(lo, runLen);
-            ts.mergeCollapse();
+            pushRun(lo, runLen);
+            mergeCollapse();
 
             // Advance to find next run
             lo += runLen;
@@ -219,8 +235,53 @@ class ComparableTimSort {
 
         // Merge all remaining runs to complete sort
         assert lo == hi;
-        ts.mergeForceCollapse();
-        assert ts.stackSize == 1;
+        mergeForceCollapse();
+        assert stackSize == 1;
+    }
+
+    /**
+     * Creates a ComparableTimSort instance for a {@link Sorter}, to be
+     * reused for sorts of any arrays. Its temp storage starts empty and
+     * grows on demand, and its run stack is as long as the largest
+     * arrays need.
+     */
+    ComparableTimSort() {
+        tmp = new Object[0];
+        runBase = new int[49];
+        runLen = new int[49];
+    }
+
+    /**
+     * Sorts the given range using this reusable instance, without
+     * allocating once the temp storage is large enough. The caller
+     * performs any bounds checks, and must not use the instance from
+     * more than one thread at a time.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     */
+    void sortReusing(Object[] a, int lo, int hi) {
+        int nRemaining = hi - lo;
+        if (nRemaining < 2)
+            return;
+
+        if (nRemaining < MIN_MERGE) {
+            int initRunLen = countRunAndMakeAscending(a, lo, hi);
+            binarySort(a, lo, hi, lo + initRunLen);
+            return;
+        }
+
+        this.a = a;
+        minGallop = MIN_GALLOP;
+        stackSize = 0;
+        try {
+            sortRuns(lo, hi);
+        } finally {
+            // Don't keep the sorted elements reachable
+            this.a = null;
+            Arrays.fill(tmp, 0, Math.min(tmpLen, nRemaining >>> 1), null);
+        }
     }
 
     /**
@@ -0,0 +1,909 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.util.function.DoubleConsumer;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A resizable array of primitive {@code double} values.  This class offers
+ * the operations of {@link ArrayList} without boxing: elements are stored
+ * directly in a {@code double[]}, so {@link #add}, {@link #get} and
+ * {@link #set} never allocate, and a list of <i>n</i> elements occupies
+ * about <i>n</i>&nbsp;*&nbsp;8 bytes instead of the 28 or so bytes
+ * per element of an {@code ArrayList<Double>}.
+ *
+ * <p>Each {@code DoubleArrayList} has a <i>capacity</i>, the size of the array used
+ * to store its elements.  As elements are added the capacity grows
+ * automatically, by half of its current size, exactly as for
+ * {@code ArrayList}; {@link #ensureCapacity} can be used to avoid
+ * incremental reallocation when the final size is known.
+ *
+ * <p>{@link #sort} uses the same algorithm as {@link Arrays#sort(double[])},
+ * after which {@link #binarySearch} may be used.  {@link #stream} returns a
+ * {@code DoubleStream} over the elements and {@link #asList} a
+ * {@code List<Double>} view for code that needs the {@code List}
+ * interface; operations through that view box their arguments and results.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators of the {@link #asList} view, as well as {@link #forEach},
+ * are <em>fail-fast</em> in the same sense as those of {@code ArrayList}.
+ *
+ * @see IntArrayList
+ * @see LongArrayList
+ */
+public class DoubleArrayList implements RandomAccess {
+
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Shared empty array instance used for empty instances.
+     */
+    private static final double[] EMPTY_ELEMENTDATA = {};
+
+    /**
+     * Shared empty array instance used for default sized empty instances,
+     * distinguished from {@link #EMPTY_ELEMENTDATA} to know how much to
+     * inflate when the first element is added.
+     */
+    private static final double[] DEFAULTCAPACITY_EMPTY_ELEMENTDATA = {};
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The array into which the elements are stored.  Slots at and beyond
+     * {@link #size} hold no elements.
+     */
+    double[] elementData;
+
+    /**
+     * The number of elements this list contains.
+     */
+    int size;
+
+    /**
+     * The number of times this list has been structurally modified.
+     */
+    int modCount;
+
+    /**
+     * Holds the cached {@link #asList} view.
+     */
+    List<Double> listView;
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public DoubleArrayList(int initialCapacity) {
+        if (initialCapacity > 0) {
+            this.elementData = new double[initialCapacity];
+        } else if (initialCapacity == 0) {
+            this.elementData = EMPTY_ELEMENTDATA;
+        } else {
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        }
+    }
+
+    /**
+     * Constructs an empty list with an initial capacity of ten.
+     */
+    public DoubleArrayList() {
+        this.elementData = DEFAULTCAPACITY_EMPTY_ELEMENTDATA;
+    }
+
+    /**
+     * Constructs a list containing a copy of the specified array.
+     *
+     * @param a the array whose elements are to be placed into this list
+     * @throws NullPointerException if the specified array is null
+     */
+    public DoubleArrayList(double[] a) {
+        if ((size = a.length) != 0) {
+            elementData = a.clone();
+        } else {
+            elementData = EMPTY_ELEMENTDATA;
+        }
+    }
+
+    /**
+     * Trims the capacity of this list to be the list's current size.
+     */
+    public void trimToSize() {
+        modCount++;
+        if (size < elementData.length) {
+            elementData = (size == 0)
+              ? EMPTY_ELEMENTDATA
+              : Arrays.copyOf(elementData, size);
+        }
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, to ensure that it
+     * can hold at least the number of elements specified by the minimum
+     * capacity argument.
+     *
+     * @param   minCapacity   the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        int minExpand = (elementData != DEFAULTCAPACITY_EMPTY_ELEMENTDATA)
+            ? 0
+            : DEFAULT_CAPACITY;
+        if (minCapacity > minExpand) {
+            ensureExplicitCapacity(minCapacity);
+        }
+    }
+
+    private void ensureCapacityInternal(int minCapacity) {
+        if (elementData == DEFAULTCAPACITY_EMPTY_ELEMENTDATA) {
+            minCapacity = Math.max(DEFAULT_CAPACITY, minCapacity);
+        }
+        ensureExplicitCapacity(minCapacity);
+    }
+
+    private void ensureExplicitCapacity(int minCapacity) {
+        modCount++;
+        // overflow-conscious code
+        if (minCapacity - elementData.length > 0)
+            grow(minCapacity);
+    }
+
+    private void grow(int minCapacity) {
+        // overflow-conscious code
+        int oldCapacity = elementData.length;
+        int newCapacity = oldCapacity + (oldCapacity >> 1);
+        if (newCapacity - minCapacity < 0)
+            newCapacity = minCapacity;
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = hugeCapacity(minCapacity);
+        elementData = Arrays.copyOf(elementData, newCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE) ?
+            Integer.MAX_VALUE :
+            MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this list contains no elements.
+     *
+     * @return {@code true} if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     * Elements are compared as by {@link Double#equals}, so {@code NaN}
+     * equals itself and {@code 0.0} does not equal {@code -0.0}.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(double o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param o element to search for
+     * @return the index of the first occurrence of the element, or -1
+     */
+    public int indexOf(double o) {
+        double[] es = elementData;
+        long bits = Double.doubleToLongBits(o);
+        for (int i = 0, n = size; i < n; i++)
+            if (Double.doubleToLongBits(es[i]) == bits)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param o element to search for
+     * @return the index of the last occurrence of the element, or -1
+     */
+    public int lastIndexOf(double o) {
+        double[] es = elementData;
+        long bits = Double.doubleToLongBits(o);
+        for (int i = size - 1; i >= 0; i--)
+            if (Double.doubleToLongBits(es[i]) == bits)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns a new array containing all of the elements in this list in
+     * proper sequence.
+     *
+     * @return an array containing all of the elements in this list
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index >= size()})
+     */
+    public double get(int index) {
+        rangeCheck(index);
+        return elementData[index];
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index >= size()})
+     */
+    public double set(int index, double element) {
+        rangeCheck(index);
+        double oldValue = elementData[index];
+        elementData[index] = element;
+        return oldValue;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     */
+    public void add(double e) {
+        ensureCapacityInternal(size + 1);  // Increments modCount!!
+        elementData[size++] = e;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list.  Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index > size()})
+     */
+    public void add(int index, double element) {
+        rangeCheckForAdd(index);
+        ensureCapacityInternal(size + 1);  // Increments modCount!!
+        System.arraycopy(elementData, index, elementData, index + 1,
+                         size - index);
+        elementData[index] = element;
+        size++;
+    }
+
+    /**
+     * Appends all of the elements of the specified array to the end of
+     * this list, in order.
+     *
+     * @param a array containing elements to be added to this list
+     * @throws NullPointerException if the specified array is null
+     */
+    public void addAll(double... a) {
+        addAll(a, 0, a.length);
+    }
+
+    /**
+     * Appends the elements {@code a[off]} through {@code a[off+len-1]} to
+     * the end of this list, in order.
+     *
+     * @param a array containing elements to be added to this list
+     * @param off index of the first element of {@code a} to add
+     * @param len number of elements to add
+     * @throws NullPointerException if the specified array is null
+     * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+     *         negative, or {@code off+len} is greater than {@code a.length}
+     */
+    public void addAll(double[] a, int off, int len) {
+        if (off < 0 || len < 0 || len > a.length - off)
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len +
+                                                ", length: " + a.length);
+        ensureCapacityInternal(size + len);  // Increments modCount
+        System.arraycopy(a, off, elementData, size, len);
+        size += len;
+    }
+
+    /**
+     * Appends all of the elements of the specified list to the end of this
+     * list, in order.
+     *
+     * @param l list containing elements to be added to this list
+     * @throws NullPointerException if the specified list is null
+     */
+    public void addAll(DoubleArrayList l) {
+        addAll(l.elementData, 0, l.size);
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *         ({@code index < 0 || index >= size()})
+     */
+    public double removeAt(int index) {
+        rangeCheck(index);
+
+        modCount++;
+        double oldValue = elementData[index];
+
+        int numMoved = size - index - 1;
+        if (numMoved > 0)
+            System.arraycopy(elementData, index+1, elementData, index,
+                             numMoved);
+        --size;
+        return oldValue;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this
+     * list, if it is present.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean removeValue(double o) {
+        int index = indexOf(o);
+        if (index < 0)
+            return false;
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes from this list all of the elements whose index is between
+     * {@code fromIndex}, inclusive, and {@code toIndex}, exclusive.
+     * Shifts any succeeding elements to the left (reduces their index).
+     *
+     * @param fromIndex index of first element to be removed
+     * @param toIndex index after last element to be removed
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > size()}
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        subListRangeCheck(fromIndex, toIndex, size);
+        modCount++;
+        System.arraycopy(elementData, toIndex, elementData, fromIndex,
+                         size - toIndex);
+        size -= toIndex - fromIndex;
+    }
+
+    /**
+     * Removes all of the elements of this list that satisfy the given
+     * predicate.
+     *
+     * @param filter a predicate which returns {@code true} for elements to
+     *        be removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the specified filter is null
+     * @throws ConcurrentModificationException if the filter modified this
+     *         list
+     */
+    public boolean removeIf(DoublePredicate filter) {
+        Objects.requireNonNull(filter);
+        // figure out which elements are to be removed; any exception
+        // thrown from the filter at this stage leaves the list unmodified
+        final int expectedModCount = modCount;
+        final double[] es = elementData;
+        final int size = this.size;
+        long[] deathRow = null;
+        int removeCount = 0;
+        for (int i = 0; modCount == expectedModCount && i < size; i++) {
+            if (filter.test(es[i])) {
+                if (deathRow == null)
+                    deathRow = new long[((size - 1) >> 6) + 1];
+                deathRow[i >> 6] |= 1L << i;
+                removeCount++;
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (removeCount == 0)
+            return false;
+
+        // shift surviving elements left over the spaces of removed ones
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            if ((deathRow[r >> 6] & (1L << r)) == 0)
+                es[w++] = es[r];
+        }
+        this.size = w;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes all of the elements from this list.  The capacity is
+     * unchanged.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * Performs the given action for each element of this list, in order.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modified this
+     *         list
+     */
+    public void forEach(DoubleConsumer action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final double[] es = elementData;
+        final int size = this.size;
+        for (int i = 0; modCount == expectedModCount && i < size; i++) {
+            action.accept(es[i]);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Replaces each element of this list with the result of applying the
+     * operator to that element.
+     *
+     * @param operator the operator to apply to each element
+     * @throws NullPointerException if the specified operator is null
+     * @throws ConcurrentModificationException if the operator modified this
+     *         list
+     */
+    public void replaceAll(DoubleUnaryOperator operator) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final double[] es = elementData;
+        final int size = this.size;
+        for (int i = 0; modCount == expectedModCount && i < size; i++) {
+            es[i] = operator.applyAsDouble(es[i]);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    /**
+     * Sorts this list into ascending numerical order.  The sorting
+     * algorithm is the Dual-Pivot Quicksort used by
+     * {@link Arrays#sort(double[])}, and orders {@code -0.0} and {@code NaN} in the same way.
+     */
+    public void sort() {
+        sort(0, size);
+    }
+
+    /**
+     * Sorts the elements from {@code fromIndex}, inclusive, to
+     * {@code toIndex}, exclusive, into ascending numerical order.
+     *
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > size()}
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     */
+    public void sort(int fromIndex, int toIndex) {
+        subListRangeCheck(fromIndex, toIndex, size);
+        final int expectedModCount = modCount;
+        DualPivotQuicksort.sort(elementData, fromIndex, toIndex - 1, null, 0, 0);
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    /**
+     * Searches this list for the specified value using the binary search
+     * algorithm.  The list must be sorted (as by {@link #sort()}) prior to
+     * making this call; if it is not, the results are undefined.
+     *
+     * @param key the value to be searched for
+     * @return index of the search key, if it is contained in the list;
+     *         otherwise, <tt>(-(<i>insertion point</i>) - 1)</tt>, as for
+     *         {@link Arrays#binarySearch(double[], double)}
+     */
+    public int binarySearch(double key) {
+        return Arrays.binarySearch(elementData, 0, size, key);
+    }
+
+    /**
+     * Searches a range of this list for the specified value using the
+     * binary search algorithm.  The range must be sorted prior to making
+     * this call; if it is not, the results are undefined.
+     *
+     * @param fromIndex the index of the first element (inclusive) to be
+     *          searched
+     * @param toIndex the index of the last element (exclusive) to be searched
+     * @param key the value to be searched for
+     * @return index of the search key, if it is contained in the range;
+     *         otherwise, <tt>(-(<i>insertion point</i>) - 1)</tt>
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0} or
+     *         {@code toIndex > size()}
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     */
+    public int binarySearch(int fromIndex, int toIndex, double key) {
+        subListRangeCheck(fromIndex, toIndex, size);
+        return Arrays.binarySearch(elementData, fromIndex, toIndex, key);
+    }
+
+    /**
+     * Creates a {@link Spliterator.OfDouble} over the elements in this list.
+     *
+     * <p>The spliterator reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED} and {@link Spliterator#ORDERED}.  It
+     * covers the elements present when it is created and reads the backing
+     * array directly: it does not detect later modification of the list.
+     *
+     * @return a {@code Spliterator.OfDouble} over the elements in this list
+     */
+    public Spliterator.OfDouble spliterator() {
+        return Spliterators.spliterator(elementData, 0, size,
+                                            Spliterator.ORDERED);
+    }
+
+    /**
+     * Returns a sequential {@code DoubleStream} with this list as its source.
+     *
+     * <p>The stream is <em>late-binding</em>: its spliterator is created
+     * when the terminal operation commences, so modifications made before
+     * then are reflected in the result.
+     *
+     * @return a sequential {@code DoubleStream} over the elements in this list
+     */
+    public DoubleStream stream() {
+        return StreamSupport.doubleStream(this::spliterator,
+                                          Spliterator.SIZED | Spliterator.SUBSIZED |
+                                          Spliterator.ORDERED, false);
+    }
+
+    /**
+     * Returns a possibly parallel {@code DoubleStream} with this list as its
+     * source.
+     *
+     * @return a possibly parallel {@code DoubleStream} over the elements in
+     *         this list
+     */
+    public DoubleStream parallelStream() {
+        return StreamSupport.doubleStream(this::spliterator,
+                                          Spliterator.SIZED | Spliterator.SUBSIZED |
+                                          Spliterator.ORDERED, true);
+    }
+
+    /**
+     * Returns a {@code List<Double>} view of this list.  The view is backed
+     * by this list, so changes to either are reflected in the other, and
+     * supports all optional {@code List} operations.  Attempts to store
+     * {@code null} through the view throw {@code NullPointerException}.
+     * Iterators and sub-lists of the view are fail-fast with respect to
+     * modifications made directly through this list as well as through
+     * the view.
+     *
+     * @return a list view of this list
+     */
+    public List<Double> asList() {
+        List<Double> v;
+        return (v = listView) == null ? (listView = new ListView()) : v;
+    }
+
+    /**
+     * Compares the specified object with this list for equality.  Returns
+     * {@code true} if the object is also a {@code DoubleArrayList}, both lists have
+     * the same size, and all corresponding pairs of elements are equal.
+     * Elements are compared as by {@link Double#equals}, so {@code NaN}
+     * equals itself and {@code 0.0} does not equal {@code -0.0}.
+     *
+     * @param o the object to be compared for equality with this list
+     * @return {@code true} if the specified object is equal to this list
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof DoubleArrayList))
+            return false;
+        DoubleArrayList l = (DoubleArrayList) o;
+        int n = size;
+        if (l.size != n)
+            return false;
+        double[] a = elementData, b = l.elementData;
+        for (int i = 0; i < n; i++) {
+            if (Double.doubleToLongBits(a[i]) != Double.doubleToLongBits(b[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this list.  The value is the same as
+     * that of a {@code List<Double>} holding the same elements, as defined
+     * by {@link List#hashCode}.
+     *
+     * @return the hash code value for this list
+     */
+    public int hashCode() {
+        double[] es = elementData;
+        int h = 1;
+        for (int i = 0, n = size; i < n; i++)
+            h = 31 * h + Double.hashCode(es[i]);
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this list, in the same form as
+     * {@link AbstractCollection#toString}.
+     *
+     * @return a string representation of this list
+     */
+    public String toString() {
+        int n = size;
+        if (n == 0)
+            return "[]";
+        double[] es = elementData;
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; ; i++) {
+            sb.append(es[i]);
+            if (i == n - 1)
+                return sb.append(']').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    private void rangeCheck(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    static void subListRangeCheck(int fromIndex, int toIndex, int size) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex = " + fromIndex);
+        if (toIndex > size)
+            throw new IndexOutOfBoundsException("toIndex = " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IllegalArgumentException("fromIndex(" + fromIndex +
+                                               ") > toIndex(" + toIndex + ")");
+    }
+
+    /* ------------------------------------------------------------ */
+    // List view
+
+    final class ListView extends AbstractList<Double> implements RandomAccess {
+        public int size()                   { return size; }
+        public Double get(int index)       { return DoubleArrayList.this.get(index); }
+        public Double set(int index, Double element) {
+            return DoubleArrayList.this.set(index, element);
+        }
+        public void add(int index, Double element) {
+            double e = element;
+            DoubleArrayList.this.add(index, e);
+        }
+        public Double remove(int index) {
+            double e = removeAt(index);
+            return e;
+        }
+        public void clear() {
+            DoubleArrayList.this.clear();
+        }
+        protected void removeRange(int fromIndex, int toIndex) {
+            DoubleArrayList.this.removeRange(fromIndex, toIndex);
+        }
+        public int indexOf(Object o) {
+            return (o instanceof Double) ? DoubleArrayList.this.indexOf((Double) o) : -1;
+        }
+        public int lastIndexOf(Object o) {
+            return (o instanceof Double) ? DoubleArrayList.this.lastIndexOf((Double) o) : -1;
+        }
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+        public Iterator<Double> iterator() {
+            return new Itr();
+        }
+        public ListIterator<Double> listIterator(int index) {
+            rangeCheckForAdd(index);
+            return new SubView(0, size).listIterator(index);
+        }
+        public List<Double> subList(int fromIndex, int toIndex) {
+            subListRangeCheck(fromIndex, toIndex, size);
+            return new SubView(fromIndex, toIndex);
+        }
+        public Spliterator<Double> spliterator() {
+            return DoubleArrayList.this.spliterator();
+        }
+        public void sort(Comparator<? super Double> c) {
+            if (c == null) {
+                DoubleArrayList.this.sort();
+                } else {
+                super.sort(c);
+            }
+        }
+    }
+
+    /**
+     * A range of the {@link #asList} view, which checks this list's
+     * modification count rather than one of its own, so that it fails
+     * fast on modifications made directly through this list.  List
+     * iterators and sub-lists of a {@code SubView} come from {@link
+     * AbstractList}, and detect such modifications through its methods.
+     */
+    final class SubView extends AbstractList<Double> implements RandomAccess {
+        final int offset;
+        int length;
+        int expectedModCount = DoubleArrayList.this.modCount;
+
+        SubView(int fromIndex, int toIndex) {
+            offset = fromIndex;
+            length = toIndex - fromIndex;
+        }
+
+        private void checkForComodification() {
+            if (DoubleArrayList.this.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+length);
+        }
+
+        /** Records a structural modification made through this view. */
+        private void modified(int delta) {
+            expectedModCount = DoubleArrayList.this.modCount;
+            length += delta;
+            modCount++;
+        }
+
+        public int size() {
+            checkForComodification();
+            return length;
+        }
+        public Double get(int index) {
+            checkIndex(index);
+            checkForComodification();
+            return elementData[offset + index];
+        }
+        public Double set(int index, Double element) {
+            double e = element;
+            checkIndex(index);
+            checkForComodification();
+            double[] es = elementData;
+            double oldValue = es[offset + index];
+            es[offset + index] = e;
+            return oldValue;
+        }
+        public void add(int index, Double element) {
+            double e = element;
+            if (index < 0 || index > length)
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+length);
+            checkForComodification();
+            DoubleArrayList.this.add(offset + index, e);
+            modified(1);
+        }
+        public Double remove(int index) {
+            checkIndex(index);
+            checkForComodification();
+            double e = removeAt(offset + index);
+            modified(-1);
+            return e;
+        }
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForComodification();
+            DoubleArrayList.this.removeRange(offset + fromIndex, offset + toIndex);
+            modified(fromIndex - toIndex);
+        }
+    }
+
+    /**
+     * Iterator of the {@link #asList} view, fail-fast with respect to
+     * modifications made directly through this list as well as through
+     * the view.
+     */
+    final class Itr implements PrimitiveIterator.OfDouble {
+        int cursor;       // index of next element to return
+        int lastRet = -1; // index of last element returned; -1 if no such
+        int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor != size;
+        }
+
+        public double nextDouble() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            cursor = i + 1;
+            return elementData[lastRet = i];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            removeAt(lastRet);
+            cursor = lastRet;
+            lastRet = -1;
+            expectedModCount = modCount;
+        }
+    }
+}
@@ -89,6 +89,23 @@ final class DualPivotQuicksort {
      */
     private static final int COUNTING_SORT_THRESHOLD_FOR_SHORT_OR_CHAR = 3200;
 
+    /**
+     * If the length of an int, long, float or double array to be sorted
+     * is greater than this constant and the array turns out not to be
+     * highly structured, LSD radix sort is used in preference to Quicksort.
+     */
+    private static final int RADIX_SORT_THRESHOLD = 1 << 16;
+
+    /**
+     * The number of bits in a radix sort digit.
+     */
+    private static final int RADIX_BITS = 8;
+
+    /**
+     * The number of buckets per radix sort digit.
+     */
+    private static final int RADIX = 1 << RADIX_BITS;
+
     /*
      * Sorting methods for seven primitive types.
      */
@@ -131,7 +148,7 @@ final class DualPivotQuicksort {
             } else { // equal
                 for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
                     if (--m == 0) {
-                        sort(a, left, right, true);
+                        sortUnstructured(a, left, right, work, workBase, workLen);
                         return;
                     }
                 }
@@ -142,7 +159,7 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                sortUnstructured(a, left, right, work, workBase, workLen);
                 return;
             }
         }
@@ -579,7 +596,7 @@ final class DualPivotQuicksort {
             } else { // equal
                 for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
                     if (--m == 0) {
-                        sort(a, left, right, true);
+                        sortUnstructured(a, left, right, work, workBase, workLen);
                         return;
                     }
                 }
@@ -590,7 +607,7 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                sortUnstructured(a, left, right, work, workBase, workLen);
                 return;
             }
         }
@@ -2127,7 +2144,7 @@ final class DualPivotQuicksort {
             } else { // equal
                 for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
                     if (--m == 0) {
-                        sort(a, left, right, true);
+                        sortUnstructured(a, left, right, work, workBase, workLen);
                         return;
                     }
                 }
@@ -2138,7 +2155,7 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                sortUnstructured(a, left, right, work, workBase, workLen);
                 return;
             }
         }
@@ -2666,7 +2683,7 @@ final class DualPivotQuicksort {
             } else { // equal
                 for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
                     if (--m == 0) {
-                        sort(a, left, right, true);
+                        sortUnstructured(a, left, right, work, workBase, workLen);
                         return;
                     }
                 }
@@ -2677,7 +2694,7 @@ final class DualPivotQuicksort {
              * use Quicksort instead of merge sort.
              */
             if (++count == MAX_RUN_COUNT) {
-                sort(a, left, right, true);
+                sortUnstructured(a, left, right, work, workBase, workLen);
                 return;
             }
         }
@@ -3075,4 +3092,260 @@ final class DualPivotQuicksort {
             sort(a, great + 1, right, false);
         }
     }
+
+    /*
+     * Radix sort methods for int, long, float and double.
+     *
+     * The element bits are mapped to keys whose unsigned order is the
+     * numerical order of the elements: the sign bit of an int or long
+     * is flipped, and for a float or double the sign bit is flipped for
+     * non-negative values and all bits are flipped for negative ones,
+     * which also places -0.0 before 0.0. NaNs never get here, they are
+     * moved to the end of the array before sorting starts.
+     *
+     * All digit histograms are collected in a single pass; a digit that
+     * is the same for all elements is skipped, so small value ranges
+     * need only a few passes. Each pass scatters into the other buffer,
+     * and the result is copied back if it ends up in the workspace.
+     * The histogram table (4 or 8 digits of RADIX counts, 4 or 8 KB)
+     * is allocated per call rather than carved from the workspace,
+     * which has the element type; it is small next to the range and
+     * next to the run array every sort already allocates.
+     */
+
+    /**
+     * Sorts a range that is not highly structured, using radix sort
+     * on large ranges and Quicksort otherwise.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    private static void sortUnstructured(int[] a, int left, int right,
+                                         int[] work, int workBase, int workLen) {
+        if (right - left < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, true);
+            return;
+        }
+        int n = right - left + 1;
+        if (work == null || workLen < n || workBase + n > work.length) {
+            work = new int[n];
+            workBase = 0;
+        }
+        int[] count = new int[4 * RADIX];
+        for (int i = left; i <= right; ++i) {
+            int k = a[i] ^ Integer.MIN_VALUE;
+            ++count[k & 0xFF];
+            ++count[RADIX + ((k >>> 8) & 0xFF)];
+            ++count[2 * RADIX + ((k >>> 16) & 0xFF)];
+            ++count[3 * RADIX + (k >>> 24)];
+        }
+        int[] src = a, dst = work;
+        int so = left, dso = workBase;
+        for (int digit = 0; digit < 4; ++digit) {
+            int base = digit * RADIX;
+            if (!toOffsets(count, base, n)) {
+                continue;
+            }
+            int shift = digit * RADIX_BITS;
+            for (int i = so, end = so + n; i < end; ++i) {
+                int v = src[i];
+                dst[dso + count[base + (((v ^ Integer.MIN_VALUE) >>> shift) & 0xFF)]++] = v;
+            }
+            int[] t = src; src = dst; dst = t;
+            int o = so; so = dso; dso = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, so, a, left, n);
+        }
+    }
+
+    /**
+     * Sorts a range that is not highly structured, using radix sort
+     * on large ranges and Quicksort otherwise.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    private static void sortUnstructured(long[] a, int left, int right,
+                                         long[] work, int workBase, int workLen) {
+        if (right - left < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, true);
+            return;
+        }
+        int n = right - left + 1;
+        if (work == null || workLen < n || workBase + n > work.length) {
+            work = new long[n];
+            workBase = 0;
+        }
+        int[] count = new int[8 * RADIX];
+        for (int i = left; i <= right; ++i) {
+            long k = a[i] ^ Long.MIN_VALUE;
+            for (int base = 0; base < 8 * RADIX; base += RADIX, k >>>= RADIX_BITS) {
+                ++count[base + ((int) k & 0xFF)];
+            }
+        }
+        long[] src = a, dst = work;
+        int so = left, dso = workBase;
+        for (int digit = 0; digit < 8; ++digit) {
+            int base = digit * RADIX;
+            if (!toOffsets(count, base, n)) {
+                continue;
+            }
+            int shift = digit * RADIX_BITS;
+            for (int i = so, end = so + n; i < end; ++i) {
+                long v = src[i];
+                dst[dso + count[base + ((int) ((v ^ Long.MIN_VALUE) >>> shift) & 0xFF)]++] = v;
+            }
+            long[] t = src; src = dst; dst = t;
+            int o = so; so = dso; dso = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, so, a, left, n);
+        }
+    }
+
+    /**
+     * Sorts a range that is not highly structured and contains no NaNs,
+     * using radix sort on large ranges and Quicksort otherwise.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    private static void sortUnstructured(float[] a, int left, int right,
+                                         float[] work, int workBase, int workLen) {
+        if (right - left < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, true);
+            return;
+        }
+        int n = right - left + 1;
+        if (work == null || workLen < n || workBase + n > work.length) {
+            work = new float[n];
+            workBase = 0;
+        }
+        int[] count = new int[4 * RADIX];
+        for (int i = left; i <= right; ++i) {
+            int k = radixKey(a[i]);
+            ++count[k & 0xFF];
+            ++count[RADIX + ((k >>> 8) & 0xFF)];
+            ++count[2 * RADIX + ((k >>> 16) & 0xFF)];
+            ++count[3 * RADIX + (k >>> 24)];
+        }
+        float[] src = a, dst = work;
+        int so = left, dso = workBase;
+        for (int digit = 0; digit < 4; ++digit) {
+            int base = digit * RADIX;
+            if (!toOffsets(count, base, n)) {
+                continue;
+            }
+            int shift = digit * RADIX_BITS;
+            for (int i = so, end = so + n; i < end; ++i) {
+                float v = src[i];
+                dst[dso + count[base + ((radixKey(v) >>> shift) & 0xFF)]++] = v;
+            }
+            float[] t = src; src = dst; dst = t;
+            int o = so; so = dso; dso = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, so, a, left, n);
+        }
+    }
+
+    /**
+     * Sorts a range that is not highly structured and contains no NaNs,
+     * using radix sort on large ranges and Quicksort otherwise.
+     *
+     * @param a the array to be sorted
+     * @param left the index of the first element, inclusive, to be sorted
+     * @param right the index of the last element, inclusive, to be sorted
+     * @param work a workspace array (slice)
+     * @param workBase origin of usable space in work array
+     * @param workLen usable size of work array
+     */
+    private static void sortUnstructured(double[] a, int left, int right,
+                                         double[] work, int workBase, int workLen) {
+        if (right - left < RADIX_SORT_THRESHOLD) {
+            sort(a, left, right, true);
+            return;
+        }
+        int n = right - left + 1;
+        if (work == null || workLen < n || workBase + n > work.length) {
+            work = new double[n];
+            workBase = 0;
+        }
+        int[] count = new int[8 * RADIX];
+        for (int i = left; i <= right; ++i) {
+            long k = radixKey(a[i]);
+            for (int base = 0; base < 8 * RADIX; base += RADIX, k >>>= RADIX_BITS) {
+                ++count[base + ((int) k & 0xFF)];
+            }
+        }
+        double[] src = a, dst = work;
+        int so = left, dso = workBase;
+        for (int digit = 0; digit < 8; ++digit) {
+            int base = digit * RADIX;
+            if (!toOffsets(count, base, n)) {
+                continue;
+            }
+            int shift = digit * RADIX_BITS;
+            for (int i = so, end = so + n; i < end; ++i) {
+                double v = src[i];
+                dst[dso + count[base + ((int) (radixKey(v) >>> shift) & 0xFF)]++] = v;
+            }
+            double[] t = src; src = dst; dst = t;
+            int o = so; so = dso; dso = o;
+        }
+        if (src != a) {
+            System.arraycopy(src, so, a, left, n);
+        }
+    }
+
+    /**
+     * Returns the radix sort key of a float that is not NaN.
+     */
+    private static int radixKey(float f) {
+        int bits = Float.floatToRawIntBits(f);
+        return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+    }
+
+    /**
+     * Returns the radix sort key of a double that is not NaN.
+     */
+    private static long radixKey(double d) {
+        long bits = Double.doubleToRawLongBits(d);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    /**
+     * Turns the histogram of one digit into the starting offsets of
+     * its buckets.
+     *
+     * @param count the histograms of all digits
+     * @param base the index of the first bucket of the digit
+     * @param n the number of elements being sorted
+     * @return false if all elements fall into one bucket, so that
+     *         the pass for this digit can be skipped
+     */
+    private static boolean toOffsets(int[] count, int base, int n) {
+        for (int i = base, sum = 0, end = base + RADIX; i < end; ++i) {
+            int c = count[i];
+            if (c == n) {
+                return false;
+            }
+            count[i] = sum;
+            sum += c;
+        }
+        return true;
+    }
 }
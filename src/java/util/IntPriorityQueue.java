@@ -0,0 +1,513 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+/**
+ * An unbounded priority queue of primitive {@code int} keys, ordered
+ * smallest first, that supports changing and removing queued elements in
+ * logarithmic time.  Unlike a {@code PriorityQueue<Integer>}, this class
+ * stores its keys in a flat {@code int[]} and never allocates on
+ * {@link #offer} or {@link #poll}.
+ *
+ * <p>Every element is identified by an {@code int} <em>handle</em>,
+ * returned by {@link #offer} and valid until the element leaves the queue.
+ * {@link #decreaseKey}, {@link #changeKey} and {@link #remove(int)} take a
+ * handle, so a key can be moved without inserting a duplicate and later
+ * skipping the stale copy on {@code poll}, as is usual with
+ * {@code PriorityQueue}.  Handles are small non-negative integers; the
+ * handle of an element that has left the queue is recycled by a later
+ * {@code offer}, so callers must not use a handle after its element has
+ * been polled or removed.  The {@linkplain #IntPriorityQueue(int[], int) array
+ * constructor} assigns handle {@code i} to {@code keys[i]}, which lets an
+ * algorithm such as Dijkstra's use vertex numbers directly as handles.
+ *
+ * <p>The queue is a <em>d-ary</em> heap: each node has {@code arity}
+ * children.  An arity of {@code 2} gives the binary heap of
+ * {@link PriorityQueue}; the default arity of {@code 4} makes the heap
+ * half as deep, so that inserts and key decreases, which sift up, do half
+ * as many moves, while the four children examined at each level of a
+ * sift down usually share a cache line.
+ *
+ * <p>{@link #offer}, {@link #poll}, {@link #decreaseKey},
+ * {@link #changeKey} and {@link #remove(int)} take <i>O</i>(log <i>n</i>)
+ * time; {@link #peek}, {@link #key}, {@link #contains} and {@link #size}
+ * take constant time.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @see PriorityQueue
+ * @see LongPriorityQueue
+ */
+public class IntPriorityQueue {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+    /**
+     * The arity used when none specified in constructor.
+     */
+    static final int DEFAULT_ARITY = 4;
+
+    /**
+     * The largest supported arity.
+     */
+    static final int MAXIMUM_ARITY = 64;
+
+    /**
+     * The maximum size of array to allocate.
+     * Some VMs reserve some header words in an array.
+     * Attempts to allocate larger arrays may result in
+     * OutOfMemoryError: Requested array size exceeds VM limit
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The keys, in heap order: the children of slot {@code k} are slots
+     * {@code (k << shift) + 1} through {@code (k << shift) + arity}, and
+     * no child is smaller than its parent.
+     */
+    transient int[] keys;
+
+    /**
+     * The handle of the element in each heap slot, parallel to
+     * {@link #keys}.
+     */
+    transient int[] handles;
+
+    /**
+     * Indexed by handle.  For a queued element, its slot in {@link #keys};
+     * for a free handle, {@code -2 - next} where {@code next} is the next
+     * free handle, or {@code -1} at the end of the free list.
+     */
+    transient int[] slots;
+
+    /**
+     * The first free handle below {@link #handleLimit}, or {@code -1}.
+     */
+    transient int freeHandle;
+
+    /**
+     * The number of handles ever issued; handles at and above this value
+     * have never been used.
+     */
+    transient int handleLimit;
+
+    /**
+     * The number of elements in the queue.
+     */
+    transient int size;
+
+    /**
+     * log2 of the arity.
+     */
+    final int shift;
+
+    /**
+     * Creates an empty queue with the default initial capacity (11) and
+     * the default arity (4).
+     */
+    public IntPriorityQueue() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_ARITY);
+    }
+
+    /**
+     * Creates an empty queue with the specified initial capacity and the
+     * default arity (4).
+     *
+     * @param initialCapacity the initial capacity for this priority queue
+     * @throws IllegalArgumentException if {@code initialCapacity} is less
+     *         than 1
+     */
+    public IntPriorityQueue(int initialCapacity) {
+        this(initialCapacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Creates an empty queue with the specified initial capacity and
+     * arity.
+     *
+     * @param initialCapacity the initial capacity for this priority queue
+     * @param arity the number of children of each heap node; 2 for a
+     *        binary heap
+     * @throws IllegalArgumentException if {@code initialCapacity} is less
+     *         than 1, or {@code arity} is not a power of two between 2 and
+     *         64
+     */
+    public IntPriorityQueue(int initialCapacity, int arity) {
+        if (initialCapacity < 1)
+            throw new IllegalArgumentException();
+        this.shift = shiftFor(arity);
+        this.keys = new int[initialCapacity];
+        this.handles = new int[initialCapacity];
+        this.slots = new int[initialCapacity];
+        this.freeHandle = -1;
+    }
+
+    /**
+     * Creates a queue containing the specified keys, with the specified
+     * arity.  The element holding {@code keys[i]} is given handle
+     * {@code i}.  The heap is built in linear time.
+     *
+     * @param keys the keys to be placed into this priority queue
+     * @param arity the number of children of each heap node; 2 for a
+     *        binary heap
+     * @throws NullPointerException if the specified array is null
+     * @throws IllegalArgumentException if {@code arity} is not a power of
+     *         two between 2 and 64
+     */
+    public IntPriorityQueue(int[] keys, int arity) {
+        this.shift = shiftFor(arity);
+        int n = keys.length;
+        int cap = Math.max(n, 1);
+        this.keys = Arrays.copyOf(keys, cap);
+        this.handles = new int[cap];
+        this.slots = new int[cap];
+        for (int i = 0; i < n; i++)
+            handles[i] = slots[i] = i;
+        this.size = this.handleLimit = n;
+        this.freeHandle = -1;
+        heapify();
+    }
+
+    private static int shiftFor(int arity) {
+        if (arity < 2 || arity > MAXIMUM_ARITY || (arity & (arity - 1)) != 0)
+            throw new IllegalArgumentException("Illegal arity: " + arity);
+        return Integer.numberOfTrailingZeros(arity);
+    }
+
+    /**
+     * Increases the capacity of the heap arrays.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    private void grow(int minCapacity) {
+        int oldCapacity = keys.length;
+        // Double size if small; else grow by 50%
+        int newCapacity = oldCapacity + ((oldCapacity < 64) ?
+                                         (oldCapacity + 2) :
+                                         (oldCapacity >> 1));
+        // overflow-conscious code
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = hugeCapacity(minCapacity);
+        keys = Arrays.copyOf(keys, newCapacity);
+        handles = Arrays.copyOf(handles, newCapacity);
+        slots = Arrays.copyOf(slots, newCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE) ?
+            Integer.MAX_VALUE :
+            MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * Inserts the specified key into this priority queue.
+     *
+     * @param key the key to add
+     * @return the handle of the new element
+     */
+    public int offer(int key) {
+        int i = size;
+        if (i >= keys.length)
+            grow(i + 1);
+        int h = freeHandle;
+        if (h >= 0)
+            freeHandle = -2 - slots[h];
+        else
+            h = handleLimit++;  // no free handles, so handleLimit == size
+        size = i + 1;
+        siftUp(i, key, h);
+        return h;
+    }
+
+    /**
+     * Returns the smallest key in this queue.
+     *
+     * @return the smallest key in this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return keys[0];
+    }
+
+    /**
+     * Returns the handle of the element with the smallest key, or
+     * {@code -1} if this queue is empty.
+     *
+     * @return the handle of the head of this queue, or {@code -1}
+     */
+    public int peekHandle() {
+        return (size == 0) ? -1 : handles[0];
+    }
+
+    /**
+     * Retrieves and removes the smallest key in this queue.
+     *
+     * @return the smallest key in this queue
+     * @throws NoSuchElementException if this queue is empty
+     */
+    public int poll() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        int result = keys[0];
+        removeAt(0);
+        return result;
+    }
+
+    /**
+     * Removes the element with the smallest key and returns its handle,
+     * or returns {@code -1} if this queue is empty.  The key can be read
+     * beforehand with {@link #peek}.  The returned handle may be reissued
+     * by the next {@link #offer}.
+     *
+     * @return the handle of the removed head of this queue, or {@code -1}
+     */
+    public int pollHandle() {
+        if (size == 0)
+            return -1;
+        int h = handles[0];
+        removeAt(0);
+        return h;
+    }
+
+    /**
+     * Returns {@code true} if the specified handle identifies an element
+     * of this queue.
+     *
+     * @param handle the handle to test
+     * @return {@code true} if the element is in this queue
+     */
+    public boolean contains(int handle) {
+        return handle >= 0 && handle < handleLimit && slots[handle] >= 0;
+    }
+
+    /**
+     * Returns the key of the element with the specified handle.
+     *
+     * @param handle the handle of an element of this queue
+     * @return the key of the element
+     * @throws IllegalArgumentException if no element of this queue has
+     *         the specified handle
+     */
+    public int key(int handle) {
+        return keys[slotOf(handle)];
+    }
+
+    /**
+     * Lowers the key of the element with the specified handle.
+     *
+     * @param handle the handle of an element of this queue
+     * @param newKey the new key, no greater than the current key
+     * @throws IllegalArgumentException if no element of this queue has
+     *         the specified handle, or {@code newKey} is greater than its
+     *         current key
+     */
+    public void decreaseKey(int handle, int newKey) {
+        int k = slotOf(handle);
+        if (newKey > keys[k])
+            throw new IllegalArgumentException("Key increased: " + newKey +
+                                               " > " + keys[k]);
+        siftUp(k, newKey, handle);
+    }
+
+    /**
+     * Changes the key of the element with the specified handle, moving
+     * the element up or down the heap as needed.
+     *
+     * @param handle the handle of an element of this queue
+     * @param newKey the new key
+     * @throws IllegalArgumentException if no element of this queue has
+     *         the specified handle
+     */
+    public void changeKey(int handle, int newKey) {
+        int k = slotOf(handle);
+        if (newKey < keys[k])
+            siftUp(k, newKey, handle);
+        else
+            siftDown(k, newKey, handle);
+    }
+
+    /**
+     * Removes the element with the specified handle from this queue, if
+     * present.
+     *
+     * @param handle the handle of the element to remove
+     * @return {@code true} if an element was removed
+     */
+    public boolean remove(int handle) {
+        if (!contains(handle))
+            return false;
+        removeAt(slots[handle]);
+        return true;
+    }
+
+    /**
+     * Returns the number of elements in this queue.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this queue contains no elements.
+     *
+     * @return {@code true} if this queue contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all of the elements from this queue.  All handles become
+     * free.
+     */
+    public void clear() {
+        size = 0;
+        handleLimit = 0;
+        freeHandle = -1;
+    }
+
+    /**
+     * Returns an array containing the keys in this queue, in no
+     * particular order.
+     *
+     * @return an array containing the keys in this queue
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * Returns a string representation of the keys in this queue, in heap
+     * order.
+     *
+     * @return a string representation of this queue
+     */
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private int slotOf(int handle) {
+        if (!contains(handle))
+            throw new IllegalArgumentException("Not queued: " + handle);
+        return slots[handle];
+    }
+
+    /**
+     * Removes the element at slot {@code i} and frees its handle.
+     */
+    private void removeAt(int i) {
+        int h = handles[i];
+        slots[h] = -2 - freeHandle;
+        freeHandle = h;
+        int s = --size;
+        if (s != i) {
+            int moved = keys[s];
+            int mh = handles[s];
+            siftDown(i, moved, mh);
+            if (handles[i] == mh)
+                siftUp(i, moved, mh);
+        }
+    }
+
+    /**
+     * Inserts key x with handle h at position k, maintaining heap
+     * invariant by promoting x up the tree until it is greater than or
+     * equal to its parent, or is the root.
+     *
+     * @param k the position to fill
+     * @param x the key to insert
+     * @param h the handle of the key
+     */
+    private void siftUp(int k, int x, int h) {
+        final int[] keys = this.keys;
+        final int[] handles = this.handles, slots = this.slots;
+        final int shift = this.shift;
+        while (k > 0) {
+            int parent = (k - 1) >>> shift;
+            int e = keys[parent];
+            if (x >= e)
+                break;
+            keys[k] = e;
+            slots[handles[k] = handles[parent]] = k;
+            k = parent;
+        }
+        keys[k] = x;
+        slots[handles[k] = h] = k;
+    }
+
+    /**
+     * Inserts key x with handle h at position k, maintaining heap
+     * invariant by demoting x down the tree repeatedly until it is less
+     * than or equal to its children or is a leaf.
+     *
+     * @param k the position to fill
+     * @param x the key to insert
+     * @param h the handle of the key
+     */
+    private void siftDown(int k, int x, int h) {
+        final int[] keys = this.keys;
+        final int[] handles = this.handles, slots = this.slots;
+        final int shift = this.shift, n = size;
+        final int lastParent = (n - 2) >> shift;  // loop while a non-leaf
+        while (k <= lastParent) {
+            // find least child among first .. first + arity - 1
+            int first = (k << shift) + 1;
+            int last = Math.min(first + (1 << shift), n);
+            int child = first;
+            int c = keys[first];
+            for (int j = first + 1; j < last; j++) {
+                int e = keys[j];
+                if (e < c) {
+                    c = e;
+                    child = j;
+                }
+            }
+            if (x <= c)
+                break;
+            keys[k] = c;
+            slots[handles[k] = handles[child]] = k;
+            k = child;
+        }
+        keys[k] = x;
+        slots[handles[k] = h] = k;
+    }
+
+    /**
+     * Establishes the heap invariant in the entire tree, assuming nothing
+     * about the order of the elements prior to the call.
+     */
+    private void heapify() {
+        int n = size;
+        if (n > 1) {
+            for (int i = (n - 2) >>> shift; i >= 0; i--)
+                siftDown(i, keys[i], handles[i]);
+        }
+    }
+}
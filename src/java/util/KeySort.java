@@ -0,0 +1,206 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Stable sorts of object arrays by a primitive key, used by
+ * Arrays.sortByInt, sortByLong and sortByDouble. The key extractor is
+ * applied exactly once per element, the resulting keys are sorted
+ * together with the original positions of their elements, and the
+ * elements are finally permuted into key order. Comparing positions
+ * when keys are equal makes the sort stable.
+ *
+ * An int key and its position are packed into one long, key in the
+ * high half, so that a plain long sort (DualPivotQuicksort) orders by
+ * key and then by position. Long and double keys leave no room for the
+ * position, so they are sorted along with a parallel int array of
+ * positions by an LSD radix sort, which is stable by construction.
+ * Doubles are first mapped to longs whose order is that of
+ * Double.compare, so -0.0 precedes 0.0 and NaNs come last.
+ *
+ * All exposed methods are package-private, designed to be invoked
+ * from public methods (in class Arrays) after performing any
+ * necessary array bounds checks.
+ */
+final class KeySort {
+
+    /**
+     * Prevents instantiation.
+     */
+    private KeySort() {}
+
+    /**
+     * If the length of a range to be sorted by a long or double key is
+     * less than this constant, insertion sort is used in preference to
+     * radix sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 48;
+
+    /**
+     * The number of buckets per radix sort digit.
+     */
+    private static final int RADIX = 256;
+
+    /**
+     * Sorts the given range of the array by int keys.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     * @param keyExtractor the function extracting the keys
+     */
+    @SuppressWarnings("unchecked")
+    static <T> void sortByInt(T[] a, int lo, int hi,
+                              ToIntFunction<? super T> keyExtractor) {
+        int n = hi - lo;
+        if (n < 2)
+            return;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; ++i)
+            packed[i] = ((long) keyExtractor.applyAsInt(a[lo + i]) << 32) | i;
+        DualPivotQuicksort.sort(packed, 0, n - 1, null, 0, 0);
+        Object[] elems = Arrays.copyOfRange(a, lo, hi, Object[].class);
+        for (int i = 0; i < n; ++i)
+            a[lo + i] = (T) elems[(int) packed[i]];
+    }
+
+    /**
+     * Sorts the given range of the array by long keys.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     * @param keyExtractor the function extracting the keys
+     */
+    static <T> void sortByLong(T[] a, int lo, int hi,
+                               ToLongFunction<? super T> keyExtractor) {
+        int n = hi - lo;
+        if (n < 2)
+            return;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; ++i)
+            keys[i] = keyExtractor.applyAsLong(a[lo + i]) ^ Long.MIN_VALUE;
+        permute(a, lo, sortPositions(keys));
+    }
+
+    /**
+     * Sorts the given range of the array by double keys, in the order
+     * of {@link Double#compare}.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     * @param keyExtractor the function extracting the keys
+     */
+    static <T> void sortByDouble(T[] a, int lo, int hi,
+                                 ToDoubleFunction<? super T> keyExtractor) {
+        int n = hi - lo;
+        if (n < 2)
+            return;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; ++i) {
+            long bits = Double.doubleToLongBits(keyExtractor.applyAsDouble(a[lo + i]));
+            keys[i] = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+        }
+        permute(a, lo, sortPositions(keys));
+    }
+
+    /**
+     * Sorts the given keys as unsigned longs and returns the positions
+     * they had before sorting, in sorted order. Equal keys keep the
+     * order of their positions.
+     *
+     * @param keys the keys, which are sorted in place
+     * @return the original positions of the sorted keys
+     */
+    private static int[] sortPositions(long[] keys) {
+        int n = keys.length;
+        int[] pos = new int[n];
+        for (int i = 0; i < n; ++i)
+            pos[i] = i;
+
+        if (n < INSERTION_SORT_THRESHOLD) {
+            for (int i = 1; i < n; ++i) {
+                long k = keys[i];
+                int j = i - 1;
+                for (; j >= 0 && Long.compareUnsigned(keys[j], k) > 0; --j) {
+                    keys[j + 1] = keys[j];
+                    pos[j + 1] = pos[j];
+                }
+                keys[j + 1] = k;
+                pos[j + 1] = i;
+            }
+            return pos;
+        }
+
+        int[] count = new int[8 * RADIX];
+        for (int i = 0; i < n; ++i) {
+            long k = keys[i];
+            for (int base = 0; base < 8 * RADIX; base += RADIX, k >>>= 8)
+                ++count[base + ((int) k & 0xFF)];
+        }
+        long[] srcKeys = keys, dstKeys = new long[n];
+        int[] srcPos = pos, dstPos = new int[n];
+        for (int digit = 0; digit < 8; ++digit) {
+            int base = digit * RADIX, shift = digit * 8;
+            boolean skip = false;
+            for (int d = base, sum = 0, end = base + RADIX; d < end; ++d) {
+                int c = count[d];
+                if (c == n) {
+                    skip = true;
+                    break;
+                }
+                count[d] = sum;
+                sum += c;
+            }
+            if (skip)
+                continue;
+            for (int i = 0; i < n; ++i) {
+                long k = srcKeys[i];
+                int j = count[base + ((int) (k >>> shift) & 0xFF)]++;
+                dstKeys[j] = k;
+                dstPos[j] = srcPos[i];
+            }
+            long[] tk = srcKeys; srcKeys = dstKeys; dstKeys = tk;
+            int[] tp = srcPos; srcPos = dstPos; dstPos = tp;
+        }
+        return srcPos;
+    }
+
+    /**
+     * Rearranges a range so that its i-th element becomes the element
+     * that was at position {@code pos[i]} of the range.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void permute(T[] a, int lo, int[] pos) {
+        Object[] elems = Arrays.copyOfRange(a, lo, lo + pos.length, Object[].class);
+        for (int i = 0; i < pos.length; ++i)
+            a[lo + i] = (T) elems[pos[i]];
+    }
+}
@@ -483,6 +483,49 @@ public interface List<E> extends Collection<E> {
         }
     }
 
+    /**
+     * Sorts this list according to the order induced by the specified
+     * {@link Comparator}, using the temp storage of the given {@link Sorter}.
+     * The order, stability and exceptions are those of
+     * {@link #sort(Comparator)}; repeated sorts through the same sorter do
+     * not allocate merge storage once it is large enough.
+     *
+     * @implSpec
+     * The default implementation obtains an array containing all elements in
+     * this list, sorts the array with
+     * {@link Arrays#sort(Object[], Comparator, Sorter)}, and iterates over
+     * this list resetting each element from the corresponding position in
+     * the array.
+     *
+     * @implNote
+     * {@link ArrayList} overrides this method to sort its backing array in
+     * place, so that it does not allocate at all.
+     *
+     * @param c the {@code Comparator} used to compare list elements.
+     *          A {@code null} value indicates that the elements'
+     *          {@linkplain Comparable natural ordering} should be used
+     * @param sorter the sorter whose temp storage is used
+     * @throws ClassCastException if the list contains elements that are not
+     *         <i>mutually comparable</i> using the specified comparator
+     * @throws UnsupportedOperationException if the list's list-iterator does
+     *         not support the {@code set} operation
+     * @throws IllegalArgumentException
+     *         (<a href="Collection.html#optional-restrictions">optional</a>)
+     *         if the comparator is found to violate the {@link Comparator}
+     *         contract
+     * @throws NullPointerException if {@code sorter} is null
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    default void sort(Comparator<? super E> c, Sorter sorter) {
+        Object[] a = this.toArray();
+        Arrays.sort(a, (Comparator) c, sorter);
+        ListIterator<E> i = this.listIterator();
+        for (Object e : a) {
+            i.next();
+            i.set((E) e);
+        }
+    }
+
     /**
      * Removes all of the elements from this list (optional operation).
      * The list will be empty after this call returns.
@@ -0,0 +1,1007 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.BiFunction;
+
+/**
+ * A B+tree mapping primitive {@code long} keys to object values, in
+ * ascending key order. This is the {@code long} specialization of
+ * {@link BTreeMap}: nodes hold their keys in a {@code long[]}, so keys
+ * are neither boxed nor compared through {@code Comparable}, and
+ * {@link #get}, {@link #containsKey} and updates that replace a value do
+ * not allocate.
+ *
+ * <p>Ordered access goes through a {@link Cursor}, a reusable position in
+ * the map that can be moved to the first, last, ceiling, floor, higher or
+ * lower mapping and then stepped in either direction, and through
+ * {@link #forEach(long, long, LongObjectHashMap.LongObjConsumer)}, which
+ * visits a key range by walking the leaf arrays.
+ *
+ * <p>This class does <em>not</em> allow {@code null} to be used as a
+ * value, so that a {@code null} return from {@link #get} unambiguously
+ * means that the key is absent, as in {@link LongObjectHashMap}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * Cursors and {@link #forEach} are <em>fail-fast</em>: if the map is
+ * structurally modified other than through a cursor's own {@link
+ * Cursor#remove} method, they throw a {@link
+ * ConcurrentModificationException}. A cursor may be positioned again
+ * after such a modification.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see BTreeMap
+ * @see LongObjectHashMap
+ */
+public class LongBTreeMap<V> implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = -4069523914467162377L;
+
+    /**
+     * The maximum number of mappings in a leaf, and of children of an
+     * inner node.
+     */
+    static final int ORDER = BTreeMap.ORDER;
+
+    /**
+     * The number of mappings or children below which a node, other
+     * than the root, is merged with or refilled from a sibling.
+     */
+    static final int MIN_SIZE = BTreeMap.MIN_SIZE;
+
+    /**
+     * The root node, null if the map is empty.
+     */
+    private transient Node root;
+
+    /**
+     * The number of inner levels above the leaves.
+     */
+    private transient int height;
+
+    /**
+     * The first and last leaves of the leaf chain.
+     */
+    private transient Leaf head, tail;
+
+    /**
+     * The number of mappings in the map.
+     */
+    private transient int size;
+
+    /**
+     * The number of structural modifications to the map.
+     */
+    transient int modCount;
+
+    /**
+     * The path of the current put or remove, as in BTreeMap.
+     */
+    private transient Inner[] pathNodes;
+    private transient int[] pathIndexes;
+
+    /**
+     * Constructs an empty map.
+     */
+    public LongBTreeMap() {
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * A node of the tree, laid out as in BTreeMap.Node.
+     */
+    static class Node {
+        final long[] keys = new long[ORDER];
+        int size;
+    }
+
+    static final class Leaf extends Node {
+        final Object[] vals = new Object[ORDER];
+        Leaf prev, next;
+    }
+
+    static final class Inner extends Node {
+        final Node[] children = new Node[ORDER];
+    }
+
+    /* ---------------- Searching -------------- */
+
+    /**
+     * Returns the index of the key in the leaf, or (-(insertion point) - 1)
+     * if it is absent.
+     */
+    static int indexOf(Leaf leaf, long key) {
+        long[] keys = leaf.keys;
+        int lo = 0, hi = leaf.size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = keys[mid];
+            if (k < key)
+                lo = mid + 1;
+            else if (k > key)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the index of the child of the inner node whose subtree
+     * may contain the key.
+     */
+    static int childIndex(Inner node, long key) {
+        long[] keys = node.keys;
+        int lo = 1, hi = node.size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] <= key)
+                lo = mid + 1;
+            else
+                hi = mid - 1;
+        }
+        return lo - 1;
+    }
+
+    /**
+     * Returns the leaf that holds the key if it is present. The map
+     * must not be empty.
+     */
+    final Leaf leafFor(long key) {
+        Node x = root;
+        for (int h = height; h > 0; --h) {
+            Inner in = (Inner)x;
+            x = in.children[childIndex(in, key)];
+        }
+        return (Leaf)x;
+    }
+
+    /* ---------------- Query Operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return root != null && indexOf(leafFor(key), key) >= 0;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (root == null)
+            return null;
+        Leaf leaf = leafFor(key);
+        int i = indexOf(leaf, key);
+        return (i >= 0) ? (V)leaf.vals[i] : null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V v = get(key);
+        return (v != null) ? v : defaultValue;
+    }
+
+    /**
+     * Returns the lowest key currently in this map.
+     *
+     * @return the lowest key currently in this map
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long firstKey() {
+        if (head == null)
+            throw new NoSuchElementException();
+        return head.keys[0];
+    }
+
+    /**
+     * Returns the highest key currently in this map.
+     *
+     * @return the highest key currently in this map
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long lastKey() {
+        if (tail == null)
+            throw new NoSuchElementException();
+        return tail.keys[tail.size - 1];
+    }
+
+    /* ---------------- Updates -------------- */
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        if (root == null) {
+            Leaf leaf = new Leaf();
+            leaf.keys[0] = key;
+            leaf.vals[0] = value;
+            leaf.size = 1;
+            root = head = tail = leaf;
+            size = 1;
+            modCount++;
+            return null;
+        }
+        int h = height;
+        Inner[] path = pathNodes;
+        int[] idx = pathIndexes;
+        if (path == null || path.length < h) {
+            pathNodes = path = new Inner[h + 1];
+            pathIndexes = idx = new int[h + 1];
+        }
+        Node x = root;
+        for (int level = 0; level < h; ++level) {
+            Inner in = (Inner)x;
+            int ci = childIndex(in, key);
+            path[level] = in;
+            idx[level] = ci;
+            x = in.children[ci];
+        }
+        Leaf leaf = (Leaf)x;
+        int i = indexOf(leaf, key);
+        if (i >= 0) {
+            Arrays.fill(path, 0, h, null);
+            V oldValue = (V)leaf.vals[i];
+            leaf.vals[i] = value;
+            return oldValue;
+        }
+        i = -(i + 1);
+        modCount++;
+        size++;
+        if (leaf.size < ORDER) {
+            insertAt(leaf, i, key, value);
+            Arrays.fill(path, 0, h, null);
+            return null;
+        }
+
+        // Split the leaf, keeping it full when appending to the last one
+        Leaf right = splitLeaf(leaf, (i == ORDER && leaf.next == null) ?
+                               ORDER : ORDER / 2);
+        if (i < leaf.size || (i == leaf.size && i < ORDER))
+            insertAt(leaf, i, key, value);
+        else
+            insertAt(right, i - leaf.size, key, value);
+        Node child = right;
+        long sep = right.keys[0];
+        for (int level = h - 1; level >= 0; --level) {
+            Inner p = path[level];
+            int ci = idx[level] + 1;
+            path[level] = null;
+            if (p.size < ORDER) {
+                insertChild(p, ci, sep, child);
+                Arrays.fill(path, 0, level, null);
+                return null;
+            }
+            Inner pr = splitInner(p);
+            if (ci <= p.size)
+                insertChild(p, ci, sep, child);
+            else
+                insertChild(pr, ci - p.size, sep, child);
+            sep = pr.keys[0];
+            child = pr;
+        }
+        Inner newRoot = new Inner();
+        newRoot.children[0] = root;
+        newRoot.children[1] = child;
+        newRoot.keys[1] = sep;
+        newRoot.size = 2;
+        root = newRoot;
+        height = h + 1;
+        return null;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the current value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified value is null
+     */
+    public V putIfAbsent(long key, V value) {
+        V v = get(key);
+        return (v != null) ? v : put(key, value);
+    }
+
+    /**
+     * Attempts to compute a mapping for the specified key and its
+     * current mapped value, as described for {@link Map#compute}.
+     *
+     * @param key key with which the computed value is to be associated
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or null
+     *         if none
+     * @throws NullPointerException if the remapping function is null
+     */
+    public V compute(long key,
+                     BiFunction<? super Long, ? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        V oldValue = get(key);
+        int mc = modCount;
+        V newValue = remappingFunction.apply(key, oldValue);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (newValue != null)
+            put(key, newValue);
+        else if (oldValue != null)
+            remove(key);
+        return newValue;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (root == null)
+            return null;
+        int h = height;
+        Inner[] path = pathNodes;
+        int[] idx = pathIndexes;
+        if (path == null || path.length < h) {
+            pathNodes = path = new Inner[h + 1];
+            pathIndexes = idx = new int[h + 1];
+        }
+        Node x = root;
+        for (int level = 0; level < h; ++level) {
+            Inner in = (Inner)x;
+            int ci = childIndex(in, key);
+            path[level] = in;
+            idx[level] = ci;
+            x = in.children[ci];
+        }
+        Leaf leaf = (Leaf)x;
+        int i = indexOf(leaf, key);
+        if (i < 0) {
+            Arrays.fill(path, 0, h, null);
+            return null;
+        }
+        V oldValue = (V)leaf.vals[i];
+        modCount++;
+        if (--size == 0) {
+            height = 0;
+            root = head = tail = null;
+            return oldValue;
+        }
+        removeAt(leaf, i);
+        Node child = leaf;
+        for (int level = h - 1; level >= 0 && child.size < MIN_SIZE; --level) {
+            fixUnderflow(path[level], idx[level], level == h - 1);
+            child = path[level];
+        }
+        Arrays.fill(path, 0, h, null);
+        while (height > 0 && root.size == 1) {
+            root = ((Inner)root).children[0];
+            --height;
+        }
+        return oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+        height = 0;
+        root = head = tail = null;
+    }
+
+    /* ---------------- Node surgery -------------- */
+
+    private static void insertAt(Leaf leaf, int i, long key, Object value) {
+        int n = leaf.size;
+        if (i < n) {
+            System.arraycopy(leaf.keys, i, leaf.keys, i + 1, n - i);
+            System.arraycopy(leaf.vals, i, leaf.vals, i + 1, n - i);
+        }
+        leaf.keys[i] = key;
+        leaf.vals[i] = value;
+        leaf.size = n + 1;
+    }
+
+    private static void removeAt(Leaf leaf, int i) {
+        int n = leaf.size - 1;
+        if (i < n) {
+            System.arraycopy(leaf.keys, i + 1, leaf.keys, i, n - i);
+            System.arraycopy(leaf.vals, i + 1, leaf.vals, i, n - i);
+        }
+        leaf.vals[n] = null;
+        leaf.size = n;
+    }
+
+    private static void insertChild(Inner node, int i, long sep, Node child) {
+        int n = node.size;
+        if (i < n) {
+            System.arraycopy(node.keys, i, node.keys, i + 1, n - i);
+            System.arraycopy(node.children, i, node.children, i + 1, n - i);
+        }
+        node.keys[i] = sep;
+        node.children[i] = child;
+        node.size = n + 1;
+    }
+
+    private static void removeChild(Inner node, int i) {
+        int n = node.size - 1;
+        if (i < n) {
+            System.arraycopy(node.keys, i + 1, node.keys, i, n - i);
+            System.arraycopy(node.children, i + 1, node.children, i, n - i);
+        }
+        node.children[n] = null;
+        node.size = n;
+    }
+
+    private Leaf splitLeaf(Leaf leaf, int keep) {
+        Leaf right = new Leaf();
+        int n = leaf.size - keep;
+        System.arraycopy(leaf.keys, keep, right.keys, 0, n);
+        System.arraycopy(leaf.vals, keep, right.vals, 0, n);
+        Arrays.fill(leaf.vals, keep, leaf.size, null);
+        right.size = n;
+        leaf.size = keep;
+        Leaf next = leaf.next;
+        right.prev = leaf;
+        right.next = next;
+        leaf.next = right;
+        if (next != null)
+            next.prev = right;
+        else
+            tail = right;
+        return right;
+    }
+
+    private static Inner splitInner(Inner node) {
+        Inner right = new Inner();
+        int keep = ORDER / 2, n = node.size - keep;
+        System.arraycopy(node.keys, keep, right.keys, 0, n);
+        System.arraycopy(node.children, keep, right.children, 0, n);
+        Arrays.fill(node.children, keep, node.size, null);
+        right.size = n;
+        node.size = keep;
+        return right;
+    }
+
+    private void fixUnderflow(Inner parent, int ci, boolean leaves) {
+        int li = (ci > 0) ? ci - 1 : ci;
+        Node a = parent.children[li], b = parent.children[li + 1];
+        if (a.size + b.size <= ORDER) {
+            if (leaves)
+                mergeLeaves((Leaf)a, (Leaf)b);
+            else
+                mergeInner((Inner)a, (Inner)b, parent.keys[li + 1]);
+            removeChild(parent, li + 1);
+        }
+        else if (leaves)
+            parent.keys[li + 1] = balanceLeaves((Leaf)a, (Leaf)b);
+        else
+            parent.keys[li + 1] = balanceInner((Inner)a, (Inner)b,
+                                               parent.keys[li + 1]);
+    }
+
+    private void mergeLeaves(Leaf a, Leaf b) {
+        int n = a.size;
+        System.arraycopy(b.keys, 0, a.keys, n, b.size);
+        System.arraycopy(b.vals, 0, a.vals, n, b.size);
+        a.size = n + b.size;
+        Leaf next = b.next;
+        a.next = next;
+        if (next != null)
+            next.prev = a;
+        else
+            tail = a;
+    }
+
+    private static void mergeInner(Inner a, Inner b, long sep) {
+        int n = a.size;
+        a.keys[n] = sep;
+        a.children[n] = b.children[0];
+        System.arraycopy(b.keys, 1, a.keys, n + 1, b.size - 1);
+        System.arraycopy(b.children, 1, a.children, n + 1, b.size - 1);
+        a.size = n + b.size;
+    }
+
+    private static long balanceLeaves(Leaf a, Leaf b) {
+        int total = a.size + b.size, na = total >>> 1;
+        if (a.size < na) {
+            int k = na - a.size;
+            System.arraycopy(b.keys, 0, a.keys, a.size, k);
+            System.arraycopy(b.vals, 0, a.vals, a.size, k);
+            System.arraycopy(b.keys, k, b.keys, 0, b.size - k);
+            System.arraycopy(b.vals, k, b.vals, 0, b.size - k);
+            Arrays.fill(b.vals, b.size - k, b.size, null);
+        }
+        else {
+            int k = a.size - na;
+            System.arraycopy(b.keys, 0, b.keys, k, b.size);
+            System.arraycopy(b.vals, 0, b.vals, k, b.size);
+            System.arraycopy(a.keys, na, b.keys, 0, k);
+            System.arraycopy(a.vals, na, b.vals, 0, k);
+            Arrays.fill(a.vals, na, a.size, null);
+        }
+        a.size = na;
+        b.size = total - na;
+        return b.keys[0];
+    }
+
+    private static long balanceInner(Inner a, Inner b, long sep) {
+        int total = a.size + b.size, na = total >>> 1;
+        long newSep;
+        if (a.size < na) {
+            int k = na - a.size;
+            a.keys[a.size] = sep;
+            a.children[a.size] = b.children[0];
+            System.arraycopy(b.keys, 1, a.keys, a.size + 1, k - 1);
+            System.arraycopy(b.children, 1, a.children, a.size + 1, k - 1);
+            newSep = b.keys[k];
+            System.arraycopy(b.keys, k, b.keys, 0, b.size - k);
+            System.arraycopy(b.children, k, b.children, 0, b.size - k);
+            Arrays.fill(b.children, b.size - k, b.size, null);
+        }
+        else {
+            int k = a.size - na;
+            System.arraycopy(b.keys, 0, b.keys, k, b.size);
+            System.arraycopy(b.children, 0, b.children, k, b.size);
+            b.keys[k] = sep;
+            System.arraycopy(a.keys, na, b.keys, 0, k);
+            System.arraycopy(a.children, na, b.children, 0, k);
+            newSep = b.keys[0];
+            Arrays.fill(a.children, na, a.size, null);
+        }
+        a.size = na;
+        b.size = total - na;
+        return newSep;
+    }
+
+    /* ---------------- Bulk operations -------------- */
+
+    /**
+     * Performs the given action for each mapping in this map, in
+     * ascending key order.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies
+     *         the map structurally
+     */
+    public void forEach(LongObjectHashMap.LongObjConsumer<? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (head != null)
+            forEach(head, 0, Long.MAX_VALUE, true, action);
+    }
+
+    /**
+     * Performs the given action for each mapping in this map whose key
+     * is at least {@code fromKey} and less than {@code toKey}, in
+     * ascending key order. Locating the first mapping takes log(n)
+     * time; the rest are read sequentially from the leaves.
+     *
+     * @param fromKey low endpoint (inclusive) of the keys visited
+     * @param toKey high endpoint (exclusive) of the keys visited
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies
+     *         the map structurally
+     */
+    public void forEach(long fromKey, long toKey,
+                        LongObjectHashMap.LongObjConsumer<? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        if (root == null || fromKey >= toKey)
+            return;
+        Leaf leaf = leafFor(fromKey);
+        int i = indexOf(leaf, fromKey);
+        forEach(leaf, (i >= 0) ? i : -(i + 1), toKey, false, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEach(Leaf leaf, int i, long toKey, boolean toEnd,
+                         LongObjectHashMap.LongObjConsumer<? super V> action) {
+        int mc = modCount;
+        for (; leaf != null; leaf = leaf.next, i = 0) {
+            long[] keys = leaf.keys;
+            Object[] vals = leaf.vals;
+            for (int n = leaf.size; i < n; ++i) {
+                long k = keys[i];
+                if (!toEnd && k >= toKey)
+                    return;
+                action.accept(k, (V)vals[i]);
+            }
+            if (mc != modCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns a new cursor over this map. The cursor is initially not
+     * positioned on any mapping.
+     *
+     * @return a new cursor over this map
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A position in a {@code LongBTreeMap}. A cursor is either on a
+     * mapping, in which case {@link #valid} returns {@code true} and
+     * {@link #key}, {@link #value} and {@link #setValue} access that
+     * mapping, or off the map. The positioning methods move it to a
+     * mapping found by key and return whether there was one; {@link
+     * #next} and {@link #prev} step it to the neighbouring mapping.
+     * None of these methods allocate, so a cursor can be kept and
+     * reused for many lookups.
+     */
+    public final class Cursor {
+        private Leaf leaf;          // null when not on a mapping
+        private int index;
+        private int expectedModCount;
+
+        Cursor() {
+        }
+
+        private boolean moveTo(Leaf l, int i) {
+            if (l != null && i >= l.size) {
+                l = l.next;
+                i = 0;
+            }
+            else if (l != null && i < 0) {
+                l = l.prev;
+                i = (l == null) ? 0 : l.size - 1;
+            }
+            leaf = l;
+            index = i;
+            expectedModCount = modCount;
+            return l != null;
+        }
+
+        private int search(long key) {
+            if (root == null) {
+                leaf = null;
+                return 0;
+            }
+            leaf = leafFor(key);
+            return indexOf(leaf, key);
+        }
+
+        private Leaf current() {
+            Leaf l = leaf;
+            if (l == null)
+                throw new NoSuchElementException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return l;
+        }
+
+        /**
+         * Moves to the mapping with the lowest key.
+         *
+         * @return {@code true} if the map is not empty
+         */
+        public boolean first() {
+            return moveTo(head, 0);
+        }
+
+        /**
+         * Moves to the mapping with the highest key.
+         *
+         * @return {@code true} if the map is not empty
+         */
+        public boolean last() {
+            return moveTo(tail, (tail == null) ? 0 : tail.size - 1);
+        }
+
+        /**
+         * Moves to the mapping with the given key.
+         *
+         * @param key the key
+         * @return {@code true} if there is such a mapping
+         */
+        public boolean seek(long key) {
+            int i = search(key);
+            return moveTo((i >= 0) ? leaf : null, i);
+        }
+
+        /**
+         * Moves to the mapping with the least key greater than or equal
+         * to the given key.
+         *
+         * @param key the key
+         * @return {@code true} if there is such a mapping
+         */
+        public boolean ceiling(long key) {
+            int i = search(key);
+            return moveTo(leaf, (i >= 0) ? i : -(i + 1));
+        }
+
+        /**
+         * Moves to the mapping with the least key strictly greater than
+         * the given key.
+         *
+         * @param key the key
+         * @return {@code true} if there is such a mapping
+         */
+        public boolean higher(long key) {
+            int i = search(key);
+            return moveTo(leaf, (i >= 0) ? i + 1 : -(i + 1));
+        }
+
+        /**
+         * Moves to the mapping with the greatest key less than or equal
+         * to the given key.
+         *
+         * @param key the key
+         * @return {@code true} if there is such a mapping
+         */
+        public boolean floor(long key) {
+            int i = search(key);
+            return moveTo(leaf, (i >= 0) ? i : -(i + 1) - 1);
+        }
+
+        /**
+         * Moves to the mapping with the greatest key strictly less than
+         * the given key.
+         *
+         * @param key the key
+         * @return {@code true} if there is such a mapping
+         */
+        public boolean lower(long key) {
+            int i = search(key);
+            return moveTo(leaf, (i >= 0) ? i - 1 : -(i + 1) - 1);
+        }
+
+        /**
+         * Moves to the mapping with the next higher key.
+         *
+         * @return {@code true} if there is such a mapping
+         * @throws NoSuchElementException if the cursor is not on a mapping
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified since the cursor was positioned
+         */
+        public boolean next() {
+            Leaf l = current();
+            return moveTo(l, index + 1);
+        }
+
+        /**
+         * Moves to the mapping with the next lower key.
+         *
+         * @return {@code true} if there is such a mapping
+         * @throws NoSuchElementException if the cursor is not on a mapping
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified since the cursor was positioned
+         */
+        public boolean prev() {
+            Leaf l = current();
+            return moveTo(l, index - 1);
+        }
+
+        /**
+         * Returns {@code true} if the cursor is on a mapping.
+         *
+         * @return {@code true} if the cursor is on a mapping
+         */
+        public boolean valid() {
+            return leaf != null;
+        }
+
+        /**
+         * Returns the key of the current mapping.
+         *
+         * @return the key of the current mapping
+         * @throws NoSuchElementException if the cursor is not on a mapping
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified since the cursor was positioned
+         */
+        public long key() {
+            return current().keys[index];
+        }
+
+        /**
+         * Returns the value of the current mapping.
+         *
+         * @return the value of the current mapping
+         * @throws NoSuchElementException if the cursor is not on a mapping
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified since the cursor was positioned
+         */
+        @SuppressWarnings("unchecked")
+        public V value() {
+            return (V)current().vals[index];
+        }
+
+        /**
+         * Replaces the value of the current mapping.
+         *
+         * @param value the new value
+         * @return the previous value
+         * @throws NullPointerException if the value is null
+         * @throws NoSuchElementException if the cursor is not on a mapping
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified since the cursor was positioned
+         */
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            if (value == null)
+                throw new NullPointerException();
+            Object[] vals = current().vals;
+            V oldValue = (V)vals[index];
+            vals[index] = value;
+            return oldValue;
+        }
+
+        /**
+         * Removes the current mapping and moves to the mapping with the
+         * next higher key.
+         *
+         * @return {@code true} if there is such a mapping
+         * @throws NoSuchElementException if the cursor is not on a mapping
+         * @throws ConcurrentModificationException if the map was
+         *         structurally modified since the cursor was positioned
+         */
+        public boolean remove() {
+            long key = current().keys[index];
+            LongBTreeMap.this.remove(key);
+            return higher(key);
+        }
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Returns a shallow copy of this map. (The values themselves are
+     * not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    public LongBTreeMap<V> clone() {
+        LongBTreeMap<V> clone;
+        try {
+            clone = (LongBTreeMap<V>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        clone.root = clone.head = clone.tail = null;
+        clone.height = clone.size = clone.modCount = 0;
+        clone.pathNodes = null;
+        clone.pathIndexes = null;
+        for (Leaf l = head; l != null; l = l.next) {
+            for (int i = 0, n = l.size; i < n; ++i)
+                clone.put(l.keys[i], (V)l.vals[i]);
+        }
+        return clone;
+    }
+
+    /**
+     * Returns a string representation of this map, in the format of
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        for (Leaf l = head; l != null; l = l.next) {
+            for (int i = 0, n = l.size; i < n; ++i) {
+                if (sb.length() > 1)
+                    sb.append(',').append(' ');
+                Object v = l.vals[i];
+                sb.append(l.keys[i]).append('=')
+                  .append(v == this ? "(this Map)" : v);
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Saves the state of the {@code LongBTreeMap} instance to a stream.
+     *
+     * @serialData The number of mappings (int), followed by the key
+     *             (long) and value (Object) of each mapping in ascending
+     *             key order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (Leaf l = head; l != null; l = l.next) {
+            for (int i = 0, n = l.size; i < n; ++i) {
+                s.writeLong(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes the {@code LongBTreeMap} instance from a stream.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0)
+            throw new java.io.InvalidObjectException("Illegal mappings count: " + n);
+        for (int i = 0; i < n; ++i)
+            put(s.readLong(), (V)s.readObject());
+    }
+}
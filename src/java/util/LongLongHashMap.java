@@ -0,0 +1,952 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A hash table mapping primitive {@code long} keys to primitive {@code long}
+ * values.  Unlike a {@code HashMap<Long,Long>}, this class stores
+ * neither boxed keys and values nor per-mapping node objects: keys and
+ * values are kept interleaved in a single flat {@code long[]} and
+ * collisions are resolved by linear probing.  As a result {@link #get},
+ * {@link #put} and {@link #remove} do not allocate, and a probe for a key
+ * usually touches a single cache line.
+ *
+ * <p>Because primitive values cannot be {@code null}, the methods that
+ * would return {@code null} in {@link Map} return {@code 0} instead.  Use
+ * {@link #containsKey} or {@link #getOrDefault} to distinguish an absent
+ * key from a key explicitly mapped to {@code 0}.
+ *
+ * <p>Removal uses backward-shift deletion, so the table never contains
+ * tombstones and lookups stay short no matter how many removals have been
+ * performed.  The <em>load factor</em> plays the same role as in
+ * {@link HashMap} but must be less than {@code 1}; the default of
+ * {@code 0.5} keeps probe sequences short.
+ *
+ * <p>{@link #asMap} returns a {@code Map<Long,Long>} view for code
+ * that needs the {@code Map} interface.  Operations through that view box
+ * their arguments and results.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators of the {@link #asMap} view, as well as {@link #forEach},
+ * are <em>fail-fast</em> in the same sense as those of {@link HashMap}.
+ *
+ * @see IntIntHashMap
+ * @see LongObjectHashMap
+ */
+public class LongLongHashMap {
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+
+    /**
+     * The maximum capacity, used if a higher value is implicitly specified
+     * by either of the constructors with arguments.  Keys and values share
+     * one array, so the table length is twice the capacity.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The table, initialized on first use, and resized as necessary.
+     * Slot {@code i} holds its key at {@code table[2*i]} and its value at
+     * {@code table[2*i+1]}.  A key of {@code 0} marks a free slot; the
+     * mapping for key {@code 0} itself is held in {@link #zeroValue}.
+     */
+    transient long[] table;
+
+    /**
+     * Whether key {@code 0} is mapped.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The value mapped to key {@code 0}, if any.
+     */
+    transient long zeroValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     */
+    // (If the table array has not been allocated, this field holds the
+    // initial capacity, or zero signifying DEFAULT_INITIAL_CAPACITY.)
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     */
+    final float loadFactor;
+
+    /**
+     * Holds the cached {@link #asMap} view.
+     */
+    transient Map<Long,Long> mapView;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not between zero and one (exclusive)
+     */
+    public LongLongHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > MAXIMUM_CAPACITY)
+            initialCapacity = MAXIMUM_CAPACITY;
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.5).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public LongLongHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.5).
+     */
+    public LongLongHashMap() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+    }
+
+    /**
+     * Spreads the bits of a key so that keys differing only in their high
+     * bits (such as sequential ids shifted left) do not cluster.
+     */
+    static int hash(long key) {
+        long x = key * 0x9E3779B97F4A7C15L;
+        int h = (int)(x ^ (x >>> 32));
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the table index of the key of the given non-zero key, or
+     * {@code -1} if it is not present.
+     */
+    final int indexOf(long key) {
+        long[] tab; long k;
+        if ((tab = table) != null) {
+            int m = tab.length - 1;
+            for (int i = (hash(key) << 1) & m; (k = tab[i]) != 0;
+                 i = (i + 2) & m) {
+                if (k == key)
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == 0) ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * capacity of the map.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(long value) {
+        if (hasZeroKey && zeroValue == value)
+            return true;
+        long[] tab;
+        if ((tab = table) != null) {
+            for (int i = 0; i < tab.length; i += 2) {
+                if (tab[i] != 0 && tab[i + 1] == value)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or {@code 0}
+     * if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code 0} if this map contains no mapping for the key
+     */
+    public long get(long key) {
+        return getOrDefault(key, 0);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+        long[] tab; long k;
+        if ((tab = table) != null) {
+            int m = tab.length - 1;
+            for (int i = (hash(key) << 1) & m; (k = tab[i]) != 0;
+                 i = (i + 2) & m) {
+                if (k == key)
+                    return tab[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public long put(long key, long value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the current value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public long putIfAbsent(long key, long value) {
+        return putVal(key, value, true);
+    }
+
+    /**
+     * Implements put and putIfAbsent.
+     */
+    final long putVal(long key, long value, boolean onlyIfAbsent) {
+        if (key == 0) {
+            if (hasZeroKey) {
+                long oldValue = zeroValue;
+                if (!onlyIfAbsent)
+                    zeroValue = value;
+                return oldValue;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            ++size;
+            ++modCount;
+            return 0;
+        }
+        long[] tab; int m, i; long k;
+        if ((tab = table) == null)
+            tab = resize();
+        m = tab.length - 1;
+        for (i = (hash(key) << 1) & m; (k = tab[i]) != 0; i = (i + 2) & m) {
+            if (k == key) {
+                long oldValue = tab[i + 1];
+                if (!onlyIfAbsent)
+                    tab[i + 1] = value;
+                return oldValue;
+            }
+        }
+        addEntry(i, key, value);
+        return 0;
+    }
+
+    /**
+     * Inserts a new mapping for a non-zero key at the free table index
+     * {@code i}, first growing the table if the insertion would exceed
+     * the threshold.  Growing before rather than after the insertion
+     * guarantees that every probe sequence ends at a free slot.
+     */
+    final void addEntry(int i, long key, long value) {
+        long[] tab = table;
+        if (size >= threshold) {
+            tab = resize();
+            int m = tab.length - 1;
+            for (i = (hash(key) << 1) & m; tab[i] != 0; i = (i + 2) & m)
+                ;
+        }
+        tab[i] = key;
+        tab[i + 1] = value;
+        ++size;
+        ++modCount;
+    }
+
+    /**
+     * Initializes or doubles table size.
+     *
+     * @return the table
+     * @throws IllegalStateException if the table is already at its
+     *         maximum capacity
+     */
+    final long[] resize() {
+        long[] oldTab = table;
+        int oldCap = (oldTab == null) ? 0 : oldTab.length >>> 1;
+        int newCap;
+        if (oldCap > 0) {
+            if (oldCap >= MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Map capacity exceeded: " +
+                                                size);
+            newCap = oldCap << 1;
+        }
+        else if (threshold > 0)
+            newCap = Math.max(threshold, 2);
+        else
+            newCap = DEFAULT_INITIAL_CAPACITY;
+        threshold = Math.min((int)(newCap * loadFactor), newCap - 1);
+        long[] newTab = new long[newCap << 1];
+        if (oldTab != null) {
+            int m = newTab.length - 1;
+            for (int j = 0; j < oldTab.length; j += 2) {
+                long k;
+                if ((k = oldTab[j]) != 0) {
+                    int i = (hash(k) << 1) & m;
+                    while (newTab[i] != 0)
+                        i = (i + 2) & m;
+                    newTab[i] = k;
+                    newTab[i + 1] = oldTab[j + 1];
+                }
+            }
+        }
+        table = newTab;
+        return newTab;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0} if there was no mapping for {@code key}
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return 0;
+            hasZeroKey = false;
+            --size;
+            ++modCount;
+            return zeroValue;
+        }
+        int i;
+        if ((i = indexOf(key)) < 0)
+            return 0;
+        long oldValue = table[i + 1];
+        removeAt(i, null);
+        return oldValue;
+    }
+
+    /**
+     * Removes the entry at table index {@code i} by shifting later
+     * members of its probe cluster backwards, so that no tombstone is
+     * left behind.  If {@code it} is non-null, entries that wrap around
+     * from the unvisited start of the table into the part already
+     * visited by that (backwards running) iterator are handed to it.
+     */
+    final void removeAt(int i, HashIterator it) {
+        long[] tab = table;
+        int m = tab.length - 1;
+        for (int j = i;;) {
+            j = (j + 2) & m;
+            long k;
+            if ((k = tab[j]) == 0)
+                break;
+            int h = (hash(k) << 1) & m;
+            // 只有当 k 的初始槽位不在 (i, j] 区间内时才能前移到空位 i
+            if (i <= j ? (h <= i || h > j) : (h <= i && h > j)) {
+                if (it != null && j < it.index && i >= it.index)
+                    it.addWrapped(k);
+                tab[i] = k;
+                tab[i + 1] = tab[j + 1];
+                i = j;
+            }
+        }
+        tab[i] = 0;
+        tab[i + 1] = 0;
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        long[] tab;
+        modCount++;
+        hasZeroKey = false;
+        if ((tab = table) != null && size > 0)
+            Arrays.fill(tab, 0);
+        size = 0;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this map.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key
+     * @throws NullPointerException if the mapping function is null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         mapping function modified this map
+     */
+    public long computeIfAbsent(long key, LongUnaryOperator mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (!hasZeroKey)
+                putVal(0, mappingFunction.applyAsLong(0), false);
+            return zeroValue;
+        }
+        long[] tab; int m, i; long k;
+        if ((tab = table) == null)
+            tab = resize();
+        m = tab.length - 1;
+        for (i = (hash(key) << 1) & m; (k = tab[i]) != 0; i = (i + 2) & m) {
+            if (k == key)
+                return tab[i + 1];
+        }
+        int mc = modCount;
+        long v = mappingFunction.applyAsLong(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        addEntry(i, key, v);
+        return v;
+    }
+
+    /**
+     * If the value for the specified key is present, attempts to compute
+     * a new mapping given the key and its current mapped value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or
+     *         {@code 0} if none
+     * @throws NullPointerException if the remapping function is null
+     */
+    public long computeIfPresent(long key, LongBinaryOperator remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0)
+            return hasZeroKey ?
+                (zeroValue = remappingFunction.applyAsLong(0, zeroValue)) : 0;
+        int i;
+        if ((i = indexOf(key)) < 0)
+            return 0;
+        int mc = modCount;
+        long v = remappingFunction.applyAsLong(key, table[i + 1]);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        return table[i + 1] = v;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.  Otherwise, replaces the value
+     * with the result of the given remapping function applied to the old
+     * and the given value.
+     *
+     * @param key key with which the resulting value is to be associated
+     * @param value the value to be used if the key is absent, and the
+     *        second argument to the remapping function otherwise
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key
+     * @throws NullPointerException if the remapping function is null
+     */
+    public long merge(long key, long value, LongBinaryOperator remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            if (!hasZeroKey) {
+                putVal(0, value, false);
+                return value;
+            }
+            return zeroValue = remappingFunction.applyAsLong(zeroValue, value);
+        }
+        long[] tab; int m, i; long k;
+        if ((tab = table) == null)
+            tab = resize();
+        m = tab.length - 1;
+        for (i = (hash(key) << 1) & m; (k = tab[i]) != 0; i = (i + 2) & m) {
+            if (k == key) {
+                int mc = modCount;
+                long v = remappingFunction.applyAsLong(tab[i + 1], value);
+                if (mc != modCount)
+                    throw new ConcurrentModificationException();
+                return tab[i + 1] = v;
+            }
+        }
+        addEntry(i, key, value);
+        return value;
+    }
+
+    /**
+     * Adds {@code delta} to the value mapped to {@code key}, treating an
+     * absent mapping as {@code 0}.  This is the allocation-free form of
+     * {@code merge(key, delta, Long::sum)} for counters.
+     *
+     * @param key the key whose value is to be incremented
+     * @param delta the amount to add
+     * @return the new value associated with the specified key
+     */
+    public long addTo(long key, long delta) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                putVal(0, delta, false);
+                return delta;
+            }
+            return zeroValue += delta;
+        }
+        long[] tab; int m, i; long k;
+        if ((tab = table) == null)
+            tab = resize();
+        m = tab.length - 1;
+        for (i = (hash(key) << 1) & m; (k = tab[i]) != 0; i = (i + 2) & m) {
+            if (k == key)
+                return tab[i + 1] += delta;
+        }
+        addEntry(i, key, delta);
+        return delta;
+    }
+
+    /**
+     * Performs the given action for each mapping in this map until all
+     * entries have been processed or the action throws an exception.
+     * Mappings are visited in table order, which is unspecified.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies the
+     *         structure of this map
+     */
+    public void forEach(LongLongConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0, zeroValue);
+        long[] tab;
+        if ((tab = table) != null) {
+            for (int i = 0; i < tab.length && modCount == mc; i += 2) {
+                long k;
+                if ((k = tab[i]) != 0)
+                    action.accept(k, tab[i + 1]);
+            }
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Performs the given action for each key in this map.
+     *
+     * @param action the action to be performed for each key
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies the
+     *         structure of this map
+     */
+    public void forEachKey(LongConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0);
+        long[] tab;
+        if ((tab = table) != null) {
+            for (int i = 0; i < tab.length && modCount == mc; i += 2) {
+                long k;
+                if ((k = tab[i]) != 0)
+                    action.accept(k);
+            }
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Replaces each value with the result of invoking the given function
+     * on its key and current value.
+     *
+     * @param function the function to apply to each mapping
+     * @throws NullPointerException if the specified function is null
+     */
+    public void replaceAll(LongBinaryOperator function) {
+        if (function == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (hasZeroKey)
+            zeroValue = function.applyAsLong(0, zeroValue);
+        long[] tab;
+        if ((tab = table) != null) {
+            for (int i = 0; i < tab.length && modCount == mc; i += 2) {
+                long k;
+                if ((k = tab[i]) != 0)
+                    tab[i + 1] = function.applyAsLong(k, tab[i + 1]);
+            }
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a {@link Map} view of the mappings contained in this map.
+     * The map is backed by this map, so changes to either are reflected
+     * in the other.  The view boxes keys and values on every access and
+     * is intended for interoperability rather than for hot paths.
+     *
+     * @return a map view of this map
+     */
+    public Map<Long,Long> asMap() {
+        Map<Long,Long> mv;
+        return (mv = mapView) == null ? (mapView = new MapView()) : mv;
+    }
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if the given object is also an {@code LongLongHashMap}
+     * and the two maps represent the same mappings.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongLongHashMap))
+            return false;
+        LongLongHashMap m = (LongLongHashMap) o;
+        if (m.size != size)
+            return false;
+        if (hasZeroKey && (!m.hasZeroKey || m.zeroValue != zeroValue))
+            return false;
+        long[] tab;
+        if ((tab = table) != null) {
+            for (int i = 0; i < tab.length; i += 2) {
+                long k; int j;
+                if ((k = tab[i]) != 0 &&
+                    ((j = m.indexOf(k)) < 0 || m.table[j + 1] != tab[i + 1]))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as in
+     * {@link Map#hashCode} for the equivalent boxed map.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = hasZeroKey ? Long.hashCode(zeroValue) : 0;
+        long[] tab;
+        if ((tab = table) != null) {
+            for (int i = 0; i < tab.length; i += 2) {
+                if (tab[i] != 0)
+                    h += Long.hashCode(tab[i]) ^ Long.hashCode(tab[i + 1]);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same format as
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Represents an operation that accepts an {@code long} key and an
+     * {@code long} value and returns no result.
+     */
+    @FunctionalInterface
+    public interface LongLongConsumer {
+        /**
+         * Performs this operation on the given key and value.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        void accept(long key, long value);
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    /**
+     * Iterates backwards over the table, after first reporting key zero.
+     * Walking backwards means that the backward shift performed by
+     * {@link #removeAt} only ever moves an unvisited entry into a visited
+     * slot when the probe cluster wraps around the end of the table; such
+     * entries are collected in {@code wrapped} and reported at the end.
+     */
+    abstract class HashIterator {
+        int index;            // current table index, visited slots are >= index
+        long lastKey;          // key of the last returned entry
+        boolean lastValid;    // whether lastKey may be removed
+        boolean zeroPending;  // whether key zero is still to be returned
+        long[] wrapped;        // entries moved over the cursor by remove
+        int wrappedCount;
+        int expectedModCount; // for fast-fail
+
+        HashIterator() {
+            expectedModCount = modCount;
+            zeroPending = hasZeroKey;
+            index = (table == null) ? 0 : table.length;
+            advance();
+        }
+
+        private void advance() {
+            long[] tab = table;
+            while (index > 0 && tab[index - 2] == 0)
+                index -= 2;
+        }
+
+        final void addWrapped(long k) {
+            long[] w;
+            if ((w = wrapped) == null)
+                w = wrapped = new long[4];
+            else if (wrappedCount == w.length)
+                w = wrapped = Arrays.copyOf(w, wrappedCount << 1);
+            w[wrappedCount++] = k;
+        }
+
+        public final boolean hasNext() {
+            return zeroPending || index > 0 || wrappedCount > 0;
+        }
+
+        final long nextKey() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (zeroPending) {
+                zeroPending = false;
+                lastValid = true;
+                return lastKey = 0;
+            }
+            if (index > 0) {
+                index -= 2;
+                lastKey = table[index];
+                advance();
+            }
+            else if (wrappedCount > 0)
+                lastKey = wrapped[--wrappedCount];
+            else
+                throw new NoSuchElementException();
+            lastValid = true;
+            return lastKey;
+        }
+
+        public final void remove() {
+            if (!lastValid)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastValid = false;
+            long k = lastKey; int i;
+            if (k == 0)
+                LongLongHashMap.this.remove(0);
+            else if ((i = indexOf(k)) >= 0) {
+                removeAt(i, this);
+                advance();
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<Long,Long>> {
+        public final Map.Entry<Long,Long> next() {
+            long k = nextKey();
+            return new AbstractMap.SimpleEntry<Long,Long>(k, get(k)) {
+                private static final long serialVersionUID = 1L;
+                public Long setValue(Long value) {
+                    put(k, value);
+                    return super.setValue(value);
+                }
+            };
+        }
+    }
+
+    final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public final long nextLong() { return nextKey(); }
+    }
+
+    /* ------------------------------------------------------------ */
+    // Map view
+
+    final class MapView extends AbstractMap<Long,Long> {
+        transient Set<Map.Entry<Long,Long>> entrySet;
+
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final boolean containsKey(Object key) {
+            return key instanceof Long &&
+                LongLongHashMap.this.containsKey((Long) key);
+        }
+        public final boolean containsValue(Object value) {
+            return value instanceof Long &&
+                LongLongHashMap.this.containsValue((Long) value);
+        }
+        public final Long get(Object key) {
+            if (!(key instanceof Long))
+                return null;
+            long k = (Long) key; int i;
+            if (k == 0)
+                return hasZeroKey ? zeroValue : null;
+            return ((i = indexOf(k)) < 0) ? null : table[i + 1];
+        }
+        public final Long put(Long key, Long value) {
+            if (value == null)
+                throw new NullPointerException();
+            long k = key;
+            Long oldValue = get(k);
+            LongLongHashMap.this.put(k, value);
+            return oldValue;
+        }
+        public final Long remove(Object key) {
+            Long oldValue;
+            if ((oldValue = get(key)) != null)
+                LongLongHashMap.this.remove((Long) key);
+            return oldValue;
+        }
+        public final Set<Long> keySet() {
+            return new AbstractSet<Long>() {
+                public int size()                 { return size; }
+                public void clear()               { LongLongHashMap.this.clear(); }
+                public Iterator<Long> iterator() { return new KeyIterator(); }
+                public boolean contains(Object o) { return containsKey(o); }
+                public boolean remove(Object o) {
+                    return MapView.this.remove(o) != null;
+                }
+            };
+        }
+        public final Set<Map.Entry<Long,Long>> entrySet() {
+            Set<Map.Entry<Long,Long>> es;
+            return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Long,Long>> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final Iterator<Map.Entry<Long,Long>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            Long v = asMap().get(key);
+            return v != null && v.equals(e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (contains(o)) {
+                LongLongHashMap.this.remove((Long) ((Map.Entry<?,?>) o).getKey());
+                return true;
+            }
+            return false;
+        }
+    }
+}
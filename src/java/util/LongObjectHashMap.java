@@ -0,0 +1,985 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util;
+
+import java.util.function.BiFunction;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * A hash table mapping primitive {@code long} keys to object values.
+ * Unlike a {@code HashMap<Long,V>}, this class stores neither boxed keys
+ * nor per-mapping node objects: keys live in a flat {@code long[]} and
+ * values in a parallel {@code Object[]}, and collisions are resolved by
+ * linear probing.  As a result {@link #get}, {@link #put} and
+ * {@link #remove} do not allocate.
+ *
+ * <p>This class does <em>not</em> allow {@code null} to be used as a
+ * value, so that a {@code null} return from {@link #get} unambiguously
+ * means that the key is absent, as in {@link
+ * java.util.concurrent.ConcurrentHashMap}.
+ *
+ * <p>Removal uses backward-shift deletion, so the table never contains
+ * tombstones and lookups stay short no matter how many removals have been
+ * performed.  The <em>load factor</em> plays the same role as in
+ * {@link HashMap} but must be less than {@code 1}; the default of
+ * {@code 0.5} keeps probe sequences short.
+ *
+ * <p>{@link #asMap} returns a {@code Map<Long,V>} view for code that
+ * needs the {@code Map} interface.  Operations through that view box
+ * their keys.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators of the {@link #asMap} view, as well as {@link #forEach},
+ * are <em>fail-fast</em> in the same sense as those of {@link HashMap}.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see IntIntHashMap
+ * @see LongLongHashMap
+ */
+public class LongObjectHashMap<V> {
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+
+    /**
+     * The maximum capacity, used if a higher value is implicitly specified
+     * by either of the constructors with arguments.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * The keys, initialized on first use, and resized as necessary.  A
+     * key of {@code 0} marks a free slot; the mapping for key {@code 0}
+     * itself is held in {@link #zeroValue}.
+     */
+    transient long[] keys;
+
+    /**
+     * The values, parallel to {@link #keys}.
+     */
+    transient Object[] vals;
+
+    /**
+     * The value mapped to key {@code 0}, or {@code null} if none.
+     */
+    transient V zeroValue;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The next size value at which to resize (capacity * load factor).
+     */
+    // (If the table arrays have not been allocated, this field holds the
+    // initial capacity, or zero signifying DEFAULT_INITIAL_CAPACITY.)
+    int threshold;
+
+    /**
+     * The load factor for the hash table.
+     */
+    final float loadFactor;
+
+    /**
+     * Holds the cached {@link #asMap} view.
+     */
+    transient Map<Long,V> mapView;
+
+    /**
+     * Constructs an empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not between zero and one (exclusive)
+     */
+    public LongObjectHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (initialCapacity > MAXIMUM_CAPACITY)
+            initialCapacity = MAXIMUM_CAPACITY;
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and the
+     * default load factor (0.5).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public LongObjectHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and
+     * the default load factor (0.5).
+     */
+    public LongObjectHashMap() {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+    }
+
+    /**
+     * Spreads the bits of a key, see {@link LongLongHashMap#hash}.
+     */
+    static int hash(long key) {
+        return LongLongHashMap.hash(key);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot of the given non-zero key, or {@code -1} if it is
+     * not present.
+     */
+    final int indexOf(long key) {
+        long[] ks; long k;
+        if ((ks = keys) != null) {
+            int m = ks.length - 1;
+            for (int i = hash(key) & m; (k = ks[i]) != 0; i = (i + 1) & m) {
+                if (k == key)
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param key the key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the key
+     */
+    public boolean containsKey(long key) {
+        return (key == 0) ? zeroValue != null : indexOf(key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * capacity of the map.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            return false;
+        if (value.equals(zeroValue))
+            return true;
+        Object[] vs;
+        if ((vs = vals) != null) {
+            for (Object v : vs) {
+                if (v != null && (v == value || value.equals(v)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0)
+            return zeroValue;
+        long[] ks; long k;
+        if ((ks = keys) != null) {
+            int m = ks.length - 1;
+            for (int i = hash(key) & m; (k = ks[i]) != 0; i = (i + 1) & m) {
+                if (k == key)
+                    return (V)vals[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V v;
+        return (v = get(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified value is null
+     */
+    public V put(long key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V putIfAbsent(long key, V value) {
+        return putVal(key, value, true);
+    }
+
+    /**
+     * Implements put and putIfAbsent.
+     */
+    @SuppressWarnings("unchecked")
+    final V putVal(long key, V value, boolean onlyIfAbsent) {
+        if (value == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            V oldValue = zeroValue;
+            if (oldValue == null) {
+                ++size;
+                ++modCount;
+            }
+            if (oldValue == null || !onlyIfAbsent)
+                zeroValue = value;
+            return oldValue;
+        }
+        long[] ks; int m, i; long k;
+        if ((ks = keys) == null)
+            ks = resize();
+        m = ks.length - 1;
+        for (i = hash(key) & m; (k = ks[i]) != 0; i = (i + 1) & m) {
+            if (k == key) {
+                V oldValue = (V)vals[i];
+                if (!onlyIfAbsent)
+                    vals[i] = value;
+                return oldValue;
+            }
+        }
+        addEntry(i, key, value);
+        return null;
+    }
+
+    /**
+     * Inserts a new mapping for a non-zero key at the free slot {@code i},
+     * first growing the table if the insertion would exceed the
+     * threshold.  Growing before rather than after the insertion
+     * guarantees that every probe sequence ends at a free slot.
+     */
+    final void addEntry(int i, long key, V value) {
+        long[] ks = keys;
+        if (size >= threshold) {
+            ks = resize();
+            int m = ks.length - 1;
+            for (i = hash(key) & m; ks[i] != 0; i = (i + 1) & m)
+                ;
+        }
+        ks[i] = key;
+        vals[i] = value;
+        ++size;
+        ++modCount;
+    }
+
+    /**
+     * Initializes or doubles table size.
+     *
+     * @return the key table
+     * @throws IllegalStateException if the table is already at its
+     *         maximum capacity
+     */
+    final long[] resize() {
+        long[] oldKeys = keys;
+        Object[] oldVals = vals;
+        int oldCap = (oldKeys == null) ? 0 : oldKeys.length;
+        int newCap;
+        if (oldCap > 0) {
+            if (oldCap >= MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Map capacity exceeded: " +
+                                                size);
+            newCap = oldCap << 1;
+        }
+        else if (threshold > 0)
+            newCap = Math.max(threshold, 2);
+        else
+            newCap = DEFAULT_INITIAL_CAPACITY;
+        threshold = Math.min((int)(newCap * loadFactor), newCap - 1);
+        long[] newKeys = new long[newCap];
+        Object[] newVals = new Object[newCap];
+        if (oldKeys != null) {
+            int m = newCap - 1;
+            for (int j = 0; j < oldCap; ++j) {
+                long k;
+                if ((k = oldKeys[j]) != 0) {
+                    int i = hash(k) & m;
+                    while (newKeys[i] != 0)
+                        i = (i + 1) & m;
+                    newKeys[i] = k;
+                    newVals[i] = oldVals[j];
+                }
+            }
+        }
+        keys = newKeys;
+        vals = newVals;
+        return newKeys;
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            V oldValue;
+            if ((oldValue = zeroValue) != null) {
+                zeroValue = null;
+                --size;
+                ++modCount;
+            }
+            return oldValue;
+        }
+        int i;
+        if ((i = indexOf(key)) < 0)
+            return null;
+        V oldValue = (V)vals[i];
+        removeAt(i, null);
+        return oldValue;
+    }
+
+    /**
+     * Removes the entry at slot {@code i} by shifting later members of
+     * its probe cluster backwards, so that no tombstone is left behind.
+     * If {@code it} is non-null, entries that wrap around from the
+     * unvisited start of the table into the part already visited by that
+     * (backwards running) iterator are handed to it.
+     */
+    final void removeAt(int i, HashIterator it) {
+        long[] ks = keys;
+        Object[] vs = vals;
+        int m = ks.length - 1;
+        for (int j = i;;) {
+            j = (j + 1) & m;
+            long k;
+            if ((k = ks[j]) == 0)
+                break;
+            int h = hash(k) & m;
+            if (i <= j ? (h <= i || h > j) : (h <= i && h > j)) {
+                if (it != null && j < it.index && i >= it.index)
+                    it.addWrapped(k);
+                ks[i] = k;
+                vs[i] = vs[j];
+                i = j;
+            }
+        }
+        ks[i] = 0;
+        vs[i] = null;
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        modCount++;
+        zeroValue = null;
+        if (keys != null && size > 0) {
+            Arrays.fill(keys, 0L);
+            Arrays.fill(vals, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this map unless {@code null}.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the mapping function is null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         mapping function modified this map
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key,
+                             LongFunction<? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            V v;
+            if ((v = zeroValue) == null &&
+                (v = mappingFunction.apply(0L)) != null)
+                putVal(0L, v, false);
+            return v;
+        }
+        long[] ks; int m, i; long k;
+        if ((ks = keys) == null)
+            ks = resize();
+        m = ks.length - 1;
+        for (i = hash(key) & m; (k = ks[i]) != 0; i = (i + 1) & m) {
+            if (k == key)
+                return (V)vals[i];
+        }
+        int mc = modCount;
+        V v = mappingFunction.apply(key);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (v != null)
+            addEntry(i, key, v);
+        return v;
+    }
+
+    /**
+     * If the value for the specified key is present, attempts to compute
+     * a new mapping given the key and its current mapped value.  If the
+     * function returns {@code null}, the mapping is removed.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or null if
+     *         none
+     * @throws NullPointerException if the remapping function is null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         remapping function modified this map
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfPresent(long key,
+                              LongObjFunction<? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            V v;
+            if ((v = zeroValue) == null)
+                return null;
+            int mc = modCount;
+            v = remappingFunction.apply(0L, v);
+            if (mc != modCount)
+                throw new ConcurrentModificationException();
+            if (v == null)
+                remove(0L);
+            else
+                zeroValue = v;
+            return v;
+        }
+        int i;
+        if ((i = indexOf(key)) < 0)
+            return null;
+        int mc = modCount;
+        V v = remappingFunction.apply(key, (V)vals[i]);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (v == null)
+            removeAt(i, null);
+        else
+            vals[i] = v;
+        return v;
+    }
+
+    /**
+     * Attempts to compute a mapping for the specified key and its current
+     * mapped value (or {@code null} if there is no current mapping).  If
+     * the function returns {@code null}, the mapping is removed (or
+     * remains absent if initially absent).
+     *
+     * @param key key with which the specified value is to be associated
+     * @param remappingFunction the function to compute a value
+     * @return the new value associated with the specified key, or null if
+     *         none
+     * @throws NullPointerException if the remapping function is null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         remapping function modified this map
+     */
+    @SuppressWarnings("unchecked")
+    public V compute(long key,
+                     LongObjFunction<? super V, ? extends V> remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        if (key == 0) {
+            int mc = modCount;
+            V v = remappingFunction.apply(0L, zeroValue);
+            if (mc != modCount)
+                throw new ConcurrentModificationException();
+            if (v == null)
+                remove(0L);
+            else
+                putVal(0L, v, false);
+            return v;
+        }
+        long[] ks; int m, i; long k;
+        if ((ks = keys) == null)
+            ks = resize();
+        m = ks.length - 1;
+        for (i = hash(key) & m; (k = ks[i]) != 0; i = (i + 1) & m) {
+            if (k == key)
+                break;
+        }
+        V oldValue = (k == 0) ? null : (V)vals[i];
+        int mc = modCount;
+        V v = remappingFunction.apply(key, oldValue);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        if (oldValue != null) {
+            if (v == null)
+                removeAt(i, null);
+            else
+                vals[i] = v;
+        }
+        else if (v != null)
+            addEntry(i, key, v);
+        return v;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.  Otherwise, replaces the value
+     * with the results of the given remapping function, or removes if the
+     * result is {@code null}.
+     *
+     * @param key key with which the resulting value is to be associated
+     * @param value the value to be used if the key is absent
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key, or null if
+     *         no value is associated with the key
+     * @throws NullPointerException if the specified value or remapping
+     *         function is null
+     * @throws ConcurrentModificationException if it is detected that the
+     *         remapping function modified this map
+     */
+    public V merge(long key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null || remappingFunction == null)
+            throw new NullPointerException();
+        return compute(key, (k, oldValue) ->
+            (oldValue == null) ? value : remappingFunction.apply(oldValue, value));
+    }
+
+    /**
+     * Performs the given action for each mapping in this map until all
+     * entries have been processed or the action throws an exception.
+     * Mappings are visited in table order, which is unspecified.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies the
+     *         structure of this map
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjConsumer<? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (zeroValue != null)
+            action.accept(0L, zeroValue);
+        long[] ks;
+        if ((ks = keys) != null) {
+            Object[] vs = vals;
+            for (int i = 0; i < ks.length && modCount == mc; ++i) {
+                long k;
+                if ((k = ks[i]) != 0)
+                    action.accept(k, (V)vs[i]);
+            }
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Performs the given action for each key in this map.
+     *
+     * @param action the action to be performed for each key
+     * @throws NullPointerException if the specified action is null
+     * @throws ConcurrentModificationException if the action modifies the
+     *         structure of this map
+     */
+    public void forEachKey(LongConsumer action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        if (zeroValue != null)
+            action.accept(0L);
+        long[] ks;
+        if ((ks = keys) != null) {
+            for (int i = 0; i < ks.length && modCount == mc; ++i) {
+                long k;
+                if ((k = ks[i]) != 0)
+                    action.accept(k);
+            }
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a {@link Map} view of the mappings contained in this map.
+     * The map is backed by this map, so changes to either are reflected
+     * in the other.  The view boxes keys on every access and is intended
+     * for interoperability rather than for hot paths.
+     *
+     * @return a map view of this map
+     */
+    public Map<Long,V> asMap() {
+        Map<Long,V> mv;
+        return (mv = mapView) == null ? (mapView = new MapView()) : mv;
+    }
+
+    /**
+     * Compares the specified object with this map for equality.  Returns
+     * {@code true} if the given object is also a {@code LongObjectHashMap}
+     * and the two maps represent the same mappings.
+     *
+     * @param o object to be compared for equality with this map
+     * @return {@code true} if the specified object is equal to this map
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongObjectHashMap))
+            return false;
+        LongObjectHashMap<?> m = (LongObjectHashMap<?>) o;
+        if (m.size != size)
+            return false;
+        if (zeroValue != null && !zeroValue.equals(m.zeroValue))
+            return false;
+        long[] ks;
+        if ((ks = keys) != null) {
+            for (int i = 0; i < ks.length; ++i) {
+                long k;
+                if ((k = ks[i]) != 0 && !vals[i].equals(m.get(k)))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this map, defined as in
+     * {@link Map#hashCode} for the equivalent boxed map.
+     *
+     * @return the hash code value for this map
+     */
+    public int hashCode() {
+        int h = (zeroValue == null) ? 0 : zeroValue.hashCode();
+        long[] ks;
+        if ((ks = keys) != null) {
+            for (int i = 0; i < ks.length; ++i) {
+                if (ks[i] != 0)
+                    h += Long.hashCode(ks[i]) ^ vals[i].hashCode();
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns a string representation of this map, in the same format as
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        if (size == 0)
+            return "{}";
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v == this ? "(this Map)" : v);
+        });
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Represents an operation that accepts a {@code long} key and an
+     * object value and returns no result.
+     *
+     * @param <V> the type of the value
+     */
+    @FunctionalInterface
+    public interface LongObjConsumer<V> {
+        /**
+         * Performs this operation on the given key and value.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        void accept(long key, V value);
+    }
+
+    /**
+     * Represents a function that accepts a {@code long} key and an object
+     * value and produces a result.
+     *
+     * @param <V> the type of the value
+     * @param <R> the type of the result of the function
+     */
+    @FunctionalInterface
+    public interface LongObjFunction<V, R> {
+        /**
+         * Applies this function to the given key and value.
+         *
+         * @param key the key
+         * @param value the value
+         * @return the function result
+         */
+        R apply(long key, V value);
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    /**
+     * Iterates backwards over the table, after first reporting key zero.
+     * See {@link IntIntHashMap.HashIterator} for why.
+     */
+    abstract class HashIterator {
+        int index;            // current slot, visited slots are >= index
+        long lastKey;         // key of the last returned entry
+        boolean lastValid;    // whether lastKey may be removed
+        boolean zeroPending;  // whether key zero is still to be returned
+        long[] wrapped;       // entries moved over the cursor by remove
+        int wrappedCount;
+        int expectedModCount; // for fast-fail
+
+        HashIterator() {
+            expectedModCount = modCount;
+            zeroPending = zeroValue != null;
+            index = (keys == null) ? 0 : keys.length;
+            advance();
+        }
+
+        private void advance() {
+            long[] ks = keys;
+            while (index > 0 && ks[index - 1] == 0)
+                --index;
+        }
+
+        final void addWrapped(long k) {
+            long[] w;
+            if ((w = wrapped) == null)
+                w = wrapped = new long[4];
+            else if (wrappedCount == w.length)
+                w = wrapped = Arrays.copyOf(w, wrappedCount << 1);
+            w[wrappedCount++] = k;
+        }
+
+        public final boolean hasNext() {
+            return zeroPending || index > 0 || wrappedCount > 0;
+        }
+
+        final long nextKey() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (zeroPending) {
+                zeroPending = false;
+                lastValid = true;
+                return lastKey = 0L;
+            }
+            if (index > 0) {
+                lastKey = keys[--index];
+                advance();
+            }
+            else if (wrappedCount > 0)
+                lastKey = wrapped[--wrappedCount];
+            else
+                throw new NoSuchElementException();
+            lastValid = true;
+            return lastKey;
+        }
+
+        public final void remove() {
+            if (!lastValid)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastValid = false;
+            long k = lastKey; int i;
+            if (k == 0)
+                LongObjectHashMap.this.remove(0L);
+            else if ((i = indexOf(k)) >= 0) {
+                removeAt(i, this);
+                advance();
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    final class EntryIterator extends HashIterator
+        implements Iterator<Map.Entry<Long,V>> {
+        public final Map.Entry<Long,V> next() {
+            long k = nextKey();
+            return new AbstractMap.SimpleEntry<Long,V>(k, get(k)) {
+                private static final long serialVersionUID = 1L;
+                public V setValue(V value) {
+                    put(k, value);
+                    return super.setValue(value);
+                }
+            };
+        }
+    }
+
+    final class KeyIterator extends HashIterator
+        implements PrimitiveIterator.OfLong {
+        public final long nextLong() { return nextKey(); }
+    }
+
+    final class ValueIterator extends HashIterator implements Iterator<V> {
+        public final V next() { return get(nextKey()); }
+    }
+
+    /* ------------------------------------------------------------ */
+    // Map view
+
+    final class MapView extends AbstractMap<Long,V> {
+        transient Set<Map.Entry<Long,V>> entrySet;
+
+        public final int size()                 { return size; }
+        public final void clear()               { LongObjectHashMap.this.clear(); }
+        public final boolean containsKey(Object key) {
+            return key instanceof Long &&
+                LongObjectHashMap.this.containsKey((Long) key);
+        }
+        public final boolean containsValue(Object value) {
+            return LongObjectHashMap.this.containsValue(value);
+        }
+        public final V get(Object key) {
+            return (key instanceof Long) ?
+                LongObjectHashMap.this.get((Long) key) : null;
+        }
+        public final V put(Long key, V value) {
+            return LongObjectHashMap.this.put(key, value);
+        }
+        public final V remove(Object key) {
+            return (key instanceof Long) ?
+                LongObjectHashMap.this.remove((Long) key) : null;
+        }
+        public final Set<Long> keySet() {
+            return new AbstractSet<Long>() {
+                public int size()                 { return size; }
+                public void clear()               { LongObjectHashMap.this.clear(); }
+                public Iterator<Long> iterator()  { return new KeyIterator(); }
+                public boolean contains(Object o) { return containsKey(o); }
+                public boolean remove(Object o) {
+                    return MapView.this.remove(o) != null;
+                }
+            };
+        }
+        public final Collection<V> values() {
+            return new AbstractCollection<V>() {
+                public int size()                 { return size; }
+                public void clear()               { LongObjectHashMap.this.clear(); }
+                public Iterator<V> iterator()     { return new ValueIterator(); }
+                public boolean contains(Object o) { return containsValue(o); }
+            };
+        }
+        public final Set<Map.Entry<Long,V>> entrySet() {
+            Set<Map.Entry<Long,V>> es;
+            return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Long,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongObjectHashMap.this.clear(); }
+        public final Iterator<Map.Entry<Long,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            V v = (key instanceof Long) ? get((Long) key) : null;
+            return v != null && v.equals(e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (contains(o)) {
+                LongObjectHashMap.this.remove((Long) ((Map.Entry<?,?>) o).getKey());
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -58,6 +58,15 @@ import java.util.function.Consumer;
  * the priority queue in any particular order. If you need ordered
  * traversal, consider using {@code Arrays.sort(pq.toArray())}.
  *
+ * <p>By default the heap is binary.  A queue created with an
+ * <i>arity</i> of 4 or 8 is a <em>d-ary</em> heap in which each node has
+ * that many children.  The tree is then two or three times shallower, so
+ * {@code offer} does proportionally fewer moves, and {@code poll} visits
+ * fewer levels, at the price of comparing more children per level; the
+ * children of a node are adjacent in the array and usually share a cache
+ * line.  Wider heaps tend to pay off for large queues, where each level
+ * of a binary heap is likely to be a cache miss.
+ *
  * <p><strong>Note that this implementation is not synchronized.</strong>
  * Multiple threads should not access a {@code PriorityQueue}
  * instance concurrently if any of the threads modifies the queue.
@@ -87,8 +96,14 @@ public class PriorityQueue<E> extends AbstractQueue<E>
     private static final int DEFAULT_INITIAL_CAPACITY = 11;
 
     /**
-     * Priority queue represented as a balanced binary heap: the two
-     * children of queue[n] are queue[2*n+1] and queue[2*(n+1)].  The
+     * The largest supported heap arity.
+     */
+    private static final int MAXIMUM_ARITY = 64;
+
+    /**
+     * Priority queue represented as a balanced d-ary heap: the children
+     * of queue[n] are queue[d*n+1] through queue[d*n+d], where d is
+     * 1 << arityShift (2, that is a binary heap, by default).  The
      * priority queue is ordered by comparator, or by the elements'
      * natural ordering, if comparator is null: For each node n in the
      * heap and each descendant d of n, n <= d.  The element with the
@@ -107,6 +122,15 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      */
     private final Comparator<? super E> comparator;
 
+    /**
+     * log2 of the heap arity.  Queues deserialized from streams written
+     * before this field existed read it as zero, which readObject treats
+     * as binary.
+     *
+     * @serial
+     */
+    private int arityShift = 1;
+
     /**
      * The number of times this priority queue has been
      * <i>structurally modified</i>.  See AbstractList for gory details.
@@ -161,19 +185,44 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      */
     public PriorityQueue(int initialCapacity,
                          Comparator<? super E> comparator) {
+        this(initialCapacity, comparator, 2);
+    }
+
+    /**
+     * Creates a {@code PriorityQueue} with the specified initial capacity
+     * and heap arity that orders its elements according to the specified
+     * comparator.
+     *
+     * @param  initialCapacity the initial capacity for this priority queue
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     * @param  arity the number of children of each node of the heap; 2
+     *         for a binary heap
+     * @throws IllegalArgumentException if {@code initialCapacity} is
+     *         less than 1, or {@code arity} is not a power of two between
+     *         2 and 64
+     */
+    public PriorityQueue(int initialCapacity,
+                         Comparator<? super E> comparator,
+                         int arity) {
         // Note: This restriction of at least one is not actually needed,
         // but continues for 1.5 compatibility
         if (initialCapacity < 1)
             throw new IllegalArgumentException();
+        if (arity < 2 || arity > MAXIMUM_ARITY || (arity & (arity - 1)) != 0)
+            throw new IllegalArgumentException("Illegal arity: " + arity);
         this.queue = new Object[initialCapacity];
         this.comparator = comparator;
+        this.arityShift = Integer.numberOfTrailingZeros(arity);
     }
 
     /**
      * Creates a {@code PriorityQueue} containing the elements in the
      * specified collection.  If the specified collection is an instance of
      * a {@link SortedSet} or is another {@code PriorityQueue}, this
-     * priority queue will be ordered according to the same ordering.
+     * priority queue will be ordered according to the same ordering,
+     * and in the latter case will have the same arity.
      * Otherwise, this priority queue will be ordered according to the
      * {@linkplain Comparable natural ordering} of its elements.
      *
@@ -206,8 +255,8 @@ public class PriorityQueue<E> extends AbstractQueue<E>
     /**
      * Creates a {@code PriorityQueue} containing the elements in the
      * specified priority queue.  This priority queue will be
-     * ordered according to the same ordering as the given priority
-     * queue.
+     * ordered according to the same ordering, and will have the same
+     * arity, as the given priority queue.
      *
      * @param  c the priority queue whose elements are to be placed
      *         into this priority queue
@@ -243,6 +292,7 @@ public class PriorityQueue<E> extends AbstractQueue<E>
     }
 
     private void initFromPriorityQueue(PriorityQueue<? extends E> c) {
+        this.arityShift = c.arityShift;
         if (c.getClass() == PriorityQueue.class) {
             this.queue = c.toArray();
             this.size = c.size();
@@ -650,8 +700,9 @@ public class PriorityQueue<E> extends AbstractQueue<E>
     @SuppressWarnings("unchecked")
     private void siftUpComparable(int k, E x) {
         Comparable<? super E> key = (Comparable<? super E>) x;
+        int shift = arityShift;
         while (k > 0) {
-            int parent = (k - 1) >>> 1;
+            int parent = (k - 1) >>> shift;
             Object e = queue[parent];
             if (key.compareTo((E) e) >= 0)
                 break;
@@ -663,8 +714,9 @@ public class PriorityQueue<E> extends AbstractQueue<E>
 
     @SuppressWarnings("unchecked")
     private void siftUpUsingComparator(int k, E x) {
+        int shift = arityShift;
         while (k > 0) {
-            int parent = (k - 1) >>> 1;
+            int parent = (k - 1) >>> shift;
             Object e = queue[parent];
             if (comparator.compare(x, (E) e) >= 0)
                 break;
@@ -683,7 +735,13 @@ public class PriorityQueue<E> extends AbstractQueue<E>
      * @param x the item to insert
      */
     private void siftDown(int k, E x) {
-        if (comparator != null)
+        if (arityShift != 1) {
+            if (comparator != null)
+                siftDownWideUsingComparator(k, x);
+            else
+                siftDownWideComparable(k, x);
+        }
+        else if (comparator != null)
             siftDownUsingComparator(k, x);
         else
             siftDownComparable(k, x);
@@ -726,13 +784,65 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         queue[k] = x;
     }
 
+    /**
+     * Versions of siftDown for heaps of arity greater than two, which
+     * pick the least of up to 1 << arityShift adjacent children at each
+     * level.
+     */
+    @SuppressWarnings("unchecked")
+    private void siftDownWideComparable(int k, E x) {
+        Comparable<? super E> key = (Comparable<? super E>)x;
+        int shift = arityShift, n = size;
+        int lastParent = (n - 2) >> shift; // loop while a non-leaf
+        while (k <= lastParent) {
+            int child = (k << shift) + 1;  // find least of the children
+            int end = Math.min(child + (1 << shift), n);
+            Object c = queue[child];
+            for (int i = child + 1; i < end; i++) {
+                Object e = queue[i];
+                if (((Comparable<? super E>) c).compareTo((E) e) > 0) {
+                    c = e;
+                    child = i;
+                }
+            }
+            if (key.compareTo((E) c) <= 0)
+                break;
+            queue[k] = c;
+            k = child;
+        }
+        queue[k] = key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void siftDownWideUsingComparator(int k, E x) {
+        int shift = arityShift, n = size;
+        int lastParent = (n - 2) >> shift;
+        while (k <= lastParent) {
+            int child = (k << shift) + 1;
+            int end = Math.min(child + (1 << shift), n);
+            Object c = queue[child];
+            for (int i = child + 1; i < end; i++) {
+                Object e = queue[i];
+                if (comparator.compare((E) c, (E) e) > 0) {
+                    c = e;
+                    child = i;
+                }
+            }
+            if (comparator.compare(x, (E) c) <= 0)
+                break;
+            queue[k] = c;
+            k = child;
+        }
+        queue[k] = x;
+    }
+
     /**
      * Establishes the heap invariant (described above) in the entire tree,
      * assuming nothing about the order of the elements prior to the call.
      */
     @SuppressWarnings("unchecked")
     private void heapify() {
-        for (int i = (size >>> 1) - 1; i >= 0; i--)
+        for (int i = (size - 2) >> arityShift; i >= 0; i--)
             siftDown(i, (E) queue[i]);
     }
 
@@ -749,6 +859,16 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         return comparator;
     }
 
+    /**
+     * Returns the number of children of each node of this queue's heap,
+     * {@code 2} unless another arity was given at construction.
+     *
+     * @return the arity of this queue's heap
+     */
+    public int arity() {
+        return 1 << arityShift;
+    }
+
     /**
      * Saves this queue to a stream (that is, serializes it).
      *
@@ -781,6 +901,14 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         // Read in size, and any hidden stuff
         s.defaultReadObject();
 
+        // Streams from before d-ary heaps have no arity; they were binary
+        if (arityShift == 0)
+            arityShift = 1;
+        else if (arityShift < 0 ||
+                 arityShift > Integer.numberOfTrailingZeros(MAXIMUM_ARITY))
+            throw new java.io.InvalidObjectException("Illegal arity shift: " +
+                                                     arityShift);
+
         // Read in (and discard) array length
         s.readInt();
 
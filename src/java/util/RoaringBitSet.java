@@ -0,0 +1,2271 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A compressed set of bits, for sets that are sparse, clustered or
+ * both.  Like a {@link BitSet}, a {@code RoaringBitSet} is indexed by
+ * nonnegative integers and grows as needed, and it offers the same
+ * operations under the same names: bits can be set, cleared and
+ * flipped individually or by range, scanned with {@link #nextSetBit}
+ * and its relatives, and combined in place with another set by logical
+ * AND, OR, XOR and AND NOT.  Unlike a {@code BitSet}, whose storage is
+ * proportional to its highest set bit, a {@code RoaringBitSet} uses
+ * space roughly proportional to the number of bits set, or to the
+ * number of runs of set bits, whichever is smaller.
+ *
+ * <p>The index space is divided into chunks of 2<sup>16</sup> bits,
+ * and only chunks containing at least one set bit are stored.  Each
+ * chunk is kept in the cheapest of three forms (the "Roaring" layout):
+ * <ul>
+ * <li>a sorted array of 16-bit offsets, while the chunk has at most
+ *     4096 set bits;
+ * <li>a bitmap of 1024 words, once it has more;
+ * <li>a list of runs of consecutive set bits.  Ranges set by {@link
+ *     #set(int, int)} or {@link #flip(int, int)} start out in this
+ *     form, operations among run chunks keep it when it is the
+ *     smallest, and {@link #runOptimize} converts any chunk to it
+ *     when that saves space.
+ * </ul>
+ * The logical operations combine sets chunk by chunk, visiting only
+ * chunks present in the operands, and use an algorithm suited to each
+ * pair of forms.
+ *
+ * <p>{@link #toLongArray} and {@link #valueOf(long[])} use the same
+ * little-endian word layout as the methods of {@code BitSet} of the
+ * same names, so sets can be converted both ways, and {@link
+ * #hashCode} returns the same value as {@link BitSet#hashCode} for the
+ * same bits.  The serialized form is the compressed one.
+ *
+ * <p>Unless otherwise noted, passing a null parameter to any of the
+ * methods in a {@code RoaringBitSet} will result in a
+ * {@code NullPointerException}.
+ *
+ * <p>A {@code RoaringBitSet} is not safe for multithreaded use without
+ * external synchronization.
+ *
+ * @see BitSet
+ */
+public class RoaringBitSet implements Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = 6071591498463281236L;
+
+    /*
+     * Implementation notes.
+     *
+     * keys[0..size) holds, in increasing order, the chunk numbers
+     * (bit index >>> 16) of the chunks with a set bit, and
+     * containers[i] the chunk numbered keys[i].  Since bit indexes are
+     * nonnegative, chunk numbers are at most 0x7fff.  A container is
+     * never empty.
+     *
+     * Containers hold the low 16 bits of the indexes, passed around
+     * as ints in [0, CHUNK_SIZE).  Range arguments are half-open,
+     * with CHUNK_SIZE as the largest "to".  An update returns the
+     * container that now represents the chunk: ArrayContainer and
+     * BitmapContainer update themselves and return this unless they
+     * cross the 4096 threshold or become full, while RunContainer is
+     * immutable and always returns a new container if anything
+     * changes.  That lets copies of a set share run containers.  An
+     * operation between two containers may modify and return the
+     * receiver, but never modifies or returns its argument, unless
+     * the argument is an (immutable) RunContainer.
+     *
+     * Combining a RunContainer with another RunContainer, or with an
+     * ArrayContainer by OR, walks both in order, feeding a RunBuilder
+     * that merges overlapping and adjacent runs and then picks the
+     * smallest form for the result.  Other combinations involving
+     * runs go through a bitmap.
+     */
+
+    /** The number of bits in a chunk. */
+    static final int CHUNK_SIZE = 1 << 16;
+
+    /** The largest cardinality held in an ArrayContainer. */
+    static final int ARRAY_MAX_SIZE = 4096;
+
+    /** The number of words in a BitmapContainer. */
+    static final int BITMAP_WORDS = CHUNK_SIZE >>> 6;
+
+    private static final char[] NO_KEYS = {};
+    private static final Container[] NO_CONTAINERS = {};
+
+    /** Chunk numbers, in increasing order. */
+    transient char[] keys;
+
+    /** Containers for the chunks, parallel to keys. */
+    transient Container[] containers;
+
+    /** The number of chunks in use. */
+    transient int size;
+
+    /**
+     * Creates a new, empty bit set.
+     */
+    public RoaringBitSet() {
+        keys = NO_KEYS;
+        containers = NO_CONTAINERS;
+    }
+
+    /**
+     * Returns a new bit set containing all the bits in the given long
+     * array, laid out as for {@link BitSet#valueOf(long[])}.
+     *
+     * <p>More precisely,
+     * <br>{@code RoaringBitSet.valueOf(longs).get(n) == ((longs[n/64] & (1L<<(n%64))) != 0)}
+     * <br>for all {@code n < 64 * longs.length}.
+     *
+     * @param longs a long array containing a little-endian representation
+     *        of a sequence of bits to be used as the initial bits of the
+     *        new bit set
+     * @return a {@code RoaringBitSet} containing all the bits in the long
+     *         array
+     */
+    public static RoaringBitSet valueOf(long[] longs) {
+        RoaringBitSet s = new RoaringBitSet();
+        for (int off = 0; off < longs.length; off += BITMAP_WORDS) {
+            int end = Math.min(longs.length, off + BITMAP_WORDS);
+            int card = 0;
+            for (int i = off; i < end; i++)
+                card += Long.bitCount(longs[i]);
+            if (card > 0) {
+                long[] words = new long[BITMAP_WORDS];
+                System.arraycopy(longs, off, words, 0, end - off);
+                BitmapContainer b = new BitmapContainer(words, card);
+                s.append((char) (off / BITMAP_WORDS), b.repair());
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Returns a new bit set containing all the bits in the given
+     * {@code BitSet}.
+     *
+     * @param bits the bits to copy
+     * @return a {@code RoaringBitSet} with the same bits set as
+     *         {@code bits}
+     */
+    public static RoaringBitSet valueOf(BitSet bits) {
+        return valueOf(bits.toLongArray());
+    }
+
+    /**
+     * Returns a new long array containing all the bits in this bit
+     * set, in the layout of {@link BitSet#toLongArray}.
+     *
+     * @return a long array containing a little-endian representation
+     *         of all the bits in this bit set
+     */
+    public long[] toLongArray() {
+        int n = size;
+        long[] words = new long[(n == 0) ? 0 :
+            (((keys[n - 1] << 16) | containers[n - 1].last()) >>> 6) + 1];
+        for (int i = 0; i < size; i++)
+            containers[i].orInto(words, keys[i] * BITMAP_WORDS);
+        return words;
+    }
+
+    /**
+     * Returns a new {@code BitSet} with the same bits set as this set.
+     *
+     * @return a {@code BitSet} with the same bits set as this set
+     */
+    public BitSet toBitSet() {
+        return BitSet.valueOf(toLongArray());
+    }
+
+    /* ---------------- Chunk table -------------- */
+
+    /**
+     * Returns the index of the given chunk, or -(insertion point) - 1.
+     */
+    final int search(int key) {
+        int n = size;
+        if (n > 0 && keys[n - 1] == key)    // appending pattern
+            return n - 1;
+        return Arrays.binarySearch(keys, 0, n, (char) key);
+    }
+
+    final void insertAt(int i, char key, Container c) {
+        int n = size;
+        if (n == keys.length) {
+            int cap = (n == 0) ? 1 : n << 1;
+            keys = Arrays.copyOf(keys, cap);
+            containers = Arrays.copyOf(containers, cap);
+        }
+        if (i < n) {
+            System.arraycopy(keys, i, keys, i + 1, n - i);
+            System.arraycopy(containers, i, containers, i + 1, n - i);
+        }
+        keys[i] = key;
+        containers[i] = c;
+        size = n + 1;
+    }
+
+    final void append(char key, Container c) {
+        insertAt(size, key, c);
+    }
+
+    final void removeAt(int i) {
+        int n = --size;
+        if (i < n) {
+            System.arraycopy(keys, i + 1, keys, i, n - i);
+            System.arraycopy(containers, i + 1, containers, i, n - i);
+        }
+        containers[n] = null;
+    }
+
+    /**
+     * Stores c as the container at index i, removing the chunk if c is
+     * empty.
+     *
+     * @return whether the chunk was kept
+     */
+    final boolean update(int i, Container c) {
+        if (c.cardinality() == 0) {
+            removeAt(i);
+            return false;
+        }
+        containers[i] = c;
+        return true;
+    }
+
+    /* ---------------- Single bits and ranges -------------- */
+
+    /**
+     * Checks that fromIndex ... toIndex is a valid range of bit indices.
+     */
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    /**
+     * Returns the value of the bit with the specified index.
+     *
+     * @param  bitIndex   the bit index
+     * @return the value of the bit with the specified index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public boolean get(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int i = search(bitIndex >>> 16);
+        return i >= 0 && containers[i].contains(bitIndex & 0xFFFF);
+    }
+
+    /**
+     * Sets the bit at the specified index to {@code true}.
+     *
+     * @param  bitIndex a bit index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int key = bitIndex >>> 16, low = bitIndex & 0xFFFF;
+        int i = search(key);
+        if (i >= 0)
+            containers[i] = containers[i].add(low);
+        else
+            insertAt(-i - 1, (char) key, new ArrayContainer().add(low));
+    }
+
+    /**
+     * Sets the bit at the specified index to the specified value.
+     *
+     * @param  bitIndex a bit index
+     * @param  value a boolean value to set
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void set(int bitIndex, boolean value) {
+        if (value)
+            set(bitIndex);
+        else
+            clear(bitIndex);
+    }
+
+    /**
+     * Sets the bit specified by the index to {@code false}.
+     *
+     * @param  bitIndex the index of the bit to be cleared
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void clear(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int i = search(bitIndex >>> 16);
+        if (i >= 0)
+            update(i, containers[i].remove(bitIndex & 0xFFFF));
+    }
+
+    /**
+     * Sets the bit at the specified index to the complement of its
+     * current value.
+     *
+     * @param  bitIndex the index of the bit to flip
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public void flip(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int low = bitIndex & 0xFFFF;
+        int i = search(bitIndex >>> 16);
+        if (i < 0)
+            insertAt(-i - 1, (char) (bitIndex >>> 16),
+                     new ArrayContainer().add(low));
+        else {
+            Container c = containers[i];
+            update(i, c.contains(low) ? c.remove(low) : c.add(low));
+        }
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code true}.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int firstKey = fromIndex >>> 16, lastKey = (toIndex - 1) >>> 16;
+        for (int key = firstKey; key <= lastKey; key++) {
+            int from = (key == firstKey) ? fromIndex & 0xFFFF : 0;
+            int to = (key == lastKey) ? ((toIndex - 1) & 0xFFFF) + 1 : CHUNK_SIZE;
+            int i = search(key);
+            if (i >= 0)
+                containers[i] = containers[i].addRange(from, to);
+            else
+                insertAt(-i - 1, (char) key, RunContainer.range(from, to));
+        }
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the specified value.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @param  value value to set the selected bits to
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void set(int fromIndex, int toIndex, boolean value) {
+        if (value)
+            set(fromIndex, toIndex);
+        else
+            clear(fromIndex, toIndex);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code false}.
+     *
+     * @param  fromIndex index of the first bit to be cleared
+     * @param  toIndex index after the last bit to be cleared
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void clear(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int firstKey = fromIndex >>> 16, lastKey = (toIndex - 1) >>> 16;
+        int i = search(firstKey);
+        if (i < 0)
+            i = -i - 1;
+        while (i < size && keys[i] <= lastKey) {
+            int key = keys[i];
+            int from = (key == firstKey) ? fromIndex & 0xFFFF : 0;
+            int to = (key == lastKey) ? ((toIndex - 1) & 0xFFFF) + 1 : CHUNK_SIZE;
+            if (from == 0 && to == CHUNK_SIZE)
+                removeAt(i);
+            else if (update(i, containers[i].removeRange(from, to)))
+                i++;
+        }
+    }
+
+    /**
+     * Sets each bit from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the complement of its current
+     * value.
+     *
+     * @param  fromIndex index of the first bit to flip
+     * @param  toIndex index after the last bit to flip
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     */
+    public void flip(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex)
+            return;
+        int firstKey = fromIndex >>> 16, lastKey = (toIndex - 1) >>> 16;
+        for (int key = firstKey; key <= lastKey; key++) {
+            int from = (key == firstKey) ? fromIndex & 0xFFFF : 0;
+            int to = (key == lastKey) ? ((toIndex - 1) & 0xFFFF) + 1 : CHUNK_SIZE;
+            int i = search(key);
+            if (i >= 0)
+                update(i, containers[i].flipRange(from, to));
+            else
+                insertAt(-i - 1, (char) key, RunContainer.range(from, to));
+        }
+    }
+
+    /**
+     * Sets all of the bits in this set to {@code false}.
+     */
+    public void clear() {
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /* ---------------- Scanning -------------- */
+
+    /**
+     * Returns the index of the first bit that is set to {@code true}
+     * that occurs on or after the specified starting index. If no such
+     * bit exists then {@code -1} is returned.
+     *
+     * <p>To iterate over the {@code true} bits in a set, use the
+     * following loop, or {@link #stream}:
+     *
+     *  <pre> {@code
+     * for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i+1)) {
+     *     // operate on index i here
+     *     if (i == Integer.MAX_VALUE) {
+     *         break; // or (i+1) would overflow
+     *     }
+     * }}</pre>
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int i = search(fromIndex >>> 16);
+        if (i >= 0) {
+            int low = containers[i].nextSetBit(fromIndex & 0xFFFF);
+            if (low >= 0)
+                return (keys[i] << 16) | low;
+            i++;
+        }
+        else
+            i = -i - 1;
+        return (i < size) ? (keys[i] << 16) | containers[i].first() : -1;
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code false}
+     * that occurs on or after the specified starting index.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next clear bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = fromIndex >>> 16, low = fromIndex & 0xFFFF;
+        int i = search(key);
+        if (i < 0)
+            return fromIndex;
+        for (;;) {
+            low = containers[i].nextClearBit(low);
+            if (low < CHUNK_SIZE)
+                return (key << 16) | low;
+            // the rest of the chunk is set; try the next one
+            ++key;
+            low = 0;
+            if (++i == size || keys[i] != key)
+                return key << 16;
+        }
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code true}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     */
+    public int previousSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException(
+                "fromIndex < -1: " + fromIndex);
+        }
+        int i = search(fromIndex >>> 16);
+        if (i >= 0) {
+            int low = containers[i].previousSetBit(fromIndex & 0xFFFF);
+            if (low >= 0)
+                return (keys[i] << 16) | low;
+            i--;
+        }
+        else
+            i = -i - 2;
+        return (i >= 0) ? (keys[i] << 16) | containers[i].last() : -1;
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code false}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous clear bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     */
+    public int previousClearBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException(
+                "fromIndex < -1: " + fromIndex);
+        }
+        int key = fromIndex >>> 16, low = fromIndex & 0xFFFF;
+        int i = search(key);
+        if (i < 0)
+            return fromIndex;
+        for (;;) {
+            low = containers[i].previousClearBit(low);
+            if (low >= 0)
+                return (key << 16) | low;
+            // the chunk is set up to low; try the previous one
+            if (--key < 0)
+                return -1;
+            low = CHUNK_SIZE - 1;
+            if (--i < 0 || keys[i] != key)
+                return (key << 16) | low;
+        }
+    }
+
+    /**
+     * Returns the "logical size" of this set: the index of the highest
+     * set bit in the set plus one.  Returns zero if the set contains
+     * no set bits.
+     *
+     * @return the logical size of this set
+     */
+    public int length() {
+        int n = size;
+        return (n == 0) ? 0 :
+            ((keys[n - 1] << 16) | containers[n - 1].last()) + 1;
+    }
+
+    /**
+     * Returns true if this set contains no bits that are set
+     * to {@code true}.
+     *
+     * @return boolean indicating whether this set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this set.
+     *
+     * @return the number of bits set to {@code true} in this set
+     */
+    public int cardinality() {
+        int sum = 0;
+        for (int i = 0; i < size; i++)
+            sum += containers[i].cardinality();
+        return sum;
+    }
+
+    /**
+     * Returns a stream of indices for which this set contains a bit
+     * in the set state, in order from lowest to highest.
+     *
+     * @return a stream of integers representing set indices
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(
+                () -> Spliterators.spliterator(
+                        new BitIterator(), cardinality(),
+                        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED),
+                Spliterator.SIZED | Spliterator.SUBSIZED |
+                        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED,
+                false);
+    }
+
+    /**
+     * Iterates over the set bits, walking array containers directly
+     * rather than searching them.
+     */
+    final class BitIterator implements PrimitiveIterator.OfInt {
+        int ci = -1;     // index of the current container
+        int next = -1;   // next index to return, or -1
+        int ai;          // position in the current container, if an array
+
+        BitIterator() {
+            nextContainer();
+        }
+
+        private void nextContainer() {
+            if (++ci < size) {
+                ai = 0;
+                next = (keys[ci] << 16) | containers[ci].first();
+            }
+            else
+                next = -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != -1;
+        }
+
+        @Override
+        public int nextInt() {
+            int ret = next;
+            if (ret == -1)
+                throw new NoSuchElementException();
+            Container c = containers[ci];
+            int low = -1;
+            if (c instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) c;
+                if (++ai < a.size)
+                    low = a.values[ai];
+            }
+            else if ((ret & 0xFFFF) != CHUNK_SIZE - 1)
+                low = c.nextSetBit((ret & 0xFFFF) + 1);
+            if (low >= 0)
+                next = (ret & ~0xFFFF) | low;
+            else
+                nextContainer();
+            return ret;
+        }
+    }
+
+    /* ---------------- Logical operations -------------- */
+
+    /**
+     * Returns true if the specified set has any bits set to {@code true}
+     * that are also set to {@code true} in this set.
+     *
+     * @param  set set to intersect with
+     * @return boolean indicating whether this set intersects
+     *         the specified set
+     */
+    public boolean intersects(RoaringBitSet set) {
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int k1 = keys[i], k2 = set.keys[j];
+            if (k1 < k2)
+                i++;
+            else if (k1 > k2)
+                j++;
+            else if (containers[i++].intersects(set.containers[j++]))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Performs a logical <b>AND</b> of this target set with the
+     * argument set. This set is modified so that each bit in it has the
+     * value {@code true} if and only if it both initially had the value
+     * {@code true} and the corresponding bit in the set argument also
+     * had the value {@code true}.
+     *
+     * @param set a set
+     */
+    public void and(RoaringBitSet set) {
+        if (this == set)
+            return;
+        int n = 0;
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int k1 = keys[i], k2 = set.keys[j];
+            if (k1 < k2)
+                i++;
+            else if (k1 > k2)
+                j++;
+            else {
+                Container c = containers[i++].and(set.containers[j++]);
+                if (c.cardinality() > 0) {
+                    keys[n] = (char) k1;
+                    containers[n++] = c;
+                }
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this set with the set argument.
+     * This set is modified so that a bit in it has the value
+     * {@code true} if and only if it either already had the value
+     * {@code true} or the corresponding bit in the set argument has
+     * the value {@code true}.
+     *
+     * @param set a set
+     */
+    public void or(RoaringBitSet set) {
+        if (this == set || set.size == 0)
+            return;
+        int n1 = size, n2 = set.size;
+        char[] ks = new char[n1 + n2];
+        Container[] cs = new Container[n1 + n2];
+        int n = 0, i = 0, j = 0;
+        while (i < n1 && j < n2) {
+            int k1 = keys[i], k2 = set.keys[j];
+            if (k1 < k2) {
+                ks[n] = (char) k1;
+                cs[n++] = containers[i++];
+            }
+            else if (k1 > k2) {
+                ks[n] = (char) k2;
+                cs[n++] = set.containers[j++].copy();
+            }
+            else {
+                ks[n] = (char) k1;
+                cs[n++] = containers[i++].or(set.containers[j++]);
+            }
+        }
+        for (; i < n1; i++, n++) {
+            ks[n] = keys[i];
+            cs[n] = containers[i];
+        }
+        for (; j < n2; j++, n++) {
+            ks[n] = set.keys[j];
+            cs[n] = set.containers[j].copy();
+        }
+        keys = ks;
+        containers = cs;
+        size = n;
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this set with the set argument.
+     * This set is modified so that a bit in it has the value
+     * {@code true} if and only if one of the following statements
+     * holds:
+     * <ul>
+     * <li>The bit initially has the value {@code true}, and the
+     *     corresponding bit in the argument has the value {@code false}.
+     * <li>The bit initially has the value {@code false}, and the
+     *     corresponding bit in the argument has the value {@code true}.
+     * </ul>
+     *
+     * @param  set a set
+     */
+    public void xor(RoaringBitSet set) {
+        if (this == set) {
+            clear();
+            return;
+        }
+        if (set.size == 0)
+            return;
+        int n1 = size, n2 = set.size;
+        char[] ks = new char[n1 + n2];
+        Container[] cs = new Container[n1 + n2];
+        int n = 0, i = 0, j = 0;
+        while (i < n1 && j < n2) {
+            int k1 = keys[i], k2 = set.keys[j];
+            if (k1 < k2) {
+                ks[n] = (char) k1;
+                cs[n++] = containers[i++];
+            }
+            else if (k1 > k2) {
+                ks[n] = (char) k2;
+                cs[n++] = set.containers[j++].copy();
+            }
+            else {
+                Container c = containers[i++].xor(set.containers[j++]);
+                if (c.cardinality() > 0) {
+                    ks[n] = (char) k1;
+                    cs[n++] = c;
+                }
+            }
+        }
+        for (; i < n1; i++, n++) {
+            ks[n] = keys[i];
+            cs[n] = containers[i];
+        }
+        for (; j < n2; j++, n++) {
+            ks[n] = set.keys[j];
+            cs[n] = set.containers[j].copy();
+        }
+        keys = ks;
+        containers = cs;
+        size = n;
+    }
+
+    /**
+     * Clears all of the bits in this set whose corresponding
+     * bit is set in the specified set.
+     *
+     * @param  set the set with which to mask this set
+     */
+    public void andNot(RoaringBitSet set) {
+        if (this == set) {
+            clear();
+            return;
+        }
+        int n = 0, i = 0, j = 0, n1 = size;
+        for (; i < n1; i++) {
+            int k1 = keys[i];
+            while (j < set.size && set.keys[j] < k1)
+                j++;
+            Container c = containers[i];
+            if (j < set.size && set.keys[j] == k1)
+                c = c.andNot(set.containers[j++]);
+            if (c.cardinality() > 0) {
+                keys[n] = (char) k1;
+                containers[n++] = c;
+            }
+        }
+        Arrays.fill(containers, n, n1, null);
+        size = n;
+    }
+
+    /**
+     * Converts each chunk of this set to run-length encoded form if
+     * that is smaller than its current form, and each run-length
+     * encoded chunk that would be smaller in another form back to
+     * that form.  Sets built from clustered bits, for example by
+     * {@link #valueOf(long[])} or by setting consecutive bits one at
+     * a time, may shrink considerably.
+     *
+     * @return whether any chunk changed form
+     */
+    public boolean runOptimize() {
+        boolean changed = false;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i], r = c.runOptimize();
+            if (r != c) {
+                containers[i] = r;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /* ---------------- Object methods -------------- */
+
+    /**
+     * Returns the hash code value for this bit set.  The hash code
+     * depends only on which bits are set, and equals the hash code of
+     * a {@link BitSet} with the same bits set.
+     *
+     * @return the hash code value for this bit set
+     */
+    public int hashCode() {
+        long h = 1234;
+        for (int i = 0; i < size; i++)
+            h ^= containers[i].hashWords((long) keys[i] * BITMAP_WORDS);
+        return (int)((h >> 32) ^ h);
+    }
+
+    /**
+     * Compares this object against the specified object.  The result
+     * is {@code true} if and only if the argument is not {@code null}
+     * and is a {@code RoaringBitSet} object that has exactly the same
+     * set of bits set to {@code true} as this bit set, whatever the
+     * forms in which the two sets store them.
+     *
+     * @param  obj the object to compare with
+     * @return {@code true} if the objects are the same;
+     *         {@code false} otherwise
+     */
+    public boolean equals(Object obj) {
+        if (!(obj instanceof RoaringBitSet))
+            return false;
+        if (this == obj)
+            return true;
+        RoaringBitSet set = (RoaringBitSet) obj;
+        if (size != set.size)
+            return false;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != set.keys[i] ||
+                !containers[i].sameBits(set.containers[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cloning this {@code RoaringBitSet} produces a new
+     * {@code RoaringBitSet} that is equal to it.
+     *
+     * @return a clone of this bit set
+     */
+    public Object clone() {
+        try {
+            RoaringBitSet result = (RoaringBitSet) super.clone();
+            result.keys = Arrays.copyOf(keys, size);
+            Container[] cs = new Container[size];
+            for (int i = 0; i < size; i++)
+                cs[i] = containers[i].copy();
+            result.containers = cs;
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns a string representation of this bit set, in the format
+     * of {@link BitSet#toString}: the indices of the set bits, in
+     * increasing order, separated by ", " and surrounded by braces.
+     *
+     * @return a string representation of this bit set
+     */
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append('{');
+        boolean first = true;
+        for (PrimitiveIterator.OfInt it = new BitIterator(); it.hasNext(); ) {
+            if (!first)
+                b.append(", ");
+            b.append(it.nextInt());
+            first = false;
+        }
+        return b.append('}').toString();
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    private static final byte ARRAY = 0, BITMAP = 1, RUN = 2;
+
+    /**
+     * Save the state of the {@code RoaringBitSet} instance to a stream
+     * (i.e., serialize it).
+     *
+     * @serialData The number of chunks (int), followed by, for each
+     *             chunk in increasing order, its number (char), its
+     *             form (byte), and its contents: for an array chunk,
+     *             the count (int) and the offsets (chars); for a
+     *             bitmap chunk, 1024 words (longs); for a run chunk,
+     *             the number of runs (int) and each run's start and
+     *             length minus one (chars).
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            s.writeChar(keys[i]);
+            containers[i].writeTo(s);
+        }
+    }
+
+    /**
+     * Reconstitute the {@code RoaringBitSet} instance from a stream
+     * (i.e., deserialize it).
+     */
+    private void readObject(ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0 || n > (Integer.MAX_VALUE >>> 16) + 1)
+            throw new InvalidObjectException("Illegal chunk count: " + n);
+        keys = (n == 0) ? NO_KEYS : new char[n];
+        containers = (n == 0) ? NO_CONTAINERS : new Container[n];
+        int prev = -1;
+        for (int i = 0; i < n; i++) {
+            int key = s.readChar();
+            if (key <= prev || key > (Integer.MAX_VALUE >>> 16))
+                throw new InvalidObjectException("Illegal chunk: " + key);
+            Container c;
+            switch (s.readByte()) {
+            case ARRAY:  c = ArrayContainer.readFrom(s);  break;
+            case BITMAP: c = BitmapContainer.readFrom(s); break;
+            case RUN:    c = RunContainer.readFrom(s);    break;
+            default:
+                throw new InvalidObjectException("Illegal chunk form");
+            }
+            keys[i] = (char) key;
+            containers[i] = c;
+            prev = key;
+        }
+        size = n;
+    }
+
+    /* ---------------- Word ranges -------------- */
+
+    /*
+     * The helpers below operate on the bits [from, to) of the words
+     * starting at w[off], in the manner of BitSet's range methods.
+     * They require from < to.
+     */
+
+    static void setWords(long[] w, int off, int from, int to) {
+        int sw = off + (from >>> 6), ew = off + ((to - 1) >>> 6);
+        long firstMask = -1L << from, lastMask = -1L >>> -to;
+        if (sw == ew)
+            w[sw] |= (firstMask & lastMask);
+        else {
+            w[sw] |= firstMask;
+            for (int i = sw + 1; i < ew; i++)
+                w[i] = -1L;
+            w[ew] |= lastMask;
+        }
+    }
+
+    static void clearWords(long[] w, int from, int to) {
+        int sw = from >>> 6, ew = (to - 1) >>> 6;
+        long firstMask = -1L << from, lastMask = -1L >>> -to;
+        if (sw == ew)
+            w[sw] &= ~(firstMask & lastMask);
+        else {
+            w[sw] &= ~firstMask;
+            for (int i = sw + 1; i < ew; i++)
+                w[i] = 0L;
+            w[ew] &= ~lastMask;
+        }
+    }
+
+    static void flipWords(long[] w, int from, int to) {
+        int sw = from >>> 6, ew = (to - 1) >>> 6;
+        long firstMask = -1L << from, lastMask = -1L >>> -to;
+        if (sw == ew)
+            w[sw] ^= (firstMask & lastMask);
+        else {
+            w[sw] ^= firstMask;
+            for (int i = sw + 1; i < ew; i++)
+                w[i] ^= -1L;
+            w[ew] ^= lastMask;
+        }
+    }
+
+    /**
+     * Returns the number of bits set in w[from..to] (inclusive).
+     */
+    static int countWords(long[] w, int from, int to) {
+        int c = 0;
+        for (int i = from; i <= to; i++)
+            c += Long.bitCount(w[i]);
+        return c;
+    }
+
+    /* ---------------- Containers -------------- */
+
+    /**
+     * The set bits of one chunk, as offsets in [0, CHUNK_SIZE).
+     */
+    abstract static class Container {
+        /** Returns the number of set bits; zero only transiently. */
+        abstract int cardinality();
+        abstract boolean contains(int x);
+        abstract Container add(int x);
+        abstract Container remove(int x);
+        abstract Container addRange(int from, int to);
+        abstract Container removeRange(int from, int to);
+        abstract Container flipRange(int from, int to);
+        /** Returns the next set bit at or after from, or -1. */
+        abstract int nextSetBit(int from);
+        /** Returns the next clear bit at or after from, or CHUNK_SIZE. */
+        abstract int nextClearBit(int from);
+        /** Returns the previous set bit at or before from, or -1. */
+        abstract int previousSetBit(int from);
+        /** Returns the previous clear bit at or before from, or -1. */
+        abstract int previousClearBit(int from);
+        abstract int first();
+        abstract int last();
+        abstract Container and(Container o);
+        abstract Container or(Container o);
+        abstract Container xor(Container o);
+        abstract Container andNot(Container o);
+        abstract boolean intersects(Container o);
+        /** ORs this chunk into the 1024 words (or fewer) at dst[off]. */
+        abstract void orInto(long[] dst, int off);
+        /** Returns a copy that does not share mutable state. */
+        abstract Container copy();
+        /** Returns the smaller of this and a run-length form. */
+        abstract Container runOptimize();
+        abstract BitmapContainer toBitmap();
+        abstract void writeTo(ObjectOutputStream s) throws IOException;
+
+        /**
+         * Returns the contribution of this chunk, whose first word
+         * has index base, to the BitSet-compatible hash code.
+         */
+        long hashWords(long base) {
+            long h = 0;
+            long[] words = toBitmap().words;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long w = words[i];
+                if (w != 0)
+                    h ^= w * (base + i + 1);
+            }
+            return h;
+        }
+
+        /**
+         * Returns whether o has the same bits set as this.
+         */
+        boolean sameBits(Container o) {
+            if (cardinality() != o.cardinality())
+                return false;
+            for (int x = nextSetBit(0); x >= 0;
+                 x = (x == CHUNK_SIZE - 1) ? -1 : nextSetBit(x + 1)) {
+                if (!o.contains(x))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A chunk of at most ARRAY_MAX_SIZE set bits, as sorted offsets.
+     */
+    static final class ArrayContainer extends Container {
+        char[] values;
+        int size;
+
+        ArrayContainer() {
+            values = new char[4];
+        }
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        int cardinality() {
+            return size;
+        }
+
+        /**
+         * Returns the index of the first value at least x.
+         */
+        int lowerIndex(int x) {
+            if (x >= CHUNK_SIZE)
+                return size;
+            int i = Arrays.binarySearch(values, 0, size, (char) x);
+            return (i >= 0) ? i : -i - 1;
+        }
+
+        boolean contains(int x) {
+            int n = size;
+            if (n == 0 || values[n - 1] < x)
+                return false;
+            return Arrays.binarySearch(values, 0, n, (char) x) >= 0;
+        }
+
+        Container add(int x) {
+            int n = size, i;
+            if (n == 0 || values[n - 1] < x)
+                i = n;
+            else if ((i = Arrays.binarySearch(values, 0, n, (char) x)) >= 0)
+                return this;
+            else
+                i = -i - 1;
+            if (n == ARRAY_MAX_SIZE)
+                return toBitmap().add(x);
+            if (n == values.length)
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, n << 1));
+            System.arraycopy(values, i, values, i + 1, n - i);
+            values[i] = (char) x;
+            size = n + 1;
+            return this;
+        }
+
+        Container remove(int x) {
+            int i = Arrays.binarySearch(values, 0, size, (char) x);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, size - i - 1);
+                --size;
+            }
+            return this;
+        }
+
+        Container addRange(int from, int to) {
+            int lo = lowerIndex(from), hi = lowerIndex(to);
+            int n = size - (hi - lo) + (to - from);
+            if (n > ARRAY_MAX_SIZE)
+                return toBitmap().addRange(from, to);
+            char[] vs = (n <= values.length) ? values : new char[n];
+            System.arraycopy(values, hi, vs, lo + (to - from), size - hi);
+            if (vs != values)
+                System.arraycopy(values, 0, vs, 0, lo);
+            for (int v = from, i = lo; v < to; v++, i++)
+                vs[i] = (char) v;
+            values = vs;
+            size = n;
+            return this;
+        }
+
+        Container removeRange(int from, int to) {
+            int lo = lowerIndex(from), hi = lowerIndex(to);
+            System.arraycopy(values, hi, values, lo, size - hi);
+            size -= hi - lo;
+            return this;
+        }
+
+        Container flipRange(int from, int to) {
+            int lo = lowerIndex(from), hi = lowerIndex(to);
+            int inRange = hi - lo;
+            int n = size - inRange + (to - from - inRange);
+            if (n > ARRAY_MAX_SIZE)
+                return toBitmap().flipRange(from, to);
+            char[] vs = new char[Math.max(n, 4)];
+            System.arraycopy(values, 0, vs, 0, lo);
+            int k = lo;
+            for (int v = from, i = lo; v < to; v++) {
+                if (i < hi && values[i] == v)
+                    i++;
+                else
+                    vs[k++] = (char) v;
+            }
+            System.arraycopy(values, hi, vs, k, size - hi);
+            values = vs;
+            size = n;
+            return this;
+        }
+
+        int nextSetBit(int from) {
+            int i = lowerIndex(from);
+            return (i < size) ? values[i] : -1;
+        }
+
+        int nextClearBit(int from) {
+            int i = lowerIndex(from), v = from;
+            while (i < size && values[i] == v) {
+                i++;
+                v++;
+            }
+            return v;
+        }
+
+        int previousSetBit(int from) {
+            int i = lowerIndex(from + 1) - 1;
+            return (i >= 0) ? values[i] : -1;
+        }
+
+        int previousClearBit(int from) {
+            int i = lowerIndex(from + 1) - 1, v = from;
+            while (i >= 0 && values[i] == v) {
+                i--;
+                v--;
+            }
+            return v;
+        }
+
+        int first() {
+            return values[0];
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+
+        /**
+         * Keeps, in place, the values that o contains if keep is true,
+         * or those it does not contain if keep is false.
+         */
+        ArrayContainer filter(Container o, boolean keep) {
+            char[] vs = values;
+            int k = 0;
+            for (int i = 0, n = size; i < n; i++) {
+                char v = vs[i];
+                if (o.contains(v) == keep)
+                    vs[k++] = v;
+            }
+            size = k;
+            return this;
+        }
+
+        Container and(Container o) {
+            if (!(o instanceof ArrayContainer))
+                return filter(o, true);
+            ArrayContainer a = (ArrayContainer) o;
+            char[] vs = values, os = a.values;
+            int i = 0, j = 0, k = 0, n1 = size, n2 = a.size;
+            while (i < n1 && j < n2) {
+                char v = vs[i], w = os[j];
+                if (v < w)
+                    i++;
+                else if (v > w)
+                    j++;
+                else {
+                    vs[k++] = v;
+                    i++;
+                    j++;
+                }
+            }
+            size = k;
+            return this;
+        }
+
+        Container or(Container o) {
+            if (o instanceof BitmapContainer)
+                return o.copy().or(this);
+            if (o instanceof RunContainer)
+                return o.or(this);
+            ArrayContainer a = (ArrayContainer) o;
+            int n1 = size, n2 = a.size;
+            if (n1 + n2 > ARRAY_MAX_SIZE)
+                return toBitmap().or(a);
+            char[] vs = values, os = a.values;
+            char[] r = new char[Math.max(n1 + n2, 4)];
+            int i = 0, j = 0, k = 0;
+            while (i < n1 && j < n2) {
+                char v = vs[i], w = os[j];
+                if (v < w)
+                    r[k++] = vs[i++];
+                else if (v > w)
+                    r[k++] = os[j++];
+                else {
+                    r[k++] = v;
+                    i++;
+                    j++;
+                }
+            }
+            while (i < n1)
+                r[k++] = vs[i++];
+            while (j < n2)
+                r[k++] = os[j++];
+            values = r;
+            size = k;
+            return this;
+        }
+
+        Container xor(Container o) {
+            if (o instanceof BitmapContainer)
+                return o.copy().xor(this);
+            if (o instanceof RunContainer)
+                return o.xor(this);
+            ArrayContainer a = (ArrayContainer) o;
+            int n1 = size, n2 = a.size;
+            if (n1 + n2 > ARRAY_MAX_SIZE)
+                return toBitmap().xor(a);
+            char[] vs = values, os = a.values;
+            char[] r = new char[Math.max(n1 + n2, 4)];
+            int i = 0, j = 0, k = 0;
+            while (i < n1 && j < n2) {
+                char v = vs[i], w = os[j];
+                if (v < w)
+                    r[k++] = vs[i++];
+                else if (v > w)
+                    r[k++] = os[j++];
+                else {
+                    i++;
+                    j++;
+                }
+            }
+            while (i < n1)
+                r[k++] = vs[i++];
+            while (j < n2)
+                r[k++] = os[j++];
+            values = r;
+            size = k;
+            return this;
+        }
+
+        Container andNot(Container o) {
+            if (!(o instanceof ArrayContainer))
+                return filter(o, false);
+            ArrayContainer a = (ArrayContainer) o;
+            char[] vs = values, os = a.values;
+            int i = 0, j = 0, k = 0, n1 = size, n2 = a.size;
+            while (i < n1) {
+                char v = vs[i];
+                while (j < n2 && os[j] < v)
+                    j++;
+                if (j == n2 || os[j] != v)
+                    vs[k++] = v;
+                i++;
+            }
+            size = k;
+            return this;
+        }
+
+        boolean intersects(Container o) {
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                char[] vs = values, os = a.values;
+                int i = 0, j = 0, n1 = size, n2 = a.size;
+                while (i < n1 && j < n2) {
+                    char v = vs[i], w = os[j];
+                    if (v < w)
+                        i++;
+                    else if (v > w)
+                        j++;
+                    else
+                        return true;
+                }
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (o.contains(values[i]))
+                    return true;
+            }
+            return false;
+        }
+
+        void orInto(long[] dst, int off) {
+            for (int i = 0; i < size; i++) {
+                int v = values[i];
+                dst[off + (v >>> 6)] |= 1L << v;
+            }
+        }
+
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(size, 4)),
+                                      size);
+        }
+
+        Container runOptimize() {
+            int n = size;
+            if (n == 0)
+                return this;
+            int runs = 1;
+            for (int i = 1; i < n; i++) {
+                if (values[i] != values[i - 1] + 1)
+                    runs++;
+            }
+            if (runs * 4 >= n * 2)
+                return this;
+            RunBuilder b = new RunBuilder(runs);
+            for (int i = 0; i < n; i++)
+                b.add(values[i], values[i]);
+            return b.build();
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer b = new BitmapContainer();
+            orInto(b.words, 0);
+            b.cardinality = size;
+            return b;
+        }
+
+        long hashWords(long base) {
+            long h = 0, w = 0;
+            int wi = -1;
+            for (int i = 0; i < size; i++) {
+                int v = values[i];
+                if ((v >>> 6) != wi) {
+                    if (w != 0)
+                        h ^= w * (base + wi + 1);
+                    wi = v >>> 6;
+                    w = 0;
+                }
+                w |= 1L << v;
+            }
+            if (w != 0)
+                h ^= w * (base + wi + 1);
+            return h;
+        }
+
+        boolean sameBits(Container o) {
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                if (size != a.size)
+                    return false;
+                for (int i = 0; i < size; i++) {
+                    if (values[i] != a.values[i])
+                        return false;
+                }
+                return true;
+            }
+            return super.sameBits(o);
+        }
+
+        void writeTo(ObjectOutputStream s) throws IOException {
+            s.writeByte(ARRAY);
+            s.writeInt(size);
+            for (int i = 0; i < size; i++)
+                s.writeChar(values[i]);
+        }
+
+        static ArrayContainer readFrom(ObjectInputStream s) throws IOException {
+            int n = s.readInt();
+            if (n <= 0 || n > ARRAY_MAX_SIZE)
+                throw new InvalidObjectException("Illegal array chunk size: " + n);
+            char[] vs = new char[Math.max(n, 4)];
+            for (int i = 0; i < n; i++) {
+                vs[i] = s.readChar();
+                if (i > 0 && vs[i] <= vs[i - 1])
+                    throw new InvalidObjectException("Unsorted array chunk");
+            }
+            return new ArrayContainer(vs, n);
+        }
+    }
+
+    /**
+     * A chunk of more than ARRAY_MAX_SIZE set bits, as a bitmap.
+     */
+    static final class BitmapContainer extends Container {
+        final long[] words;
+        int cardinality;
+
+        BitmapContainer() {
+            words = new long[BITMAP_WORDS];
+        }
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        int cardinality() {
+            return cardinality;
+        }
+
+        /**
+         * Returns the form this chunk should take after an update:
+         * full chunks become runs and small ones arrays.
+         */
+        Container repair() {
+            if (cardinality == CHUNK_SIZE)
+                return RunContainer.FULL;
+            if (cardinality <= ARRAY_MAX_SIZE)
+                return toArray();
+            return this;
+        }
+
+        /** Recomputes the cardinality, then repairs. */
+        Container recount() {
+            cardinality = countWords(words, 0, BITMAP_WORDS - 1);
+            return repair();
+        }
+
+        ArrayContainer toArray() {
+            char[] vs = new char[Math.max(cardinality, 4)];
+            int k = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long w = words[i];
+                while (w != 0) {
+                    vs[k++] = (char) ((i << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            return new ArrayContainer(vs, k);
+        }
+
+        boolean contains(int x) {
+            return (words[x >>> 6] & (1L << x)) != 0;
+        }
+
+        Container add(int x) {
+            long w = words[x >>> 6], bit = 1L << x;
+            if ((w & bit) == 0) {
+                words[x >>> 6] = w | bit;
+                if (++cardinality == CHUNK_SIZE)
+                    return RunContainer.FULL;
+            }
+            return this;
+        }
+
+        Container remove(int x) {
+            long w = words[x >>> 6], bit = 1L << x;
+            if ((w & bit) != 0) {
+                words[x >>> 6] = w & ~bit;
+                if (--cardinality <= ARRAY_MAX_SIZE)
+                    return toArray();
+            }
+            return this;
+        }
+
+        Container addRange(int from, int to) {
+            int sw = from >>> 6, ew = (to - 1) >>> 6;
+            int before = countWords(words, sw, ew);
+            setWords(words, 0, from, to);
+            cardinality += countWords(words, sw, ew) - before;
+            return repair();
+        }
+
+        Container removeRange(int from, int to) {
+            int sw = from >>> 6, ew = (to - 1) >>> 6;
+            int before = countWords(words, sw, ew);
+            clearWords(words, from, to);
+            cardinality += countWords(words, sw, ew) - before;
+            return repair();
+        }
+
+        Container flipRange(int from, int to) {
+            int sw = from >>> 6, ew = (to - 1) >>> 6;
+            int before = countWords(words, sw, ew);
+            flipWords(words, from, to);
+            cardinality += countWords(words, sw, ew) - before;
+            return repair();
+        }
+
+        int nextSetBit(int from) {
+            int u = from >>> 6;
+            long w = words[u] & (-1L << from);
+            for (;;) {
+                if (w != 0)
+                    return (u << 6) + Long.numberOfTrailingZeros(w);
+                if (++u == BITMAP_WORDS)
+                    return -1;
+                w = words[u];
+            }
+        }
+
+        int nextClearBit(int from) {
+            int u = from >>> 6;
+            long w = ~words[u] & (-1L << from);
+            for (;;) {
+                if (w != 0)
+                    return (u << 6) + Long.numberOfTrailingZeros(w);
+                if (++u == BITMAP_WORDS)
+                    return CHUNK_SIZE;
+                w = ~words[u];
+            }
+        }
+
+        int previousSetBit(int from) {
+            int u = from >>> 6;
+            long w = words[u] & (-1L >>> -(from + 1));
+            for (;;) {
+                if (w != 0)
+                    return (u + 1) * 64 - 1 - Long.numberOfLeadingZeros(w);
+                if (u-- == 0)
+                    return -1;
+                w = words[u];
+            }
+        }
+
+        int previousClearBit(int from) {
+            int u = from >>> 6;
+            long w = ~words[u] & (-1L >>> -(from + 1));
+            for (;;) {
+                if (w != 0)
+                    return (u + 1) * 64 - 1 - Long.numberOfLeadingZeros(w);
+                if (u-- == 0)
+                    return -1;
+                w = ~words[u];
+            }
+        }
+
+        int first() {
+            return nextSetBit(0);
+        }
+
+        int last() {
+            return previousSetBit(CHUNK_SIZE - 1);
+        }
+
+        Container and(Container o) {
+            if (o instanceof ArrayContainer)
+                return ((ArrayContainer) o.copy()).filter(this, true);
+            long[] ws = words;
+            if (o instanceof BitmapContainer) {
+                long[] os = ((BitmapContainer) o).words;
+                int c = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++)
+                    c += Long.bitCount(ws[i] &= os[i]);
+                cardinality = c;
+                return repair();
+            }
+            else {
+                // clear the gaps between runs
+                RunContainer r = (RunContainer) o;
+                int prev = 0;
+                for (int i = 0; i < r.nruns; i++) {
+                    int s = r.start(i);
+                    if (s > prev)
+                        clearWords(ws, prev, s);
+                    prev = r.end(i) + 1;
+                }
+                if (prev < CHUNK_SIZE)
+                    clearWords(ws, prev, CHUNK_SIZE);
+            }
+            return recount();
+        }
+
+        Container or(Container o) {
+            long[] ws = words;
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                int c = cardinality;
+                for (int i = 0; i < a.size; i++) {
+                    int v = a.values[i];
+                    long w = ws[v >>> 6], bit = 1L << v;
+                    if ((w & bit) == 0) {
+                        ws[v >>> 6] = w | bit;
+                        c++;
+                    }
+                }
+                cardinality = c;
+                return repair();
+            }
+            if (o instanceof BitmapContainer) {
+                long[] os = ((BitmapContainer) o).words;
+                int c = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++)
+                    c += Long.bitCount(ws[i] |= os[i]);
+                cardinality = c;
+                return repair();
+            }
+            o.orInto(ws, 0);
+            return recount();
+        }
+
+        Container xor(Container o) {
+            long[] ws = words;
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                int c = cardinality;
+                for (int i = 0; i < a.size; i++) {
+                    int v = a.values[i];
+                    long bit = 1L << v;
+                    c += ((ws[v >>> 6] ^= bit) & bit) != 0 ? 1 : -1;
+                }
+                cardinality = c;
+                return repair();
+            }
+            if (o instanceof BitmapContainer) {
+                long[] os = ((BitmapContainer) o).words;
+                int c = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++)
+                    c += Long.bitCount(ws[i] ^= os[i]);
+                cardinality = c;
+                return repair();
+            }
+            else {
+                RunContainer r = (RunContainer) o;
+                for (int i = 0; i < r.nruns; i++)
+                    flipWords(ws, r.start(i), r.end(i) + 1);
+            }
+            return recount();
+        }
+
+        Container andNot(Container o) {
+            long[] ws = words;
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                int c = cardinality;
+                for (int i = 0; i < a.size; i++) {
+                    int v = a.values[i];
+                    long w = ws[v >>> 6], bit = 1L << v;
+                    if ((w & bit) != 0) {
+                        ws[v >>> 6] = w & ~bit;
+                        c--;
+                    }
+                }
+                cardinality = c;
+                return repair();
+            }
+            if (o instanceof BitmapContainer) {
+                long[] os = ((BitmapContainer) o).words;
+                int c = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++)
+                    c += Long.bitCount(ws[i] &= ~os[i]);
+                cardinality = c;
+                return repair();
+            }
+            else {
+                RunContainer r = (RunContainer) o;
+                for (int i = 0; i < r.nruns; i++)
+                    clearWords(ws, r.start(i), r.end(i) + 1);
+            }
+            return recount();
+        }
+
+        boolean intersects(Container o) {
+            if (o instanceof BitmapContainer) {
+                long[] ws = words, os = ((BitmapContainer) o).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    if ((ws[i] & os[i]) != 0)
+                        return true;
+                }
+                return false;
+            }
+            if (o instanceof ArrayContainer)
+                return o.intersects(this);
+            RunContainer r = (RunContainer) o;
+            for (int i = 0; i < r.nruns; i++) {
+                int x = nextSetBit(r.start(i));
+                if (x < 0)
+                    return false;
+                if (x <= r.end(i))
+                    return true;
+            }
+            return false;
+        }
+
+        void orInto(long[] dst, int off) {
+            long[] ws = words;
+            for (int i = 0, n = Math.min(BITMAP_WORDS, dst.length - off); i < n; i++)
+                dst[off + i] |= ws[i];
+        }
+
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        Container runOptimize() {
+            long[] ws = words;
+            int runs = 0;
+            long carry = 0;     // the previous word's top bit
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long w = ws[i];
+                runs += Long.bitCount(w & ~((w << 1) | carry));
+                carry = w >>> 63;
+            }
+            // runs take 4 bytes each, the bitmap 8192
+            if (runs * 4 >= BITMAP_WORDS * 8)
+                return this;
+            RunBuilder b = new RunBuilder(runs);
+            for (int x = nextSetBit(0); x >= 0; ) {
+                int y = nextClearBit(x);
+                b.add(x, y - 1);
+                x = (y == CHUNK_SIZE) ? -1 : nextSetBit(y);
+            }
+            return b.build();
+        }
+
+        BitmapContainer toBitmap() {
+            return this;
+        }
+
+        long hashWords(long base) {
+            long h = 0;
+            long[] ws = words;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long w = ws[i];
+                if (w != 0)
+                    h ^= w * (base + i + 1);
+            }
+            return h;
+        }
+
+        boolean sameBits(Container o) {
+            if (o instanceof BitmapContainer)
+                return Arrays.equals(words, ((BitmapContainer) o).words);
+            return super.sameBits(o);
+        }
+
+        void writeTo(ObjectOutputStream s) throws IOException {
+            s.writeByte(BITMAP);
+            for (int i = 0; i < BITMAP_WORDS; i++)
+                s.writeLong(words[i]);
+        }
+
+        static BitmapContainer readFrom(ObjectInputStream s) throws IOException {
+            long[] ws = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++)
+                ws[i] = s.readLong();
+            int card = countWords(ws, 0, BITMAP_WORDS - 1);
+            if (card <= ARRAY_MAX_SIZE)
+                throw new InvalidObjectException("Illegal bitmap chunk size: " + card);
+            return new BitmapContainer(ws, card);
+        }
+    }
+
+    /**
+     * A chunk held as runs of consecutive set bits: run i starts at
+     * runs[2*i] and has length runs[2*i+1] + 1.  Runs are sorted and
+     * separated by at least one clear bit.  Immutable.
+     */
+    static final class RunContainer extends Container {
+        /** The chunk with every bit set. */
+        static final RunContainer FULL =
+            new RunContainer(new char[] { 0, (char) (CHUNK_SIZE - 1) }, 1);
+
+        final char[] runs;
+        final int nruns;
+        final int cardinality;
+
+        RunContainer(char[] runs, int nruns) {
+            this.runs = runs;
+            this.nruns = nruns;
+            int c = 0;
+            for (int i = 0; i < nruns; i++)
+                c += runs[2 * i + 1] + 1;
+            this.cardinality = c;
+        }
+
+        /** Returns the container holding just [from, to). */
+        static RunContainer range(int from, int to) {
+            if (from == 0 && to == CHUNK_SIZE)
+                return FULL;
+            return new RunContainer(new char[] { (char) from, (char) (to - from - 1) }, 1);
+        }
+
+        int start(int i) {
+            return runs[2 * i];
+        }
+
+        /** Returns the last bit of run i. */
+        int end(int i) {
+            return runs[2 * i] + runs[2 * i + 1];
+        }
+
+        int cardinality() {
+            return cardinality;
+        }
+
+        /**
+         * Returns the index of the last run starting at or before x,
+         * or -1.
+         */
+        int find(int x) {
+            int lo = 0, hi = nruns - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (runs[2 * mid] <= x)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+            return hi;
+        }
+
+        boolean contains(int x) {
+            int i = find(x);
+            return i >= 0 && x <= end(i);
+        }
+
+        Container add(int x) {
+            return contains(x) ? this : addRange(x, x + 1);
+        }
+
+        Container remove(int x) {
+            return contains(x) ? removeRange(x, x + 1) : this;
+        }
+
+        Container addRange(int from, int to) {
+            RunBuilder b = new RunBuilder(nruns + 1);
+            int i = 0;
+            for (; i < nruns && start(i) < from; i++)
+                b.add(start(i), end(i));
+            b.add(from, to - 1);
+            for (; i < nruns; i++)
+                b.add(start(i), end(i));
+            return b.build();
+        }
+
+        Container removeRange(int from, int to) {
+            RunBuilder b = new RunBuilder(nruns + 1);
+            for (int i = 0; i < nruns; i++) {
+                int s = start(i), e = end(i);
+                if (s < from)
+                    b.add(s, Math.min(e, from - 1));
+                if (e >= to)
+                    b.add(Math.max(s, to), e);
+            }
+            return b.build();
+        }
+
+        Container flipRange(int from, int to) {
+            RunBuilder b = new RunBuilder(nruns + 2);
+            int i = 0;
+            for (; i < nruns && end(i) < from; i++)
+                b.add(start(i), end(i));
+            int pos = from;     // the first bit of the range not yet flipped
+            for (; i < nruns && start(i) < to; i++) {
+                int s = start(i), e = end(i);
+                if (s < from)
+                    b.add(s, from - 1);
+                if (Math.max(s, from) > pos)
+                    b.add(pos, Math.max(s, from) - 1);
+                pos = Math.min(e, to - 1) + 1;
+                if (e >= to)
+                    b.add(to, e);
+            }
+            if (pos < to)
+                b.add(pos, to - 1);
+            for (; i < nruns; i++)
+                b.add(start(i), end(i));
+            return b.build();
+        }
+
+        int nextSetBit(int from) {
+            int i = find(from);
+            if (i >= 0 && from <= end(i))
+                return from;
+            return (++i < nruns) ? start(i) : -1;
+        }
+
+        int nextClearBit(int from) {
+            int i = find(from);
+            return (i >= 0 && from <= end(i)) ? end(i) + 1 : from;
+        }
+
+        int previousSetBit(int from) {
+            int i = find(from);
+            return (i < 0) ? -1 : Math.min(from, end(i));
+        }
+
+        int previousClearBit(int from) {
+            int i = find(from);
+            return (i >= 0 && from <= end(i)) ? start(i) - 1 : from;
+        }
+
+        int first() {
+            return start(0);
+        }
+
+        int last() {
+            return end(nruns - 1);
+        }
+
+        Container and(Container o) {
+            if (o instanceof ArrayContainer)
+                return ((ArrayContainer) o.copy()).filter(this, true);
+            if (o instanceof BitmapContainer)
+                return o.copy().and(this);
+            RunContainer r = (RunContainer) o;
+            RunBuilder b = new RunBuilder(nruns + r.nruns);
+            for (int i = 0, j = 0; i < nruns && j < r.nruns; ) {
+                int s = Math.max(start(i), r.start(j));
+                int e1 = end(i), e2 = r.end(j);
+                int e = Math.min(e1, e2);
+                if (s <= e)
+                    b.add(s, e);
+                if (e1 < e2)
+                    i++;
+                else
+                    j++;
+            }
+            return b.build();
+        }
+
+        Container or(Container o) {
+            if (o instanceof BitmapContainer)
+                return o.copy().or(this);
+            if (this == FULL)
+                return this;
+            RunBuilder b;
+            int i = 0;
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                b = new RunBuilder(nruns + a.size);
+                for (int j = 0; j < a.size; j++) {
+                    int v = a.values[j];
+                    for (; i < nruns && start(i) <= v; i++)
+                        b.add(start(i), end(i));
+                    b.add(v, v);
+                }
+            }
+            else {
+                RunContainer r = (RunContainer) o;
+                b = new RunBuilder(nruns + r.nruns);
+                for (int j = 0; j < r.nruns; j++) {
+                    int v = r.start(j);
+                    for (; i < nruns && start(i) <= v; i++)
+                        b.add(start(i), end(i));
+                    b.add(v, r.end(j));
+                }
+            }
+            for (; i < nruns; i++)
+                b.add(start(i), end(i));
+            return b.build();
+        }
+
+        Container xor(Container o) {
+            return toBitmap().xor(o);
+        }
+
+        Container andNot(Container o) {
+            if (!(o instanceof RunContainer))
+                return toBitmap().andNot(o);
+            RunContainer r = (RunContainer) o;
+            RunBuilder b = new RunBuilder(nruns + r.nruns);
+            int j = 0;
+            for (int i = 0; i < nruns; i++) {
+                int s = start(i), e = end(i);
+                while (j < r.nruns && r.end(j) < s)
+                    j++;
+                int cur = s;
+                for (int k = j; k < r.nruns && r.start(k) <= e; k++) {
+                    if (r.start(k) > cur)
+                        b.add(cur, r.start(k) - 1);
+                    cur = Math.max(cur, r.end(k) + 1);
+                    if (cur > e)
+                        break;
+                }
+                if (cur <= e)
+                    b.add(cur, e);
+            }
+            return b.build();
+        }
+
+        boolean intersects(Container o) {
+            if (!(o instanceof RunContainer))
+                return o.intersects(this);
+            RunContainer r = (RunContainer) o;
+            for (int i = 0, j = 0; i < nruns && j < r.nruns; ) {
+                int e1 = end(i), e2 = r.end(j);
+                if (Math.max(start(i), r.start(j)) <= Math.min(e1, e2))
+                    return true;
+                if (e1 < e2)
+                    i++;
+                else
+                    j++;
+            }
+            return false;
+        }
+
+        void orInto(long[] dst, int off) {
+            for (int i = 0; i < nruns; i++)
+                setWords(dst, off, start(i), end(i) + 1);
+        }
+
+        Container copy() {
+            return this;
+        }
+
+        Container runOptimize() {
+            return best();
+        }
+
+        /**
+         * Returns this, or an equivalent array or bitmap container if
+         * that is smaller.
+         */
+        Container best() {
+            int card = cardinality;
+            int otherBytes = (card <= ARRAY_MAX_SIZE) ? 2 * card : BITMAP_WORDS * 8;
+            if (4 * nruns < otherBytes)
+                return this;
+            return (card <= ARRAY_MAX_SIZE) ? toArray() : toBitmap();
+        }
+
+        ArrayContainer toArray() {
+            char[] vs = new char[Math.max(cardinality, 4)];
+            int k = 0;
+            for (int i = 0; i < nruns; i++) {
+                for (int v = start(i), e = end(i); v <= e; v++)
+                    vs[k++] = (char) v;
+            }
+            return new ArrayContainer(vs, k);
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer b = new BitmapContainer();
+            orInto(b.words, 0);
+            b.cardinality = cardinality;
+            return b;
+        }
+
+        boolean sameBits(Container o) {
+            if (o instanceof RunContainer) {
+                RunContainer r = (RunContainer) o;
+                if (nruns != r.nruns)
+                    return false;
+                for (int i = 0; i < 2 * nruns; i++) {
+                    if (runs[i] != r.runs[i])
+                        return false;
+                }
+                return true;
+            }
+            return super.sameBits(o);
+        }
+
+        void writeTo(ObjectOutputStream s) throws IOException {
+            s.writeByte(RUN);
+            s.writeInt(nruns);
+            for (int i = 0; i < 2 * nruns; i++)
+                s.writeChar(runs[i]);
+        }
+
+        static RunContainer readFrom(ObjectInputStream s) throws IOException {
+            int n = s.readInt();
+            if (n <= 0 || n > CHUNK_SIZE / 2)
+                throw new InvalidObjectException("Illegal run count: " + n);
+            char[] rs = new char[2 * n];
+            int prevEnd = -2;
+            for (int i = 0; i < n; i++) {
+                int start = rs[2 * i] = s.readChar();
+                int end = start + (rs[2 * i + 1] = s.readChar());
+                if (start <= prevEnd + 1 || end >= CHUNK_SIZE)
+                    throw new InvalidObjectException("Illegal run");
+                prevEnd = end;
+            }
+            return new RunContainer(rs, n);
+        }
+    }
+
+    /**
+     * Accumulates runs in increasing order of their starts, merging
+     * those that overlap or touch.
+     */
+    static final class RunBuilder {
+        char[] runs;
+        int n;
+        int lastEnd = -2;
+
+        RunBuilder(int capacity) {
+            runs = new char[2 * Math.max(capacity, 1)];
+        }
+
+        /** Adds the bits [s, e]; s is no less than any earlier start. */
+        void add(int s, int e) {
+            if (s <= lastEnd + 1) {
+                if (e > lastEnd) {
+                    runs[2 * n - 1] = (char) (e - runs[2 * n - 2]);
+                    lastEnd = e;
+                }
+                return;
+            }
+            if (2 * n == runs.length)
+                runs = Arrays.copyOf(runs, 4 * n);
+            runs[2 * n] = (char) s;
+            runs[2 * n + 1] = (char) (e - s);
+            n++;
+            lastEnd = e;
+        }
+
+        /** Returns the smallest container holding the runs. */
+        Container build() {
+            if (n == 0)
+                return new ArrayContainer();
+            if (n == 1 && runs[0] == 0 && runs[1] == CHUNK_SIZE - 1)
+                return RunContainer.FULL;
+            return new RunContainer(Arrays.copyOf(runs, 2 * n), n).best();
+        }
+    }
+}
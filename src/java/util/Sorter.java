@@ -0,0 +1,84 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+/**
+ * A reusable sorter for arrays and lists of objects that keeps the temp
+ * storage and run stacks of its TimSort instances across sorts. Sorting
+ * with {@link Arrays#sort(Object[], Comparator, Sorter)} or
+ * {@link List#sort(Comparator, Sorter)} orders elements exactly as the
+ * corresponding methods without a {@code Sorter} do, and is just as
+ * stable, but once the temp storage has grown to half the length of
+ * the longest range sorted, further sorts do not allocate.
+ *
+ * <p>The temp storage is cleared after each sort, so a sorter does not
+ * keep sorted elements reachable, but it never shrinks. A sorter that
+ * once sorted a very long range keeps storage for half its length until
+ * the sorter itself becomes unreachable.
+ *
+ * <p>A sorter is not thread-safe. Threads that sort concurrently should
+ * each use their own, for instance one held in a {@link ThreadLocal}.
+ *
+ * @see Arrays#sort(Object[], int, int, Comparator, Sorter)
+ */
+public final class Sorter {
+
+    /** The sort used with a comparator, created on first use. */
+    private TimSort<Object> timSort;
+
+    /** The sort used for natural ordering, created on first use. */
+    private ComparableTimSort comparableTimSort;
+
+    /**
+     * Creates a sorter. No temp storage is allocated until a range
+     * long enough to need merging is sorted.
+     */
+    public Sorter() {
+    }
+
+    /**
+     * Sorts the given range, which has been bounds checked, by the
+     * given comparator or by natural ordering if it is null.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     * @param c the comparator to use, or null for natural ordering
+     */
+    @SuppressWarnings("unchecked")
+    void sort(Object[] a, int lo, int hi, Comparator<?> c) {
+        if (c == null) {
+            ComparableTimSort ts = comparableTimSort;
+            if (ts == null)
+                comparableTimSort = ts = new ComparableTimSort();
+            ts.sortReusing(a, lo, hi);
+        } else {
+            TimSort<Object> ts = timSort;
+            if (ts == null)
+                timSort = ts = new TimSort<>();
+            ts.sortReusing(a, lo, hi, (Comparator<Object>) c);
+        }
+    }
+}
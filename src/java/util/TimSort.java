@@ -56,6 +56,8 @@ package java.util;
  * (privately) instantiable; a TimSort instance holds the state of an ongoing
  * sort, assuming the input array is large enough to warrant the full-blown
  * TimSort. Small arrays are sorted in place, using a binary insertion sort.
+ * A {@link Sorter} keeps an instance across sorts, so that the temp
+ * storage and the run stack are allocated once rather than per sort.
  *
  * @author Josh Bloch
  */
@@ -82,12 +84,12 @@ class TimSort<T> {
     /**
      * The array being sorted.
      */
-    private final T[] a;
+    private T[] a;
 
     /**
      * The comparator for this sort.
      */
-    private final Comparator<? super T> c;
+    private Comparator<? super T> c;
 
     /**
      * When we get into galloping mode, we stay there until both runs win less
@@ -222,12 +224,26 @@ class TimSort<T> {
             return;
         }
 
+        new TimSort<>(a, c, work, workBase, workLen).sortRuns(lo, hi);
+    }
+
+    /**
+     * Sorts a range of at least MIN_MERGE elements of the array being
+     * sorted by this instance.
+     *
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     */
+    private void sortRuns(int lo, int hi) {
+        T[] a = this.a;
+        Comparator<? super T> c = this.c;
+
         /**
          * March over the array once, left to right, finding natural runs,
          * extending short natural runs to minRun elements, and merging runs
          * to maintain stack invariant.
          */
-        TimSort<T> ts = new TimSort<>(a, c, work, workBase, workLen);
+        int nRemaining = hi - lo;
         int minRun = minRunLength(nRemaining);
         do {
             // Identify next run
@@ -241,8 +257,8 @@ class TimSort<T> {
             }
 
             // Push run onto pending-run stack, and maybe merge
-            ts.pushRun(lo, runLen);
-            ts.mergeCollapse();
+            pushRun(lo, runLen);
+            mergeCollapse();
 
             // Advance to find next run
             lo += runLen;
@@ -251,8 +267,56 @@ class TimSort<T> {
 
         // Merge all remaining runs to complete sort
         assert lo == hi;
-        ts.mergeForceCollapse();
-        assert ts.stackSize == 1;
+        mergeForceCollapse();
+        assert stackSize == 1;
+    }
+
+    /**
+     * Creates a TimSort instance for a {@link Sorter}, to be reused for
+     * sorts of any arrays. Its temp storage starts empty and grows on
+     * demand, and its run stack is as long as the largest arrays need.
+     */
+    @SuppressWarnings("unchecked")
+    TimSort() {
+        tmp = (T[]) new Object[0];
+        runBase = new int[49];
+        runLen = new int[49];
+    }
+
+    /**
+     * Sorts the given range using this reusable instance, without
+     * allocating once the temp storage is large enough. The caller
+     * performs any bounds checks, and must not use the instance from
+     * more than one thread at a time.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     * @param c the comparator to use
+     */
+    void sortReusing(T[] a, int lo, int hi, Comparator<? super T> c) {
+        int nRemaining = hi - lo;
+        if (nRemaining < 2)
+            return;
+
+        if (nRemaining < MIN_MERGE) {
+            int initRunLen = countRunAndMakeAscending(a, lo, hi, c);
+            binarySort(a, lo, hi, lo + initRunLen, c);
+            return;
+        }
+
+        this.a = a;
+        this.c = c;
+        minGallop = MIN_GALLOP;
+        stackSize = 0;
+        try {
+            sortRuns(lo, hi);
+        } finally {
+            // Don't keep the sorted elements reachable
+            this.a = null;
+            this.c = null;
+            Arrays.fill(tmp, 0, Math.min(tmpLen, nRemaining >>> 1), null);
+        }
     }
 
     /**
@@ -931,7 +995,7 @@ class TimSort<T> {
 
             @SuppressWarnings({"unchecked", "UnnecessaryLocalVariable"})
             T[] newArray = (T[])java.lang.reflect.Array.newInstance
-                (a.getClass().getComponentType(), newSize);
+                (tmp.getClass().getComponentType(), newSize);
             tmp = newArray;
             tmpLen = newSize;
             tmpBase = 0;
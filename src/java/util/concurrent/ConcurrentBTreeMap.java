@@ -0,0 +1,2061 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A scalable concurrent {@link ConcurrentNavigableMap} implementation
+ * built on a B+tree. The map is sorted according to the {@linkplain
+ * Comparable natural ordering} of its keys, or by a {@link Comparator}
+ * provided at map creation time, depending on which constructor is used.
+ *
+ * <p>Mappings are kept in leaves of up to 64 keys and values stored in
+ * arrays, rather than in one node per mapping plus index nodes as in
+ * {@link ConcurrentSkipListMap}. A lookup binary searches a few nodes,
+ * and an ascending traversal reads consecutive array slots, so this
+ * class uses much less memory than a skip list and takes fewer cache
+ * misses per operation. It provides guaranteed <i>log(n)</i> time cost
+ * for the {@code containsKey}, {@code get}, {@code put} and
+ * {@code remove} operations and their variants.
+ *
+ * <p>Retrievals, including iteration and the navigation methods, never
+ * block and take no locks. Updates lock only the leaf they change, and,
+ * when a node splits, its parent; updates of different leaves proceed in
+ * parallel. Each update replaces the contents of its leaf with a new
+ * version, so readers always see a consistent leaf. Removals do not
+ * merge leaves: a leaf emptied by removals stays in the tree, and is
+ * refilled by later insertions into its key range.
+ *
+ * <p>Iterators are <a href="package-summary.html#Weakly"><i>weakly
+ * consistent</i></a>. Ascending key ordered views and their iterators
+ * are faster than descending ones.
+ *
+ * <p>All {@code Map.Entry} pairs returned by methods in this class
+ * and its views represent snapshots of mappings at the time they were
+ * produced. They do <em>not</em> support the {@code Entry.setValue}
+ * method. (Note however that it is possible to change mappings in the
+ * associated map using {@code put}, {@code putIfAbsent}, or
+ * {@code replace}, depending on exactly which effect you need.)
+ *
+ * <p>The {@code size} method of this map is a constant-time operation,
+ * but may not reflect updates that are in progress. The {@code size}
+ * methods of its sub maps traverse their range. The bulk operations
+ * {@code putAll}, {@code equals}, {@code toArray}, {@code containsValue},
+ * and {@code clear} are <em>not</em> guaranteed to be performed
+ * atomically.
+ *
+ * <p>This class and its views and iterators implement all of the
+ * <em>optional</em> methods of the {@link Map} and {@link Iterator}
+ * interfaces. Like most other concurrent collections, this class does
+ * <em>not</em> permit the use of {@code null} keys or values because some
+ * null return values cannot be reliably distinguished from the absence of
+ * elements.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see ConcurrentSkipListMap
+ * @see java.util.BTreeMap
+ */
+public class ConcurrentBTreeMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentNavigableMap<K,V>, Cloneable, Serializable {
+    /*
+     * This class implements a B-link tree (Lehman and Yao, "Efficient
+     * Locking for Concurrent Operations on B-Trees", 1981). Every node,
+     * leaf or inner, carries a high key, the exclusive upper bound of
+     * the keys it may hold, and a link to its right sibling on the
+     * same level. A split moves the upper half of a node into a new
+     * right sibling and lowers the node's high key before the parent
+     * learns about the new node. A search that arrives at a node whose
+     * high key is not greater than the key sought therefore knows that
+     * the node has split under it, and just follows the right link.
+     * This is what allows searches to proceed without any locking.
+     *
+     * The contents of a node (keys, values or children, high key and
+     * right link) are held in an immutable Data object, published
+     * through a volatile field. Every update builds a new Data from
+     * the old one, so readers see each node either wholly before or
+     * wholly after an update, like optimistic readers of a versioned
+     * node that always validate. Copying a node costs two arrays of
+     * at most 64 slots, which is cheaper than the per-mapping node and
+     * index allocations of a skip list.
+     *
+     * Writers serialize per node, with the node's own lock (Node
+     * extends ReentrantLock). An update descends without locks to the
+     * leaf, locks it, and moves right while holding the lock if the
+     * leaf split in the meantime. A split holds the lock of the split
+     * node while it locks the parent, found by a fresh descent, and
+     * inserts the separator and the new node there, splitting upwards
+     * as needed. Locks are thus always acquired bottom-up and, on one
+     * level, left to right, so writers cannot deadlock. When the root
+     * splits, the new root is installed while the old root is still
+     * locked; the root is always the leftmost node of its level.
+     *
+     * Nodes are never merged or unlinked. This keeps the protocol
+     * simple (deletion in a B-link tree needs either quiescence or
+     * epoch-based reclamation) at the cost of leaves that may run
+     * below half full after heavy removal. Navigation skips empty
+     * leaves; their space is reused when keys in their range return.
+     *
+     * Inner nodes hold in keys[i], for i > 0, the lower bound of the
+     * keys in children[i]; keys[0] is unused. The lower bound of a
+     * node is never stored; the predecessor searches (findLess) track
+     * it while descending, so that a search that finds no smaller key
+     * in its leaf can continue from the leaf's lower bound.
+     *
+     * The map size is kept in a LongAdder, updated under the leaf
+     * lock, so size() does not traverse the map.
+     */
+
+    private static final long serialVersionUID = -5386290212484537815L;
+
+    /**
+     * The maximum number of mappings in a leaf, and of children of an
+     * inner node.
+     */
+    static final int ORDER = 64;
+
+    /**
+     * The comparator used to maintain order in this map, or null if
+     * using natural ordering.  (Non-private to simplify access in
+     * nested classes.)
+     * @serial
+     */
+    final Comparator<? super K> comparator;
+
+    /**
+     * The current tree. Replaced as a whole by clear.
+     */
+    private transient volatile Tree tree;
+
+    /** Lazily initialized key set */
+    private transient KeySet<K> keySet;
+    /** Lazily initialized entry set */
+    private transient EntrySet<K,V> entrySet;
+    /** Lazily initialized values collection */
+    private transient Values<V> values;
+    /** Lazily initialized descending key set */
+    private transient ConcurrentNavigableMap<K,V> descendingMap;
+
+    /**
+     * Initializes or resets state. Needed by constructors, clone,
+     * clear, readObject.
+     */
+    private void initialize() {
+        keySet = null;
+        entrySet = null;
+        values = null;
+        descendingMap = null;
+        tree = new Tree();
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    static final Object[] EMPTY = new Object[0];
+
+    static final Data EMPTY_LEAF = new Data(EMPTY, EMPTY, null, null, null);
+
+    /**
+     * An immutable version of the contents of a node. For leaves,
+     * children is null; for inner nodes, vals is null.
+     */
+    static final class Data {
+        final Object[] keys;
+        final Object[] vals;
+        final Node[] children;
+        final Object high;      // exclusive upper bound, null if none
+        final Node next;        // right sibling, null if rightmost
+        Data(Object[] keys, Object[] vals, Node[] children,
+             Object high, Node next) {
+            this.keys = keys;
+            this.vals = vals;
+            this.children = children;
+            this.high = high;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A node of the tree; level 0 holds the leaves. The lock is held
+     * by writers while they replace data.
+     */
+    static final class Node extends ReentrantLock {
+        private static final long serialVersionUID = 2249069246763182397L;
+        final int level;
+        volatile Data data;
+        Node(int level, Data data) {
+            this.level = level;
+            this.data = data;
+        }
+    }
+
+    /**
+     * The root of a tree and the number of its mappings. Updates
+     * hold on to the Tree they started in, so that an update racing
+     * with clear() completes in the discarded tree, as if it had
+     * happened before the clear, instead of waiting for a level of
+     * the new tree to appear.
+     */
+    static final class Tree {
+        /** The root; always the leftmost node of the top level */
+        volatile Node root = new Node(0, EMPTY_LEAF);
+        final LongAdder count = new LongAdder();
+    }
+
+    /**
+     * A position in a snapshot of a leaf: the mapping at index i of
+     * d.keys and d.vals.
+     */
+    static final class Pos {
+        final Data d;
+        final int i;
+        Pos(Data d, int i) {
+            this.d = d;
+            this.i = i;
+        }
+    }
+
+    /* ---------------- Comparison utilities -------------- */
+
+    /**
+     * Compares using comparator or natural ordering if null.
+     * Called only by methods that have performed required type checks.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static final int cpr(Comparator c, Object x, Object y) {
+        return (c != null) ? c.compare(x, y) : ((Comparable)x).compareTo(y);
+    }
+
+    /**
+     * Returns the index of the key in the leaf keys, or (-(insertion
+     * point) - 1) if it is absent.
+     */
+    static int indexOf(Comparator<?> cmp, Object[] keys, Object key) {
+        int lo = 0, hi = keys.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = cpr(cmp, keys[mid], key);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the largest index i >= 1 of the inner node keys with
+     * keys[i] <= key, or keys[i] < key if strict, or 0 if there is none.
+     */
+    static int childIndex(Comparator<?> cmp, Object[] keys, Object key,
+                          boolean strict) {
+        int lo = 1, hi = keys.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = cpr(cmp, keys[mid], key);
+            if (c < 0 || (c == 0 && !strict))
+                lo = mid + 1;
+            else
+                hi = mid - 1;
+        }
+        return lo - 1;
+    }
+
+    /* ---------------- Traversal -------------- */
+
+    /**
+     * Returns the data of the leaf whose range holds the key.
+     */
+    final Data leafData(Object key) {
+        Comparator<? super K> cmp = comparator;
+        Node x = tree.root;
+        for (;;) {
+            Data d = x.data;
+            if (d.high != null && cpr(cmp, key, d.high) >= 0)
+                x = d.next;
+            else if (d.children == null)
+                return d;
+            else
+                x = d.children[childIndex(cmp, d.keys, key, false)];
+        }
+    }
+
+    /**
+     * Returns the node on the given level whose range holds the key,
+     * or null if the tree does not (yet) have that level.
+     */
+    final Node nodeAt(Tree t, Object key, int level) {
+        Comparator<? super K> cmp = comparator;
+        Node x = t.root;
+        if (x.level < level)
+            return null;
+        for (;;) {
+            Data d = x.data;
+            if (d.high != null && cpr(cmp, key, d.high) >= 0)
+                x = d.next;
+            else if (x.level == level)
+                return x;
+            else
+                x = d.children[childIndex(cmp, d.keys, key, false)];
+        }
+    }
+
+    /**
+     * Returns the position of the least key greater than, or equal to
+     * if inclusive, the given key, or null if there is none.
+     */
+    final Pos findGreater(Object key, boolean inclusive) {
+        Data d = leafData(key);
+        int i = indexOf(comparator, d.keys, key);
+        i = (i < 0) ? -(i + 1) : inclusive ? i : i + 1;
+        while (i >= d.keys.length) {
+            Node n = d.next;
+            if (n == null)
+                return null;
+            d = n.data;
+            i = 0;
+        }
+        return new Pos(d, i);
+    }
+
+    /**
+     * Returns the position of the greatest key less than, or equal to
+     * if inclusive, the given key, or null if there is none. A null
+     * key stands for a key above all others.
+     */
+    final Pos findLess(Object key, boolean inclusive) {
+        Comparator<? super K> cmp = comparator;
+        for (;;) {
+            Object bound = null;    // lower bound of the leaf, if any
+            Node x = tree.root;
+            Data d;
+            for (;;) {
+                d = x.data;
+                int c;
+                if (d.high != null &&
+                    (key == null || (c = cpr(cmp, key, d.high)) > 0 ||
+                     (c == 0 && inclusive))) {
+                    bound = d.high;
+                    x = d.next;
+                }
+                else if (d.children == null)
+                    break;
+                else {
+                    Object[] ks = d.keys;
+                    int ci = (key == null) ? ks.length - 1 :
+                        childIndex(cmp, ks, key, !inclusive);
+                    if (ci > 0)
+                        bound = ks[ci];
+                    x = d.children[ci];
+                }
+            }
+            int i;
+            if (key == null)
+                i = d.keys.length - 1;
+            else if ((i = indexOf(cmp, d.keys, key)) < 0)
+                i = -(i + 1) - 1;
+            else if (!inclusive)
+                --i;
+            if (i >= 0)
+                return new Pos(d, i);
+            if (bound == null)
+                return null;
+            // Nothing smaller in this leaf; continue below its range
+            key = bound;
+            inclusive = false;
+        }
+    }
+
+    /**
+     * Returns the position of the least key, or null if empty.
+     */
+    final Pos findFirst() {
+        Node x = tree.root;
+        Data d;
+        while ((d = x.data).children != null)
+            x = d.children[0];
+        while (d.keys.length == 0) {
+            if ((x = d.next) == null)
+                return null;
+            d = x.data;
+        }
+        return new Pos(d, 0);
+    }
+
+    /**
+     * Returns the position of the greatest key, or null if empty.
+     */
+    final Pos findLast() {
+        return findLess(null, false);
+    }
+
+    /**
+     * Returns the position of the key, or the one nearest to it in
+     * the given direction, as ConcurrentSkipListMap.findNear.
+     */
+    final Pos findNear(Object key, int rel) {
+        if (key == null)
+            throw new NullPointerException();
+        return ((rel & LT) == 0) ? findGreater(key, (rel & EQ) != 0) :
+            findLess(key, (rel & EQ) != 0);
+    }
+
+    /* Relations for findNear */
+    private static final int EQ = 1;
+    private static final int LT = 2;
+    private static final int GT = 0; // Actually checked as !LT
+
+    /* ---------------- Updates -------------- */
+
+    /**
+     * Locks and returns the leaf whose range holds the key.
+     */
+    private Node lockLeaf(Tree t, Object key) {
+        Comparator<? super K> cmp = comparator;
+        Node x = t.root;
+        for (;;) {
+            Data d = x.data;
+            if (d.high != null && cpr(cmp, key, d.high) >= 0)
+                x = d.next;
+            else if (d.children == null)
+                break;
+            else
+                x = d.children[childIndex(cmp, d.keys, key, false)];
+        }
+        x.lock();
+        return lockRight(x, key);
+    }
+
+    /**
+     * Given a locked node, locks and returns the node on its level
+     * whose range holds the key, releasing locks of nodes passed.
+     */
+    private Node lockRight(Node x, Object key) {
+        Comparator<? super K> cmp = comparator;
+        for (;;) {
+            Data d = x.data;
+            if (d.high == null || cpr(cmp, key, d.high) < 0)
+                return x;
+            Node n = d.next;
+            n.lock();
+            x.unlock();
+            x = n;
+        }
+    }
+
+    /**
+     * Main insertion method.  Adds element if not present, or
+     * replaces value if present and onlyIfAbsent is false.
+     *
+     * @param key the key
+     * @param value the value that must be associated with key
+     * @param onlyIfAbsent if should not insert if already present
+     * @return the old value, or null if newly inserted
+     */
+    @SuppressWarnings("unchecked")
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Comparator<? super K> cmp = comparator;
+        cpr(cmp, key, key); // type check
+        Tree t = tree;
+        Node x = lockLeaf(t, key);
+        Data d = x.data;
+        Object[] ks = d.keys, vs = d.vals;
+        int i = indexOf(cmp, ks, key);
+        if (i >= 0) {
+            V oldValue = (V)vs[i];
+            if (!onlyIfAbsent) {
+                vs = vs.clone();
+                vs[i] = value;
+                x.data = new Data(ks, vs, null, d.high, d.next);
+            }
+            x.unlock();
+            return oldValue;
+        }
+        i = -(i + 1);
+        int n = ks.length;
+        Object[] nks = new Object[n + 1], nvs = new Object[n + 1];
+        System.arraycopy(ks, 0, nks, 0, i);
+        System.arraycopy(vs, 0, nvs, 0, i);
+        nks[i] = key;
+        nvs[i] = value;
+        System.arraycopy(ks, i, nks, i + 1, n - i);
+        System.arraycopy(vs, i, nvs, i + 1, n - i);
+        t.count.increment();
+        if (n < ORDER) {
+            x.data = new Data(nks, nvs, null, d.high, d.next);
+            x.unlock();
+            return null;
+        }
+        // Split, keeping the leaf full when appending to the last one
+        int s = (i == n && d.next == null) ? n : (n + 1) >>> 1;
+        Node right = new Node(0, new Data(Arrays.copyOfRange(nks, s, n + 1),
+                                          Arrays.copyOfRange(nvs, s, n + 1),
+                                          null, d.high, d.next));
+        Object sep = nks[s];
+        x.data = new Data(Arrays.copyOf(nks, s), Arrays.copyOf(nvs, s),
+                          null, sep, right);
+        addToParent(t, x, sep, right);
+        return null;
+    }
+
+    /**
+     * Links a node created by splitting the locked node left into the
+     * level above, splitting upwards as needed, and unlocks left.
+     */
+    private void addToParent(Tree t, Node left, Object sep, Node right) {
+        Comparator<? super K> cmp = comparator;
+        for (;;) {
+            int level = left.level;
+            if (t.root == left) {
+                Node[] cs = { left, right };
+                t.root = new Node(level + 1,
+                                  new Data(new Object[] { null, sep }, null,
+                                           cs, null, null));
+                left.unlock();
+                return;
+            }
+            Node p = nodeAt(t, sep, level + 1);
+            if (p == null) {
+                // The root has split but the new root is not installed yet
+                Thread.yield();
+                continue;
+            }
+            p.lock();
+            left.unlock();
+            p = lockRight(p, sep);
+            Data d = p.data;
+            Object[] ks = d.keys;
+            Node[] cs = d.children;
+            int n = ks.length, i = childIndex(cmp, ks, sep, false) + 1;
+            Object[] nks = new Object[n + 1];
+            Node[] ncs = new Node[n + 1];
+            System.arraycopy(ks, 0, nks, 0, i);
+            System.arraycopy(cs, 0, ncs, 0, i);
+            nks[i] = sep;
+            ncs[i] = right;
+            System.arraycopy(ks, i, nks, i + 1, n - i);
+            System.arraycopy(cs, i, ncs, i + 1, n - i);
+            if (n < ORDER) {
+                p.data = new Data(nks, null, ncs, d.high, d.next);
+                p.unlock();
+                return;
+            }
+            int s = (n + 1) >>> 1;
+            Object[] rks = Arrays.copyOfRange(nks, s, n + 1);
+            sep = rks[0];
+            rks[0] = null;
+            right = new Node(level + 1,
+                             new Data(rks, null,
+                                      Arrays.copyOfRange(ncs, s, n + 1),
+                                      d.high, d.next));
+            p.data = new Data(Arrays.copyOf(nks, s), null,
+                              Arrays.copyOf(ncs, s), sep, right);
+            left = p;
+        }
+    }
+
+    /**
+     * Main deletion method. Removes the mapping for the key if it is
+     * present and, if value is non-null, mapped to an equal value.
+     *
+     * @param key the key
+     * @param value if non-null, the value that must be
+     * associated with key
+     * @return the previous value, or null if not removed
+     */
+    @SuppressWarnings("unchecked")
+    final V doRemove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        Tree t = tree;
+        Node x = lockLeaf(t, key);
+        try {
+            Data d = x.data;
+            Object[] ks = d.keys, vs = d.vals;
+            int i = indexOf(comparator, ks, key);
+            if (i < 0 || (value != null && !value.equals(vs[i])))
+                return null;
+            int n = ks.length - 1;
+            Object[] nks = EMPTY, nvs = EMPTY;
+            if (n > 0) {
+                nks = new Object[n];
+                nvs = new Object[n];
+                System.arraycopy(ks, 0, nks, 0, i);
+                System.arraycopy(vs, 0, nvs, 0, i);
+                System.arraycopy(ks, i + 1, nks, i, n - i);
+                System.arraycopy(vs, i + 1, nvs, i, n - i);
+            }
+            x.data = new Data(nks, nvs, null, d.high, d.next);
+            t.count.decrement();
+            return (V)vs[i];
+        } finally {
+            x.unlock();
+        }
+    }
+
+    /**
+     * Replaces the value of the key if it is present and, if oldValue
+     * is non-null, mapped to an equal value.
+     *
+     * @return the previous value, or null if not replaced
+     */
+    @SuppressWarnings("unchecked")
+    private V doReplace(Object key, Object oldValue, V newValue) {
+        if (key == null || newValue == null)
+            throw new NullPointerException();
+        Tree t = tree;
+        Node x = lockLeaf(t, key);
+        try {
+            Data d = x.data;
+            Object[] vs = d.vals;
+            int i = indexOf(comparator, d.keys, key);
+            if (i < 0 || (oldValue != null && !oldValue.equals(vs[i])))
+                return null;
+            V v = (V)vs[i];
+            vs = vs.clone();
+            vs[i] = newValue;
+            x.data = new Data(d.keys, vs, null, d.high, d.next);
+            return v;
+        } finally {
+            x.unlock();
+        }
+    }
+
+    /* ---------------- Constructors -------------- */
+
+    /**
+     * Constructs a new, empty map, sorted according to the
+     * {@linkplain Comparable natural ordering} of the keys.
+     */
+    public ConcurrentBTreeMap() {
+        this.comparator = null;
+        initialize();
+    }
+
+    /**
+     * Constructs a new, empty map, sorted according to the specified
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public ConcurrentBTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        initialize();
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given map,
+     * sorted according to the {@linkplain Comparable natural ordering} of
+     * the keys.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in {@code m} are not
+     *         {@link Comparable}, or are not mutually comparable
+     * @throws NullPointerException if the specified map or any of its keys
+     *         or values are null
+     */
+    public ConcurrentBTreeMap(Map<? extends K, ? extends V> m) {
+        this.comparator = null;
+        initialize();
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the
+     * same ordering as the specified sorted map.
+     *
+     * @param m the sorted map whose mappings are to be placed in this
+     *        map, and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified sorted map or any of
+     *         its keys or values are null
+     */
+    public ConcurrentBTreeMap(SortedMap<K, ? extends V> m) {
+        this.comparator = m.comparator();
+        initialize();
+        putAll(m);
+    }
+
+    /**
+     * Returns a shallow copy of this {@code ConcurrentBTreeMap}
+     * instance. (The keys and values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public ConcurrentBTreeMap<K,V> clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            ConcurrentBTreeMap<K,V> clone =
+                (ConcurrentBTreeMap<K,V>) super.clone();
+            clone.initialize();
+            clone.putAll(this);
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The key (Object) and value (Object) for each
+     * key-value mapping represented by the map, followed by
+     * {@code null}. The key-value mappings are emitted in key-order
+     * (as determined by the Comparator, or by the keys' natural
+     * ordering if no Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the Comparator and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out keys and values (alternating)
+        for (Pos p = findFirst(); p != null; ) {
+            Data d = p.d;
+            for (int i = p.i; i < d.keys.length; ++i) {
+                s.writeObject(d.keys[i]);
+                s.writeObject(d.vals[i]);
+            }
+            p = nextLeaf(d);
+        }
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in the Comparator and any hidden stuff
+        s.defaultReadObject();
+        // Reset transients
+        initialize();
+        for (;;) {
+            Object k = s.readObject();
+            if (k == null)
+                break;
+            Object v = s.readObject();
+            if (v == null)
+                throw new NullPointerException();
+            doPut((K)k, (V)v, false);
+        }
+    }
+
+    /**
+     * Returns the position of the first mapping of the first
+     * non-empty leaf after the one with the given data, or null.
+     */
+    static Pos nextLeaf(Data d) {
+        do {
+            Node n = d.next;
+            if (n == null)
+                return null;
+            d = n.data;
+        } while (d.keys.length == 0);
+        return new Pos(d, 0);
+    }
+
+    /* ------ Map API methods ------ */
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        Data d = leafData(key);
+        int i = indexOf(comparator, d.keys, key);
+        return (i >= 0) ? (V)d.vals[i] : null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or the given defaultValue if this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if this map contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the defaultValue
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getOrDefault(Object key, V defaultValue) {
+        V v;
+        return (v = get(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        return doRemove(key, null);
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * map size. Additionally, it is possible for the map to change
+     * during execution of this method, in which case the returned
+     * result may be inaccurate.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Pos p = findFirst(); p != null; p = nextLeaf(p.d)) {
+            Object[] vs = p.d.vals;
+            for (int i = p.i; i < vs.length; ++i) {
+                if (value.equals(vs[i]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map. If this map
+     * contains more than {@code Integer.MAX_VALUE} elements, it
+     * returns {@code Integer.MAX_VALUE}.
+     *
+     * <p>Unlike that of {@link ConcurrentSkipListMap}, this method takes
+     * constant time. Updates in progress in other threads may or may not
+     * be reflected in the result.
+     *
+     * @return the number of elements in this map
+     */
+    public int size() {
+        long n = tree.count.sum();
+        return (n < 0L) ? 0 : (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+            (int)n;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return findFirst() == null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        tree = new Tree();
+    }
+
+    /* ------ ConcurrentMap API methods ------ */
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null && doRemove(key, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null)
+            throw new NullPointerException();
+        return doReplace(key, oldValue, newValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        return doReplace(key, null, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null) throw new NullPointerException();
+        for (Pos p = findFirst(); p != null; p = nextLeaf(p.d)) {
+            Object[] ks = p.d.keys, vs = p.d.vals;
+            for (int i = p.i; i < ks.length; ++i)
+                action.accept((K)ks[i], (V)vs[i]);
+        }
+    }
+
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null) throw new NullPointerException();
+        for (Pos p = findFirst(); p != null; p = nextLeaf(p.d)) {
+            Object[] ks = p.d.keys, vs = p.d.vals;
+            for (int i = p.i; i < ks.length; ++i) {
+                @SuppressWarnings("unchecked") K k = (K)ks[i];
+                @SuppressWarnings("unchecked") V v = (V)vs[i];
+                while (v != null) {
+                    V r = function.apply(k, v);
+                    if (r == null)
+                        throw new NullPointerException();
+                    if (replace(k, v, r))
+                        break;
+                    v = get(k);
+                }
+            }
+        }
+    }
+
+    /* ------ SortedMap API methods ------ */
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(findFirst());
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(findLast());
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey,
+                                              boolean fromInclusive,
+                                              K toKey,
+                                              boolean toInclusive) {
+        if (fromKey == null || toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, fromInclusive, toKey, toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey,
+                                               boolean inclusive) {
+        if (toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, null, false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey,
+                                               boolean inclusive) {
+        if (fromKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, inclusive, null, false, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    /**
+     * Returns a snapshot entry for the position, or null if none.
+     */
+    @SuppressWarnings("unchecked")
+    static <K,V> Map.Entry<K,V> entry(Pos p) {
+        return (p == null) ? null :
+            new AbstractMap.SimpleImmutableEntry<K,V>((K)p.d.keys[p.i],
+                                                      (V)p.d.vals[p.i]);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K> K keyOrNull(Pos p) {
+        return (p == null) ? null : (K)p.d.keys[p.i];
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K> K key(Pos p) {
+        if (p == null)
+            throw new NoSuchElementException();
+        return (K)p.d.keys[p.i];
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * strictly less than the given key, or {@code null} if there is
+     * no such key. The returned entry does <em>not</em> support the
+     * {@code Entry.setValue} method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return entry(findNear(key, LT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(findNear(key, LT));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * less than or equal to the given key, or {@code null} if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return entry(findNear(key, LT|EQ));
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K floorKey(K key) {
+        return keyOrNull(findNear(key, LT|EQ));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * greater than or equal to the given key, or {@code null} if
+     * there is no such entry. The returned entry does <em>not</em>
+     * support the {@code Entry.setValue} method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return entry(findNear(key, GT|EQ));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(findNear(key, GT|EQ));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * strictly greater than the given key, or {@code null} if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return entry(findNear(key, GT));
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K higherKey(K key) {
+        return keyOrNull(findNear(key, GT));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least
+     * key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> firstEntry() {
+        return entry(findFirst());
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest
+     * key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> lastEntry() {
+        return entry(findLast());
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the least key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> pollFirstEntry() {
+        for (Pos p; (p = findFirst()) != null; ) {
+            K k = key(p);
+            V v = doRemove(k, null);
+            if (v != null)
+                return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+        }
+        return null;
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the greatest key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> pollLastEntry() {
+        for (Pos p; (p = findLast()) != null; ) {
+            K k = key(p);
+            V v = doRemove(k, null);
+            if (v != null)
+                return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+        }
+        return null;
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    /**
+     * Iterator over the mappings of a key range of the map, in either
+     * direction; serves both the map and its sub maps. An iterator
+     * walks snapshots of leaves: ascending, along the right links;
+     * descending, backwards within a leaf and then by findLess from the
+     * least key of that leaf.
+     */
+    abstract class Iter<T> implements Iterator<T> {
+        final Object lo, hi;
+        final boolean loInclusive, hiInclusive, descending;
+        /** the leaf snapshot and index of the next mapping */
+        Data d;
+        int i;
+        /** the key of the last mapping returned by next() */
+        K lastReturned;
+        K nextKey;
+        V nextValue;
+
+        Iter(Object lo, boolean loInclusive, Object hi, boolean hiInclusive,
+             boolean descending) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+            Pos p;
+            if (descending)
+                p = (hi == null) ? findLast() : findLess(hi, hiInclusive);
+            else
+                p = (lo == null) ? findFirst() : findGreater(lo, loInclusive);
+            setNext(p);
+        }
+
+        private void setNext(Pos p) {
+            if (p != null)
+                setNext(p.d, p.i);
+            else
+                nextKey = null;
+        }
+
+        /**
+         * Makes the mapping at index pi of pd the next one, if in range.
+         */
+        @SuppressWarnings("unchecked")
+        private void setNext(Data pd, int pi) {
+            K k = (K)pd.keys[pi];
+            int c;
+            if (descending ?
+                (lo == null || (c = cpr(comparator, k, lo)) > 0 ||
+                 (c == 0 && loInclusive)) :
+                (hi == null || (c = cpr(comparator, k, hi)) < 0 ||
+                 (c == 0 && hiInclusive))) {
+                d = pd;
+                i = pi;
+                nextKey = k;
+                nextValue = (V)pd.vals[pi];
+            }
+            else
+                nextKey = null;
+        }
+
+        public final boolean hasNext() {
+            return nextKey != null;
+        }
+
+        final void advance() {
+            K k = nextKey;
+            if (k == null)
+                throw new NoSuchElementException();
+            lastReturned = k;
+            if (!descending) {
+                if (i + 1 < d.keys.length)
+                    setNext(d, i + 1);
+                else
+                    setNext(nextLeaf(d));
+            }
+            else if (i > 0)
+                setNext(d, i - 1);
+            else
+                setNext(findLess(k, false));
+        }
+
+        public final void remove() {
+            K k = lastReturned;
+            if (k == null)
+                throw new IllegalStateException();
+            // It would not be worth all of the overhead to directly
+            // unlink from here. Using remove is fast enough.
+            ConcurrentBTreeMap.this.remove(k);
+            lastReturned = null;
+        }
+    }
+
+    final class ValueIterator extends Iter<V> {
+        ValueIterator(Object lo, boolean loInclusive, Object hi,
+                      boolean hiInclusive, boolean descending) {
+            super(lo, loInclusive, hi, hiInclusive, descending);
+        }
+        public V next() {
+            V v = nextValue;
+            advance();
+            return v;
+        }
+    }
+
+    final class KeyIterator extends Iter<K> {
+        KeyIterator(Object lo, boolean loInclusive, Object hi,
+                    boolean hiInclusive, boolean descending) {
+            super(lo, loInclusive, hi, hiInclusive, descending);
+        }
+        public K next() {
+            K k = nextKey;
+            advance();
+            return k;
+        }
+    }
+
+    final class EntryIterator extends Iter<Map.Entry<K,V>> {
+        EntryIterator(Object lo, boolean loInclusive, Object hi,
+                      boolean hiInclusive, boolean descending) {
+            super(lo, loInclusive, hi, hiInclusive, descending);
+        }
+        public Map.Entry<K,V> next() {
+            K k = nextKey;
+            V v = nextValue;
+            advance();
+            return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+        }
+    }
+
+    // Factory methods for iterators needed by KeySet and the like
+
+    Iterator<K> keyIterator() {
+        return new KeyIterator(null, false, null, false, false);
+    }
+
+    Iterator<V> valueIterator() {
+        return new ValueIterator(null, false, null, false, false);
+    }
+
+    Iterator<Map.Entry<K,V>> entryIterator() {
+        return new EntryIterator(null, false, null, false, false);
+    }
+
+    /* ---------------- View methods -------------- */
+
+    /**
+     * Returns a {@link NavigableSet} view of the keys contained in this map.
+     *
+     * <p>The set's iterator returns the keys in ascending order.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, which removes the corresponding mapping from the map,
+     * via the {@code Iterator.remove}, {@code Set.remove},
+     * {@code removeAll}, {@code retainAll}, and {@code clear}
+     * operations.  It does not support the {@code add} or {@code addAll}
+     * operations.
+     *
+     * <p>The view's iterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * @return a navigable set view of the keys in this map
+     */
+    public NavigableSet<K> keySet() {
+        KeySet<K> ks = keySet;
+        return (ks != null) ? ks : (keySet = new KeySet<K>(this));
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> ks = keySet;
+        return (ks != null) ? ks : (keySet = new KeySet<K>(this));
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection's iterator returns the values in ascending order
+     * of the corresponding keys. The collection supports element
+     * removal but not addition, as for {@link #keySet}.
+     *
+     * <p>The view's iterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     */
+    public Collection<V> values() {
+        Values<V> vs = values;
+        return (vs != null) ? vs : (values = new Values<V>(this));
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set's iterator returns the entries in ascending key order.
+     * The set supports element removal but not addition, as for
+     * {@link #keySet}.
+     *
+     * <p>The view's iterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * <p>The {@code Map.Entry} elements traversed by the {@code iterator}
+     * do <em>not</em> support the {@code setValue} operation.
+     *
+     * @return a set view of the mappings contained in this map,
+     *         sorted in ascending key order
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet<K,V> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet<K,V>(this));
+    }
+
+    public ConcurrentNavigableMap<K,V> descendingMap() {
+        ConcurrentNavigableMap<K,V> dm = descendingMap;
+        return (dm != null) ? dm : (descendingMap = new SubMap<K,V>
+                                    (this, null, false, null, false, true));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /* ---------------- View Classes -------------- */
+
+    /*
+     * View classes are static, delegating to a ConcurrentNavigableMap
+     * to allow use by SubMaps, as in ConcurrentSkipListMap.
+     */
+
+    static final <E> List<E> toList(Collection<E> c) {
+        // Using size() here would be a pessimization.
+        ArrayList<E> list = new ArrayList<E>();
+        for (E e : c)
+            list.add(e);
+        return list;
+    }
+
+    static final class KeySet<E>
+            extends AbstractSet<E> implements NavigableSet<E> {
+        final ConcurrentNavigableMap<E,?> m;
+        KeySet(ConcurrentNavigableMap<E,?> map) { m = map; }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public boolean remove(Object o) { return m.remove(o) != null; }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        @SuppressWarnings("unchecked")
+        public Iterator<E> iterator() {
+            if (m instanceof ConcurrentBTreeMap)
+                return ((ConcurrentBTreeMap<E,Object>)m).keyIterator();
+            else
+                return ((ConcurrentBTreeMap.SubMap<E,Object>)m).keyIterator();
+        }
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            try {
+                return containsAll(c) && c.containsAll(this);
+            } catch (ClassCastException unused) {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
+            }
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+        public NavigableSet<E> subSet(E fromElement,
+                                      boolean fromInclusive,
+                                      E toElement,
+                                      boolean toInclusive) {
+            return new KeySet<E>(m.subMap(fromElement, fromInclusive,
+                                          toElement,   toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<E>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<E>(m.tailMap(fromElement, inclusive));
+        }
+        public NavigableSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public NavigableSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public NavigableSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<E>(m.descendingMap());
+        }
+    }
+
+    static final class Values<E> extends AbstractCollection<E> {
+        final ConcurrentNavigableMap<?, E> m;
+        Values(ConcurrentNavigableMap<?, E> map) {
+            m = map;
+        }
+        @SuppressWarnings("unchecked")
+        public Iterator<E> iterator() {
+            if (m instanceof ConcurrentBTreeMap)
+                return ((ConcurrentBTreeMap<?,E>)m).valueIterator();
+            else
+                return ((SubMap<?,E>)m).valueIterator();
+        }
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+        public int size() {
+            return m.size();
+        }
+        public boolean contains(Object o) {
+            return m.containsValue(o);
+        }
+        public void clear() {
+            m.clear();
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+    }
+
+    static final class EntrySet<K1,V1> extends AbstractSet<Map.Entry<K1,V1>> {
+        final ConcurrentNavigableMap<K1, V1> m;
+        EntrySet(ConcurrentNavigableMap<K1, V1> map) {
+            m = map;
+        }
+        @SuppressWarnings("unchecked")
+        public Iterator<Map.Entry<K1,V1>> iterator() {
+            if (m instanceof ConcurrentBTreeMap)
+                return ((ConcurrentBTreeMap<K1,V1>)m).entryIterator();
+            else
+                return ((SubMap<K1,V1>)m).entryIterator();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            V1 v = m.get(e.getKey());
+            return v != null && v.equals(e.getValue());
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            return m.remove(e.getKey(),
+                            e.getValue());
+        }
+        public boolean isEmpty() {
+            return m.isEmpty();
+        }
+        public int size() {
+            return m.size();
+        }
+        public void clear() {
+            m.clear();
+        }
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            try {
+                return containsAll(c) && c.containsAll(this);
+            } catch (ClassCastException unused) {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
+            }
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+    }
+
+    /**
+     * Submaps returned by {@link ConcurrentBTreeMap} submap operations
+     * represent a subrange of mappings of their underlying maps, as
+     * for {@link ConcurrentSkipListMap}: mappings outside their range
+     * are ignored, and attempts to add mappings outside their ranges
+     * result in {@link IllegalArgumentException}.
+     *
+     * @serial include
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements ConcurrentNavigableMap<K,V>, Cloneable, Serializable {
+        private static final long serialVersionUID = 6915346287431745523L;
+
+        /** Underlying map */
+        private final ConcurrentBTreeMap<K,V> m;
+        /** lower bound key, or null if from start */
+        private final K lo;
+        /** upper bound key, or null if to end */
+        private final K hi;
+        /** inclusion flag for lo */
+        private final boolean loInclusive;
+        /** inclusion flag for hi */
+        private final boolean hiInclusive;
+        /** direction */
+        private final boolean isDescending;
+
+        // Lazily initialized view holders
+        private transient KeySet<K> keySetView;
+        private transient Set<Map.Entry<K,V>> entrySetView;
+        private transient Collection<V> valuesView;
+
+        /**
+         * Creates a new submap, initializing all fields.
+         */
+        SubMap(ConcurrentBTreeMap<K,V> map,
+               K fromKey, boolean fromInclusive,
+               K toKey, boolean toInclusive,
+               boolean isDescending) {
+            Comparator<? super K> cmp = map.comparator;
+            if (fromKey != null && toKey != null &&
+                cpr(cmp, fromKey, toKey) > 0)
+                throw new IllegalArgumentException("inconsistent range");
+            this.m = map;
+            this.lo = fromKey;
+            this.hi = toKey;
+            this.loInclusive = fromInclusive;
+            this.hiInclusive = toInclusive;
+            this.isDescending = isDescending;
+        }
+
+        /* ----------------  Utilities -------------- */
+
+        boolean tooLow(Object key, Comparator<? super K> cmp) {
+            int c;
+            return (lo != null && ((c = cpr(cmp, key, lo)) < 0 ||
+                                   (c == 0 && !loInclusive)));
+        }
+
+        boolean tooHigh(Object key, Comparator<? super K> cmp) {
+            int c;
+            return (hi != null && ((c = cpr(cmp, key, hi)) > 0 ||
+                                   (c == 0 && !hiInclusive)));
+        }
+
+        boolean inBounds(Object key, Comparator<? super K> cmp) {
+            return !tooLow(key, cmp) && !tooHigh(key, cmp);
+        }
+
+        void checkKeyBounds(K key, Comparator<? super K> cmp) {
+            if (key == null)
+                throw new NullPointerException();
+            if (!inBounds(key, cmp))
+                throw new IllegalArgumentException("key out of range");
+        }
+
+        /**
+         * Returns the position of the lowest key in range, or null.
+         */
+        Pos lowest() {
+            Pos p = (lo == null) ? m.findFirst() : m.findGreater(lo, loInclusive);
+            return (p == null || tooHigh(p.d.keys[p.i], m.comparator)) ? null : p;
+        }
+
+        /**
+         * Returns the position of the highest key in range, or null.
+         */
+        Pos highest() {
+            Pos p = (hi == null) ? m.findLast() : m.findLess(hi, hiInclusive);
+            return (p == null || tooLow(p.d.keys[p.i], m.comparator)) ? null : p;
+        }
+
+        Map.Entry<K,V> removeLowest() {
+            for (Pos p; (p = lowest()) != null; ) {
+                K k = key(p);
+                V v = m.doRemove(k, null);
+                if (v != null)
+                    return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+            }
+            return null;
+        }
+
+        Map.Entry<K,V> removeHighest() {
+            for (Pos p; (p = highest()) != null; ) {
+                K k = key(p);
+                V v = m.doRemove(k, null);
+                if (v != null)
+                    return new AbstractMap.SimpleImmutableEntry<K,V>(k, v);
+            }
+            return null;
+        }
+
+        /**
+         * Submap version of ConcurrentBTreeMap.findNear
+         */
+        Pos findNear(K key, int rel) {
+            Comparator<? super K> cmp = m.comparator;
+            if (isDescending) { // adjust relation for direction
+                if ((rel & LT) == 0)
+                    rel |= LT;
+                else
+                    rel &= ~LT;
+            }
+            if (tooLow(key, cmp))
+                return ((rel & LT) != 0) ? null : lowest();
+            if (tooHigh(key, cmp))
+                return ((rel & LT) != 0) ? highest() : null;
+            Pos p = m.findNear(key, rel);
+            return (p == null || !inBounds(p.d.keys[p.i], cmp)) ? null : p;
+        }
+
+        /* ----------------  Map API methods -------------- */
+
+        public boolean containsKey(Object key) {
+            if (key == null) throw new NullPointerException();
+            return inBounds(key, m.comparator) && m.containsKey(key);
+        }
+
+        public V get(Object key) {
+            if (key == null) throw new NullPointerException();
+            return (!inBounds(key, m.comparator)) ? null : m.get(key);
+        }
+
+        public V put(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.put(key, value);
+        }
+
+        public V remove(Object key) {
+            return (!inBounds(key, m.comparator)) ? null : m.remove(key);
+        }
+
+        public int size() {
+            long count = 0;
+            for (Iterator<K> it = keyIterator(); it.hasNext(); it.next())
+                ++count;
+            return count >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)count;
+        }
+
+        public boolean isEmpty() {
+            return lowest() == null;
+        }
+
+        public boolean containsValue(Object value) {
+            if (value == null)
+                throw new NullPointerException();
+            for (Iterator<V> it = valueIterator(); it.hasNext(); ) {
+                if (value.equals(it.next()))
+                    return true;
+            }
+            return false;
+        }
+
+        public void clear() {
+            for (Iterator<K> it = keyIterator(); it.hasNext(); )
+                m.remove(it.next());
+        }
+
+        /* ----------------  ConcurrentMap API methods -------------- */
+
+        public V putIfAbsent(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.putIfAbsent(key, value);
+        }
+
+        public boolean remove(Object key, Object value) {
+            return inBounds(key, m.comparator) && m.remove(key, value);
+        }
+
+        public boolean replace(K key, V oldValue, V newValue) {
+            checkKeyBounds(key, m.comparator);
+            return m.replace(key, oldValue, newValue);
+        }
+
+        public V replace(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.replace(key, value);
+        }
+
+        /* ----------------  SortedMap API methods -------------- */
+
+        public Comparator<? super K> comparator() {
+            Comparator<? super K> cmp = m.comparator();
+            if (isDescending)
+                return Collections.reverseOrder(cmp);
+            else
+                return cmp;
+        }
+
+        /**
+         * Utility to create submaps, where given bounds override
+         * unbounded(null) ones and/or are checked against bounded ones.
+         */
+        SubMap<K,V> newSubMap(K fromKey, boolean fromInclusive,
+                              K toKey, boolean toInclusive) {
+            Comparator<? super K> cmp = m.comparator;
+            if (isDescending) { // flip senses
+                K tk = fromKey;
+                fromKey = toKey;
+                toKey = tk;
+                boolean ti = fromInclusive;
+                fromInclusive = toInclusive;
+                toInclusive = ti;
+            }
+            if (lo != null) {
+                if (fromKey == null) {
+                    fromKey = lo;
+                    fromInclusive = loInclusive;
+                }
+                else {
+                    int c = cpr(cmp, fromKey, lo);
+                    if (c < 0 || (c == 0 && !loInclusive && fromInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            if (hi != null) {
+                if (toKey == null) {
+                    toKey = hi;
+                    toInclusive = hiInclusive;
+                }
+                else {
+                    int c = cpr(cmp, toKey, hi);
+                    if (c > 0 || (c == 0 && !hiInclusive && toInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            return new SubMap<K,V>(m, fromKey, fromInclusive,
+                                   toKey, toInclusive, isDescending);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                  K toKey, boolean toInclusive) {
+            if (fromKey == null || toKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        public SubMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (toKey == null)
+                throw new NullPointerException();
+            return newSubMap(null, false, toKey, inclusive);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (fromKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, inclusive, null, false);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public SubMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        public SubMap<K,V> descendingMap() {
+            return new SubMap<K,V>(m, lo, loInclusive,
+                                   hi, hiInclusive, !isDescending);
+        }
+
+        /* ----------------  Relational methods -------------- */
+
+        public Map.Entry<K,V> ceilingEntry(K key) {
+            return entry(findNear(key, GT|EQ));
+        }
+
+        public K ceilingKey(K key) {
+            return keyOrNull(findNear(key, GT|EQ));
+        }
+
+        public Map.Entry<K,V> lowerEntry(K key) {
+            return entry(findNear(key, LT));
+        }
+
+        public K lowerKey(K key) {
+            return keyOrNull(findNear(key, LT));
+        }
+
+        public Map.Entry<K,V> floorEntry(K key) {
+            return entry(findNear(key, LT|EQ));
+        }
+
+        public K floorKey(K key) {
+            return keyOrNull(findNear(key, LT|EQ));
+        }
+
+        public Map.Entry<K,V> higherEntry(K key) {
+            return entry(findNear(key, GT));
+        }
+
+        public K higherKey(K key) {
+            return keyOrNull(findNear(key, GT));
+        }
+
+        public K firstKey() {
+            return key(isDescending ? highest() : lowest());
+        }
+
+        public K lastKey() {
+            return key(isDescending ? lowest() : highest());
+        }
+
+        public Map.Entry<K,V> firstEntry() {
+            return entry(isDescending ? highest() : lowest());
+        }
+
+        public Map.Entry<K,V> lastEntry() {
+            return entry(isDescending ? lowest() : highest());
+        }
+
+        public Map.Entry<K,V> pollFirstEntry() {
+            return isDescending ? removeHighest() : removeLowest();
+        }
+
+        public Map.Entry<K,V> pollLastEntry() {
+            return isDescending ? removeLowest() : removeHighest();
+        }
+
+        /* ---------------- Submap Views -------------- */
+
+        public NavigableSet<K> keySet() {
+            KeySet<K> ks = keySetView;
+            return (ks != null) ? ks : (keySetView = new KeySet<K>(this));
+        }
+
+        public NavigableSet<K> navigableKeySet() {
+            KeySet<K> ks = keySetView;
+            return (ks != null) ? ks : (keySetView = new KeySet<K>(this));
+        }
+
+        public Collection<V> values() {
+            Collection<V> vs = valuesView;
+            return (vs != null) ? vs : (valuesView = new Values<V>(this));
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            Set<Map.Entry<K,V>> es = entrySetView;
+            return (es != null) ? es : (entrySetView = new EntrySet<K,V>(this));
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        Iterator<K> keyIterator() {
+            return m.new KeyIterator(lo, loInclusive, hi, hiInclusive,
+                                     isDescending);
+        }
+
+        Iterator<V> valueIterator() {
+            return m.new ValueIterator(lo, loInclusive, hi, hiInclusive,
+                                       isDescending);
+        }
+
+        Iterator<Map.Entry<K,V>> entryIterator() {
+            return m.new EntryIterator(lo, loInclusive, hi, hiInclusive,
+                                       isDescending);
+        }
+    }
+}
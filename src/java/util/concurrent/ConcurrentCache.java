@@ -0,0 +1,1037 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache with a bounded number of entries, built on a
+ * {@link ConcurrentHashMap}.  Retrievals never block and, like those of
+ * {@code ConcurrentHashMap}, take no locks.  Loads performed by {@link
+ * #get(Object, Function)} are carried out atomically by the map's
+ * {@link ConcurrentHashMap#compute compute}, so concurrent requests for
+ * the same absent key wait for a single load rather than all calling
+ * the loader.
+ *
+ * <p>Entries are evicted using the <em>Window TinyLFU</em> policy.  New
+ * entries enter a small LRU <em>admission window</em>; entries leaving
+ * the window compete for a place in a segmented LRU <em>main</em>
+ * region against that region's least recently used entry, and the one
+ * that has been accessed less often, according to a compact
+ * count-min frequency sketch, is evicted.  This keeps frequently used
+ * entries resident through scans and bursts of one-time keys that flush
+ * plain LRU caches.
+ *
+ * <p>Reads and writes are not applied to the eviction policy
+ * immediately.  A read records the entry in one of several lossy,
+ * striped ring buffers, and a write enqueues a task.  Both are replayed
+ * in batches under a single lock by whichever thread finds it free,
+ * typically after a write or when a read buffer fills up.  Recording a
+ * read therefore never blocks, and dropping a read under heavy
+ * contention only makes the policy slightly less accurate.  As a
+ * consequence the cache may briefly hold more than its maximum number
+ * of entries.
+ *
+ * <p>Entries may optionally expire a fixed duration after they were
+ * created or last replaced (<em>expire after write</em>) and/or after
+ * they were last read or written (<em>expire after access</em>).  An
+ * expired entry is never returned, and is removed by a later
+ * maintenance run.  Because every entry shares the same duration,
+ * entries are kept in a write-ordered and an access-ordered queue,
+ * separate from the eviction policy's queues, and expired entries are
+ * found at their heads in constant time each.  These queues follow the
+ * order in which buffered reads and writes are replayed, which may
+ * differ slightly from the order in which they happened, so an expired
+ * entry can remain in the cache, and count toward its size, until
+ * maintenance reaches it.
+ *
+ * <p>Counts of hits, misses, loads and evictions are kept and may be
+ * retrieved with {@link #stats}.
+ *
+ * <p>Like {@link ConcurrentHashMap}, this class does <em>not</em> allow
+ * {@code null} to be used as a key or value.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ */
+public class ConcurrentCache<K,V> {
+
+    /* ---------------- Constants -------------- */
+
+    /** The percentage of the maximum size given to the admission window. */
+    static final int WINDOW_PERCENT = 1;
+
+    /** The percentage of the main region reserved for protected entries. */
+    static final int PROTECTED_PERCENT = 80;
+
+    /** The number of reads each ring buffer can hold. */
+    static final int READ_BUFFER_SIZE = 16;
+
+    /** The number of read buffer stripes, a power of two. */
+    static final int READ_BUFFER_STRIPES;
+    static {
+        int n = 1;
+        while (n < (ConcurrentHashMap.NCPU << 1) && n < 64)
+            n <<= 1;
+        READ_BUFFER_STRIPES = n;
+    }
+
+    /** Queue identifiers, held in {@link Node#queue}. */
+    static final int UNLINKED  = 0;
+    static final int WINDOW    = 1;
+    static final int PROBATION = 2;
+    static final int PROTECTED = 3;
+
+    /* ---------------- Fields -------------- */
+
+    final ConcurrentHashMap<K,Node<K,V>> data;
+    final long maximumSize;
+    final long expireAfterWriteNanos;   // 0 if entries do not expire
+    final long expireAfterAccessNanos;  // 0 if entries do not expire
+
+    // Policy state, guarded by evictionLock
+    final ReentrantLock evictionLock = new ReentrantLock();
+    final AccessOrderDeque<K,V> window = new AccessOrderDeque<K,V>();
+    final AccessOrderDeque<K,V> probation = new AccessOrderDeque<K,V>();
+    final AccessOrderDeque<K,V> protect = new AccessOrderDeque<K,V>();
+    final WriteOrderDeque<K,V> writeOrder = new WriteOrderDeque<K,V>();
+    final IdleOrderDeque<K,V> idleOrder = new IdleOrderDeque<K,V>();
+    final FrequencySketch sketch;
+    final long windowMaximum;
+    final long protectedMaximum;
+    long windowSize, probationSize, protectedSize;
+
+    // Buffers of pending policy updates
+    final ReadBuffer<K,V>[] readBuffers;
+    final ConcurrentLinkedQueue<Runnable> writeBuffer =
+        new ConcurrentLinkedQueue<Runnable>();
+
+    // Statistics
+    final LongAdder hitCount = new LongAdder();
+    final LongAdder missCount = new LongAdder();
+    final LongAdder loadSuccessCount = new LongAdder();
+    final LongAdder loadFailureCount = new LongAdder();
+    final LongAdder totalLoadTime = new LongAdder();
+    final LongAdder evictionCount = new LongAdder();
+
+    /* ---------------- Constructors -------------- */
+
+    /**
+     * Creates a new, empty cache holding at most the given number of
+     * entries, whose entries do not expire.
+     *
+     * @param maximumSize the maximum number of entries
+     * @throws IllegalArgumentException if the maximum size is not positive
+     */
+    public ConcurrentCache(long maximumSize) {
+        this(maximumSize, 0L, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new, empty cache holding at most the given number of
+     * entries, whose entries expire after the given durations.
+     *
+     * @param maximumSize the maximum number of entries
+     * @param expireAfterWrite the time after its creation or last
+     *        replacement at which an entry expires, or zero if entries
+     *        should not expire after write
+     * @param expireAfterAccess the time after its last read or write at
+     *        which an entry expires, or zero if entries should not
+     *        expire after access
+     * @param unit the time unit of the expiration durations
+     * @throws IllegalArgumentException if the maximum size is not
+     *         positive or an expiration duration is negative
+     * @throws NullPointerException if the unit is null
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentCache(long maximumSize, long expireAfterWrite,
+                           long expireAfterAccess, TimeUnit unit) {
+        if (maximumSize <= 0L || expireAfterWrite < 0L ||
+            expireAfterAccess < 0L)
+            throw new IllegalArgumentException();
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = unit.toNanos(expireAfterAccess);
+        this.windowMaximum = Math.max(1L, maximumSize * WINDOW_PERCENT / 100);
+        this.protectedMaximum =
+            (maximumSize - windowMaximum) * PROTECTED_PERCENT / 100;
+        this.data = new ConcurrentHashMap<K,Node<K,V>>
+            ((int)Math.min(maximumSize, 1 << 16));
+        this.sketch = new FrequencySketch(maximumSize);
+        ReadBuffer<K,V>[] rbs = (ReadBuffer<K,V>[])
+            new ReadBuffer<?,?>[READ_BUFFER_STRIPES];
+        for (int i = 0; i < rbs.length; ++i)
+            rbs[i] = new ReadBuffer<K,V>();
+        this.readBuffers = rbs;
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * A cache entry.  The value and timestamps are written by user
+     * threads; the links and queue are owned by the eviction policy and
+     * guarded by the eviction lock.
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        volatile long writeTime;
+        volatile long accessTime;
+        volatile boolean alive = true; // false once removed from the map
+
+        Node<K,V> prevAccess, nextAccess;
+        Node<K,V> prevWrite, nextWrite;
+        Node<K,V> prevIdle, nextIdle;
+        long idleStamp;  // the access time when last moved in idleOrder
+        int queue;
+        boolean inWriteOrder, inIdleOrder;
+
+        Node(K key, V value, long now) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * An intrusive doubly linked list of nodes in access order, least
+     * recently used first.
+     */
+    static final class AccessOrderDeque<K,V> {
+        Node<K,V> first, last;
+
+        void addLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            e.prevAccess = l;
+            e.nextAccess = null;
+            last = e;
+            if (l == null)
+                first = e;
+            else
+                l.nextAccess = e;
+        }
+
+        void remove(Node<K,V> e) {
+            Node<K,V> p = e.prevAccess, n = e.nextAccess;
+            if (p == null)
+                first = n;
+            else
+                p.nextAccess = n;
+            if (n == null)
+                last = p;
+            else
+                n.prevAccess = p;
+            e.prevAccess = e.nextAccess = null;
+        }
+
+        void moveToBack(Node<K,V> e) {
+            if (e != last) {
+                remove(e);
+                addLast(e);
+            }
+        }
+    }
+
+    /**
+     * An intrusive doubly linked list of nodes in write order, oldest
+     * first.
+     */
+    static final class WriteOrderDeque<K,V> {
+        Node<K,V> first, last;
+
+        void addLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            e.prevWrite = l;
+            e.nextWrite = null;
+            last = e;
+            if (l == null)
+                first = e;
+            else
+                l.nextWrite = e;
+        }
+
+        void remove(Node<K,V> e) {
+            Node<K,V> p = e.prevWrite, n = e.nextWrite;
+            if (p == null)
+                first = n;
+            else
+                p.nextWrite = n;
+            if (n == null)
+                last = p;
+            else
+                n.prevWrite = p;
+            e.prevWrite = e.nextWrite = null;
+        }
+
+        void moveToBack(Node<K,V> e) {
+            if (e != last) {
+                remove(e);
+                addLast(e);
+            }
+        }
+    }
+
+    /**
+     * An intrusive doubly linked list of nodes in the order their
+     * accesses were applied, least recently used first.  Unlike the
+     * policy's queues, it is not reordered by admission or demotion.
+     */
+    static final class IdleOrderDeque<K,V> {
+        Node<K,V> first, last;
+
+        void addLast(Node<K,V> e) {
+            Node<K,V> l = last;
+            e.prevIdle = l;
+            e.nextIdle = null;
+            last = e;
+            if (l == null)
+                first = e;
+            else
+                l.nextIdle = e;
+        }
+
+        void remove(Node<K,V> e) {
+            Node<K,V> p = e.prevIdle, n = e.nextIdle;
+            if (p == null)
+                first = n;
+            else
+                p.nextIdle = n;
+            if (n == null)
+                last = p;
+            else
+                n.prevIdle = p;
+            e.prevIdle = e.nextIdle = null;
+        }
+
+        void moveToBack(Node<K,V> e) {
+            if (e != last) {
+                remove(e);
+                addLast(e);
+            }
+        }
+    }
+
+    /* ---------------- Read buffers -------------- */
+
+    /**
+     * A bounded, lossy, multiple-producer single-consumer ring buffer of
+     * reads.  Producers claim a slot by advancing the write counter and
+     * publish the node with a lazy write; the consumer, holding the
+     * eviction lock, stops at the first slot that is not yet published.
+     */
+    static final class ReadBuffer<K,V> {
+        static final int MASK = READ_BUFFER_SIZE - 1;
+
+        final AtomicReferenceArray<Node<K,V>> buffer =
+            new AtomicReferenceArray<Node<K,V>>(READ_BUFFER_SIZE);
+        final AtomicLong writeCounter = new AtomicLong();
+        volatile long readCounter;
+
+        /**
+         * Records a read, returning false if the buffer is full.  A
+         * lost race for a slot simply drops the read.
+         */
+        boolean offer(Node<K,V> e) {
+            long tail = writeCounter.get();
+            if (tail - readCounter >= READ_BUFFER_SIZE)
+                return false;
+            if (writeCounter.compareAndSet(tail, tail + 1))
+                buffer.lazySet((int)tail & MASK, e);
+            return true;
+        }
+
+        void drainTo(ConcurrentCache<K,V> cache) {
+            long head = readCounter, tail = writeCounter.get();
+            for (; head != tail; ++head) {
+                int i = (int)head & MASK;
+                Node<K,V> e = buffer.get(i);
+                if (e == null)
+                    break;                  // not yet published
+                buffer.lazySet(i, null);
+                cache.onAccess(e);
+            }
+            readCounter = head;
+        }
+    }
+
+    /* ---------------- Frequency sketch -------------- */
+
+    /**
+     * A count-min sketch of the popularity of keys, with four 4-bit
+     * counters per key packed sixteen to a {@code long}.  To keep the
+     * counts fresh, all counters are halved once the number of recorded
+     * events reaches ten times the maximum size of the cache.  Accessed
+     * only under the eviction lock.
+     */
+    static final class FrequencySketch {
+        static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        static final long RESET_MASK = 0x7777777777777777L;
+        static final long ONE_MASK = 0x1111111111111111L;
+
+        final long[] table;
+        final int tableMask;
+        final int sampleSize;
+        int size;
+
+        FrequencySketch(long maximumSize) {
+            int n = (int)Math.min(maximumSize, 1 << 26);
+            int cap = 8;
+            while (cap < n)
+                cap <<= 1;
+            table = new long[cap];
+            tableMask = cap - 1;
+            sampleSize = (int)Math.min(10L * n, Integer.MAX_VALUE);
+        }
+
+        static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+
+        int indexOf(int item, int i) {
+            long hash = (item + SEED[i]) * SEED[i];
+            hash += (hash >>> 32);
+            return ((int)hash) & tableMask;
+        }
+
+        /** Returns the estimated number of occurrences of the key, at most 15. */
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int f = 15;
+            for (int i = 0; i < 4; i++) {
+                int shift = (start + i) << 2;
+                int count = (int)((table[indexOf(hash, i)] >>> shift) & 0xfL);
+                if (count < f)
+                    f = count;
+            }
+            return f;
+        }
+
+        /** Increments the popularity of the key. */
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int j = indexOf(hash, i), shift = (start + i) << 2;
+                long mask = 0xfL << shift;
+                if ((table[j] & mask) != mask) {
+                    table[j] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++size == sampleSize)
+                reset();
+        }
+
+        /** Halves every counter, aging out stale popularity. */
+        void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (odd >>> 2);
+        }
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Returns the value associated with the key, or {@code null} if there
+     * is no live cached value for it.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the cached value, or {@code null}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getIfPresent(Object key) {
+        Node<K,V> e = data.get(key);
+        long now;
+        if (e == null || hasExpired(e, now = System.nanoTime())) {
+            missCount.increment();
+            if (e != null)
+                scheduleDrain();
+            return null;
+        }
+        V v = e.value;
+        hitCount.increment();
+        afterRead(e, now);
+        return v;
+    }
+
+    /**
+     * Returns the value associated with the key, obtaining it from the
+     * loader and caching it if necessary.  The loader is invoked at most
+     * once per absent key even when many threads request it at the same
+     * time; the other threads wait for the result.  Like {@link
+     * ConcurrentHashMap#computeIfAbsent}, the loader should be short and
+     * must not update this cache.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param loader the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the key, or {@code null} if the loader returned null
+     * @throws NullPointerException if the key or loader is null
+     * @throws RuntimeException or Error if the loader does so, in which
+     *         case the mapping is left unestablished
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        if (loader == null)
+            throw new NullPointerException();
+        Node<K,V> e = data.get(key);
+        long now = System.nanoTime();
+        if (e != null && !hasExpired(e, now)) {
+            V v = e.value;
+            hitCount.increment();
+            afterRead(e, now);
+            return v;
+        }
+        missCount.increment();
+        @SuppressWarnings("unchecked")
+        Node<K,V>[] replaced = (Node<K,V>[])new Node<?,?>[1];
+        boolean[] loaded = new boolean[1];
+        Node<K,V> n = data.compute(key, (k, prior) -> {
+            long t = System.nanoTime();
+            if (prior != null && !hasExpired(prior, t))
+                return prior;               // loaded by another thread
+            V v;
+            try {
+                v = loader.apply(k);
+            } catch (RuntimeException | Error ex) {
+                loadFailureCount.increment();
+                totalLoadTime.add(System.nanoTime() - t);
+                throw ex;
+            }
+            long end = System.nanoTime();
+            totalLoadTime.add(end - t);
+            if (v == null) {
+                loadFailureCount.increment();
+                replaced[0] = prior;
+                return null;
+            }
+            loadSuccessCount.increment();
+            loaded[0] = true;
+            replaced[0] = prior;
+            return new Node<K,V>(k, v, end);
+        });
+        Node<K,V> old;
+        if ((old = replaced[0]) != null) {
+            synchronized (old) {
+                old.alive = false;
+            }
+            evictionCount.increment();      // replaced only once expired
+            afterWrite(new RemovalTask(old));
+        }
+        if (n == null)
+            return null;
+        if (loaded[0])
+            afterWrite(new AddTask(n));
+        else
+            afterRead(n, System.nanoTime());
+        return n.value;
+    }
+
+    /**
+     * Associates the value with the key, replacing any existing value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous live value associated with {@code key}, or
+     *         {@code null} if there was none
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        long now = System.nanoTime();
+        Node<K,V> node = new Node<K,V>(key, value, now);
+        for (;;) {
+            Node<K,V> prior = data.putIfAbsent(key, node);
+            if (prior == null) {
+                afterWrite(new AddTask(node));
+                return null;
+            }
+            V oldValue;
+            boolean expired;
+            synchronized (prior) {
+                if (!prior.alive)
+                    continue;               // removed concurrently; retry
+                expired = hasExpired(prior, now);
+                oldValue = prior.value;
+                prior.value = value;
+                prior.writeTime = now;
+                prior.accessTime = now;
+            }
+            if (expired)
+                evictionCount.increment();
+            afterWrite(new UpdateTask(prior));
+            return expired ? null : oldValue;
+        }
+    }
+
+    /**
+     * Discards any cached value for the key.
+     *
+     * @param key the key whose mapping is to be removed
+     * @return the previous live value associated with {@code key}, or
+     *         {@code null} if there was none
+     * @throws NullPointerException if the specified key is null
+     */
+    public V invalidate(Object key) {
+        Node<K,V> e = data.remove(key);
+        if (e == null)
+            return null;
+        V oldValue;
+        synchronized (e) {
+            e.alive = false;
+            oldValue = e.value;
+        }
+        afterWrite(new RemovalTask(e));
+        return hasExpired(e, System.nanoTime()) ? null : oldValue;
+    }
+
+    /**
+     * Discards all entries in the cache.
+     */
+    public void invalidateAll() {
+        for (K key : data.keySet())
+            invalidate(key);
+    }
+
+    /**
+     * Returns the approximate number of entries in this cache, which may
+     * include entries that have expired but not yet been removed.
+     *
+     * @return the estimated number of entries
+     */
+    public long estimatedSize() {
+        return data.mappingCount();
+    }
+
+    /**
+     * Returns the maximum number of entries this cache may hold.
+     *
+     * @return the maximum size
+     */
+    public long maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Performs any pending maintenance: applies buffered reads and
+     * writes to the eviction policy and removes expired entries and
+     * entries in excess of the maximum size.  Maintenance is otherwise
+     * carried out as a side effect of normal operations.
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of this cache's cumulative statistics.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        return new Stats(hitCount.sum(), missCount.sum(),
+                         loadSuccessCount.sum(), loadFailureCount.sum(),
+                         totalLoadTime.sum(), evictionCount.sum());
+    }
+
+    /**
+     * An immutable snapshot of the statistics of a {@link
+     * ConcurrentCache}.
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long loadSuccessCount;
+        private final long loadFailureCount;
+        private final long totalLoadTime;
+        private final long evictionCount;
+
+        Stats(long hitCount, long missCount, long loadSuccessCount,
+              long loadFailureCount, long totalLoadTime, long evictionCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadSuccessCount = loadSuccessCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadTime = totalLoadTime;
+            this.evictionCount = evictionCount;
+        }
+
+        /** @return the number of lookups that returned a cached value */
+        public long hitCount() { return hitCount; }
+
+        /** @return the number of lookups that found no live cached value */
+        public long missCount() { return missCount; }
+
+        /** @return the number of lookups */
+        public long requestCount() { return hitCount + missCount; }
+
+        /**
+         * Returns the ratio of hits to requests, or {@code 1.0} if there
+         * have been no requests.
+         *
+         * @return the hit rate
+         */
+        public double hitRate() {
+            long n = hitCount + missCount;
+            return (n == 0L) ? 1.0 : (double)hitCount / n;
+        }
+
+        /**
+         * Returns the ratio of misses to requests, or {@code 0.0} if
+         * there have been no requests.
+         *
+         * @return the miss rate
+         */
+        public double missRate() {
+            long n = hitCount + missCount;
+            return (n == 0L) ? 0.0 : (double)missCount / n;
+        }
+
+        /** @return the number of loads that produced a value */
+        public long loadSuccessCount() { return loadSuccessCount; }
+
+        /** @return the number of loads that threw or returned null */
+        public long loadFailureCount() { return loadFailureCount; }
+
+        /** @return the total time spent loading, in nanoseconds */
+        public long totalLoadTime() { return totalLoadTime; }
+
+        /**
+         * Returns the average time spent loading a value, or {@code 0.0}
+         * if there have been no loads.
+         *
+         * @return the average load penalty in nanoseconds
+         */
+        public double averageLoadPenalty() {
+            long n = loadSuccessCount + loadFailureCount;
+            return (n == 0L) ? 0.0 : (double)totalLoadTime / n;
+        }
+
+        /**
+         * Returns the number of entries removed because of the size
+         * bound or expiration.
+         *
+         * @return the eviction count
+         */
+        public long evictionCount() { return evictionCount; }
+
+        public String toString() {
+            return "Stats[hits=" + hitCount + ", misses=" + missCount +
+                ", hitRate=" + hitRate() +
+                ", loadSuccesses=" + loadSuccessCount +
+                ", loadFailures=" + loadFailureCount +
+                ", totalLoadTime=" + totalLoadTime +
+                ", evictions=" + evictionCount + "]";
+        }
+    }
+
+    /* ---------------- Buffering -------------- */
+
+    boolean hasExpired(Node<K,V> e, long now) {
+        long d;
+        return ((d = expireAfterWriteNanos) != 0L && now - e.writeTime >= d) ||
+            ((d = expireAfterAccessNanos) != 0L && now - e.accessTime >= d);
+    }
+
+    /**
+     * Records a read in this thread's read buffer, running maintenance
+     * if the buffer is full.
+     */
+    void afterRead(Node<K,V> e, long now) {
+        if (expireAfterAccessNanos != 0L)
+            e.accessTime = now;
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        if (!readBuffers[h & (READ_BUFFER_STRIPES - 1)].offer(e))
+            scheduleDrain();
+    }
+
+    /**
+     * Enqueues a policy update and runs maintenance if the eviction
+     * lock is free.
+     */
+    void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        scheduleDrain();
+    }
+
+    /**
+     * Runs maintenance unless another thread is already doing so.  A
+     * thread that fails to acquire the lock relies on the holder
+     * rechecking the write buffer after releasing it.
+     */
+    void scheduleDrain() {
+        while (evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+            if (writeBuffer.isEmpty())
+                break;
+        }
+    }
+
+    final class AddTask implements Runnable {
+        final Node<K,V> node;
+        AddTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> e = node;
+            sketch.increment(e.key);
+            if (!e.alive || e.queue != UNLINKED)
+                return;
+            e.queue = WINDOW;
+            window.addLast(e);
+            ++windowSize;
+            if (expireAfterWriteNanos != 0L) {
+                writeOrder.addLast(e);
+                e.inWriteOrder = true;
+            }
+            if (expireAfterAccessNanos != 0L) {
+                e.idleStamp = e.accessTime;
+                idleOrder.addLast(e);
+                e.inIdleOrder = true;
+            }
+        }
+    }
+
+    final class UpdateTask implements Runnable {
+        final Node<K,V> node;
+        UpdateTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            Node<K,V> e = node;
+            if (e.inWriteOrder)
+                writeOrder.moveToBack(e);
+            onAccess(e);
+        }
+    }
+
+    final class RemovalTask implements Runnable {
+        final Node<K,V> node;
+        RemovalTask(Node<K,V> node) { this.node = node; }
+        public void run() {
+            unlink(node);
+        }
+    }
+
+    /* ---------------- Policy, under evictionLock -------------- */
+
+    void maintenance() {
+        for (ReadBuffer<K,V> rb : readBuffers)
+            rb.drainTo(this);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null)
+            task.run();
+        if (expireAfterWriteNanos != 0L || expireAfterAccessNanos != 0L)
+            expireEntries(System.nanoTime());
+        evictEntries();
+    }
+
+    /**
+     * Applies a read to the policy: moves the node to the back of its
+     * queue, promoting a probation entry to the protected queue.
+     */
+    void onAccess(Node<K,V> e) {
+        sketch.increment(e.key);
+        if (e.inIdleOrder) {
+            e.idleStamp = e.accessTime;
+            idleOrder.moveToBack(e);
+        }
+        switch (e.queue) {
+        case WINDOW:
+            window.moveToBack(e);
+            break;
+        case PROBATION:
+            probation.remove(e);
+            --probationSize;
+            e.queue = PROTECTED;
+            protect.addLast(e);
+            ++protectedSize;
+            while (protectedSize > protectedMaximum) {
+                Node<K,V> d = protect.first;
+                protect.remove(d);
+                --protectedSize;
+                d.queue = PROBATION;
+                probation.addLast(d);
+                ++probationSize;
+            }
+            break;
+        case PROTECTED:
+            protect.moveToBack(e);
+            break;
+        default:
+            break;                          // not yet added, or removed
+        }
+    }
+
+    /**
+     * Removes the node from the policy's queues.
+     */
+    void unlink(Node<K,V> e) {
+        switch (e.queue) {
+        case WINDOW:    window.remove(e);    --windowSize;    break;
+        case PROBATION: probation.remove(e); --probationSize; break;
+        case PROTECTED: protect.remove(e);   --protectedSize; break;
+        default: return;
+        }
+        e.queue = UNLINKED;
+        if (e.inWriteOrder) {
+            writeOrder.remove(e);
+            e.inWriteOrder = false;
+        }
+        if (e.inIdleOrder) {
+            idleOrder.remove(e);
+            e.inIdleOrder = false;
+        }
+    }
+
+    /**
+     * Removes the node from the map, if it is still mapped, and from the
+     * policy.
+     */
+    void evict(Node<K,V> e) {
+        if (data.remove(e.key, e)) {
+            synchronized (e) {
+                e.alive = false;
+            }
+            evictionCount.increment();
+        }
+        unlink(e);
+    }
+
+    /**
+     * Evicts expired entries from the heads of the expiration queues,
+     * which are ordered by write and access time.
+     */
+    void expireEntries(long now) {
+        long d;
+        Node<K,V> e;
+        if ((d = expireAfterWriteNanos) != 0L) {
+            while ((e = writeOrder.first) != null && now - e.writeTime >= d)
+                evict(e);
+        }
+        if ((d = expireAfterAccessNanos) != 0L) {
+            // A head read since it was queued, whose read was dropped
+            // from a full read buffer, is requeued rather than allowed
+            // to hide the entries behind it; each is visited once.
+            Node<K,V> end = idleOrder.last;
+            boolean requeue = true;
+            while ((e = idleOrder.first) != null) {
+                long t = e.accessTime;
+                boolean atEnd = (e == end);
+                if (now - t >= d)
+                    evict(e);
+                else if (requeue && t != e.idleStamp) {
+                    e.idleStamp = t;
+                    idleOrder.moveToBack(e);
+                }
+                else
+                    break;
+                if (atEnd)
+                    requeue = false;
+            }
+        }
+    }
+
+    /**
+     * Moves entries from the window into probation and then, while the
+     * cache is too large, lets each entry that just left the window
+     * compete against the least recently used probation entry.
+     */
+    void evictEntries() {
+        Node<K,V> candidate = null;
+        while (windowSize > windowMaximum) {
+            Node<K,V> e = window.first;
+            window.remove(e);
+            --windowSize;
+            e.queue = PROBATION;
+            probation.addLast(e);
+            ++probationSize;
+            if (candidate == null)
+                candidate = e;
+        }
+        while (windowSize + probationSize + protectedSize > maximumSize) {
+            Node<K,V> victim = probation.first;
+            if (candidate == null || victim == null || victim == candidate) {
+                // no contest: evict the coldest entry outright
+                if (victim == null)
+                    victim = (protect.first != null) ? protect.first :
+                        window.first;
+                if (victim == candidate)
+                    candidate = candidate.nextAccess;
+                evict(victim);
+            }
+            else if (admit(candidate.key, victim.key)) {
+                candidate = candidate.nextAccess;
+                evict(victim);
+            }
+            else {
+                Node<K,V> next = candidate.nextAccess;
+                evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    /**
+     * Decides whether the candidate should replace the victim, by
+     * comparing their estimated popularity.  A candidate of modest
+     * popularity that ties or loses is occasionally admitted anyway, so
+     * that an attacker cannot keep a hot victim resident by flooding
+     * the sketch with colliding keys.
+     */
+    boolean admit(K candidateKey, K victimKey) {
+        int victimFreq = sketch.frequency(victimKey);
+        int candidateFreq = sketch.frequency(candidateKey);
+        if (candidateFreq > victimFreq)
+            return true;
+        if (candidateFreq <= 5)
+            return false;
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+}
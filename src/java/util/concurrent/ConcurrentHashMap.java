@@ -54,6 +54,7 @@ import java.util.Spliterator;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
@@ -255,6 +256,12 @@ import java.util.stream.Stream;
  *
  * <p>All arguments to all task methods must be non-null.
  *
+ * <p>For capacity planning, a map may be asked to record internal
+ * events such as resizes, resize help, tree bin conversions and
+ * contended size updates (see {@link #setStatisticsEnabled} and {@link
+ * #statistics}).  Recording is off by default, in which case the only
+ * cost is a field read on paths that are already slow.
+ *
  * <p>This class is a member of the
  * <a href="{@docRoot}/../technotes/guides/collections/index.html">
  * Java Collections Framework</a>.
@@ -809,6 +816,11 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      */
     private transient volatile CounterCell[] counterCells;
 
+    /**
+     * Event counters, non-null only while statistics are enabled.
+     */
+    private transient volatile StatsRecorder stats;
+
     // views
     private transient KeySetView<K,V> keySet;
     private transient ValuesView<K,V> values;
@@ -2155,6 +2167,258 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return new KeySetView<K,V>(this, mappedValue);
     }
 
+    /**
+     * Enables or disables recording of internal event counts reported
+     * by {@link #statistics}.  Enabling discards previously recorded
+     * counts.  While disabled, no events are recorded and no overhead is
+     * incurred beyond a field read on resize, treeification and
+     * contended counting paths.
+     *
+     * @param enabled whether to record events
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        stats = enabled ? new StatsRecorder() : null;
+    }
+
+    /**
+     * Returns {@code true} if internal events are being recorded.
+     *
+     * @return {@code true} if statistics are enabled
+     * @see #setStatisticsEnabled
+     */
+    public boolean isStatisticsEnabled() {
+        return stats != null;
+    }
+
+    /**
+     * Returns a snapshot of statistics describing this map.  Event
+     * counts are those recorded since statistics were last enabled, and
+     * are all zero if they are disabled.  The table shape (bin length
+     * histogram, tree bin and counter cell counts) is computed by a
+     * traversal of the current table that takes time proportional to
+     * its length, and, like iterators, reflects the state of the table
+     * at some point at or since the start of the call.
+     *
+     * @return a snapshot of statistics for this map
+     */
+    public Statistics statistics() {
+        long[] hist = new long[TREEIFY_THRESHOLD + 1];
+        long treeBins = 0L;
+        Node<K,V>[] tab = table;
+        int len = (tab == null) ? 0 : tab.length;
+        for (int i = 0; i < len; ++i) {
+            Node<K,V> f = tabAt(tab, i);
+            if (f instanceof ForwardingNode) {
+                // bin already moved by a resize in progress: look at
+                // its two halves in the next table instead
+                Node<K,V>[] nt = ((ForwardingNode<K,V>)f).nextTable;
+                treeBins += countBin(tabAt(nt, i), hist);
+                treeBins += countBin(tabAt(nt, i + len), hist);
+            }
+            else
+                treeBins += countBin(f, hist);
+        }
+        CounterCell[] as = counterCells;
+        int cells = 0;
+        if (as != null) {
+            for (CounterCell a : as) {
+                if (a != null)
+                    ++cells;
+            }
+        }
+        return new Statistics(stats, mappingCount(), len, hist, treeBins,
+                              cells);
+    }
+
+    /**
+     * Adds the length of the given bin to the histogram, returning 1
+     * if it is a tree bin, else 0.
+     */
+    static <K,V> int countBin(Node<K,V> f, long[] hist) {
+        int last = hist.length - 1;
+        if (f instanceof TreeBin) {
+            ++hist[last];
+            return 1;
+        }
+        int c = 0;
+        for (Node<K,V> e = f; e != null && c < last; e = e.next) {
+            if (e.hash >= 0)
+                ++c;
+        }
+        ++hist[c];
+        return 0;
+    }
+
+    /**
+     * Counters of internal events, installed by
+     * {@link #setStatisticsEnabled}.
+     */
+    static final class StatsRecorder {
+        final LongAdder resizes = new LongAdder();
+        final LongAdder resizeHelps = new LongAdder();
+        final LongAdder transferNanos = new LongAdder();
+        final LongAdder treeifications = new LongAdder();
+        final LongAdder counterRetries = new LongAdder();
+        final LongAdder counterExpansions = new LongAdder();
+    }
+
+    /**
+     * An immutable snapshot of statistics for a {@link
+     * ConcurrentHashMap}, obtained from {@link #statistics}.
+     *
+     * <p>Resizing is cooperative: the thread that starts a resize is
+     * joined by other updating threads that encounter moved bins.  A
+     * {@linkplain #getResizeHelpCount help count} that is large relative
+     * to the {@linkplain #getResizeCount resize count}, together with a
+     * large {@linkplain #getTransferNanos transfer time}, indicates that
+     * threads spend their time resizing rather than updating, and that
+     * the map should be presized.  Tree bins indicate keys whose hash
+     * codes collide.  Counter retries indicate contention on the size
+     * counter cells.
+     */
+    public static final class Statistics {
+        private final long resizeCount;
+        private final long resizeHelpCount;
+        private final long transferNanos;
+        private final long treeifyCount;
+        private final long counterCellRetries;
+        private final long counterCellExpansions;
+        private final long mappingCount;
+        private final int tableLength;
+        private final long[] binLengthHistogram;
+        private final long treeBinCount;
+        private final int counterCellCount;
+
+        Statistics(StatsRecorder r, long mappingCount, int tableLength,
+                   long[] binLengthHistogram, long treeBinCount,
+                   int counterCellCount) {
+            if (r != null) {
+                this.resizeCount = r.resizes.sum();
+                this.resizeHelpCount = r.resizeHelps.sum();
+                this.transferNanos = r.transferNanos.sum();
+                this.treeifyCount = r.treeifications.sum();
+                this.counterCellRetries = r.counterRetries.sum();
+                this.counterCellExpansions = r.counterExpansions.sum();
+            }
+            else {
+                this.resizeCount = this.resizeHelpCount = 0L;
+                this.transferNanos = this.treeifyCount = 0L;
+                this.counterCellRetries = this.counterCellExpansions = 0L;
+            }
+            this.mappingCount = mappingCount;
+            this.tableLength = tableLength;
+            this.binLengthHistogram = binLengthHistogram;
+            this.treeBinCount = treeBinCount;
+            this.counterCellCount = counterCellCount;
+        }
+
+        /**
+         * Returns the number of resizes started, including the initial
+         * presizing of small tables in place of treeification.
+         *
+         * @return the number of resizes
+         */
+        public long getResizeCount() { return resizeCount; }
+
+        /**
+         * Returns the number of times a thread joined a resize already
+         * started by another thread.
+         *
+         * @return the number of resize helps
+         */
+        public long getResizeHelpCount() { return resizeHelpCount; }
+
+        /**
+         * Returns the total time, summed over all participating threads,
+         * spent moving bins to new tables.
+         *
+         * @return the total transfer time in nanoseconds
+         */
+        public long getTransferNanos() { return transferNanos; }
+
+        /**
+         * Returns the number of list bins converted to tree bins.
+         *
+         * @return the number of treeifications
+         */
+        public long getTreeifyCount() { return treeifyCount; }
+
+        /**
+         * Returns the number of times an update of the size counter had
+         * to be retried because of contention on a counter cell.
+         *
+         * @return the number of counter cell retries
+         */
+        public long getCounterCellRetries() { return counterCellRetries; }
+
+        /**
+         * Returns the number of times the counter cell table was doubled
+         * because of contention.
+         *
+         * @return the number of counter cell table expansions
+         */
+        public long getCounterCellExpansions() { return counterCellExpansions; }
+
+        /**
+         * Returns the number of mappings at the time of the snapshot.
+         *
+         * @return the number of mappings
+         */
+        public long getMappingCount() { return mappingCount; }
+
+        /**
+         * Returns the length of the table, or zero if not yet allocated.
+         *
+         * @return the table length
+         */
+        public int getTableLength() { return tableLength; }
+
+        /**
+         * Returns a histogram of bin lengths: element {@code i} is the
+         * number of bins holding {@code i} nodes, except that the last
+         * element counts all bins holding at least {@code
+         * TREEIFY_THRESHOLD} (8) nodes, including all tree bins.
+         *
+         * @return a new array holding the bin length histogram
+         */
+        public long[] getBinLengthHistogram() {
+            return binLengthHistogram.clone();
+        }
+
+        /**
+         * Returns the number of bins currently held as trees.
+         *
+         * @return the number of tree bins
+         */
+        public long getTreeBinCount() { return treeBinCount; }
+
+        /**
+         * Returns the number of counter cells in use.
+         *
+         * @return the number of counter cells
+         */
+        public int getCounterCellCount() { return counterCellCount; }
+
+        /**
+         * Returns a string identifying these statistics.
+         *
+         * @return a string representation of these statistics
+         */
+        public String toString() {
+            return "Statistics[mappings=" + mappingCount +
+                ", tableLength=" + tableLength +
+                ", resizes=" + resizeCount +
+                ", resizeHelps=" + resizeHelpCount +
+                ", transferNanos=" + transferNanos +
+                ", treeifications=" + treeifyCount +
+                ", treeBins=" + treeBinCount +
+                ", binLengths=" + Arrays.toString(binLengthHistogram) +
+                ", counterCells=" + counterCellCount +
+                ", counterCellRetries=" + counterCellRetries +
+                ", counterCellExpansions=" + counterCellExpansions + "]";
+        }
+    }
+
     /* ---------------- Special Nodes -------------- */
 
     /**
@@ -2360,11 +2624,30 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         }
     }
 
+    /**
+     * Moves and/or copies the nodes in each bin to new table, timing
+     * the work if statistics are enabled.
+     */
+    private final void transfer(Node<K,V>[] tab, Node<K,V>[] nextTab) {
+        StatsRecorder st;
+        if ((st = stats) == null)
+            transferBins(tab, nextTab);
+        else {
+            (nextTab == null ? st.resizes : st.resizeHelps).increment();
+            long start = System.nanoTime();
+            try {
+                transferBins(tab, nextTab);
+            } finally {
+                st.transferNanos.add(System.nanoTime() - start);
+            }
+        }
+    }
+
     /**
      * Moves and/or copies the nodes in each bin to new table. See
      * above for explanation.
      */
-    private final void transfer(Node<K,V>[] tab, Node<K,V>[] nextTab) {
+    private final void transferBins(Node<K,V>[] tab, Node<K,V>[] nextTab) {
         int n = tab.length, stride;
         if ((stride = (NCPU > 1) ? (n >>> 3) / NCPU : n) < MIN_TRANSFER_STRIDE)
             stride = MIN_TRANSFER_STRIDE; // subdivide range
@@ -2529,6 +2812,9 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             wasUncontended = true;
         }
         boolean collide = false;                // True if last slot nonempty
+        StatsRecorder st;
+        if (!wasUncontended && (st = stats) != null)
+            st.counterRetries.increment();
         for (;;) {
             CounterCell[] as; CounterCell a; int n; long v;
             if ((as = counterCells) != null && (n = as.length) > 0) {
@@ -2572,6 +2858,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                             for (int i = 0; i < n; ++i)
                                 rs[i] = as[i];
                             counterCells = rs;
+                            if ((st = stats) != null)
+                                st.counterExpansions.increment();
                         }
                     } finally {
                         cellsBusy = 0;
@@ -2579,6 +2867,8 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                     collide = false;
                     continue;                   // Retry with expanded table
                 }
+                if ((st = stats) != null)
+                    st.counterRetries.increment();
                 h = ThreadLocalRandom.advanceProbe(h);
             }
             else if (cellsBusy == 0 && counterCells == as &&
@@ -2628,6 +2918,9 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
                             tl = p;
                         }
                         setTabAt(tab, index, new TreeBin<K,V>(hd));
+                        StatsRecorder st;
+                        if ((st = stats) != null)
+                            st.treeifications.increment();
                     }
                 }
             }
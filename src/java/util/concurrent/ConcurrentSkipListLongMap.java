@@ -0,0 +1,2197 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LongObjectHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+
+/**
+ * A {@link ConcurrentSkipListMap} specialized for primitive {@code long}
+ * keys, in ascending key order. Keys are stored inline in the base-level
+ * nodes of the skip list and compared directly, so lookups and updates
+ * neither box their keys nor call {@code compareTo}, and every hop of a
+ * search reads the key from the node it is already visiting.
+ *
+ * <p>The algorithms, and hence the concurrency properties, are those of
+ * {@code ConcurrentSkipListMap}: expected average <i>log(n)</i> time
+ * cost for {@code containsKey}, {@code get}, {@code put} and
+ * {@code remove} and their variants, lock-free updates, weakly
+ * consistent iteration, and a {@code size} method that traverses the
+ * map. Like that class, this one does <em>not</em> permit {@code null}
+ * values.
+ *
+ * <p>The navigation methods come in primitive form: {@link
+ * #ceilingEntry(long)} and its relatives return a {@link LongEntry}, a
+ * snapshot whose key is a {@code long}, and {@link #firstKey()} and
+ * {@link #lastKey()} return a {@code long}. The {@code lowerKey},
+ * {@code floorKey}, {@code ceilingKey} and {@code higherKey} methods
+ * return a {@code Long}, or {@code null} if there is no such key.
+ * {@link #forEach(long, long, LongObjectHashMap.LongObjConsumer)} visits
+ * a key range without creating entries.
+ *
+ * <p>{@link #asMap} returns a {@link ConcurrentNavigableMap
+ * ConcurrentNavigableMap&lt;Long,V&gt;} view, with sub map and
+ * descending views, for code that needs the {@code Map} interfaces.
+ * Operations through that view box their keys.
+ *
+ * @param <V> the type of mapped values
+ * @see ConcurrentSkipListMap
+ * @see java.util.LongObjectHashMap
+ */
+public class ConcurrentSkipListLongMap<V> implements Cloneable, Serializable {
+    /*
+     * This is a transcription of ConcurrentSkipListMap, whose
+     * implementation notes apply, with the key type fixed to long.
+     * That class distinguishes marker and header nodes partly by
+     * their null keys; here they are told apart by their values
+     * alone (a marker's value is itself, the base header's is
+     * BASE_HEADER), and their key fields are never read. Comparisons
+     * are the primitive < and >.
+     *
+     * Notation guide for local variables
+     * Node:         b, n, f    for  predecessor, node, successor
+     * Index:        q, r, d    for index node, right, down.
+     *               t          for another index node
+     * Head:         h
+     * Levels:       j
+     * Keys:         k, key
+     * Values:       v, value
+     */
+
+    private static final long serialVersionUID = 4126317649251702163L;
+
+    /**
+     * Special value used to identify base-level header
+     */
+    private static final Object BASE_HEADER = new Object();
+
+    /**
+     * The topmost head index of the skiplist.
+     */
+    private transient volatile HeadIndex<V> head;
+
+    /** Lazily initialized map view */
+    private transient MapView<V> mapView;
+
+    /**
+     * Initializes or resets state. Needed by constructors, clone,
+     * clear and readObject.
+     */
+    private void initialize() {
+        head = new HeadIndex<V>(new Node<V>(0L, BASE_HEADER, null),
+                                null, null, 1);
+    }
+
+    /**
+     * compareAndSet head node
+     */
+    private boolean casHead(HeadIndex<V> cmp, HeadIndex<V> val) {
+        return UNSAFE.compareAndSwapObject(this, headOffset, cmp, val);
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Nodes hold keys and values, and are singly linked in sorted
+     * order, possibly with some intervening marker nodes. The list is
+     * headed by a dummy node accessible as head.node. The value field
+     * is declared only as Object because it takes special non-V
+     * values for marker and header nodes.
+     */
+    static final class Node<V> {
+        final long key;
+        volatile Object value;
+        volatile Node<V> next;
+
+        /**
+         * Creates a new regular node.
+         */
+        Node(long key, Object value, Node<V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        /**
+         * Creates a new marker node. A marker is distinguished by
+         * having its value field point to itself.
+         */
+        Node(Node<V> next) {
+            this.key = 0L;
+            this.value = this;
+            this.next = next;
+        }
+
+        /**
+         * compareAndSet value field
+         */
+        boolean casValue(Object cmp, Object val) {
+            return UNSAFE.compareAndSwapObject(this, valueOffset, cmp, val);
+        }
+
+        /**
+         * compareAndSet next field
+         */
+        boolean casNext(Node<V> cmp, Node<V> val) {
+            return UNSAFE.compareAndSwapObject(this, nextOffset, cmp, val);
+        }
+
+        /**
+         * Returns true if this node is the header of base-level list.
+         * @return true if this node is header node
+         */
+        boolean isBaseHeader() {
+            return value == BASE_HEADER;
+        }
+
+        /**
+         * Tries to append a deletion marker to this node.
+         * @param f the assumed current successor of this node
+         * @return true if successful
+         */
+        boolean appendMarker(Node<V> f) {
+            return casNext(f, new Node<V>(f));
+        }
+
+        /**
+         * Helps out a deletion by appending marker or unlinking from
+         * predecessor. This is called during traversals when value
+         * field seen to be null.
+         * @param b predecessor
+         * @param f successor
+         */
+        void helpDelete(Node<V> b, Node<V> f) {
+            if (f == next && this == b.next) {
+                if (f == null || f.value != f) // not already marked
+                    casNext(f, new Node<V>(f));
+                else
+                    b.casNext(this, f.next);
+            }
+        }
+
+        /**
+         * Returns value if this node contains a valid key-value pair,
+         * else null.
+         * @return this node's value if it isn't a marker or header or
+         * is deleted, else null
+         */
+        V getValidValue() {
+            Object v = value;
+            if (v == this || v == BASE_HEADER)
+                return null;
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            return vv;
+        }
+
+        /**
+         * Creates and returns a new LongEntry holding current mapping
+         * if this node holds a valid value, else null.
+         * @return new entry or null
+         */
+        LongEntry<V> createSnapshot() {
+            Object v = value;
+            if (v == null || v == this || v == BASE_HEADER)
+                return null;
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            return new LongEntry<V>(key, vv);
+        }
+
+        // UNSAFE mechanics
+
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long valueOffset;
+        private static final long nextOffset;
+
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Node.class;
+                valueOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("value"));
+                nextOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("next"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /* ---------------- Indexing -------------- */
+
+    /**
+     * Index nodes represent the levels of the skip list.
+     */
+    static class Index<V> {
+        final Node<V> node;
+        final Index<V> down;
+        volatile Index<V> right;
+
+        /**
+         * Creates index node with given values.
+         */
+        Index(Node<V> node, Index<V> down, Index<V> right) {
+            this.node = node;
+            this.down = down;
+            this.right = right;
+        }
+
+        /**
+         * compareAndSet right field
+         */
+        final boolean casRight(Index<V> cmp, Index<V> val) {
+            return UNSAFE.compareAndSwapObject(this, rightOffset, cmp, val);
+        }
+
+        /**
+         * Returns true if the node this indexes has been deleted.
+         * @return true if indexed node is known to be deleted
+         */
+        final boolean indexesDeletedNode() {
+            return node.value == null;
+        }
+
+        /**
+         * Tries to CAS newSucc as successor.  To minimize races with
+         * unlink that may lose this index node, if the node being
+         * indexed is known to be deleted, it doesn't try to link in.
+         * @param succ the expected current successor
+         * @param newSucc the new successor
+         * @return true if successful
+         */
+        final boolean link(Index<V> succ, Index<V> newSucc) {
+            Node<V> n = node;
+            newSucc.right = succ;
+            return n.value != null && casRight(succ, newSucc);
+        }
+
+        /**
+         * Tries to CAS right field to skip over apparent successor
+         * succ.  Fails (forcing a retraversal by caller) if this node
+         * is known to be deleted.
+         * @param succ the expected current successor
+         * @return true if successful
+         */
+        final boolean unlink(Index<V> succ) {
+            return node.value != null && casRight(succ, succ.right);
+        }
+
+        // Unsafe mechanics
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long rightOffset;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Index.class;
+                rightOffset = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("right"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /* ---------------- Head nodes -------------- */
+
+    /**
+     * Nodes heading each level keep track of their level.
+     */
+    static final class HeadIndex<V> extends Index<V> {
+        final int level;
+        HeadIndex(Node<V> node, Index<V> down, Index<V> right, int level) {
+            super(node, down, right);
+            this.level = level;
+        }
+    }
+
+    /* ---------------- Traversal -------------- */
+
+    /**
+     * Returns a base-level node with key strictly less than given key,
+     * or the base-level header if there is no such node.  Also
+     * unlinks indexes to deleted nodes found along the way.  Callers
+     * rely on this side-effect of clearing indices to deleted nodes.
+     * @param key the key
+     * @return a predecessor of key
+     */
+    private Node<V> findPredecessor(long key) {
+        for (;;) {
+            for (Index<V> q = head, r = q.right, d;;) {
+                if (r != null) {
+                    Node<V> n = r.node;
+                    long k = n.key;
+                    if (n.value == null) {
+                        if (!q.unlink(r))
+                            break;           // restart
+                        r = q.right;         // reread r
+                        continue;
+                    }
+                    if (key > k) {
+                        q = r;
+                        r = r.right;
+                        continue;
+                    }
+                }
+                if ((d = q.down) == null)
+                    return q.node;
+                q = d;
+                r = d.right;
+            }
+        }
+    }
+
+    /**
+     * Returns node holding key or null if no such, clearing out any
+     * deleted nodes seen along the way, as
+     * ConcurrentSkipListMap.findNode.
+     *
+     * @param key the key
+     * @return node holding key, or null if no such
+     */
+    private Node<V> findNode(long key) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v; long k;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    break;
+                if ((v = n.value) == null) {    // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)  // b is deleted
+                    break;
+                if ((k = n.key) == key)
+                    return n;
+                if (key < k)
+                    break outer;
+                b = n;
+                n = f;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets value for key. Almost the same as findNode, but returns
+     * the found value (to avoid retries during re-reads)
+     *
+     * @param key the key
+     * @return the value, or null if absent
+     */
+    private V doGet(long key) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v; long k;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                // inconsistent read
+                    break;
+                if ((v = n.value) == null) {    // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)  // b is deleted
+                    break;
+                if ((k = n.key) == key) {
+                    @SuppressWarnings("unchecked") V vv = (V)v;
+                    return vv;
+                }
+                if (key < k)
+                    break outer;
+                b = n;
+                n = f;
+            }
+        }
+        return null;
+    }
+
+    /* ---------------- Insertion -------------- */
+
+    /**
+     * Main insertion method.  Adds element if not present, or
+     * replaces value if present and onlyIfAbsent is false.
+     * @param key the key
+     * @param value the value that must be associated with key
+     * @param onlyIfAbsent if should not insert if already present
+     * @return the old value, or null if newly inserted
+     */
+    private V doPut(long key, V value, boolean onlyIfAbsent) {
+        Node<V> z;             // added node
+        if (value == null)
+            throw new NullPointerException();
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                if (n != null) {
+                    Object v; long k;
+                    Node<V> f = n.next;
+                    if (n != b.next)               // inconsistent read
+                        break;
+                    if ((v = n.value) == null) {   // n is deleted
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n) // b is deleted
+                        break;
+                    if (key > (k = n.key)) {
+                        b = n;
+                        n = f;
+                        continue;
+                    }
+                    if (key == k) {
+                        if (onlyIfAbsent || n.casValue(v, value)) {
+                            @SuppressWarnings("unchecked") V vv = (V)v;
+                            return vv;
+                        }
+                        break; // restart if lost race to replace value
+                    }
+                    // else key < k; fall through
+                }
+
+                z = new Node<V>(key, value, n);
+                if (!b.casNext(n, z))
+                    break;         // restart if lost race to append to b
+                break outer;
+            }
+        }
+
+        int rnd = ThreadLocalRandom.nextSecondarySeed();
+        if ((rnd & 0x80000001) == 0) { // test highest and lowest bits
+            int level = 1, max;
+            while (((rnd >>>= 1) & 1) != 0)
+                ++level;
+            Index<V> idx = null;
+            HeadIndex<V> h = head;
+            if (level <= (max = h.level)) {
+                for (int i = 1; i <= level; ++i)
+                    idx = new Index<V>(z, idx, null);
+            }
+            else { // try to grow by one level
+                level = max + 1; // hold in array and later pick the one to use
+                @SuppressWarnings("unchecked")Index<V>[] idxs =
+                    (Index<V>[])new Index<?>[level+1];
+                for (int i = 1; i <= level; ++i)
+                    idxs[i] = idx = new Index<V>(z, idx, null);
+                for (;;) {
+                    h = head;
+                    int oldLevel = h.level;
+                    if (level <= oldLevel) // lost race to add level
+                        break;
+                    HeadIndex<V> newh = h;
+                    Node<V> oldbase = h.node;
+                    for (int j = oldLevel+1; j <= level; ++j)
+                        newh = new HeadIndex<V>(oldbase, newh, idxs[j], j);
+                    if (casHead(h, newh)) {
+                        h = newh;
+                        idx = idxs[level = oldLevel];
+                        break;
+                    }
+                }
+            }
+            // find insertion points and splice in
+            splice: for (int insertionLevel = level;;) {
+                int j = h.level;
+                for (Index<V> q = h, r = q.right, t = idx;;) {
+                    if (q == null || t == null)
+                        break splice;
+                    if (r != null) {
+                        Node<V> n = r.node;
+                        // compare before deletion check avoids needing recheck
+                        boolean after = key > n.key;
+                        if (n.value == null) {
+                            if (!q.unlink(r))
+                                break;
+                            r = q.right;
+                            continue;
+                        }
+                        if (after) {
+                            q = r;
+                            r = r.right;
+                            continue;
+                        }
+                    }
+
+                    if (j == insertionLevel) {
+                        if (!q.link(r, t))
+                            break; // restart
+                        if (t.node.value == null) {
+                            findNode(key);
+                            break splice;
+                        }
+                        if (--insertionLevel == 0)
+                            break splice;
+                    }
+
+                    if (--j >= insertionLevel && j < level)
+                        t = t.down;
+                    q = q.down;
+                    r = q.right;
+                }
+            }
+        }
+        return null;
+    }
+
+    /* ---------------- Deletion -------------- */
+
+    /**
+     * Main deletion method. Locates node, nulls value, appends a
+     * deletion marker, unlinks predecessor, removes associated index
+     * nodes, and possibly reduces head index level, as
+     * ConcurrentSkipListMap.doRemove.
+     *
+     * @param key the key
+     * @param value if non-null, the value that must be
+     * associated with key
+     * @return the previous value, or null if not found
+     */
+    final V doRemove(long key, Object value) {
+        outer: for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v; long k;
+                if (n == null)
+                    break outer;
+                Node<V> f = n.next;
+                if (n != b.next)                    // inconsistent read
+                    break;
+                if ((v = n.value) == null) {        // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    break;
+                if (key < (k = n.key))
+                    break outer;
+                if (key > k) {
+                    b = n;
+                    n = f;
+                    continue;
+                }
+                if (value != null && !value.equals(v))
+                    break outer;
+                if (!n.casValue(v, null))
+                    break;
+                if (!n.appendMarker(f) || !b.casNext(n, f))
+                    findNode(key);                  // retry via findNode
+                else {
+                    findPredecessor(key);           // clean index
+                    if (head.right == null)
+                        tryReduceLevel();
+                }
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Possibly reduce head level if it has no nodes, as
+     * ConcurrentSkipListMap.tryReduceLevel.
+     */
+    private void tryReduceLevel() {
+        HeadIndex<V> h = head;
+        HeadIndex<V> d;
+        HeadIndex<V> e;
+        if (h.level > 3 &&
+            (d = (HeadIndex<V>)h.down) != null &&
+            (e = (HeadIndex<V>)d.down) != null &&
+            e.right == null &&
+            d.right == null &&
+            h.right == null &&
+            casHead(h, d) && // try to set
+            h.right != null) // recheck
+            casHead(d, h);   // try to backout
+    }
+
+    /* ---------------- Finding and removing first element -------------- */
+
+    /**
+     * Specialized variant of findNode to get first valid node.
+     * @return first node or null if empty
+     */
+    final Node<V> findFirst() {
+        for (Node<V> b, n;;) {
+            if ((n = (b = head.node).next) == null)
+                return null;
+            if (n.value != null)
+                return n;
+            n.helpDelete(b, n.next);
+        }
+    }
+
+    /**
+     * Removes first entry; returns its snapshot.
+     * @return null if empty, else snapshot of first entry
+     */
+    private LongEntry<V> doRemoveFirstEntry() {
+        for (Node<V> b, n;;) {
+            if ((n = (b = head.node).next) == null)
+                return null;
+            Node<V> f = n.next;
+            if (n != b.next)
+                continue;
+            Object v = n.value;
+            if (v == null) {
+                n.helpDelete(b, f);
+                continue;
+            }
+            if (!n.casValue(v, null))
+                continue;
+            if (!n.appendMarker(f) || !b.casNext(n, f))
+                findFirst(); // retry
+            clearIndexToFirst();
+            @SuppressWarnings("unchecked") V vv = (V)v;
+            return new LongEntry<V>(n.key, vv);
+        }
+    }
+
+    /**
+     * Clears out index nodes associated with deleted first entry.
+     */
+    private void clearIndexToFirst() {
+        for (;;) {
+            for (Index<V> q = head;;) {
+                Index<V> r = q.right;
+                if (r != null && r.indexesDeletedNode() && !q.unlink(r))
+                    break;
+                if ((q = q.down) == null) {
+                    if (head.right == null)
+                        tryReduceLevel();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes last entry; returns its snapshot.
+     * Specialized variant of doRemove.
+     * @return null if empty, else snapshot of last entry
+     */
+    private LongEntry<V> doRemoveLastEntry() {
+        for (;;) {
+            Node<V> b = findPredecessorOfLast();
+            Node<V> n = b.next;
+            if (n == null) {
+                if (b.isBaseHeader())               // empty
+                    return null;
+                else
+                    continue; // all b's successors are deleted; retry
+            }
+            for (;;) {
+                Node<V> f = n.next;
+                if (n != b.next)                    // inconsistent read
+                    break;
+                Object v = n.value;
+                if (v == null) {                    // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    break;
+                if (f != null) {
+                    b = n;
+                    n = f;
+                    continue;
+                }
+                if (!n.casValue(v, null))
+                    break;
+                long key = n.key;
+                if (!n.appendMarker(f) || !b.casNext(n, f))
+                    findNode(key);                  // retry via findNode
+                else {                              // clean index
+                    findPredecessor(key);
+                    if (head.right == null)
+                        tryReduceLevel();
+                }
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return new LongEntry<V>(key, vv);
+            }
+        }
+    }
+
+    /* ---------------- Finding and removing last element -------------- */
+
+    /**
+     * Specialized version of find to get last valid node.
+     * @return last node or null if empty
+     */
+    final Node<V> findLast() {
+        Index<V> q = head;
+        for (;;) {
+            Index<V> d, r;
+            if ((r = q.right) != null) {
+                if (r.indexesDeletedNode()) {
+                    q.unlink(r);
+                    q = head; // restart
+                }
+                else
+                    q = r;
+            } else if ((d = q.down) != null) {
+                q = d;
+            } else {
+                for (Node<V> b = q.node, n = b.next;;) {
+                    if (n == null)
+                        return b.isBaseHeader() ? null : b;
+                    Node<V> f = n.next;            // inconsistent read
+                    if (n != b.next)
+                        break;
+                    Object v = n.value;
+                    if (v == null) {                 // n is deleted
+                        n.helpDelete(b, f);
+                        break;
+                    }
+                    if (b.value == null || v == n)      // b is deleted
+                        break;
+                    b = n;
+                    n = f;
+                }
+                q = head; // restart
+            }
+        }
+    }
+
+    /**
+     * Specialized variant of findPredecessor to get predecessor of last
+     * valid node.  Needed when removing the last entry.  It is possible
+     * that all successors of returned node will have been deleted upon
+     * return, in which case this method can be retried.
+     * @return likely predecessor of last node
+     */
+    private Node<V> findPredecessorOfLast() {
+        for (;;) {
+            for (Index<V> q = head;;) {
+                Index<V> d, r;
+                if ((r = q.right) != null) {
+                    if (r.indexesDeletedNode()) {
+                        q.unlink(r);
+                        break;    // must restart
+                    }
+                    // proceed as far across as possible without overshooting
+                    if (r.node.next != null) {
+                        q = r;
+                        continue;
+                    }
+                }
+                if ((d = q.down) != null)
+                    q = d;
+                else
+                    return q.node;
+            }
+        }
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    // Control values OR'ed as arguments to findNear
+
+    static final int EQ = 1;
+    static final int LT = 2;
+    static final int GT = 0; // Actually checked as !LT
+
+    /**
+     * Utility for ceiling, floor, lower, higher methods.
+     * @param key the key
+     * @param rel the relation -- OR'ed combination of EQ, LT, GT
+     * @return nearest node fitting relation, or null if no such
+     */
+    final Node<V> findNear(long key, int rel) {
+        for (;;) {
+            for (Node<V> b = findPredecessor(key), n = b.next;;) {
+                Object v;
+                if (n == null)
+                    return ((rel & LT) == 0 || b.isBaseHeader()) ? null : b;
+                Node<V> f = n.next;
+                if (n != b.next)                  // inconsistent read
+                    break;
+                if ((v = n.value) == null) {      // n is deleted
+                    n.helpDelete(b, f);
+                    break;
+                }
+                if (b.value == null || v == n)      // b is deleted
+                    break;
+                long k = n.key;
+                if ((key == k && (rel & EQ) != 0) ||
+                    (key <  k && (rel & LT) == 0))
+                    return n;
+                if (key <= k && (rel & LT) != 0)
+                    return b.isBaseHeader() ? null : b;
+                b = n;
+                n = f;
+            }
+        }
+    }
+
+    /**
+     * Returns LongEntry for results of findNear.
+     * @param key the key
+     * @param rel the relation -- OR'ed combination of EQ, LT, GT
+     * @return Entry fitting relation, or null if no such
+     */
+    final LongEntry<V> getNear(long key, int rel) {
+        for (;;) {
+            Node<V> n = findNear(key, rel);
+            if (n == null)
+                return null;
+            LongEntry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Returns the key of the result of findNear, or null.
+     */
+    final Long getNearKey(long key, int rel) {
+        Node<V> n = findNear(key, rel);
+        return (n == null) ? null : n.key;
+    }
+
+    /* ---------------- Constructors -------------- */
+
+    /**
+     * Constructs a new, empty map.
+     */
+    public ConcurrentSkipListLongMap() {
+        initialize();
+    }
+
+    /**
+     * Returns a shallow copy of this {@code ConcurrentSkipListLongMap}
+     * instance. (The values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public ConcurrentSkipListLongMap<V> clone() {
+        try {
+            @SuppressWarnings("unchecked")
+            ConcurrentSkipListLongMap<V> clone =
+                (ConcurrentSkipListLongMap<V>) super.clone();
+            clone.initialize();
+            clone.mapView = null;
+            for (Node<V> n = findFirst(); n != null; n = n.next) {
+                V v = n.getValidValue();
+                if (v != null)
+                    clone.doPut(n.key, v, false);
+            }
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData For each key-value mapping, in ascending key order,
+     * {@code true} (boolean), the key (long) and the value (Object),
+     * followed by {@code false} (boolean).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        for (Node<V> n = findFirst(); n != null; n = n.next) {
+            V v = n.getValidValue();
+            if (v != null) {
+                s.writeBoolean(true);
+                s.writeLong(n.key);
+                s.writeObject(v);
+            }
+        }
+        s.writeBoolean(false);
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        initialize();
+        while (s.readBoolean()) {
+            long k = s.readLong();
+            Object v = s.readObject();
+            if (v == null)
+                throw new NullPointerException();
+            doPut(k, (V)v, false);
+        }
+    }
+
+    /* ------ Map API methods ------ */
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     */
+    public boolean containsKey(long key) {
+        return doGet(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if there is no mapping for the key
+     */
+    public V get(long key) {
+        return doGet(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or the given defaultValue if this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if this map contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the defaultValue
+     */
+    public V getOrDefault(long key, V defaultValue) {
+        V v;
+        return (v = doGet(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V put(long key, V value) {
+        return doPut(key, value, false);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     */
+    public V remove(long key) {
+        return doRemove(key, null);
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * map size.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Node<V> n = findFirst(); n != null; n = n.next) {
+            V v = n.getValidValue();
+            if (v != null && value.equals(v))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.  If this map
+     * contains more than {@code Integer.MAX_VALUE} elements, it
+     * returns {@code Integer.MAX_VALUE}.
+     *
+     * <p>As for {@link ConcurrentSkipListMap#size}, this method is
+     * <em>NOT</em> a constant-time operation, and may be inaccurate if
+     * the map is modified while it runs.
+     *
+     * @return the number of elements in this map
+     */
+    public int size() {
+        long count = 0;
+        for (Node<V> n = findFirst(); n != null; n = n.next) {
+            if (n.getValidValue() != null)
+                ++count;
+        }
+        return (count >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) count;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return findFirst() == null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        initialize();
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this map unless {@code null}.  The function
+     * is <em>NOT</em> guaranteed to be applied once atomically only
+     * if the value is not present.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param mappingFunction the function to compute a value
+     * @return the current (existing or computed) value associated with
+     *         the specified key, or null if the computed value is null
+     * @throws NullPointerException if the mappingFunction is null
+     */
+    public V computeIfAbsent(long key,
+                             LongFunction<? extends V> mappingFunction) {
+        if (mappingFunction == null)
+            throw new NullPointerException();
+        V v, p, r;
+        if ((v = doGet(key)) == null &&
+            (r = mappingFunction.apply(key)) != null)
+            v = (p = doPut(key, r, true)) == null ? r : p;
+        return v;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.  Otherwise, replaces the
+     * value with the results of the given remapping function, or
+     * removes if {@code null}. The function is <em>NOT</em>
+     * guaranteed to be applied once atomically.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value the value to use if absent
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key, or null if none
+     * @throws NullPointerException if the specified value or the
+     *         remappingFunction is null
+     */
+    public V merge(long key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        if (value == null || remappingFunction == null)
+            throw new NullPointerException();
+        for (;;) {
+            Node<V> n; Object v; V r;
+            if ((n = findNode(key)) == null) {
+                if (doPut(key, value, true) == null)
+                    return value;
+            }
+            else if ((v = n.value) != null) {
+                @SuppressWarnings("unchecked") V vv = (V) v;
+                if ((r = remappingFunction.apply(vv, value)) != null) {
+                    if (n.casValue(vv, r))
+                        return r;
+                }
+                else if (doRemove(key, vv) != null)
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V putIfAbsent(long key, V value) {
+        return doPut(key, value, true);
+    }
+
+    /**
+     * Removes the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value expected to be associated with the specified key
+     * @return {@code true} if the value was removed
+     */
+    public boolean remove(long key, Object value) {
+        return value != null && doRemove(key, value) != null;
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to a given value.
+     *
+     * @param key key with which the specified value is associated
+     * @param oldValue value expected to be associated with the specified key
+     * @param newValue value to be associated with the specified key
+     * @return {@code true} if the value was replaced
+     * @throws NullPointerException if either value is null
+     */
+    public boolean replace(long key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null)
+            throw new NullPointerException();
+        for (;;) {
+            Node<V> n; Object v;
+            if ((n = findNode(key)) == null)
+                return false;
+            if ((v = n.value) != null) {
+                if (!oldValue.equals(v))
+                    return false;
+                if (n.casValue(v, newValue))
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * Replaces the entry for a key only if currently mapped to some value.
+     *
+     * @param key key with which the specified value is associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified value is null
+     */
+    public V replace(long key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (;;) {
+            Node<V> n; Object v;
+            if ((n = findNode(key)) == null)
+                return null;
+            if ((v = n.value) != null && n.casValue(v, value)) {
+                @SuppressWarnings("unchecked") V vv = (V)v;
+                return vv;
+            }
+        }
+    }
+
+    /**
+     * Performs the given action for each mapping in this map, in
+     * ascending key order.
+     *
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(LongObjectHashMap.LongObjConsumer<? super V> action) {
+        if (action == null) throw new NullPointerException();
+        V v;
+        for (Node<V> n = findFirst(); n != null; n = n.next) {
+            if ((v = n.getValidValue()) != null)
+                action.accept(n.key, v);
+        }
+    }
+
+    /**
+     * Performs the given action for each mapping in this map whose key
+     * is at least {@code fromKey} and less than {@code toKey}, in
+     * ascending key order.
+     *
+     * @param fromKey low endpoint (inclusive) of the keys visited
+     * @param toKey high endpoint (exclusive) of the keys visited
+     * @param action the action to be performed for each mapping
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(long fromKey, long toKey,
+                        LongObjectHashMap.LongObjConsumer<? super V> action) {
+        if (action == null) throw new NullPointerException();
+        if (fromKey >= toKey)
+            return;
+        V v;
+        for (Node<V> n = findNear(fromKey, GT|EQ);
+             n != null && n.key < toKey; n = n.next) {
+            if ((v = n.getValidValue()) != null)
+                action.accept(n.key, v);
+        }
+    }
+
+    /* ------ Navigation ------ */
+
+    /**
+     * Returns the first (lowest) key currently in this map.
+     *
+     * @return the first (lowest) key currently in this map
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long firstKey() {
+        Node<V> n = findFirst();
+        if (n == null)
+            throw new NoSuchElementException();
+        return n.key;
+    }
+
+    /**
+     * Returns the last (highest) key currently in this map.
+     *
+     * @return the last (highest) key currently in this map
+     * @throws NoSuchElementException if this map is empty
+     */
+    public long lastKey() {
+        Node<V> n = findLast();
+        if (n == null)
+            throw new NoSuchElementException();
+        return n.key;
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * strictly less than the given key, or {@code null} if there is
+     * no such key.
+     *
+     * @param key the key
+     * @return an entry with the greatest key less than {@code key},
+     *         or {@code null} if there is no such key
+     */
+    public LongEntry<V> lowerEntry(long key) {
+        return getNear(key, LT);
+    }
+
+    /**
+     * Returns the greatest key strictly less than the given key, or
+     * {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the greatest key less than {@code key},
+     *         or {@code null} if there is no such key
+     */
+    public Long lowerKey(long key) {
+        return getNearKey(key, LT);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * less than or equal to the given key, or {@code null} if there
+     * is no such key.
+     *
+     * @param key the key
+     * @return an entry with the greatest key less than or equal to
+     *         {@code key}, or {@code null} if there is no such key
+     */
+    public LongEntry<V> floorEntry(long key) {
+        return getNear(key, LT|EQ);
+    }
+
+    /**
+     * Returns the greatest key less than or equal to the given key,
+     * or {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the greatest key less than or equal to {@code key},
+     *         or {@code null} if there is no such key
+     */
+    public Long floorKey(long key) {
+        return getNearKey(key, LT|EQ);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * greater than or equal to the given key, or {@code null} if
+     * there is no such entry.
+     *
+     * @param key the key
+     * @return an entry with the least key greater than or equal to
+     *         {@code key}, or {@code null} if there is no such key
+     */
+    public LongEntry<V> ceilingEntry(long key) {
+        return getNear(key, GT|EQ);
+    }
+
+    /**
+     * Returns the least key greater than or equal to the given key,
+     * or {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the least key greater than or equal to {@code key},
+     *         or {@code null} if there is no such key
+     */
+    public Long ceilingKey(long key) {
+        return getNearKey(key, GT|EQ);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * strictly greater than the given key, or {@code null} if there
+     * is no such key.
+     *
+     * @param key the key
+     * @return an entry with the least key greater than {@code key},
+     *         or {@code null} if there is no such key
+     */
+    public LongEntry<V> higherEntry(long key) {
+        return getNear(key, GT);
+    }
+
+    /**
+     * Returns the least key strictly greater than the given key, or
+     * {@code null} if there is no such key.
+     *
+     * @param key the key
+     * @return the least key greater than {@code key},
+     *         or {@code null} if there is no such key
+     */
+    public Long higherKey(long key) {
+        return getNearKey(key, GT);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least
+     * key in this map, or {@code null} if the map is empty.
+     *
+     * @return an entry with the least key, or {@code null} if this
+     *         map is empty
+     */
+    public LongEntry<V> firstEntry() {
+        for (;;) {
+            Node<V> n = findFirst();
+            if (n == null)
+                return null;
+            LongEntry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest
+     * key in this map, or {@code null} if the map is empty.
+     *
+     * @return an entry with the greatest key, or {@code null} if this
+     *         map is empty
+     */
+    public LongEntry<V> lastEntry() {
+        for (;;) {
+            Node<V> n = findLast();
+            if (n == null)
+                return null;
+            LongEntry<V> e = n.createSnapshot();
+            if (e != null)
+                return e;
+        }
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the least key in this map, or {@code null} if the map is empty.
+     *
+     * @return the removed first entry of this map,
+     *         or {@code null} if this map is empty
+     */
+    public LongEntry<V> pollFirstEntry() {
+        return doRemoveFirstEntry();
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the greatest key in this map, or {@code null} if the map is empty.
+     *
+     * @return the removed last entry of this map,
+     *         or {@code null} if this map is empty
+     */
+    public LongEntry<V> pollLastEntry() {
+        return doRemoveLastEntry();
+    }
+
+    /**
+     * Returns a {@link ConcurrentNavigableMap} view of this map with
+     * boxed keys, in ascending key order. The view, its sub maps,
+     * key sets and other views are backed by this map, support all
+     * optional operations of their interfaces except additions through
+     * key sets and value collections, and have weakly consistent
+     * iterators. Their entries are {@link LongEntry} snapshots and do
+     * not support {@code setValue}.
+     *
+     * @return a map view of this map
+     */
+    public ConcurrentNavigableMap<Long,V> asMap() {
+        MapView<V> mv = mapView;
+        return (mv != null) ? mv : (mapView = new MapView<V>
+                                    (this, false, 0L, false,
+                                     false, 0L, false, false));
+    }
+
+    /**
+     * Returns a string representation of this map, in the format of
+     * {@link AbstractMap#toString}.
+     *
+     * @return a string representation of this map
+     */
+    public String toString() {
+        return asMap().toString();
+    }
+
+    /* ---------------- Entries -------------- */
+
+    /**
+     * An immutable snapshot of a mapping with a {@code long} key. The
+     * key is available unboxed from {@link #getLongKey}; as a {@code
+     * Map.Entry<Long,V>} the entry boxes it on demand. Entries do not
+     * support {@link #setValue}.
+     *
+     * @param <V> the type of the value
+     */
+    public static final class LongEntry<V> implements Map.Entry<Long,V> {
+        private final long key;
+        private final V value;
+
+        LongEntry(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Returns the key of this entry.
+         *
+         * @return the key of this entry
+         */
+        public long getLongKey() {
+            return key;
+        }
+
+        public Long getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * Always throws {@code UnsupportedOperationException}.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey();
+            return (k instanceof Long) && ((Long)k).longValue() == key &&
+                Objects.equals(value, e.getValue());
+        }
+
+        public int hashCode() {
+            return Long.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /* ---------------- Map view -------------- */
+
+    static final <E> List<E> toList(Collection<E> c) {
+        // Using size() here would be a pessimization.
+        ArrayList<E> list = new ArrayList<E>();
+        for (E e : c)
+            list.add(e);
+        return list;
+    }
+
+    /**
+     * The {@code ConcurrentNavigableMap<Long,V>} view of a
+     * ConcurrentSkipListLongMap, or of a key range of one, in either
+     * direction; modeled on ConcurrentSkipListMap.SubMap, with the
+     * bounds held as primitives and flags.
+     */
+    static final class MapView<V> extends AbstractMap<Long,V>
+        implements ConcurrentNavigableMap<Long,V>, Serializable {
+        private static final long serialVersionUID = -1203548362097148123L;
+
+        /** Underlying map */
+        private final ConcurrentSkipListLongMap<V> m;
+        /** lower and upper bounds, if bounded */
+        private final long lo, hi;
+        private final boolean hasLo, hasHi;
+        /** inclusion flags for lo and hi */
+        private final boolean loInclusive, hiInclusive;
+        /** direction */
+        private final boolean isDescending;
+
+        // Lazily initialized view holders
+        private transient KeySet keySetView;
+        private transient Set<Map.Entry<Long,V>> entrySetView;
+        private transient Collection<V> valuesView;
+
+        MapView(ConcurrentSkipListLongMap<V> map,
+                boolean hasLo, long lo, boolean loInclusive,
+                boolean hasHi, long hi, boolean hiInclusive,
+                boolean isDescending) {
+            if (hasLo && hasHi && lo > hi)
+                throw new IllegalArgumentException("inconsistent range");
+            this.m = map;
+            this.hasLo = hasLo;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hasHi = hasHi;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.isDescending = isDescending;
+        }
+
+        /* ----------------  Utilities -------------- */
+
+        boolean tooLow(long key) {
+            return hasLo && (key < lo || (key == lo && !loInclusive));
+        }
+
+        boolean tooHigh(long key) {
+            return hasHi && (key > hi || (key == hi && !hiInclusive));
+        }
+
+        boolean inBounds(long key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        /**
+         * Returns the key as a long, throwing ClassCastException or
+         * NullPointerException as the Map methods require.
+         */
+        static long key(Object key) {
+            return ((Long)key).longValue();
+        }
+
+        long checkKeyBounds(Long key) {
+            long k = key.longValue();
+            if (!inBounds(k))
+                throw new IllegalArgumentException("key out of range");
+            return k;
+        }
+
+        /**
+         * Returns lowest node in range, or null.
+         */
+        Node<V> loNode() {
+            Node<V> n = !hasLo ? m.findFirst() :
+                m.findNear(lo, loInclusive ? GT|EQ : GT);
+            return (n == null || tooHigh(n.key)) ? null : n;
+        }
+
+        /**
+         * Returns highest node in range, or null.
+         */
+        Node<V> hiNode() {
+            Node<V> n = !hasHi ? m.findLast() :
+                m.findNear(hi, hiInclusive ? LT|EQ : LT);
+            return (n == null || tooLow(n.key)) ? null : n;
+        }
+
+        LongEntry<V> lowestEntry() {
+            for (;;) {
+                Node<V> n = loNode();
+                if (n == null)
+                    return null;
+                LongEntry<V> e = n.createSnapshot();
+                if (e != null)
+                    return e;
+            }
+        }
+
+        LongEntry<V> highestEntry() {
+            for (;;) {
+                Node<V> n = hiNode();
+                if (n == null)
+                    return null;
+                LongEntry<V> e = n.createSnapshot();
+                if (e != null)
+                    return e;
+            }
+        }
+
+        LongEntry<V> removeLowest() {
+            for (;;) {
+                Node<V> n = loNode();
+                if (n == null)
+                    return null;
+                long k = n.key;
+                V v = m.doRemove(k, null);
+                if (v != null)
+                    return new LongEntry<V>(k, v);
+            }
+        }
+
+        LongEntry<V> removeHighest() {
+            for (;;) {
+                Node<V> n = hiNode();
+                if (n == null)
+                    return null;
+                long k = n.key;
+                V v = m.doRemove(k, null);
+                if (v != null)
+                    return new LongEntry<V>(k, v);
+            }
+        }
+
+        /**
+         * View version of ConcurrentSkipListLongMap.getNear
+         */
+        LongEntry<V> getNearEntry(long key, int rel) {
+            if (isDescending) { // adjust relation for direction
+                if ((rel & LT) == 0)
+                    rel |= LT;
+                else
+                    rel &= ~LT;
+            }
+            if (tooLow(key))
+                return ((rel & LT) != 0) ? null : lowestEntry();
+            if (tooHigh(key))
+                return ((rel & LT) != 0) ? highestEntry() : null;
+            for (;;) {
+                Node<V> n = m.findNear(key, rel);
+                if (n == null || !inBounds(n.key))
+                    return null;
+                LongEntry<V> e = n.createSnapshot();
+                if (e != null)
+                    return e;
+            }
+        }
+
+        Long getNearKey(long key, int rel) {
+            LongEntry<V> e = getNearEntry(key, rel);
+            return (e == null) ? null : e.getKey();
+        }
+
+        /* ----------------  Map API methods -------------- */
+
+        public boolean containsKey(Object key) {
+            long k = key(key);
+            return inBounds(k) && m.containsKey(k);
+        }
+
+        public V get(Object key) {
+            long k = key(key);
+            return (!inBounds(k)) ? null : m.get(k);
+        }
+
+        public V put(Long key, V value) {
+            return m.put(checkKeyBounds(key), value);
+        }
+
+        public V remove(Object key) {
+            long k = key(key);
+            return (!inBounds(k)) ? null : m.remove(k);
+        }
+
+        public int size() {
+            long count = 0;
+            for (Node<V> n = loNode(); n != null && !tooHigh(n.key); n = n.next) {
+                if (n.getValidValue() != null)
+                    ++count;
+            }
+            return count >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)count;
+        }
+
+        public boolean isEmpty() {
+            return loNode() == null;
+        }
+
+        public boolean containsValue(Object value) {
+            if (value == null)
+                throw new NullPointerException();
+            for (Node<V> n = loNode(); n != null && !tooHigh(n.key); n = n.next) {
+                V v = n.getValidValue();
+                if (v != null && value.equals(v))
+                    return true;
+            }
+            return false;
+        }
+
+        public void clear() {
+            if (!hasLo && !hasHi) {
+                m.clear();
+                return;
+            }
+            for (Node<V> n = loNode(); n != null && !tooHigh(n.key); n = n.next) {
+                if (n.getValidValue() != null)
+                    m.remove(n.key);
+            }
+        }
+
+        /* ----------------  ConcurrentMap API methods -------------- */
+
+        public V putIfAbsent(Long key, V value) {
+            return m.putIfAbsent(checkKeyBounds(key), value);
+        }
+
+        public boolean remove(Object key, Object value) {
+            long k = key(key);
+            return inBounds(k) && m.remove(k, value);
+        }
+
+        public boolean replace(Long key, V oldValue, V newValue) {
+            return m.replace(checkKeyBounds(key), oldValue, newValue);
+        }
+
+        public V replace(Long key, V value) {
+            return m.replace(checkKeyBounds(key), value);
+        }
+
+        /* ----------------  SortedMap API methods -------------- */
+
+        public Comparator<? super Long> comparator() {
+            return isDescending ? Collections.reverseOrder() : null;
+        }
+
+        /**
+         * Utility to create views, where given bounds override
+         * unbounded ones and/or are checked against bounded ones.
+         */
+        MapView<V> newSubMap(boolean hasFrom, long fromKey, boolean fromInclusive,
+                             boolean hasTo, long toKey, boolean toInclusive) {
+            if (isDescending) { // flip senses
+                boolean th = hasFrom;
+                hasFrom = hasTo;
+                hasTo = th;
+                long tk = fromKey;
+                fromKey = toKey;
+                toKey = tk;
+                boolean ti = fromInclusive;
+                fromInclusive = toInclusive;
+                toInclusive = ti;
+            }
+            if (hasLo) {
+                if (!hasFrom) {
+                    hasFrom = true;
+                    fromKey = lo;
+                    fromInclusive = loInclusive;
+                }
+                else if (fromKey < lo ||
+                         (fromKey == lo && !loInclusive && fromInclusive))
+                    throw new IllegalArgumentException("key out of range");
+            }
+            if (hasHi) {
+                if (!hasTo) {
+                    hasTo = true;
+                    toKey = hi;
+                    toInclusive = hiInclusive;
+                }
+                else if (toKey > hi ||
+                         (toKey == hi && !hiInclusive && toInclusive))
+                    throw new IllegalArgumentException("key out of range");
+            }
+            return new MapView<V>(m, hasFrom, fromKey, fromInclusive,
+                                  hasTo, toKey, toInclusive, isDescending);
+        }
+
+        public MapView<V> subMap(Long fromKey, boolean fromInclusive,
+                                 Long toKey, boolean toInclusive) {
+            return newSubMap(true, fromKey, fromInclusive,
+                             true, toKey, toInclusive);
+        }
+
+        public MapView<V> headMap(Long toKey, boolean inclusive) {
+            return newSubMap(false, 0L, false, true, toKey, inclusive);
+        }
+
+        public MapView<V> tailMap(Long fromKey, boolean inclusive) {
+            return newSubMap(true, fromKey, inclusive, false, 0L, false);
+        }
+
+        public MapView<V> subMap(Long fromKey, Long toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public MapView<V> headMap(Long toKey) {
+            return headMap(toKey, false);
+        }
+
+        public MapView<V> tailMap(Long fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        public MapView<V> descendingMap() {
+            return new MapView<V>(m, hasLo, lo, loInclusive,
+                                  hasHi, hi, hiInclusive, !isDescending);
+        }
+
+        /* ----------------  Relational methods -------------- */
+
+        public Map.Entry<Long,V> ceilingEntry(Long key) {
+            return getNearEntry(key, GT|EQ);
+        }
+
+        public Long ceilingKey(Long key) {
+            return getNearKey(key, GT|EQ);
+        }
+
+        public Map.Entry<Long,V> lowerEntry(Long key) {
+            return getNearEntry(key, LT);
+        }
+
+        public Long lowerKey(Long key) {
+            return getNearKey(key, LT);
+        }
+
+        public Map.Entry<Long,V> floorEntry(Long key) {
+            return getNearEntry(key, LT|EQ);
+        }
+
+        public Long floorKey(Long key) {
+            return getNearKey(key, LT|EQ);
+        }
+
+        public Map.Entry<Long,V> higherEntry(Long key) {
+            return getNearEntry(key, GT);
+        }
+
+        public Long higherKey(Long key) {
+            return getNearKey(key, GT);
+        }
+
+        public Long firstKey() {
+            Node<V> n = isDescending ? hiNode() : loNode();
+            if (n == null)
+                throw new NoSuchElementException();
+            return n.key;
+        }
+
+        public Long lastKey() {
+            Node<V> n = isDescending ? loNode() : hiNode();
+            if (n == null)
+                throw new NoSuchElementException();
+            return n.key;
+        }
+
+        public Map.Entry<Long,V> firstEntry() {
+            return isDescending ? highestEntry() : lowestEntry();
+        }
+
+        public Map.Entry<Long,V> lastEntry() {
+            return isDescending ? lowestEntry() : highestEntry();
+        }
+
+        public Map.Entry<Long,V> pollFirstEntry() {
+            return isDescending ? removeHighest() : removeLowest();
+        }
+
+        public Map.Entry<Long,V> pollLastEntry() {
+            return isDescending ? removeLowest() : removeHighest();
+        }
+
+        /* ---------------- Views -------------- */
+
+        public NavigableSet<Long> keySet() {
+            KeySet ks = keySetView;
+            return (ks != null) ? ks : (keySetView = new KeySet(this));
+        }
+
+        public NavigableSet<Long> navigableKeySet() {
+            return keySet();
+        }
+
+        public Collection<V> values() {
+            Collection<V> vs = valuesView;
+            if (vs == null) {
+                vs = new AbstractCollection<V>() {
+                    public Iterator<V> iterator() { return new ValueIterator(); }
+                    public boolean isEmpty() { return MapView.this.isEmpty(); }
+                    public int size() { return MapView.this.size(); }
+                    public boolean contains(Object o) { return containsValue(o); }
+                    public void clear() { MapView.this.clear(); }
+                    public Object[] toArray()     { return toList(this).toArray();  }
+                    public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+                };
+                valuesView = vs;
+            }
+            return vs;
+        }
+
+        public Set<Map.Entry<Long,V>> entrySet() {
+            Set<Map.Entry<Long,V>> es = entrySetView;
+            if (es == null) {
+                es = new AbstractSet<Map.Entry<Long,V>>() {
+                    public Iterator<Map.Entry<Long,V>> iterator() {
+                        return new EntryIterator();
+                    }
+                    public boolean contains(Object o) {
+                        if (!(o instanceof Map.Entry))
+                            return false;
+                        Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                        if (!(e.getKey() instanceof Long))
+                            return false;
+                        V v = get(e.getKey());
+                        return v != null && v.equals(e.getValue());
+                    }
+                    public boolean remove(Object o) {
+                        if (!(o instanceof Map.Entry))
+                            return false;
+                        Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                        return (e.getKey() instanceof Long) &&
+                            MapView.this.remove(e.getKey(), e.getValue());
+                    }
+                    public boolean isEmpty() { return MapView.this.isEmpty(); }
+                    public int size() { return MapView.this.size(); }
+                    public void clear() { MapView.this.clear(); }
+                    public Object[] toArray()     { return toList(this).toArray();  }
+                    public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+                };
+                entrySetView = es;
+            }
+            return es;
+        }
+
+        public NavigableSet<Long> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        /**
+         * Iterator over the view, ascending along the base list or
+         * descending by repeated findNear, as in
+         * ConcurrentSkipListMap.SubMap.SubMapIter.
+         */
+        abstract class Iter<T> implements Iterator<T> {
+            /** the last node returned by next() */
+            Node<V> lastReturned;
+            /** the next node to return from next(); */
+            Node<V> next;
+            /** Cache of next value field to maintain weak consistency */
+            V nextValue;
+
+            Iter() {
+                for (;;) {
+                    next = isDescending ? hiNode() : loNode();
+                    if (next == null)
+                        break;
+                    Object x = next.value;
+                    if (x != null && x != next) {
+                        @SuppressWarnings("unchecked") V vv = (V)x;
+                        nextValue = vv;
+                        break;
+                    }
+                }
+            }
+
+            public final boolean hasNext() {
+                return next != null;
+            }
+
+            final void advance() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                lastReturned = next;
+                if (isDescending)
+                    descend();
+                else
+                    ascend();
+            }
+
+            private void ascend() {
+                for (;;) {
+                    next = next.next;
+                    if (next == null)
+                        break;
+                    Object x = next.value;
+                    if (x != null && x != next) {
+                        if (tooHigh(next.key))
+                            next = null;
+                        else {
+                            @SuppressWarnings("unchecked") V vv = (V)x;
+                            nextValue = vv;
+                        }
+                        break;
+                    }
+                }
+            }
+
+            private void descend() {
+                for (;;) {
+                    next = m.findNear(lastReturned.key, LT);
+                    if (next == null)
+                        break;
+                    Object x = next.value;
+                    if (x != null && x != next) {
+                        if (tooLow(next.key))
+                            next = null;
+                        else {
+                            @SuppressWarnings("unchecked") V vv = (V)x;
+                            nextValue = vv;
+                        }
+                        break;
+                    }
+                }
+            }
+
+            public void remove() {
+                Node<V> l = lastReturned;
+                if (l == null)
+                    throw new IllegalStateException();
+                m.remove(l.key);
+                lastReturned = null;
+            }
+        }
+
+        final class KeyIterator extends Iter<Long> {
+            public Long next() {
+                Node<V> n = next;
+                advance();
+                return n.key;
+            }
+        }
+
+        final class ValueIterator extends Iter<V> {
+            public V next() {
+                V v = nextValue;
+                advance();
+                return v;
+            }
+        }
+
+        final class EntryIterator extends Iter<Map.Entry<Long,V>> {
+            public Map.Entry<Long,V> next() {
+                Node<V> n = next;
+                V v = nextValue;
+                advance();
+                return new LongEntry<V>(n.key, v);
+            }
+        }
+    }
+
+    /**
+     * The navigable key set of a MapView.
+     */
+    static final class KeySet extends AbstractSet<Long>
+        implements NavigableSet<Long> {
+        final MapView<?> m;
+        KeySet(MapView<?> map) { m = map; }
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public boolean remove(Object o) { return m.remove(o) != null; }
+        public void clear() { m.clear(); }
+        public Long lower(Long e) { return m.lowerKey(e); }
+        public Long floor(Long e) { return m.floorKey(e); }
+        public Long ceiling(Long e) { return m.ceilingKey(e); }
+        public Long higher(Long e) { return m.higherKey(e); }
+        public Comparator<? super Long> comparator() { return m.comparator(); }
+        public Long first() { return m.firstKey(); }
+        public Long last() { return m.lastKey(); }
+        public Long pollFirst() {
+            Map.Entry<Long,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public Long pollLast() {
+            Map.Entry<Long,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public Iterator<Long> iterator() {
+            return m.new KeyIterator();
+        }
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Set))
+                return false;
+            Collection<?> c = (Collection<?>) o;
+            try {
+                return containsAll(c) && c.containsAll(this);
+            } catch (ClassCastException unused) {
+                return false;
+            } catch (NullPointerException unused) {
+                return false;
+            }
+        }
+        public Object[] toArray()     { return toList(this).toArray();  }
+        public <T> T[] toArray(T[] a) { return toList(this).toArray(a); }
+        public Iterator<Long> descendingIterator() {
+            return descendingSet().iterator();
+        }
+        public NavigableSet<Long> subSet(Long fromElement,
+                                         boolean fromInclusive,
+                                         Long toElement,
+                                         boolean toInclusive) {
+            return new KeySet(m.subMap(fromElement, fromInclusive,
+                                       toElement,   toInclusive));
+        }
+        public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+            return new KeySet(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+            return new KeySet(m.tailMap(fromElement, inclusive));
+        }
+        public NavigableSet<Long> subSet(Long fromElement, Long toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public NavigableSet<Long> headSet(Long toElement) {
+            return headSet(toElement, false);
+        }
+        public NavigableSet<Long> tailSet(Long fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<Long> descendingSet() {
+            return new KeySet(m.descendingMap());
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long headOffset;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentSkipListLongMap.class;
+            headOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("head"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -50,6 +50,7 @@ import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.security.AccessControlContext;
 import java.security.ProtectionDomain;
 import java.security.Permissions;
@@ -96,6 +97,19 @@ import java.security.Permissions;
  * tuning, and monitoring fork/join applications. Also, method
  * {@link #toString} returns indications of pool state in a
  * convenient form for informal monitoring.
+ * For tuning, a pool may also be asked to record scheduling events
+ * such as steals, idle parks and compensating thread creations,
+ * per work queue, along with a histogram of task run times (see
+ * {@link #setStatisticsEnabled} and {@link #statistics}). Recording
+ * is off by default, in which case the only cost is a field read
+ * per queue operation.
+ *
+ * <p>A pool may also be constructed with <em>managed parking</em>
+ * (see {@link #ForkJoinPool(int, ForkJoinWorkerThreadFactory,
+ * UncaughtExceptionHandler, boolean, boolean)}), in which case workers
+ * blocking on locks, conditions and queues of this package are
+ * compensated for as if by {@link #managedBlock}, so that many tasks
+ * that occasionally wait do not starve the pool of active threads.
  *
  * <p>As is the case with other ExecutorServices, there are three
  * main task execution methods summarized in the following table.
@@ -764,6 +778,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     static final int LIFO_QUEUE   = 0;
     static final int FIFO_QUEUE   = 1 << 16;
     static final int SHARED_QUEUE = 1 << 31;       // must be negative
+    static final int MANAGED_PARKS = 1 << 17;      // compensate parks
 
     /**
      * Queues supporting work-stealing as well as external task
@@ -812,6 +827,7 @@ public class ForkJoinPool extends AbstractExecutorService {
         volatile Thread parker;    // == owner during call to park; else null
         volatile ForkJoinTask<?> currentJoin;  // task being joined in awaitJoin
         volatile ForkJoinTask<?> currentSteal; // mainly used by helpStealer
+        QueueStats stats;          // event counts, or null; owner-written
 
         WorkQueue(ForkJoinPool pool, ForkJoinWorkerThread owner) {
             this.pool = pool;
@@ -857,9 +873,11 @@ public class ForkJoinPool extends AbstractExecutorService {
          * @throws RejectedExecutionException if array cannot be resized
          */
         final void push(ForkJoinTask<?> task) {
-            ForkJoinTask<?>[] a; ForkJoinPool p;
+            ForkJoinTask<?>[] a; ForkJoinPool p; QueueStats st;
             int b = base, s = top, n;
             if ((a = array) != null) {    // ignore if queue removed
+                if ((st = stats) != null)
+                    ++st.pushes;
                 int m = a.length - 1;     // fenced write for task visibility
                 U.putOrderedObject(a, ((m & s) << ASHIFT) + ABASE, task);
                 U.putOrderedInt(this, QTOP, s + 1);
@@ -913,6 +931,9 @@ public class ForkJoinPool extends AbstractExecutorService {
                         break;
                     if (U.compareAndSwapObject(a, j, t, null)) {
                         U.putOrderedInt(this, QTOP, s);
+                        QueueStats st;
+                        if ((st = stats) != null)
+                            ++st.pops;
                         return t;
                     }
                 }
@@ -962,9 +983,15 @@ public class ForkJoinPool extends AbstractExecutorService {
 
         /**
          * Takes next task, if one exists, in order specified by mode.
+         * Call only by owner in unshared queues.
          */
         final ForkJoinTask<?> nextLocalTask() {
-            return (config & FIFO_QUEUE) == 0 ? pop() : poll();
+            if ((config & FIFO_QUEUE) == 0)
+                return pop();
+            ForkJoinTask<?> t; QueueStats st;
+            if ((t = poll()) != null && (st = stats) != null)
+                ++st.pops;
+            return t;
         }
 
         /**
@@ -989,6 +1016,9 @@ public class ForkJoinPool extends AbstractExecutorService {
                 U.compareAndSwapObject
                 (a, (((a.length - 1) & --s) << ASHIFT) + ABASE, t, null)) {
                 U.putOrderedInt(this, QTOP, s);
+                QueueStats st;
+                if ((st = stats) != null)
+                    ++st.pops;
                 return true;
             }
             return false;
@@ -1018,7 +1048,7 @@ public class ForkJoinPool extends AbstractExecutorService {
          */
         final void pollAndExecAll() {
             for (ForkJoinTask<?> t; (t = poll()) != null;)
-                t.doExec();
+                execLocal(t);
         }
 
         /**
@@ -1037,7 +1067,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                              (a, ((m & s) << ASHIFT) + ABASE, null)) == null)
                             break;
                         U.putOrderedInt(this, QTOP, s);
-                        t.doExec();
+                        execLocal(t);
                         if (base - (s = top - 1) > 0)
                             break;
                     }
@@ -1047,13 +1077,37 @@ public class ForkJoinPool extends AbstractExecutorService {
             }
         }
 
+        /**
+         * Executes a task taken from this queue by its owner, counting
+         * and timing it if statistics are enabled.
+         */
+        final void execLocal(ForkJoinTask<?> t) {
+            QueueStats st;
+            if ((st = stats) == null)
+                t.doExec();
+            else {
+                ++st.pops;
+                long start = System.nanoTime();
+                t.doExec();
+                st.recordRunTime(System.nanoTime() - start);
+            }
+        }
+
         /**
          * Executes the given task and any remaining local tasks.
          */
         final void runTask(ForkJoinTask<?> task) {
             if (task != null) {
                 scanState &= ~SCANNING; // mark as busy
-                (currentSteal = task).doExec();
+                QueueStats st;
+                if ((st = stats) == null)
+                    (currentSteal = task).doExec();
+                else {
+                    ++st.steals;
+                    long start = System.nanoTime();
+                    (currentSteal = task).doExec();
+                    st.recordRunTime(System.nanoTime() - start);
+                }
                 U.putOrderedObject(this, QCURRENTSTEAL, null); // release for GC
                 execLocalTasks();
                 ForkJoinWorkerThread thread = owner;
@@ -1103,8 +1157,12 @@ public class ForkJoinPool extends AbstractExecutorService {
                             else if (base == b)      // replace with proxy
                                 removed = U.compareAndSwapObject(
                                     a, j, task, new EmptyTask());
-                            if (removed)
+                            if (removed) {
+                                QueueStats st;
+                                if ((st = stats) != null)
+                                    ++st.pops;
                                 task.doExec();
+                            }
                             break;
                         }
                         else if (t.status < 0 && s + 1 == top) {
@@ -1148,6 +1206,9 @@ public class ForkJoinPool extends AbstractExecutorService {
                             }
                             else if (U.compareAndSwapObject(a, j, t, null)) {
                                 U.putOrderedInt(this, QTOP, s - 1);
+                                QueueStats st;
+                                if ((st = stats) != null)
+                                    ++st.pops;
                                 return t;
                             }
                             break;
@@ -1245,6 +1306,76 @@ public class ForkJoinPool extends AbstractExecutorService {
         }
     }
 
+    /**
+     * Number of buckets in run-time histograms. Bucket 0 counts
+     * tasks running less than 2^10 nanoseconds (about a
+     * microsecond), bucket i in (0, RUN_TIME_BUCKETS - 1) counts
+     * those in [2^(9+i), 2^(10+i)), and the last bucket counts all
+     * longer ones (about 4 seconds or more).
+     */
+    static final int RUN_TIME_BUCKETS = 24;
+
+    /**
+     * Event counters for a worker queue, used only when statistics
+     * are enabled. Fields are plain longs written only by the owning
+     * worker, so recording costs no more than an increment; readers
+     * in statistics() may see slightly stale values. A worker
+     * installs a fresh instance (see updateStats) whenever it notices
+     * that the pool's recorder has changed, and folds its counts into
+     * the recorder when it terminates.
+     */
+    static final class QueueStats {
+        final StatsRecorder recorder; // the recorder this belongs to
+        long pushes;                  // tasks pushed by owner
+        long pops;                    // own tasks taken by owner
+        long steals;                  // top-level tasks taken in scan
+        long joinSteals;              // tasks taken while helping joins
+        long scanFailures;            // scans that found no task
+        long parks;                   // idle parks in awaitWork
+        long parkNanos;               // total time parked
+        long compensationCreates;     // spares created in tryCompensate
+        long compensationReleases;    // idle workers released instead
+        long uncompensatedBlocks;     // blocked without compensation
+        final long[] runTimes = new long[RUN_TIME_BUCKETS];
+
+        QueueStats(StatsRecorder recorder) {
+            this.recorder = recorder;
+        }
+
+        final void recordRunTime(long nanos) {
+            int b = 54 - Long.numberOfLeadingZeros(nanos); // log2(nanos) - 9
+            ++runTimes[b <= 0 ? 0 :
+                       b >= RUN_TIME_BUCKETS ? RUN_TIME_BUCKETS - 1 : b];
+        }
+
+        /** Adds the counts of this instance to those of q. */
+        final void addTo(QueueStats q) {
+            q.pushes += pushes;
+            q.pops += pops;
+            q.steals += steals;
+            q.joinSteals += joinSteals;
+            q.scanFailures += scanFailures;
+            q.parks += parks;
+            q.parkNanos += parkNanos;
+            q.compensationCreates += compensationCreates;
+            q.compensationReleases += compensationReleases;
+            q.uncompensatedBlocks += uncompensatedBlocks;
+            long[] rt = q.runTimes;
+            for (int i = 0; i < RUN_TIME_BUCKETS; ++i)
+                rt[i] += runTimes[i];
+        }
+    }
+
+    /**
+     * Pool-wide state for statistics: counts not attributable to a
+     * worker, plus the accumulated counts of terminated workers
+     * (guarded by synchronizing on this recorder).
+     */
+    static final class StatsRecorder {
+        final LongAdder submissions = new LongAdder();
+        final QueueStats retired = new QueueStats(this);
+    }
+
     // static fields (initialized in static initializer below)
 
     /**
@@ -1396,6 +1527,7 @@ public class ForkJoinPool extends AbstractExecutorService {
     final UncaughtExceptionHandler ueh;  // per-worker UEH
     final String workerNamePrefix;       // to create worker name string
     volatile AtomicLong stealCounter;    // also used as sync monitor
+    volatile StatsRecorder stats;        // non-null if statistics enabled
 
     /**
      * Acquires the runState lock; returns current (locked) runState.
@@ -1531,6 +1663,8 @@ public class ForkJoinPool extends AbstractExecutorService {
     final WorkQueue registerWorker(ForkJoinWorkerThread wt) {
         UncaughtExceptionHandler handler;
         wt.setDaemon(true);                           // configure thread
+        if ((config & MANAGED_PARKS) != 0)
+            wt.parkMode = 1;                          // see LockSupport
         if ((handler = ueh) != null)
             wt.setUncaughtExceptionHandler(handler);
         WorkQueue w = new WorkQueue(this, wt);
@@ -1593,6 +1727,12 @@ public class ForkJoinPool extends AbstractExecutorService {
         if (w != null) {
             w.qlock = -1;                             // ensure set
             w.transferStealCount(this);
+            QueueStats st; StatsRecorder sr;
+            if ((st = w.stats) != null && (sr = st.recorder) == stats) {
+                synchronized (sr) {                   // keep counts
+                    st.addTo(sr.retired);
+                }
+            }
             w.cancelAll();                            // cancel remaining tasks
         }
         for (;;) {                                    // possibly replace
@@ -1688,14 +1828,32 @@ public class ForkJoinPool extends AbstractExecutorService {
         int seed = w.hint;               // initially holds randomization hint
         int r = (seed == 0) ? 1 : seed;  // avoid 0 for xorShift
         for (ForkJoinTask<?> t;;) {
+            updateStats(w);
             if ((t = scan(w, r)) != null)
                 w.runTask(t);
-            else if (!awaitWork(w, r))
-                break;
+            else {
+                QueueStats st;
+                if ((st = w.stats) != null)
+                    ++st.scanFailures;
+                if (!awaitWork(w, r))
+                    break;
+            }
             r ^= r << 13; r ^= r >>> 17; r ^= r << 5; // xorshift
         }
     }
 
+    /**
+     * Installs, replaces, or removes the event counters of the given
+     * worker queue to match the current recorder. Called only by the
+     * owner, once per top-level task or idle period.
+     */
+    private void updateStats(WorkQueue w) {
+        StatsRecorder sr = stats;
+        QueueStats st = w.stats;
+        if (st == null ? sr != null : st.recorder != sr)
+            w.stats = (sr == null) ? null : new QueueStats(sr);
+    }
+
     /**
      * Scans for and tries to steal a top-level task. Scans start at a
      * random location, randomly moving on apparent contention,
@@ -1820,8 +1978,17 @@ public class ForkJoinPool extends AbstractExecutorService {
                 Thread wt = Thread.currentThread();
                 U.putObject(wt, PARKBLOCKER, this);   // emulate LockSupport
                 w.parker = wt;
-                if (w.scanState < 0 && ctl == c)      // recheck before park
-                    U.park(false, parkTime);
+                if (w.scanState < 0 && ctl == c) {    // recheck before park
+                    QueueStats st;
+                    if ((st = w.stats) == null)
+                        U.park(false, parkTime);
+                    else {
+                        long start = System.nanoTime();
+                        U.park(false, parkTime);
+                        ++st.parks;
+                        st.parkNanos += System.nanoTime() - start;
+                    }
+                }
                 U.putOrderedObject(w, QPARKER, null);
                 U.putObject(wt, PARKBLOCKER, null);
                 if (w.scanState >= 0)
@@ -1879,6 +2046,9 @@ public class ForkJoinPool extends AbstractExecutorService {
                     else if ((h = q.pollAndExecCC(task)) < 0)
                         checkSum += h;
                     if (h > 0) {
+                        QueueStats st;
+                        if (h == 1 && (st = w.stats) != null)
+                            ++st.joinSteals;
                         if (h == 1 && maxTasks != 0 && --maxTasks == 0)
                             break;
                         r ^= r << 13; r ^= r >>> 17; r ^= r << 5; // xorshift
@@ -1951,6 +2121,9 @@ public class ForkJoinPool extends AbstractExecutorService {
                                 break descent;
                             if (U.compareAndSwapObject(a, i, t, null)) {
                                 v.base = b + 1;
+                                QueueStats st;
+                                if ((st = w.stats) != null)
+                                    ++st.joinSteals;
                                 ForkJoinTask<?> ps = w.currentSteal;
                                 int top = w.top;
                                 do {
@@ -1980,13 +2153,16 @@ public class ForkJoinPool extends AbstractExecutorService {
      */
     private boolean tryCompensate(WorkQueue w) {
         boolean canBlock;
-        WorkQueue[] ws; long c; int m, pc, sp;
+        WorkQueue[] ws; long c; int m, pc, sp; QueueStats st;
         if (w == null || w.qlock < 0 ||           // caller terminating
             (ws = workQueues) == null || (m = ws.length - 1) <= 0 ||
             (pc = config & SMASK) == 0)           // parallelism disabled
             canBlock = false;
-        else if ((sp = (int)(c = ctl)) != 0)      // release idle worker
-            canBlock = tryRelease(c, ws[sp & m], 0L);
+        else if ((sp = (int)(c = ctl)) != 0) {    // release idle worker
+            if ((canBlock = tryRelease(c, ws[sp & m], 0L)) &&
+                (st = w.stats) != null)
+                ++st.compensationReleases;
+        }
         else {
             int ac = (int)(c >> AC_SHIFT) + pc;
             int tc = (short)(c >> TC_SHIFT) + pc;
@@ -2004,7 +2180,9 @@ public class ForkJoinPool extends AbstractExecutorService {
             else if (tc >= pc && ac > 1 && w.isEmpty()) {
                 long nc = ((AC_MASK & (c - AC_UNIT)) |
                            (~AC_MASK & c));       // uncompensated
-                canBlock = U.compareAndSwapLong(this, CTL, c, nc);
+                if ((canBlock = U.compareAndSwapLong(this, CTL, c, nc)) &&
+                    (st = w.stats) != null)
+                    ++st.uncompensatedBlocks;
             }
             else if (tc >= MAX_CAP ||
                      (this == common && tc >= pc + commonMaxSpares))
@@ -2018,6 +2196,8 @@ public class ForkJoinPool extends AbstractExecutorService {
                     add = U.compareAndSwapLong(this, CTL, c, nc);
                 unlockRunState(rs, rs & ~RSLOCK);
                 canBlock = add && createWorker(); // throws on exception
+                if (canBlock && (st = w.stats) != null)
+                    ++st.compensationCreates;
             }
         }
         return canBlock;
@@ -2397,7 +2577,9 @@ public class ForkJoinPool extends AbstractExecutorService {
      * @param task the task. Caller must ensure non-null.
      */
     final void externalPush(ForkJoinTask<?> task) {
-        WorkQueue[] ws; WorkQueue q; int m;
+        WorkQueue[] ws; WorkQueue q; int m; StatsRecorder sr;
+        if ((sr = stats) != null)
+            sr.submissions.increment();
         int r = ThreadLocalRandom.getProbe();
         int rs = runState;
         if ((ws = workQueues) != null && (m = (ws.length - 1)) >= 0 &&
@@ -2541,6 +2723,55 @@ public class ForkJoinPool extends AbstractExecutorService {
         checkPermission();
     }
 
+    /**
+     * Creates a {@code ForkJoinPool} with the given parameters,
+     * optionally with <em>managed parking</em>. In a pool with
+     * managed parking, a worker that blocks in any of the {@link
+     * java.util.concurrent.locks.LockSupport#park park} methods (and
+     * so in any lock, condition, synchronizer, or blocking queue of
+     * this package based on them) does so as if by {@link
+     * #managedBlock}, allowing the pool to activate or create a spare
+     * thread to keep its target parallelism. This suits pools
+     * running many short tasks that occasionally wait on other
+     * threads, such as request handlers, at the cost of spare
+     * threads while tasks are blocked. Blocking in native methods
+     * such as socket reads or {@code Thread.sleep} is not affected;
+     * use asynchronous channels or {@link #managedBlock} for these.
+     *
+     * @param parallelism the parallelism level. For default value,
+     * use {@link java.lang.Runtime#availableProcessors}.
+     * @param factory the factory for creating new threads. For default value,
+     * use {@link #defaultForkJoinWorkerThreadFactory}.
+     * @param handler the handler for internal worker threads that
+     * terminate due to unrecoverable errors encountered while executing
+     * tasks. For default value, use {@code null}.
+     * @param asyncMode if true,
+     * establishes local first-in-first-out scheduling mode for forked
+     * tasks that are never joined. For default value, use {@code false}.
+     * @param managedParking if true, parks by workers are managed
+     * as described above. For default value, use {@code false}.
+     * @throws IllegalArgumentException if parallelism less than or
+     *         equal to zero, or greater than implementation limit
+     * @throws NullPointerException if the factory is null
+     * @throws SecurityException if a security manager exists and
+     *         the caller is not permitted to modify threads
+     *         because it does not hold {@link
+     *         java.lang.RuntimePermission}{@code ("modifyThread")}
+     */
+    public ForkJoinPool(int parallelism,
+                        ForkJoinWorkerThreadFactory factory,
+                        UncaughtExceptionHandler handler,
+                        boolean asyncMode,
+                        boolean managedParking) {
+        this(checkParallelism(parallelism),
+             checkFactory(factory),
+             handler,
+             (asyncMode ? FIFO_QUEUE : LIFO_QUEUE) |
+             (managedParking ? MANAGED_PARKS : 0),
+             "ForkJoinPool-" + nextPoolId() + "-worker-");
+        checkPermission();
+    }
+
     private static int checkParallelism(int parallelism) {
         if (parallelism <= 0 || parallelism > MAX_CAP)
             throw new IllegalArgumentException();
@@ -2793,6 +3024,17 @@ public class ForkJoinPool extends AbstractExecutorService {
         return (config & FIFO_QUEUE) != 0;
     }
 
+    /**
+     * Returns {@code true} if workers of this pool that park using
+     * {@link java.util.concurrent.locks.LockSupport} do so as if by
+     * {@link #managedBlock}.
+     *
+     * @return {@code true} if this pool uses managed parking
+     */
+    public boolean getManagedParking() {
+        return (config & MANAGED_PARKS) != 0;
+    }
+
     /**
      * Returns an estimate of the number of worker threads that are
      * not blocked waiting to join tasks or for other managed
@@ -2973,6 +3215,436 @@ public class ForkJoinPool extends AbstractExecutorService {
         return count;
     }
 
+    /**
+     * Enables or disables recording of the scheduling events reported
+     * by {@link #statistics}. Enabling discards previously recorded
+     * counts. Workers notice the change the next time they finish a
+     * top-level task or wake up from idling. While disabled, no events
+     * are recorded and the only overhead is a field read per task
+     * push, pop, steal, and park.
+     *
+     * @param enabled whether to record events
+     * @throws SecurityException if a security manager exists and
+     *         the caller is not permitted to modify threads
+     *         because it does not hold {@link
+     *         java.lang.RuntimePermission}{@code ("modifyThread")}
+     */
+    public void setStatisticsEnabled(boolean enabled) {
+        checkPermission();
+        stats = enabled ? new StatsRecorder() : null;
+    }
+
+    /**
+     * Returns {@code true} if scheduling events are being recorded.
+     *
+     * @return {@code true} if statistics are enabled
+     * @see #setStatisticsEnabled
+     */
+    public boolean isStatisticsEnabled() {
+        return stats != null;
+    }
+
+    /**
+     * Returns a snapshot of scheduling statistics for this pool,
+     * including one entry per work queue. Event counts are those
+     * recorded since statistics were last enabled, and are all zero
+     * if they are disabled. Counts of running workers are read
+     * without synchronization, so, like {@link #getStealCount}, the
+     * result is an approximation while the pool is active.
+     *
+     * @return a snapshot of statistics for this pool
+     */
+    public Statistics statistics() {
+        StatsRecorder sr = stats;
+        QueueStats total = new QueueStats(sr);
+        List<QueueStatistics> queues = new ArrayList<>();
+        long submissions = 0L;
+        if (sr != null) {
+            submissions = sr.submissions.sum();
+            synchronized (sr) {
+                sr.retired.addTo(total);
+            }
+        }
+        WorkQueue[] ws; WorkQueue w;
+        if ((ws = workQueues) != null) {
+            for (int i = 0; i < ws.length; ++i) {
+                if ((w = ws[i]) != null) {
+                    QueueStats st = w.stats, counts = new QueueStats(sr);
+                    if (st != null && st.recorder == sr) {
+                        st.addTo(counts);
+                        st.addTo(total);
+                    }
+                    ForkJoinWorkerThread wt = w.owner;
+                    queues.add(new QueueStatistics
+                               (i, wt == null ? null : wt.getName(),
+                                w.queueSize(), counts));
+                }
+            }
+        }
+        return new Statistics(getParallelism(), getPoolSize(), submissions,
+                              total, queues);
+    }
+
+    /**
+     * An immutable snapshot of statistics for a {@link ForkJoinPool},
+     * obtained from {@link #statistics}. Counts are totals over all
+     * workers, including those that have since terminated.
+     *
+     * <p>Workers take their own tasks ({@linkplain #getPopCount pops})
+     * and steal top-level tasks from other queues when their own is
+     * empty ({@linkplain #getStealCount steals}). Few steals relative
+     * to pops indicate well-balanced, coarse-enough work; steals
+     * approaching the number of tasks indicate that tasks are too
+     * fine-grained or are mostly submitted from outside the pool.
+     * Many {@linkplain #getScanFailureCount scan failures} and short
+     * {@linkplain #getParkNanos parks} indicate workers repeatedly
+     * running out of work. {@linkplain #getCompensationThreadCount
+     * Compensation threads} are spares created because workers
+     * blocked in joins or {@link ManagedBlocker}s, and are a sign of
+     * tasks that block rather than compute.
+     */
+    public static final class Statistics {
+        private final int parallelism;
+        private final int poolSize;
+        private final long submissionCount;
+        private final QueueStats counts;
+        private final List<QueueStatistics> queues;
+
+        Statistics(int parallelism, int poolSize, long submissionCount,
+                   QueueStats counts, List<QueueStatistics> queues) {
+            this.parallelism = parallelism;
+            this.poolSize = poolSize;
+            this.submissionCount = submissionCount;
+            this.counts = counts;
+            this.queues = Collections.unmodifiableList(queues);
+        }
+
+        /**
+         * Returns the parallelism level of the pool.
+         *
+         * @return the parallelism level
+         */
+        public int getParallelism() { return parallelism; }
+
+        /**
+         * Returns the number of worker threads at the time of the
+         * snapshot.
+         *
+         * @return the number of workers
+         */
+        public int getPoolSize() { return poolSize; }
+
+        /**
+         * Returns the number of tasks submitted from outside the pool.
+         *
+         * @return the number of external submissions
+         */
+        public long getSubmissionCount() { return submissionCount; }
+
+        /**
+         * Returns the number of tasks pushed by workers onto their own
+         * queues, for example by {@link ForkJoinTask#fork}.
+         *
+         * @return the number of pushes
+         */
+        public long getPushCount() { return counts.pushes; }
+
+        /**
+         * Returns the number of tasks taken and run by the worker that
+         * owns the queue holding them.
+         *
+         * @return the number of pops
+         */
+        public long getPopCount() { return counts.pops; }
+
+        /**
+         * Returns the number of top-level tasks taken by idle workers
+         * from other queues, including submission queues.
+         *
+         * @return the number of steals
+         */
+        public long getStealCount() { return counts.steals; }
+
+        /**
+         * Returns the number of tasks taken from other queues by
+         * workers helping to complete a task they are joining.
+         *
+         * @return the number of steals while joining
+         */
+        public long getJoinStealCount() { return counts.joinSteals; }
+
+        /**
+         * Returns the number of times a worker scanned all queues
+         * without finding a task.
+         *
+         * @return the number of scan failures
+         */
+        public long getScanFailureCount() { return counts.scanFailures; }
+
+        /**
+         * Returns the number of times idle workers parked.
+         *
+         * @return the number of parks
+         */
+        public long getParkCount() { return counts.parks; }
+
+        /**
+         * Returns the total time idle workers spent parked.
+         *
+         * @return the total park time in nanoseconds
+         */
+        public long getParkNanos() { return counts.parkNanos; }
+
+        /**
+         * Returns the number of spare workers created to keep the
+         * target parallelism while other workers were blocked.
+         *
+         * @return the number of compensation threads created
+         */
+        public long getCompensationThreadCount() {
+            return counts.compensationCreates;
+        }
+
+        /**
+         * Returns the number of times an idle worker was woken, rather
+         * than a new one created, to compensate for a blocked worker.
+         *
+         * @return the number of compensating releases
+         */
+        public long getCompensationReleaseCount() {
+            return counts.compensationReleases;
+        }
+
+        /**
+         * Returns the number of times a worker blocked without
+         * compensation because enough other workers were active.
+         *
+         * @return the number of uncompensated blocks
+         */
+        public long getUncompensatedBlockCount() {
+            return counts.uncompensatedBlocks;
+        }
+
+        /**
+         * Returns a histogram of the run times of top-level tasks:
+         * those stolen by idle workers, and those then run from the
+         * worker's own queue before it looks for more work. Tasks run
+         * while joining are not included separately, since their time
+         * is part of that of the joining task. Element 0 counts tasks
+         * that ran for less than 2<sup>10</sup> nanoseconds; element
+         * {@code i} for {@code 0 < i < 23} counts those that ran for
+         * at least 2<sup>9+i</sup> and less than 2<sup>10+i</sup>
+         * nanoseconds; and element 23 counts all longer ones.
+         *
+         * @return a new array of length 24 holding the histogram
+         */
+        public long[] getRunTimeHistogram() {
+            return counts.runTimes.clone();
+        }
+
+        /**
+         * Returns statistics for each work queue in the pool at the
+         * time of the snapshot, in pool index order.
+         *
+         * @return an unmodifiable list of per-queue statistics
+         */
+        public List<QueueStatistics> getQueueStatistics() {
+            return queues;
+        }
+
+        /**
+         * Returns a string identifying these statistics.
+         *
+         * @return a string representation of these statistics
+         */
+        public String toString() {
+            return "Statistics[parallelism=" + parallelism +
+                ", size=" + poolSize +
+                ", submissions=" + submissionCount +
+                countsString(counts) +
+                ", runTimes=" + Arrays.toString(counts.runTimes) + "]";
+        }
+    }
+
+    /**
+     * An immutable snapshot of statistics for one work queue of a
+     * {@link ForkJoinPool}, obtained from {@link
+     * Statistics#getQueueStatistics}. Shared queues hold external
+     * submissions and have no owner; their event counts are zero.
+     * Worker queues report the events recorded by their owner. A
+     * large spread of pop counts across workers, or one worker with
+     * many more steals than the others, indicates unbalanced work.
+     */
+    public static final class QueueStatistics {
+        private final int index;
+        private final String ownerName;
+        private final int queuedTaskCount;
+        private final QueueStats counts;
+
+        QueueStatistics(int index, String ownerName, int queuedTaskCount,
+                        QueueStats counts) {
+            this.index = index;
+            this.ownerName = ownerName;
+            this.queuedTaskCount = queuedTaskCount;
+            this.counts = counts;
+        }
+
+        /**
+         * Returns the index of this queue in the pool.
+         *
+         * @return the queue index
+         */
+        public int getIndex() { return index; }
+
+        /**
+         * Returns {@code true} if this is a shared queue for external
+         * submissions rather than a worker's queue.
+         *
+         * @return {@code true} if this queue has no owner
+         */
+        public boolean isShared() { return ownerName == null; }
+
+        /**
+         * Returns the name of the worker thread owning this queue, or
+         * {@code null} for shared queues.
+         *
+         * @return the owner's name, or {@code null}
+         */
+        public String getOwnerName() { return ownerName; }
+
+        /**
+         * Returns an estimate of the number of tasks in this queue at
+         * the time of the snapshot.
+         *
+         * @return the number of queued tasks
+         */
+        public int getQueuedTaskCount() { return queuedTaskCount; }
+
+        /**
+         * Returns the number of tasks pushed by the owner.
+         *
+         * @return the number of pushes
+         * @see Statistics#getPushCount
+         */
+        public long getPushCount() { return counts.pushes; }
+
+        /**
+         * Returns the number of own tasks taken by the owner.
+         *
+         * @return the number of pops
+         * @see Statistics#getPopCount
+         */
+        public long getPopCount() { return counts.pops; }
+
+        /**
+         * Returns the number of top-level tasks the owner stole.
+         *
+         * @return the number of steals
+         * @see Statistics#getStealCount
+         */
+        public long getStealCount() { return counts.steals; }
+
+        /**
+         * Returns the number of tasks the owner stole while joining.
+         *
+         * @return the number of steals while joining
+         * @see Statistics#getJoinStealCount
+         */
+        public long getJoinStealCount() { return counts.joinSteals; }
+
+        /**
+         * Returns the number of scans by the owner that found no task.
+         *
+         * @return the number of scan failures
+         */
+        public long getScanFailureCount() { return counts.scanFailures; }
+
+        /**
+         * Returns the number of times the owner parked while idle.
+         *
+         * @return the number of parks
+         */
+        public long getParkCount() { return counts.parks; }
+
+        /**
+         * Returns the total time the owner spent parked while idle.
+         *
+         * @return the total park time in nanoseconds
+         */
+        public long getParkNanos() { return counts.parkNanos; }
+
+        /**
+         * Returns the number of spare workers created when the owner
+         * blocked.
+         *
+         * @return the number of compensation threads created
+         * @see Statistics#getCompensationThreadCount
+         */
+        public long getCompensationThreadCount() {
+            return counts.compensationCreates;
+        }
+
+        /**
+         * Returns the number of idle workers woken when the owner
+         * blocked.
+         *
+         * @return the number of compensating releases
+         */
+        public long getCompensationReleaseCount() {
+            return counts.compensationReleases;
+        }
+
+        /**
+         * Returns the number of times the owner blocked without
+         * compensation.
+         *
+         * @return the number of uncompensated blocks
+         */
+        public long getUncompensatedBlockCount() {
+            return counts.uncompensatedBlocks;
+        }
+
+        /**
+         * Returns a histogram of the run times of top-level tasks run
+         * by the owner, in the form described in {@link
+         * Statistics#getRunTimeHistogram}.
+         *
+         * @return a new array holding the histogram
+         */
+        public long[] getRunTimeHistogram() {
+            return counts.runTimes.clone();
+        }
+
+        /**
+         * Returns a string identifying these statistics.
+         *
+         * @return a string representation of these statistics
+         */
+        public String toString() {
+            return "QueueStatistics[index=" + index +
+                (ownerName == null ? ", shared" : ", owner=" + ownerName) +
+                ", queued=" + queuedTaskCount +
+                countsString(counts) + "]";
+        }
+    }
+
+    /**
+     * Returns the event counts of q in the form used by the toString
+     * methods of Statistics and QueueStatistics.
+     */
+    static String countsString(QueueStats q) {
+        return ", pushes=" + q.pushes +
+            ", pops=" + q.pops +
+            ", steals=" + q.steals +
+            ", joinSteals=" + q.joinSteals +
+            ", scanFailures=" + q.scanFailures +
+            ", parks=" + q.parks +
+            ", parkNanos=" + q.parkNanos +
+            ", compensationThreads=" + q.compensationCreates +
+            ", compensationReleases=" + q.compensationReleases +
+            ", uncompensatedBlocks=" + q.uncompensatedBlocks;
+    }
+
     /**
      * Returns a string identifying this pool, as well as its state,
      * including indications of run state, parallelism level, and
@@ -3306,16 +3978,28 @@ public class ForkJoinPool extends AbstractExecutorService {
         if ((t instanceof ForkJoinWorkerThread) &&
             (p = (wt = (ForkJoinWorkerThread)t).pool) != null) {
             WorkQueue w = wt.workQueue;
-            while (!blocker.isReleasable()) {
-                if (p.tryCompensate(w)) {
-                    try {
+            int pm = wt.parkMode;
+            if (pm > 0)                 // don't manage parks within blocker
+                wt.parkMode = -1;
+            try {
+                while (!blocker.isReleasable()) {
+                    if (p.tryCompensate(w)) {
+                        try {
+                            do {} while (!blocker.isReleasable() &&
+                                         !blocker.block());
+                        } finally {
+                            U.getAndAddLong(p, CTL, AC_UNIT);
+                        }
+                        break;
+                    }
+                    else if (w.qlock < 0) { // terminating; can't compensate
                         do {} while (!blocker.isReleasable() &&
                                      !blocker.block());
-                    } finally {
-                        U.getAndAddLong(p, CTL, AC_UNIT);
+                        break;
                     }
-                    break;
                 }
+            } finally {
+                wt.parkMode = pm;
             }
         }
         else {
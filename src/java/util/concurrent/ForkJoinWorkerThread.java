@@ -68,10 +68,17 @@ public class ForkJoinWorkerThread extends Thread {
      * Support for (non-public) subclass InnocuousForkJoinWorkerThread
      * requires that we break quite a lot of encapsulation (via Unsafe)
      * both here and in the subclass to access and set Thread fields.
+     *
+     * Field parkMode is set positive by registerWorker in pools with
+     * managed parking, and is read (via Unsafe) by LockSupport to
+     * decide whether to park via ForkJoinPool.managedBlock. It is
+     * negative while this thread is inside managedBlock, so that
+     * blockers that themselves park are not compensated twice.
      */
 
     final ForkJoinPool pool;                // the pool this thread works in
     final ForkJoinPool.WorkQueue workQueue; // work-stealing mechanics
+    int parkMode;                           // > 0: manage LockSupport parks
 
     /**
      * Creates a ForkJoinWorkerThread operating in the given pool.
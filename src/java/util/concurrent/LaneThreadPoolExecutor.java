@@ -0,0 +1,1109 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ThreadPoolExecutor} whose queued tasks are divided among a
+ * fixed number of <em>lanes</em>, each with its own bounded queue,
+ * scheduling weight and {@link RejectedExecutionHandler}. Tasks are
+ * submitted to a lane by index using {@link #execute(Runnable, int)}
+ * or the {@code submit} methods taking a lane; the methods inherited
+ * from {@link ExecutorService} use lane 0.
+ *
+ * <p>Whenever a worker thread becomes available, it takes the head
+ * of one of the non-empty lanes, chosen by smooth weighted
+ * round-robin: over any interval in which lanes stay non-empty, a
+ * lane with weight {@code w} receives a share {@code w / W} of the
+ * dequeues, where {@code W} is the total weight of those lanes, and
+ * dequeues from a lane are spread evenly rather than in bursts. An
+ * empty lane does not hold up the others. So latency-sensitive work
+ * in a lane with a large weight is not queued behind batch work in a
+ * lane with a small weight, while the batch work still makes
+ * progress. Tasks within a lane run in FIFO order. Lanes do not
+ * preempt running tasks; when all workers are busy with long tasks,
+ * new tasks wait regardless of their lane, so the pool should be
+ * sized for the latency-sensitive load.
+ *
+ * <p>Sizing works as for a {@code ThreadPoolExecutor} with a bounded
+ * queue: when a task arrives while {@link #getCorePoolSize
+ * corePoolSize} threads are busy, it is queued in its lane; if the
+ * lane is full, a new thread is started if fewer than {@link
+ * #getMaximumPoolSize maximumPoolSize} are running, and otherwise the
+ * task is rejected. Rejected tasks are passed to the handler of their
+ * lane (see {@link #setRejectedExecutionHandler(int,
+ * RejectedExecutionHandler)}), or, for lanes without one, to the
+ * handler of the executor. A {@link
+ * ThreadPoolExecutor.DiscardOldestPolicy} (or subclass) discards the
+ * oldest task of the same lane.
+ *
+ * <p>Each lane records the number of tasks submitted, rejected and
+ * completed, and the time tasks spent queued and running (see {@link
+ * #getLaneStatistics}).
+ *
+ * <p><b>Extension notes:</b> Tasks are wrapped in an internal
+ * {@code Runnable} before being queued, so {@link #beforeExecute},
+ * {@link #afterExecute} and rejected execution handlers receive the
+ * wrapper rather than the submitted task. A wrapper passed back to
+ * {@link #execute(Runnable)} or to {@code put} or {@code offer} on
+ * the queue, as handlers that block or retry do, returns to its own
+ * lane. The queue returned by {@link #getQueue} presents
+ * the submitted tasks in its views, and {@link #remove} and {@link
+ * #shutdownNow} accept and return submitted tasks as usual.
+ */
+public class LaneThreadPoolExecutor extends ThreadPoolExecutor {
+
+    /*
+     * This class uses ThreadPoolExecutor unchanged, supplying a
+     * LaneQueue as the work queue and a LaneRejector as the handler.
+     * execute(command, lane) wraps the command in a LaneTask that
+     * remembers its lane, so that the queue can route it on offer,
+     * the rejector can find the lane's handler, and run() can time
+     * it. The handler set through the public methods of
+     * ThreadPoolExecutor is kept here as the default for lanes
+     * without their own handler.
+     */
+
+    /** The queue, also available (as a BlockingQueue) via getQueue. */
+    private final LaneQueue laneQueue;
+
+    /** Per-lane handlers, or null entries; replaced on update. */
+    private volatile RejectedExecutionHandler[] laneHandlers;
+
+    /** The handler for lanes without one. */
+    private volatile RejectedExecutionHandler defaultHandler;
+
+    /**
+     * Creates a new {@code LaneThreadPoolExecutor} with the given
+     * initial parameters and lanes, the default thread factory and
+     * the default rejected execution handler.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param laneWeights the scheduling weight of each lane
+     * @param laneCapacities the queue capacity of each lane
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}<br>
+     *         the lane arrays are empty or differ in length<br>
+     *         a lane weight or capacity is not positive
+     * @throws NullPointerException if {@code unit} or either lane array
+     *         is null
+     */
+    public LaneThreadPoolExecutor(int corePoolSize,
+                                  int maximumPoolSize,
+                                  long keepAliveTime,
+                                  TimeUnit unit,
+                                  int[] laneWeights,
+                                  int[] laneCapacities) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+             laneWeights, laneCapacities,
+             Executors.defaultThreadFactory(), new AbortPolicy());
+    }
+
+    /**
+     * Creates a new {@code LaneThreadPoolExecutor} with the given
+     * initial parameters and lanes.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param maximumPoolSize the maximum number of threads to allow in the
+     *        pool
+     * @param keepAliveTime when the number of threads is greater than
+     *        the core, this is the maximum time that excess idle threads
+     *        will wait for new tasks before terminating.
+     * @param unit the time unit for the {@code keepAliveTime} argument
+     * @param laneWeights the scheduling weight of each lane
+     * @param laneCapacities the queue capacity of each lane
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use for lanes without their own
+     *        handler when execution is blocked because the thread
+     *        bounds and lane capacity are reached
+     * @throws IllegalArgumentException if one of the following holds:<br>
+     *         {@code corePoolSize < 0}<br>
+     *         {@code keepAliveTime < 0}<br>
+     *         {@code maximumPoolSize <= 0}<br>
+     *         {@code maximumPoolSize < corePoolSize}<br>
+     *         the lane arrays are empty or differ in length<br>
+     *         a lane weight or capacity is not positive
+     * @throws NullPointerException if {@code unit}, either lane array,
+     *         {@code threadFactory} or {@code handler} is null
+     */
+    public LaneThreadPoolExecutor(int corePoolSize,
+                                  int maximumPoolSize,
+                                  long keepAliveTime,
+                                  TimeUnit unit,
+                                  int[] laneWeights,
+                                  int[] laneCapacities,
+                                  ThreadFactory threadFactory,
+                                  RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit,
+              new LaneQueue(laneWeights, laneCapacities),
+              threadFactory, new LaneRejector());
+        if (handler == null)
+            throw new NullPointerException();
+        this.laneQueue = (LaneQueue)super.getQueue();
+        this.laneHandlers = new RejectedExecutionHandler[laneWeights.length];
+        this.defaultHandler = handler;
+    }
+
+    /**
+     * Returns the number of lanes.
+     *
+     * @return the number of lanes
+     */
+    public int getLaneCount() {
+        return laneQueue.lanes.length;
+    }
+
+    /**
+     * Returns the scheduling weight of the given lane.
+     *
+     * @param lane the lane index
+     * @return the weight of the lane
+     * @throws IllegalArgumentException if the lane does not exist
+     */
+    public int getLaneWeight(int lane) {
+        return laneQueue.lane(lane).weight;
+    }
+
+    /**
+     * Returns the queue capacity of the given lane.
+     *
+     * @param lane the lane index
+     * @return the capacity of the lane
+     * @throws IllegalArgumentException if the lane does not exist
+     */
+    public int getLaneCapacity(int lane) {
+        return laneQueue.lane(lane).capacity;
+    }
+
+    /**
+     * Executes the given task sometime in the future in the given
+     * lane. If the task cannot be submitted, either because this
+     * executor has been shutdown or because its lane and the pool
+     * are full, the task is handled by the lane's {@code
+     * RejectedExecutionHandler}.
+     *
+     * @param command the task to execute
+     * @param lane the lane index
+     * @throws RejectedExecutionException at discretion of the lane's
+     *         {@code RejectedExecutionHandler}, if the task
+     *         cannot be accepted for execution
+     * @throws NullPointerException if {@code command} is null
+     * @throws IllegalArgumentException if the lane does not exist
+     */
+    public void execute(Runnable command, int lane) {
+        if (command == null)
+            throw new NullPointerException();
+        Lane l = laneQueue.lane(lane);
+        l.submitted.increment();
+        super.execute(new LaneTask(command, l));
+    }
+
+    /**
+     * Executes the given task in lane 0.
+     *
+     * @param command the task to execute
+     * @throws RejectedExecutionException at discretion of the lane's
+     *         {@code RejectedExecutionHandler}, if the task
+     *         cannot be accepted for execution
+     * @throws NullPointerException if {@code command} is null
+     */
+    public void execute(Runnable command) {
+        if (command instanceof LaneTask &&
+            laneQueue.owns(((LaneTask)command).lane))
+            super.execute(command);  // resubmitted by a handler
+        else
+            execute(command, 0);
+    }
+
+    /**
+     * Submits a Runnable task for execution in the given lane and
+     * returns a Future representing that task.
+     *
+     * @param task the task to submit
+     * @param lane the lane index
+     * @return a Future representing pending completion of the task
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @throws NullPointerException if the task is null
+     * @throws IllegalArgumentException if the lane does not exist
+     */
+    public Future<?> submit(Runnable task, int lane) {
+        if (task == null) throw new NullPointerException();
+        RunnableFuture<Void> ftask = newTaskFor(task, null);
+        execute(ftask, lane);
+        return ftask;
+    }
+
+    /**
+     * Submits a value-returning task for execution in the given lane
+     * and returns a Future representing the pending results of the
+     * task.
+     *
+     * @param task the task to submit
+     * @param lane the lane index
+     * @param <T> the type of the task's result
+     * @return a Future representing pending completion of the task
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @throws NullPointerException if the task is null
+     * @throws IllegalArgumentException if the lane does not exist
+     */
+    public <T> Future<T> submit(Callable<T> task, int lane) {
+        if (task == null) throw new NullPointerException();
+        RunnableFuture<T> ftask = newTaskFor(task);
+        execute(ftask, lane);
+        return ftask;
+    }
+
+    /**
+     * Sets the handler for tasks of the given lane that cannot be
+     * executed.
+     *
+     * @param lane the lane index
+     * @param handler the new handler, or {@code null} to use the
+     *        handler of this executor
+     * @throws IllegalArgumentException if the lane does not exist
+     * @see #getRejectedExecutionHandler(int)
+     */
+    public void setRejectedExecutionHandler(int lane,
+                                            RejectedExecutionHandler handler) {
+        laneQueue.lane(lane);
+        synchronized (laneQueue) {
+            RejectedExecutionHandler[] hs = laneHandlers.clone();
+            hs[lane] = handler;
+            laneHandlers = hs;
+        }
+    }
+
+    /**
+     * Returns the handler for tasks of the given lane that cannot be
+     * executed.
+     *
+     * @param lane the lane index
+     * @return the lane's handler, or the handler of this executor if
+     *         the lane has none
+     * @throws IllegalArgumentException if the lane does not exist
+     * @see #setRejectedExecutionHandler(int, RejectedExecutionHandler)
+     */
+    public RejectedExecutionHandler getRejectedExecutionHandler(int lane) {
+        laneQueue.lane(lane);
+        RejectedExecutionHandler h = laneHandlers[lane];
+        return (h != null) ? h : defaultHandler;
+    }
+
+    /**
+     * Sets the handler for unexecutable tasks of lanes that do not
+     * have their own handler.
+     *
+     * @param handler the new handler
+     * @throws NullPointerException if handler is null
+     * @see #getRejectedExecutionHandler
+     */
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+        if (handler == null)
+            throw new NullPointerException();
+        defaultHandler = handler;
+    }
+
+    /**
+     * Returns the handler for unexecutable tasks of lanes that do not
+     * have their own handler.
+     *
+     * @return the current handler
+     * @see #setRejectedExecutionHandler(RejectedExecutionHandler)
+     */
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return defaultHandler;
+    }
+
+    /**
+     * Returns the task queue used by this executor. Its views and
+     * {@code peek} present the submitted tasks in the order in which
+     * they would currently be dequeued if no more tasks arrived.
+     * Access to the task queue is intended primarily for debugging
+     * and monitoring.
+     *
+     * @return the task queue
+     */
+    public BlockingQueue<Runnable> getQueue() {
+        return super.getQueue();
+    }
+
+    /**
+     * Returns a snapshot of statistics for the given lane. Counts are
+     * those since this executor was created.
+     *
+     * @param lane the lane index
+     * @return a snapshot of statistics for the lane
+     * @throws IllegalArgumentException if the lane does not exist
+     */
+    public LaneStatistics getLaneStatistics(int lane) {
+        Lane l = laneQueue.lane(lane);
+        final ReentrantLock lock = laneQueue.lock;
+        lock.lock();
+        try {
+            return new LaneStatistics(lane, l);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a string identifying this pool, as well as its state,
+     * including indications of run state, estimated worker and task
+     * counts, and the number of tasks queued in each lane.
+     *
+     * @return a string identifying this pool, as well as its state
+     */
+    public String toString() {
+        String s = super.toString();
+        int[] sizes = laneQueue.laneSizes();
+        return s.substring(0, s.length() - 1) +
+            ", lane sizes = " + Arrays.toString(sizes) + "]";
+    }
+
+    /**
+     * Scheduling state and counters for one lane.
+     */
+    static final class Lane {
+        final int index;
+        final int weight;
+        final int capacity;
+        final ArrayDeque<LaneTask> tasks = new ArrayDeque<LaneTask>();
+        int current;                 // smooth round-robin credit
+        // Updated under queue lock
+        long dequeued;
+        long queueNanos;
+        long maxQueueNanos;
+        // Updated by submitters and workers without locking
+        final LongAdder submitted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder completed = new LongAdder();
+        final LongAdder runNanos = new LongAdder();
+        final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0L);
+
+        Lane(int index, int weight, int capacity) {
+            this.index = index;
+            this.weight = weight;
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * A submitted task, recording its lane and when it was queued,
+     * and timing itself when run.
+     */
+    static final class LaneTask implements Runnable {
+        final Runnable command;
+        final Lane lane;
+        long queuedAt;               // set by LaneQueue.offer
+
+        LaneTask(Runnable command, Lane lane) {
+            this.command = command;
+            this.lane = lane;
+        }
+
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                command.run();
+            } finally {
+                long t = System.nanoTime() - start;
+                Lane l = lane;
+                l.completed.increment();
+                l.runNanos.add(t);
+                l.maxRunNanos.accumulate(t);
+            }
+        }
+
+        public String toString() {
+            return command.toString();
+        }
+    }
+
+    /**
+     * The installed handler, dispatching rejected tasks to the
+     * handler of their lane.
+     */
+    static final class LaneRejector implements RejectedExecutionHandler {
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+            LaneThreadPoolExecutor x = (LaneThreadPoolExecutor)e;
+            LaneTask t;
+            if (r instanceof LaneTask)
+                t = (LaneTask)r;
+            else                     // added directly to the queue
+                t = new LaneTask(r, x.laneQueue.lanes[0]);
+            Lane l = t.lane;
+            l.rejected.increment();
+            RejectedExecutionHandler h = x.laneHandlers[l.index];
+            if (h == null)
+                h = x.defaultHandler;
+            if (h instanceof DiscardOldestPolicy) {
+                if (!x.isShutdown()) {
+                    x.laneQueue.pollLane(l);
+                    x.superExecute(t);
+                }
+            }
+            else
+                h.rejectedExecution(t, x);
+        }
+    }
+
+    /** Re-executes an already wrapped task, for LaneRejector. */
+    final void superExecute(LaneTask t) {
+        super.execute(t);
+    }
+
+    /**
+     * The work queue. To mesh with TPE declarations, this class must
+     * be declared as a BlockingQueue<Runnable> even though it holds
+     * only LaneTasks: other Runnables offered to it (for example via
+     * getQueue().add) are wrapped and placed in lane 0, while
+     * LaneTasks, including those handed back by rejection handlers,
+     * go to their own lane. Methods that
+     * return tasks to the pool (poll, take) return the LaneTasks,
+     * while methods that return tasks to users (peek, drainTo,
+     * toArray, iterator) return the submitted commands.
+     */
+    static final class LaneQueue extends AbstractQueue<Runnable>
+        implements BlockingQueue<Runnable> {
+
+        final Lane[] lanes;
+        final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private int count;           // total tasks in all lanes
+
+        LaneQueue(int[] weights, int[] capacities) {
+            int n = weights.length;
+            if (n == 0 || capacities.length != n)
+                throw new IllegalArgumentException();
+            Lane[] ls = new Lane[n];
+            for (int i = 0; i < n; ++i) {
+                if (weights[i] <= 0 || capacities[i] <= 0)
+                    throw new IllegalArgumentException();
+                ls[i] = new Lane(i, weights[i], capacities[i]);
+            }
+            this.lanes = ls;
+        }
+
+        Lane lane(int lane) {
+            if (lane < 0 || lane >= lanes.length)
+                throw new IllegalArgumentException("No lane " + lane);
+            return lanes[lane];
+        }
+
+        /** Returns true if l is one of this queue's lanes. */
+        boolean owns(Lane l) {
+            return l.index < lanes.length && lanes[l.index] == l;
+        }
+
+        private LaneTask asTask(Runnable r) {
+            if (r instanceof LaneTask && owns(((LaneTask)r).lane))
+                return (LaneTask)r;
+            return new LaneTask(r, lanes[0]);
+        }
+
+        /**
+         * Chooses the lane to dequeue from by smooth weighted
+         * round-robin over the non-empty lanes. Call only when
+         * holding lock and count > 0.
+         */
+        private Lane nextLane() {
+            Lane best = null;
+            int total = 0;
+            for (Lane l : lanes) {
+                if (!l.tasks.isEmpty()) {
+                    total += l.weight;
+                    l.current += l.weight;
+                    if (best == null || l.current > best.current)
+                        best = l;
+                }
+            }
+            best.current -= total;
+            return best;
+        }
+
+        /**
+         * Bookkeeping after removing a task from lane l. Call only
+         * when holding lock.
+         */
+        private void removed(Lane l) {
+            --count;
+            if (l.tasks.size() == l.capacity - 1)
+                notFull.signalAll();
+        }
+
+        /**
+         * Removes and returns the head of non-empty lane l, recording
+         * its queue time. Call only when holding lock.
+         */
+        private LaneTask dequeue(Lane l) {
+            LaneTask t = l.tasks.pollFirst();
+            removed(l);
+            long waited = System.nanoTime() - t.queuedAt;
+            ++l.dequeued;
+            l.queueNanos += waited;
+            if (waited > l.maxQueueNanos)
+                l.maxQueueNanos = waited;
+            return t;
+        }
+
+        /** Discards the head of lane l, for DiscardOldestPolicy. */
+        void pollLane(Lane l) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                if (l.tasks.pollFirst() != null)
+                    removed(l);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int[] laneSizes() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                int[] sizes = new int[lanes.length];
+                for (int i = 0; i < sizes.length; ++i)
+                    sizes[i] = lanes[i].tasks.size();
+                return sizes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean offer(Runnable x) {
+            if (x == null)
+                throw new NullPointerException();
+            LaneTask t = asTask(x);
+            Lane l = t.lane;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                if (l.tasks.size() >= l.capacity)
+                    return false;
+                t.queuedAt = System.nanoTime();
+                l.tasks.addLast(t);
+                ++count;
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void put(Runnable x) throws InterruptedException {
+            offer(x, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        public boolean offer(Runnable x, long timeout, TimeUnit unit)
+            throws InterruptedException {
+            if (x == null)
+                throw new NullPointerException();
+            LaneTask t = asTask(x);
+            Lane l = t.lane;
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                while (l.tasks.size() >= l.capacity) {
+                    if (nanos <= 0)
+                        return false;
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                t.queuedAt = System.nanoTime();
+                l.tasks.addLast(t);
+                ++count;
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Runnable poll() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return (count == 0) ? null : dequeue(nextLane());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Runnable take() throws InterruptedException {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                while (count == 0)
+                    notEmpty.await();
+                return dequeue(nextLane());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Runnable poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                while (count == 0) {
+                    if (nanos <= 0)
+                        return null;
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                return dequeue(nextLane());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the task that would be dequeued next, without
+         * advancing the round-robin state.
+         */
+        public Runnable peek() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Lane best = null;
+                for (Lane l : lanes) {
+                    if (!l.tasks.isEmpty() &&
+                        (best == null ||
+                         l.current + l.weight > best.current + best.weight))
+                        best = l;
+                }
+                return (best == null) ? null : best.tasks.peekFirst().command;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int size() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the capacity remaining in lane 0, the lane to which
+         * tasks are added through this interface.
+         */
+        public int remainingCapacity() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Lane l = lanes[0];
+                return l.capacity - l.tasks.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean remove(Object o) {
+            if (o == null)
+                return false;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                for (Lane l : lanes) {
+                    for (Iterator<LaneTask> it = l.tasks.iterator();
+                         it.hasNext();) {
+                        LaneTask t = it.next();
+                        if (t == o || t.command == o) {
+                            it.remove();
+                            removed(l);
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean contains(Object o) {
+            if (o == null)
+                return false;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                for (Lane l : lanes) {
+                    for (LaneTask t : l.tasks) {
+                        if (t == o || t.command == o)
+                            return true;
+                    }
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void clear() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                for (Lane l : lanes)
+                    l.tasks.clear();
+                count = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            if (c == null)
+                throw new NullPointerException();
+            if (c == this)
+                throw new IllegalArgumentException();
+            if (maxElements <= 0)
+                return 0;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                int n = 0;
+                while (n < maxElements && count > 0) {
+                    Lane l = nextLane();
+                    c.add(l.tasks.peekFirst().command); // In case add() throws
+                    l.tasks.pollFirst();
+                    removed(l);
+                    ++n;
+                }
+                return n;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the submitted tasks in dequeue order if no more
+         * tasks arrived. Call only when holding lock.
+         */
+        private Runnable[] snapshot() {
+            Runnable[] a = new Runnable[count];
+            Lane[] ls = lanes;
+            int n = ls.length;
+            int[] credit = new int[n];
+            @SuppressWarnings("unchecked")
+            Iterator<LaneTask>[] its = (Iterator<LaneTask>[])new Iterator<?>[n];
+            for (int i = 0; i < n; ++i) {
+                credit[i] = ls[i].current;
+                its[i] = ls[i].tasks.iterator();
+            }
+            int[] left = new int[n];
+            for (int i = 0; i < n; ++i)
+                left[i] = ls[i].tasks.size();
+            for (int k = 0; k < a.length; ++k) {  // replay nextLane
+                int best = -1, total = 0;
+                for (int i = 0; i < n; ++i) {
+                    if (left[i] > 0) {
+                        total += ls[i].weight;
+                        credit[i] += ls[i].weight;
+                        if (best < 0 || credit[i] > credit[best])
+                            best = i;
+                    }
+                }
+                credit[best] -= total;
+                --left[best];
+                a[k] = its[best].next().command;
+            }
+            return a;
+        }
+
+        public Object[] toArray() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return Arrays.copyOf(snapshot(), count, Object[].class);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                Runnable[] s = snapshot();
+                int size = s.length;
+                if (a.length < size)
+                    return (T[]) Arrays.copyOf(s, size, a.getClass());
+                System.arraycopy(s, 0, a, 0, size);
+                if (a.length > size)
+                    a[size] = null;
+                return a;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Iterator<Runnable> iterator() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return new Itr(snapshot());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Snapshot iterator that works off a copy of the queued tasks.
+         */
+        private class Itr implements Iterator<Runnable> {
+            final Runnable[] array;
+            int cursor = 0;     // index of next element to return
+            int lastRet = -1;   // index of last element, or -1 if no such
+
+            Itr(Runnable[] array) {
+                this.array = array;
+            }
+
+            public boolean hasNext() {
+                return cursor < array.length;
+            }
+
+            public Runnable next() {
+                if (cursor >= array.length)
+                    throw new NoSuchElementException();
+                lastRet = cursor;
+                return array[cursor++];
+            }
+
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                LaneQueue.this.remove(array[lastRet]);
+                lastRet = -1;
+            }
+        }
+    }
+
+    /**
+     * An immutable snapshot of statistics for one lane of a {@link
+     * LaneThreadPoolExecutor}, obtained from {@link
+     * #getLaneStatistics}.
+     *
+     * <p>Queue times measure how long tasks waited in the lane before
+     * a worker took them; tasks handed directly to a new thread are
+     * not counted. Run times cover all tasks of the lane that have
+     * completed, normally or abruptly. A lane whose queue time grows
+     * while its run time does not needs a larger weight or more
+     * threads; a lane with many rejections needs a larger capacity or
+     * a slower producer.
+     */
+    public static final class LaneStatistics {
+        private final int lane;
+        private final int weight;
+        private final int capacity;
+        private final int queuedTaskCount;
+        private final long submittedTaskCount;
+        private final long rejectedTaskCount;
+        private final long dequeuedTaskCount;
+        private final long completedTaskCount;
+        private final long totalQueueNanos;
+        private final long maxQueueNanos;
+        private final long totalRunNanos;
+        private final long maxRunNanos;
+
+        LaneStatistics(int lane, Lane l) {
+            this.lane = lane;
+            this.weight = l.weight;
+            this.capacity = l.capacity;
+            this.queuedTaskCount = l.tasks.size();
+            this.submittedTaskCount = l.submitted.sum();
+            this.rejectedTaskCount = l.rejected.sum();
+            this.dequeuedTaskCount = l.dequeued;
+            this.completedTaskCount = l.completed.sum();
+            this.totalQueueNanos = l.queueNanos;
+            this.maxQueueNanos = l.maxQueueNanos;
+            this.totalRunNanos = l.runNanos.sum();
+            this.maxRunNanos = l.maxRunNanos.get();
+        }
+
+        /**
+         * Returns the lane index.
+         *
+         * @return the lane index
+         */
+        public int getLane() { return lane; }
+
+        /**
+         * Returns the scheduling weight of the lane.
+         *
+         * @return the weight
+         */
+        public int getWeight() { return weight; }
+
+        /**
+         * Returns the queue capacity of the lane.
+         *
+         * @return the capacity
+         */
+        public int getCapacity() { return capacity; }
+
+        /**
+         * Returns the number of tasks queued in the lane at the time
+         * of the snapshot.
+         *
+         * @return the number of queued tasks
+         */
+        public int getQueuedTaskCount() { return queuedTaskCount; }
+
+        /**
+         * Returns the number of tasks submitted to the lane, including
+         * those rejected.
+         *
+         * @return the number of submitted tasks
+         */
+        public long getSubmittedTaskCount() { return submittedTaskCount; }
+
+        /**
+         * Returns the number of tasks of the lane passed to a
+         * rejected execution handler.
+         *
+         * @return the number of rejected tasks
+         */
+        public long getRejectedTaskCount() { return rejectedTaskCount; }
+
+        /**
+         * Returns the number of tasks of the lane that have completed
+         * execution.
+         *
+         * @return the number of completed tasks
+         */
+        public long getCompletedTaskCount() { return completedTaskCount; }
+
+        /**
+         * Returns the total time that dequeued tasks of the lane spent
+         * waiting in its queue.
+         *
+         * @return the total queue time in nanoseconds
+         */
+        public long getTotalQueueNanos() { return totalQueueNanos; }
+
+        /**
+         * Returns the average time that dequeued tasks of the lane
+         * spent waiting in its queue.
+         *
+         * @return the average queue time in nanoseconds, or zero if
+         *         no tasks have been dequeued
+         */
+        public long getAverageQueueNanos() {
+            return (dequeuedTaskCount == 0L) ? 0L :
+                totalQueueNanos / dequeuedTaskCount;
+        }
+
+        /**
+         * Returns the longest time a dequeued task of the lane spent
+         * waiting in its queue.
+         *
+         * @return the maximum queue time in nanoseconds
+         */
+        public long getMaxQueueNanos() { return maxQueueNanos; }
+
+        /**
+         * Returns the total run time of completed tasks of the lane.
+         *
+         * @return the total run time in nanoseconds
+         */
+        public long getTotalRunNanos() { return totalRunNanos; }
+
+        /**
+         * Returns the average run time of completed tasks of the lane.
+         *
+         * @return the average run time in nanoseconds, or zero if no
+         *         tasks have completed
+         */
+        public long getAverageRunNanos() {
+            return (completedTaskCount == 0L) ? 0L :
+                totalRunNanos / completedTaskCount;
+        }
+
+        /**
+         * Returns the longest run time of a completed task of the lane.
+         *
+         * @return the maximum run time in nanoseconds
+         */
+        public long getMaxRunNanos() { return maxRunNanos; }
+
+        /**
+         * Returns a string identifying these statistics.
+         *
+         * @return a string representation of these statistics
+         */
+        public String toString() {
+            return "LaneStatistics[lane=" + lane +
+                ", weight=" + weight +
+                ", capacity=" + capacity +
+                ", queued=" + queuedTaskCount +
+                ", submitted=" + submittedTaskCount +
+                ", rejected=" + rejectedTaskCount +
+                ", completed=" + completedTaskCount +
+                ", avgQueueNanos=" + getAverageQueueNanos() +
+                ", maxQueueNanos=" + maxQueueNanos +
+                ", avgRunNanos=" + getAverageRunNanos() +
+                ", maxRunNanos=" + maxRunNanos + "]";
+        }
+    }
+}
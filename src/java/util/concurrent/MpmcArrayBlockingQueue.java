@@ -0,0 +1,818 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded lock-free {@linkplain BlockingQueue blocking queue} backed
+ * by an array, for any number of producers and consumers. This queue
+ * orders elements FIFO (first-in-first-out), and may be used wherever
+ * an {@link ArrayBlockingQueue} is, including as the work queue of a
+ * {@link ThreadPoolExecutor}.
+ *
+ * <p>Unlike {@code ArrayBlockingQueue}, which guards all operations
+ * with a single lock, producers and consumers here contend only on a
+ * compare-and-set of their own index, and only with each other:
+ * producers never block consumers or vice versa. Each array slot
+ * carries a sequence number recording whether it is ready to be
+ * written or read in the current lap around the array, so elements
+ * are published without locking. Unlike {@link LinkedBlockingQueue},
+ * no node is allocated per element. The capacity is rounded up to a
+ * power of two.
+ *
+ * <p>Operations that must wait ({@code put}, {@code take}, and the
+ * timed {@code offer} and {@code poll}) spin briefly on
+ * multiprocessors and then park. Threads that never wait pay no
+ * blocking overhead beyond a field read per operation. The bulk
+ * {@code drainTo} methods take elements one at a time, as repeated
+ * {@code poll} calls would, but signal waiting producers only once.
+ *
+ * <p>The {@code size} method, and the {@code remove(Object)} and
+ * iteration methods, are weakly consistent: they reflect the state of
+ * the queue at some point at or since the call, and may not reflect
+ * concurrent insertions and removals. An element removed by {@code
+ * remove(Object)} from the interior of the queue no longer counts
+ * towards the size, but its slot is not free for insertions until
+ * consumers reach it.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces. Like {@code ArrayBlockingQueue}, it does not
+ * permit {@code null} elements.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public class MpmcArrayBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * This is a variant of Dmitry Vyukov's bounded MPMC queue. Slot
+     * i holds sequence number s: if s == pos, the slot is free for
+     * the producer claiming position pos (where pos & mask == i); if
+     * s == pos + 1, it holds the element for the consumer claiming
+     * pos. Producers claim positions by CAS on tail, write the
+     * element, and then publish by setting the sequence to pos + 1;
+     * consumers claim by CAS on head, take the element, and release
+     * the slot for the next lap by setting the sequence to
+     * pos + capacity. A slot whose sequence lags the claimed
+     * position indicates a full (for producers) or empty (for
+     * consumers) queue.
+     *
+     * The ring has at least two slots: with one, the published
+     * sequence pos + 1 would equal the released sequence
+     * pos + capacity, and a full slot would look free.
+     *
+     * Consumers take elements with an atomic exchange rather than a
+     * plain read, so that remove(Object) can claim an element in
+     * place by CAS to null, leaving a tombstone. Consumers skip
+     * tombstones, releasing their slots (and signalling putters) as
+     * for any other; remove(Object) itself also advances head over
+     * tombstones it finds there, so that removals alone can make the
+     * queue non-full. Live tombstones are counted in removedCount,
+     * which size() subtracts.
+     *
+     * Blocking uses a conventional lock and conditions, entered only
+     * by waiting threads after spinning. A waiter increments its
+     * waiter count (a full fence) and then rechecks the queue; a
+     * producer (consumer) publishes its sequence with a volatile write
+     * and then reads the taker (putter) count. This Dekker-style
+     * ordering ensures that either the waiter sees the update or the
+     * updater sees the waiter and signals it under the lock. Since
+     * waiters recheck while holding the lock before awaiting, signals
+     * cannot be missed.
+     *
+     * The head and tail indices and waiter counts are isolated with
+     * @Contended to avoid false sharing between producers and
+     * consumers. Sequence numbers are longs, so they never wrap in
+     * practice.
+     */
+
+    /** Number of CPUS, to place bounds on some sizings */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of times to retry a failed poll or offer before
+     * blocking. Zero on uniprocessors, where spinning cannot help.
+     */
+    static final int SPINS = (NCPU < 2) ? 0 : 1 << 7;
+
+    /** The largest capacity, a power of two. */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** The queued items */
+    private final Object[] items;
+
+    /** Per-slot sequence numbers */
+    private final long[] sequences;
+
+    /** items.length - 1 */
+    private final int mask;
+
+    /** Position of the next slot to be claimed by a producer */
+    @sun.misc.Contended("tail")
+    private volatile long tail;
+
+    /** Number of threads waiting in put or timed offer */
+    @sun.misc.Contended("tail")
+    private volatile int waitingPutters;
+
+    /** Position of the next slot to be claimed by a consumer */
+    @sun.misc.Contended("head")
+    private volatile long head;
+
+    /** Number of threads waiting in take or timed poll */
+    @sun.misc.Contended("head")
+    private volatile int waitingTakers;
+
+    /** Number of elements removed in place whose slots are not released */
+    private volatile int removedCount;
+
+    /** Lock held by waiting threads and by threads signalling them */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Condition for waiting takes */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** Condition for waiting puts */
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Creates a {@code MpmcArrayBlockingQueue} with the given
+     * capacity, rounded up to the next power of two.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 2} or
+     *         {@code capacity > 2^30}
+     */
+    public MpmcArrayBlockingQueue(int capacity) {
+        if (capacity < 2 || capacity > MAXIMUM_CAPACITY)
+            throw new IllegalArgumentException();
+        int n = Integer.highestOneBit(capacity - 1) << 1;
+        items = new Object[n];
+        long[] seqs = new long[n];
+        for (int i = 0; i < n; ++i)
+            seqs[i] = i;
+        sequences = seqs;
+        mask = n - 1;
+    }
+
+    /**
+     * Creates a {@code MpmcArrayBlockingQueue} with the given
+     * capacity, rounded up to the next power of two, and initially
+     * containing the elements of the given collection, added in
+     * traversal order of the collection's iterator.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @param c the collection of elements to initially contain
+     * @throws IllegalArgumentException if {@code capacity < 2},
+     *         {@code capacity > 2^30}, or less than {@code c.size()}
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public MpmcArrayBlockingQueue(int capacity, Collection<? extends E> c) {
+        this(capacity);
+        for (E e : c) {
+            if (!offer(e))
+                throw new IllegalArgumentException();
+        }
+    }
+
+    private static long seqOffset(int i) {
+        return ((long)i << SSHIFT) + SBASE;
+    }
+
+    private static long itemOffset(int i) {
+        return ((long)i << ASHIFT) + ABASE;
+    }
+
+    /** Wakes a waiting taker if there may be one. */
+    private void signalNotEmpty() {
+        if (waitingTakers != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Wakes waiting putters if there may be any, all if many slots freed. */
+    private void signalNotFull(boolean all) {
+        if (waitingPutters != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                if (all)
+                    notFull.signalAll();
+                else
+                    notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Tries to insert e without blocking or signalling.
+     */
+    private boolean tryOffer(E e) {
+        final long[] seqs = sequences;
+        final int m = mask;
+        for (;;) {
+            long t = tail;
+            int i = (int)t & m;
+            long d = U.getLongVolatile(seqs, seqOffset(i)) - t;
+            if (d == 0L) {
+                if (U.compareAndSwapLong(this, TAIL, t, t + 1L)) {
+                    U.putObject(items, itemOffset(i), e);
+                    U.putLongVolatile(seqs, seqOffset(i), t + 1L);
+                    return true;
+                }
+            }
+            else if (d < 0L)
+                return false;           // slot not yet consumed: full
+        }
+    }
+
+    /**
+     * Tries to remove an element without blocking or signalling.
+     */
+    @SuppressWarnings("unchecked")
+    private E tryPoll() {
+        final long[] seqs = sequences;
+        final int m = mask;
+        for (;;) {
+            long h = head;
+            int i = (int)h & m;
+            long d = U.getLongVolatile(seqs, seqOffset(i)) - (h + 1L);
+            if (d == 0L) {
+                if (U.compareAndSwapLong(this, HEAD, h, h + 1L)) {
+                    Object x = U.getAndSetObject(items, itemOffset(i), null);
+                    U.putLongVolatile(seqs, seqOffset(i), h + m + 1L);
+                    if (x != null)
+                        return (E)x;
+                    U.getAndAddInt(this, REMOVEDCOUNT, -1);
+                    signalNotFull(false);   // skipped a tombstone
+                }
+            }
+            else if (d < 0L)
+                return null;            // slot not yet published: empty
+        }
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        if (!tryOffer(e))
+            return false;
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (!tryOffer(e))
+            awaitNotFull(e, false, 0L);
+        signalNotEmpty();
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (!tryOffer(e) && !awaitNotFull(e, true, unit.toNanos(timeout)))
+            return false;
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Spins and then blocks until e is inserted or, if timed, the
+     * timeout elapses.
+     *
+     * @return true if inserted
+     */
+    private boolean awaitNotFull(E e, boolean timed, long nanos)
+        throws InterruptedException {
+        for (int spins = SPINS; spins > 0; --spins) {
+            if (tryOffer(e))
+                return true;
+        }
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            for (;;) {
+                U.getAndAddInt(this, WAITINGPUTTERS, 1);
+                try {
+                    if (tryOffer(e))
+                        return true;
+                    if (!timed)
+                        notFull.await();
+                    else if (nanos <= 0L)
+                        return false;
+                    else
+                        nanos = notFull.awaitNanos(nanos);
+                } finally {
+                    U.getAndAddInt(this, WAITINGPUTTERS, -1);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public E poll() {
+        E x = tryPoll();
+        if (x != null)
+            signalNotFull(false);
+        return x;
+    }
+
+    public E take() throws InterruptedException {
+        E x;
+        if ((x = tryPoll()) == null)
+            x = awaitNotEmpty(false, 0L);
+        signalNotFull(false);
+        return x;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E x;
+        if ((x = tryPoll()) == null &&
+            (x = awaitNotEmpty(true, unit.toNanos(timeout))) == null)
+            return null;
+        signalNotFull(false);
+        return x;
+    }
+
+    /**
+     * Spins and then blocks until an element is removed or, if timed,
+     * the timeout elapses.
+     *
+     * @return the element, or null on timeout
+     */
+    private E awaitNotEmpty(boolean timed, long nanos)
+        throws InterruptedException {
+        E x;
+        for (int spins = SPINS; spins > 0; --spins) {
+            if ((x = tryPoll()) != null)
+                return x;
+        }
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            for (;;) {
+                U.getAndAddInt(this, WAITINGTAKERS, 1);
+                try {
+                    if ((x = tryPoll()) != null)
+                        return x;
+                    if (!timed)
+                        notEmpty.await();
+                    else if (nanos <= 0L)
+                        return null;
+                    else
+                        nanos = notEmpty.awaitNanos(nanos);
+                } finally {
+                    U.getAndAddInt(this, WAITINGTAKERS, -1);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final long[] seqs = sequences;
+        final int m = mask;
+        for (long p = head, end = p + m + 1L; p != end; ++p) {
+            int i = (int)p & m;
+            if (U.getLongVolatile(seqs, seqOffset(i)) != p + 1L)
+                break;                  // not published, or consumed
+            Object x = U.getObjectVolatile(items, itemOffset(i));
+            if (x != null)
+                return (E)x;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of elements in this queue. The result may be
+     * inaccurate under concurrent updates; it includes elements being
+     * inserted whose slots have been claimed but not yet written.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long h, t;
+        do {
+            h = head;
+            t = tail;
+        } while (h != head);
+        long n = t - h - removedCount;
+        return (n <= 0L) ? 0 : (n > mask) ? mask + 1 : (int)n;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints)
+     * accept without blocking. This is always equal to the capacity of
+     * this queue less its current {@code size}.
+     *
+     * <p>Note that you <em>cannot</em> always tell if an attempt to
+     * insert an element will succeed by inspecting {@code
+     * remainingCapacity} because it may be the case that another
+     * thread is about to insert or remove an element.
+     */
+    public int remainingCapacity() {
+        return mask + 1 - size();
+    }
+
+    /**
+     * Returns the capacity of this queue, the smallest power of two
+     * at least the capacity requested on construction.
+     *
+     * @return the capacity of this queue
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this
+     * queue, if it is present. More formally, removes an element
+     * {@code e} such that {@code o.equals(e)}, if this queue contains
+     * one or more such elements. Returns {@code true} if this queue
+     * contained the specified element (or equivalently, if this queue
+     * changed as a result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        return o != null && removeElement(o, false);
+    }
+
+    /**
+     * Claims and clears the first published element equal (or, if
+     * identity, identical) to o.
+     */
+    private boolean removeElement(Object o, boolean identity) {
+        final long[] seqs = sequences;
+        final Object[] a = items;
+        final int m = mask;
+        for (long p = head, t = tail; p - t < 0L; ++p) {
+            int i = (int)p & m;
+            if (U.getLongVolatile(seqs, seqOffset(i)) != p + 1L)
+                continue;               // consumed, or not yet published
+            long off = itemOffset(i);
+            Object x = U.getObjectVolatile(a, off);
+            if (x != null && (x == o || (!identity && o.equals(x))) &&
+                U.compareAndSwapObject(a, off, x, null)) {
+                U.getAndAddInt(this, REMOVEDCOUNT, 1);
+                skipRemoved();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Advances head over tombstones at the head of the queue,
+     * releasing their slots, and signals putters if any were released.
+     */
+    private void skipRemoved() {
+        final long[] seqs = sequences;
+        final Object[] a = items;
+        final int m = mask;
+        boolean released = false;
+        for (;;) {
+            long h = head;
+            int i = (int)h & m;
+            // A published slot found null stays null until released
+            if (U.getLongVolatile(seqs, seqOffset(i)) != h + 1L ||
+                U.getObjectVolatile(a, itemOffset(i)) != null)
+                break;
+            if (U.compareAndSwapLong(this, HEAD, h, h + 1L)) {
+                U.putLongVolatile(seqs, seqOffset(i), h + m + 1L);
+                U.getAndAddInt(this, REMOVEDCOUNT, -1);
+                released = true;
+            }
+        }
+        if (released)
+            signalNotFull(true);
+    }
+
+    public boolean contains(Object o) {
+        if (o == null)
+            return false;
+        for (Object x : snapshot()) {
+            if (o.equals(x))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Atomically removes all of the elements from this queue. The
+     * queue will be empty after this call returns, unless elements
+     * are concurrently added.
+     */
+    public void clear() {
+        boolean cleared = false;
+        while (tryPoll() != null)
+            cleared = true;
+        if (cleared)
+            signalNotFull(true);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        final long[] seqs = sequences;
+        final Object[] a = items;
+        final int m = mask;
+        int n = 0;
+        boolean released = false;
+        try {
+            // Claim and release one slot at a time, so that a failing
+            // add loses at most the element in hand, which the
+            // contract allows, and never strands the rest of a run.
+            while (n < maxElements) {
+                long h = head;
+                int i = (int)h & m;
+                long d = U.getLongVolatile(seqs, seqOffset(i)) - (h + 1L);
+                if (d < 0L)
+                    break;                      // empty
+                if (d != 0L || !U.compareAndSwapLong(this, HEAD, h, h + 1L))
+                    continue;                   // lost race; retry
+                released = true;
+                Object x = U.getAndSetObject(a, itemOffset(i), null);
+                U.putLongVolatile(seqs, seqOffset(i), h + m + 1L);
+                if (x != null) {
+                    ++n;
+                    c.add((E)x);
+                }
+                else
+                    U.getAndAddInt(this, REMOVEDCOUNT, -1);
+            }
+        } finally {
+            if (released)
+                signalNotFull(true);
+        }
+        return n;
+    }
+
+    /**
+     * Returns the published elements, in queue order.
+     */
+    private Object[] snapshot() {
+        final long[] seqs = sequences;
+        final Object[] a = items;
+        final int m = mask;
+        long h = head, t = tail;
+        int cap = (int)Math.max(0L, Math.min(t - h, (long)m + 1L));
+        Object[] r = new Object[cap];
+        int n = 0;
+        for (long p = h; n < cap && p - t < 0L; ++p) {
+            int i = (int)p & m;
+            if (U.getLongVolatile(seqs, seqOffset(i)) != p + 1L)
+                continue;
+            Object x = U.getObjectVolatile(a, itemOffset(i));
+            if (x != null)
+                r[n++] = x;
+        }
+        return (n == cap) ? r : java.util.Arrays.copyOf(r, n);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue,
+     * in proper sequence. The array reflects the elements present at
+     * some point at or since the start of the call.
+     *
+     * <p>The returned array will be "safe" in that no references to it
+     * are maintained by this queue.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        return snapshot();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue,
+     * in proper sequence; the runtime type of the returned array is
+     * that of the specified array. If the queue fits in the specified
+     * array, it is returned therein. Otherwise, a new array is
+     * allocated with the runtime type of the specified array and the
+     * size of this queue.
+     *
+     * @param a the array into which the elements of the queue are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose
+     * @return an array containing all of the elements in this queue
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this queue
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] s = snapshot();
+        int size = s.length;
+        if (a.length < size)
+            return (T[]) java.util.Arrays.copyOf(s, size, a.getClass());
+        System.arraycopy(s, 0, a, 0, size);
+        if (a.length > size)
+            a[size] = null;
+        return a;
+    }
+
+    public String toString() {
+        Object[] s = snapshot();
+        if (s.length == 0)
+            return "[]";
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0;;) {
+            Object e = s[i];
+            sb.append(e == this ? "(this Collection)" : e);
+            if (++i == s.length)
+                return sb.append(']').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper
+     * sequence. The elements will be returned in order from first
+     * (head) to last (tail).
+     *
+     * <p>The returned iterator is
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>:
+     * it traverses the elements present at some point at or since its
+     * construction.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr(snapshot());
+    }
+
+    /**
+     * Snapshot iterator that works off a copy of the published elements.
+     */
+    private class Itr implements Iterator<E> {
+        final Object[] array;
+        int cursor = 0;     // index of next element to return
+        int lastRet = -1;   // index of last element, or -1 if no such
+
+        Itr(Object[] array) {
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            lastRet = cursor;
+            return (E)array[cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            removeElement(array[lastRet], true);
+            lastRet = -1;
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long HEAD;
+    private static final long TAIL;
+    private static final long WAITINGPUTTERS;
+    private static final long WAITINGTAKERS;
+    private static final long REMOVEDCOUNT;
+    private static final int ABASE;
+    private static final int ASHIFT;
+    private static final int SBASE;
+    private static final int SSHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = MpmcArrayBlockingQueue.class;
+            HEAD = U.objectFieldOffset
+                (k.getDeclaredField("head"));
+            TAIL = U.objectFieldOffset
+                (k.getDeclaredField("tail"));
+            WAITINGPUTTERS = U.objectFieldOffset
+                (k.getDeclaredField("waitingPutters"));
+            WAITINGTAKERS = U.objectFieldOffset
+                (k.getDeclaredField("waitingTakers"));
+            REMOVEDCOUNT = U.objectFieldOffset
+                (k.getDeclaredField("removedCount"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            SBASE = U.arrayBaseOffset(long[].class);
+            int sscale = U.arrayIndexScale(long[].class);
+            if ((sscale & (sscale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            SSHIFT = 31 - Integer.numberOfLeadingZeros(sscale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,800 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by an
+ * array, for use by any number of producer threads and a single
+ * consumer thread. This queue orders elements FIFO
+ * (first-in-first-out).
+ *
+ * <p>Any thread may insert elements, but at most one thread at a time
+ * may remove them ({@code poll}, {@code take}, {@code remove}, {@code
+ * drainTo}, {@code clear}, and {@code remove} through an iterator).
+ * The consumer role may pass between threads provided the hand-off is
+ * itself properly synchronized. If this rule is broken, the results
+ * are undefined. The remaining methods may be called from any thread.
+ *
+ * <p>Producers claim slots with a compare-and-set of the tail index,
+ * checked against a cached bound derived from the head index, which
+ * they reread only when the queue appears full. The consumer takes no
+ * locks and performs no atomic read-modify-write instructions at all.
+ * Elements and the head index are published with ordered (lazy)
+ * writes. The bulk methods {@link #offerAll offerAll} and {@link
+ * #drainTo(Collection, int) drainTo} claim or release a whole batch at
+ * once. This makes the queue a cheaper replacement for {@link
+ * ArrayBlockingQueue} or {@link LinkedBlockingQueue} in front of a
+ * single dispatching or writing thread fed by many others. The
+ * capacity is rounded up to a power of two.
+ *
+ * <p>Operations that must wait spin briefly on multiprocessors and
+ * then park. So that parked producers are reliably woken, each
+ * removal (or batch of them) issues one memory fence and checks for
+ * waiters.
+ *
+ * <p>The {@code size}, {@code peek}, {@code contains}, {@code
+ * toArray} and iteration methods are weakly consistent: they reflect
+ * the state of the queue at some point at or since the call. They,
+ * and {@code drainTo}, may omit elements whose insertion is still in
+ * progress.
+ *
+ * <p>This class and its iterator implement all of the
+ * <em>optional</em> methods of the {@link Collection} and {@link
+ * Iterator} interfaces. Like {@code ArrayBlockingQueue}, it does not
+ * permit {@code null} elements.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a>.
+ *
+ * @param <E> the type of elements held in this queue
+ * @see SpscArrayBlockingQueue
+ */
+public class MpscArrayBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+
+    /*
+     * The slots in [head, tail) hold elements or, transiently, nulls
+     * for positions claimed but not yet written. A producer claims
+     * position t by CAS of tail from t to t + 1, provided t is below
+     * producerLimit, a cached head + capacity; on failure it rereads
+     * head and lazily updates producerLimit. Stale or regressed
+     * values of producerLimit are never too large, so only cause
+     * extra rereads. The producer then publishes the element with an
+     * ordered write to the slot. The consumer reads the slot at head:
+     * if null and tail differs from head, a producer is still writing
+     * it, and the consumer waits for it. The consumer then clears the
+     * slot and releases it with an ordered write of head + 1.
+     *
+     * Blocking works as in MpmcArrayBlockingQueue: waiters increment
+     * a waiter count (a full fence), recheck, and await on a
+     * condition under a lock. A producer's CAS of tail orders its
+     * later read of waitingTakers, and a waiting consumer that sees
+     * the new tail waits for the slot rather than parking, so
+     * producers need no extra fence. The consumer's ordered write of
+     * head gives no store-load ordering, so it issues a full fence
+     * before reading waitingPutters.
+     *
+     * The producers' fields (tail, producerLimit, waitingPutters) and
+     * the consumer's fields (head, waitingTakers) are isolated with
+     * @Contended so that producers do not falsely share cache lines
+     * with the consumer.
+     */
+
+    /** Number of CPUS, to place bounds on some sizings */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of times to retry a failed poll or offer before
+     * blocking. Zero on uniprocessors, where spinning cannot help.
+     */
+    static final int SPINS = (NCPU < 2) ? 0 : 1 << 7;
+
+    /** The largest capacity, a power of two. */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** The queued items */
+    private final Object[] items;
+
+    /** items.length - 1 */
+    private final int mask;
+
+    /** Position of the next slot to be claimed by a producer */
+    @sun.misc.Contended("producer")
+    private volatile long tail;
+
+    /** Cached head + capacity; never larger than the actual value */
+    @sun.misc.Contended("producer")
+    private volatile long producerLimit;
+
+    /** Number of threads waiting in put or timed offer */
+    @sun.misc.Contended("producer")
+    private volatile int waitingPutters;
+
+    /** Position of the next slot to be read by the consumer */
+    @sun.misc.Contended("consumer")
+    private volatile long head;
+
+    /** Number of threads waiting in take or timed poll */
+    @sun.misc.Contended("consumer")
+    private volatile int waitingTakers;
+
+    /** Lock held by waiting threads and by threads signalling them */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** Condition for waiting takes */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** Condition for waiting puts */
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Creates a {@code MpscArrayBlockingQueue} with the given
+     * capacity, rounded up to the next power of two.
+     *
+     * @param capacity the minimum capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1} or
+     *         {@code capacity > 2^30}
+     */
+    public MpscArrayBlockingQueue(int capacity) {
+        if (capacity <= 0 || capacity > MAXIMUM_CAPACITY)
+            throw new IllegalArgumentException();
+        int n = (capacity == 1) ? 1 :
+            Integer.highestOneBit(capacity - 1) << 1;
+        items = new Object[n];
+        mask = n - 1;
+        producerLimit = n;
+    }
+
+    private static long itemOffset(long p, int m) {
+        return ((long)((int)p & m) << ASHIFT) + ABASE;
+    }
+
+    /** Wakes a waiting taker if there may be one. */
+    private void signalNotEmpty() {
+        if (waitingTakers != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Wakes waiting putters if there may be any, all if many slots freed. */
+    private void signalNotFull(boolean all) {
+        U.fullFence();
+        if (waitingPutters != 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                if (all)
+                    notFull.signalAll();
+                else
+                    notFull.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Claims up to {@code wanted} consecutive positions at tail,
+     * returning the first, with the count claimed in {@code claimed},
+     * or returns -1 if the queue is full.
+     */
+    private long claim(int wanted, int[] claimed) {
+        final long cap = mask + 1L;
+        for (;;) {
+            long limit = producerLimit;
+            long t = tail;
+            long free = limit - t;
+            if (free < wanted) {
+                long fresh = head + cap;
+                if (fresh != limit)
+                    U.putOrderedLong(this, PRODUCERLIMIT, limit = fresh);
+                if ((free = limit - t) <= 0L)
+                    return -1L;
+            }
+            int n = (int)Math.min(free, wanted);
+            if (U.compareAndSwapLong(this, TAIL, t, t + n)) {
+                if (claimed != null)
+                    claimed[0] = n;
+                return t;
+            }
+        }
+    }
+
+    /**
+     * Tries to insert e without blocking or signalling.
+     */
+    private boolean tryOffer(E e) {
+        long t = claim(1, null);
+        if (t < 0L)
+            return false;
+        U.putOrderedObject(items, itemOffset(t, mask), e);
+        return true;
+    }
+
+    /**
+     * Returns the element in the slot at consumer position h, waiting
+     * for it to be written if it has been claimed, or null if the
+     * queue is empty.
+     */
+    private Object slotAt(long h) {
+        final long off = itemOffset(h, mask);
+        Object x;
+        while ((x = U.getObjectVolatile(items, off)) == null) {
+            if (tail == h)
+                return null;
+            Thread.yield();             // producer is still writing
+        }
+        return x;
+    }
+
+    /**
+     * Tries to remove an element without blocking or signalling.
+     */
+    @SuppressWarnings("unchecked")
+    private E tryPoll() {
+        long h = U.getLong(this, HEAD);
+        Object x = slotAt(h);
+        if (x != null) {
+            U.putObject(items, itemOffset(h, mask), null);
+            U.putOrderedLong(this, HEAD, h + 1L);
+        }
+        return (E)x;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        if (!tryOffer(e))
+            return false;
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Inserts as many as possible of the elements of the given array
+     * range at the tail of this queue, in order, without waiting. The
+     * slots for all of them are claimed together, so they are not
+     * interleaved with elements from other producers.
+     *
+     * @param a the array holding the elements to insert
+     * @param off the index of the first element to insert
+     * @param len the number of elements to insert
+     * @return the number of elements inserted, from {@code a[off]}
+     *         onwards; less than {@code len} if this queue became full
+     * @throws IndexOutOfBoundsException if {@code off} or {@code len}
+     *         is negative, or {@code off + len > a.length}
+     * @throws NullPointerException if the array or any element of the
+     *         range is null; no element is inserted in that case
+     */
+    public int offerAll(E[] a, int off, int len) {
+        if (off < 0 || len < 0 || len > a.length - off)
+            throw new IndexOutOfBoundsException();
+        for (int i = off, end = off + len; i < end; ++i) {
+            if (a[i] == null)
+                throw new NullPointerException();
+        }
+        if (len == 0)
+            return 0;
+        final Object[] items = this.items;
+        final int m = mask;
+        int[] claimed = new int[1];
+        long t = claim(len, claimed);
+        if (t < 0L)
+            return 0;
+        int n = claimed[0];
+        for (int i = 0; i < n; ++i)
+            U.putOrderedObject(items, itemOffset(t + i, m), a[off + i]);
+        signalNotEmpty();
+        return n;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (!tryOffer(e))
+            awaitNotFull(e, false, 0L);
+        signalNotEmpty();
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        if (e == null)
+            throw new NullPointerException();
+        if (!tryOffer(e) && !awaitNotFull(e, true, unit.toNanos(timeout)))
+            return false;
+        signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Spins and then blocks until e is inserted or, if timed, the
+     * timeout elapses.
+     *
+     * @return true if inserted
+     */
+    private boolean awaitNotFull(E e, boolean timed, long nanos)
+        throws InterruptedException {
+        for (int spins = SPINS; spins > 0; --spins) {
+            if (tryOffer(e))
+                return true;
+        }
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            for (;;) {
+                U.getAndAddInt(this, WAITINGPUTTERS, 1);
+                try {
+                    if (tryOffer(e))
+                        return true;
+                    if (!timed)
+                        notFull.await();
+                    else if (nanos <= 0L)
+                        return false;
+                    else
+                        nanos = notFull.awaitNanos(nanos);
+                } finally {
+                    U.getAndAddInt(this, WAITINGPUTTERS, -1);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public E poll() {
+        E x = tryPoll();
+        if (x != null)
+            signalNotFull(false);
+        return x;
+    }
+
+    public E take() throws InterruptedException {
+        E x;
+        if ((x = tryPoll()) == null)
+            x = awaitNotEmpty(false, 0L);
+        signalNotFull(false);
+        return x;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E x;
+        if ((x = tryPoll()) == null &&
+            (x = awaitNotEmpty(true, unit.toNanos(timeout))) == null)
+            return null;
+        signalNotFull(false);
+        return x;
+    }
+
+    /**
+     * Spins and then blocks until an element is removed or, if timed,
+     * the timeout elapses.
+     *
+     * @return the element, or null on timeout
+     */
+    private E awaitNotEmpty(boolean timed, long nanos)
+        throws InterruptedException {
+        E x;
+        for (int spins = SPINS; spins > 0; --spins) {
+            if ((x = tryPoll()) != null)
+                return x;
+        }
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            for (;;) {
+                U.getAndAddInt(this, WAITINGTAKERS, 1);
+                try {
+                    if ((x = tryPoll()) != null)
+                        return x;
+                    if (!timed)
+                        notEmpty.await();
+                    else if (nanos <= 0L)
+                        return null;
+                    else
+                        nanos = notEmpty.awaitNanos(nanos);
+                } finally {
+                    U.getAndAddInt(this, WAITINGTAKERS, -1);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        for (;;) {
+            long h = head;
+            Object x = slotAt(h);
+            if (x == null || h == head)
+                return (E)x;
+        }
+    }
+
+    /**
+     * Returns the number of elements in this queue. The result may be
+     * inaccurate under concurrent updates.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long h, t;
+        do {
+            h = head;
+            t = tail;
+        } while (h != head);
+        long n = t - h;
+        return (n <= 0L) ? 0 : (n > mask) ? mask + 1 : (int)n;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints)
+     * accept without blocking. This is always equal to the capacity of
+     * this queue less its current {@code size}.
+     *
+     * <p>Note that you <em>cannot</em> always tell if an attempt to
+     * insert an element will succeed by inspecting {@code
+     * remainingCapacity} because it may be the case that another
+     * thread is about to insert or remove an element.
+     */
+    public int remainingCapacity() {
+        return mask + 1 - size();
+    }
+
+    /**
+     * Returns the capacity of this queue, the smallest power of two
+     * at least the capacity requested on construction.
+     *
+     * @return the capacity of this queue
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this
+     * queue, if it is present. More formally, removes an element
+     * {@code e} such that {@code o.equals(e)}, if this queue contains
+     * one or more such elements. Returns {@code true} if this queue
+     * contained the specified element (or equivalently, if this queue
+     * changed as a result of the call). This method may only be
+     * called by the consumer.
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        return o != null && removeElement(o, false);
+    }
+
+    /**
+     * Removes the first element equal (or, if identity, identical) to
+     * o, by shifting the elements before it one slot towards the tail
+     * and advancing head. The scan stops at the first slot still
+     * being written, so only written slots, which producers no longer
+     * touch, are moved.
+     */
+    private boolean removeElement(Object o, boolean identity) {
+        final Object[] a = items;
+        final int m = mask;
+        long h = U.getLong(this, HEAD);
+        for (long p = h, t = tail; p - t < 0L; ++p) {
+            Object x = U.getObjectVolatile(a, itemOffset(p, m));
+            if (x == null)
+                break;                  // not yet written
+            if (x == o || (!identity && o.equals(x))) {
+                for (long q = p; q != h; --q)
+                    U.putObject(a, itemOffset(q, m),
+                                U.getObject(a, itemOffset(q - 1L, m)));
+                U.putObject(a, itemOffset(h, m), null);
+                U.putOrderedLong(this, HEAD, h + 1L);
+                signalNotFull(false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(Object o) {
+        if (o == null)
+            return false;
+        for (Object x : snapshot()) {
+            if (o.equals(x))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Atomically removes all of the elements from this queue. The
+     * queue will be empty after this call returns, unless elements
+     * are concurrently added. This method may only be called by the
+     * consumer.
+     */
+    public void clear() {
+        boolean cleared = false;
+        while (tryPoll() != null)
+            cleared = true;
+        if (cleared)
+            signalNotFull(true);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes at most the given number of available elements from
+     * this queue and adds them to the given collection, stopping at
+     * the first element whose insertion is still in progress. The
+     * removed slots are released to producers together. This method may
+     * only be called by the consumer.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        final Object[] a = items;
+        final int m = mask;
+        long h = U.getLong(this, HEAD);
+        int i = 0;
+        try {
+            for (; i < maxElements; ++i) {
+                long off = itemOffset(h + i, m);
+                Object x = U.getObjectVolatile(a, off);
+                if (x == null)
+                    break;              // empty, or not yet written
+                c.add((E)x);
+                U.putObject(a, off, null);
+            }
+            return i;
+        } finally {
+            // Release the slots of elements handed over, even if add threw
+            if (i > 0) {
+                U.putOrderedLong(this, HEAD, h + i);
+                signalNotFull(true);
+            }
+        }
+    }
+
+    /**
+     * Returns the elements, in queue order.
+     */
+    private Object[] snapshot() {
+        final Object[] a = items;
+        final int m = mask;
+        long h = head, t = tail;
+        int cap = (int)Math.max(0L, Math.min(t - h, (long)m + 1L));
+        Object[] r = new Object[cap];
+        int n = 0;
+        for (long p = h; n < cap; ++p) {
+            Object x = U.getObjectVolatile(a, itemOffset(p, m));
+            if (x == null)
+                break;                  // consumed, or not yet written
+            r[n++] = x;
+        }
+        return (n == cap) ? r : java.util.Arrays.copyOf(r, n);
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue,
+     * in proper sequence.
+     *
+     * <p>The returned array will be "safe" in that no references to it
+     * are maintained by this queue.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        return snapshot();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue,
+     * in proper sequence; the runtime type of the returned array is
+     * that of the specified array. If the queue fits in the specified
+     * array, it is returned therein. Otherwise, a new array is
+     * allocated with the runtime type of the specified array and the
+     * size of this queue.
+     *
+     * @param a the array into which the elements of the queue are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose
+     * @return an array containing all of the elements in this queue
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this queue
+     * @throws NullPointerException if the specified array is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] s = snapshot();
+        int size = s.length;
+        if (a.length < size)
+            return (T[]) java.util.Arrays.copyOf(s, size, a.getClass());
+        System.arraycopy(s, 0, a, 0, size);
+        if (a.length > size)
+            a[size] = null;
+        return a;
+    }
+
+    public String toString() {
+        Object[] s = snapshot();
+        if (s.length == 0)
+            return "[]";
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0;;) {
+            Object e = s[i];
+            sb.append(e == this ? "(this Collection)" : e);
+            if (++i == s.length)
+                return sb.append(']').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper
+     * sequence. The elements will be returned in order from first
+     * (head) to last (tail).
+     *
+     * <p>The returned iterator is
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>:
+     * it traverses the elements present at some point at or since its
+     * construction. Its {@code remove} method may only be called by
+     * the consumer.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr(snapshot());
+    }
+
+    /**
+     * Snapshot iterator that works off a copy of the elements.
+     */
+    private class Itr implements Iterator<E> {
+        final Object[] array;
+        int cursor = 0;     // index of next element to return
+        int lastRet = -1;   // index of last element, or -1 if no such
+
+        Itr(Object[] array) {
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            lastRet = cursor;
+            return (E)array[cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            removeElement(array[lastRet], true);
+            lastRet = -1;
+        }
+    }
+
+    // Unsafe mechanics
+    private static final sun.misc.Unsafe U;
+    private static final long HEAD;
+    private static final long TAIL;
+    private static final long PRODUCERLIMIT;
+    private static final long WAITINGPUTTERS;
+    private static final long WAITINGTAKERS;
+    private static final int ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = MpscArrayBlockingQueue.class;
+            HEAD = U.objectFieldOffset
+                (k.getDeclaredField("head"));
+            TAIL = U.objectFieldOffset
+                (k.getDeclaredField("tail"));
+            PRODUCERLIMIT = U.objectFieldOffset
+                (k.getDeclaredField("producerLimit"));
+            WAITINGPUTTERS = U.objectFieldOffset
+                (k.getDeclaredField("waitingPutters"));
+            WAITINGTAKERS = U.objectFieldOffset
+                (k.getDeclaredField("waitingTakers"));
+            ABASE = U.arrayBaseOffset(Object[].class);
+            int scale = U.arrayIndexScale(Object[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("data type scale not a power of two");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,1003 @@
+/*
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import sun.misc.Cleaner;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A hash table supporting concurrent retrievals and updates
+ * whose keys and values are stored outside the Java heap.  Every mapping
+ * is serialized, using the {@link Serializer Serializers} supplied at
+ * construction, into large {@link ByteBuffer} slabs that are obtained
+ * from a {@link SlabAllocator} (by default {@linkplain
+ * ByteBuffer#allocateDirect direct} buffers; an allocator returning
+ * {@linkplain java.nio.channels.FileChannel#map memory-mapped} buffers
+ * may be supplied instead).  The only per-table heap structures are two
+ * primitive index arrays per segment, so the garbage collector neither
+ * traces nor copies the mappings no matter how many there are.
+ *
+ * <p>The table is divided into <em>segments</em>, each guarded by its
+ * own lock in the same way as the segments of the original
+ * {@code ConcurrentHashMap}.  Unlike that class, retrievals lock the
+ * segment too, because they deserialize through buffer views shared
+ * by the segment and may race with compaction; so operations on the
+ * same segment, including reads, are serialized, and concurrency
+ * comes from the number of segments.  Each segment keeps an open-addressing
+ * index from key hash to record address, with linear probing and
+ * backward-shift deletion.  Records are appended to the segment's
+ * current slab; space left behind by removed or replaced records is
+ * reclaimed by compacting the segment once it exceeds half of the
+ * segment's slab space.
+ *
+ * <p>Keys are located by their {@link Object#hashCode hashCode} and
+ * compared with {@link Object#equals equals} after deserialization, so a
+ * serializer need not produce a canonical byte form.  Every retrieval
+ * deserializes a fresh copy of the value; updates made to such a copy
+ * are not reflected in the map unless it is put back.
+ *
+ * <p>Like {@link ConcurrentHashMap}, this class does <em>not</em> allow
+ * {@code null} to be used as a key or value.  Iterators and
+ * spliterators of its views are <em>weakly consistent</em>: each one
+ * takes a snapshot of one segment at a time, so they never throw {@link
+ * java.util.ConcurrentModificationException}, but a snapshot of a large
+ * segment is materialized on the heap.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class OffHeapHashMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V> {
+
+    /**
+     * Converts keys or values to and from their off-heap form.
+     * Implementations must be thread-safe and stateless.
+     *
+     * @param <T> the type of objects converted by this serializer
+     */
+    public interface Serializer<T> {
+        /**
+         * Returns the exact number of bytes that {@link #serialize} will
+         * write for the given object.
+         *
+         * @param t the object to be serialized
+         * @return the serialized size in bytes
+         */
+        int serializedSize(T t);
+
+        /**
+         * Writes the given object at the buffer's current position,
+         * advancing the position by exactly {@link #serializedSize}.
+         *
+         * @param t the object to be serialized
+         * @param buf the buffer to write to
+         */
+        void serialize(T t, ByteBuffer buf);
+
+        /**
+         * Reads an object from the buffer, which is positioned at the
+         * first byte written by {@link #serialize} and limited to its
+         * last.
+         *
+         * @param buf the buffer to read from
+         * @return the deserialized object
+         */
+        T deserialize(ByteBuffer buf);
+
+        /**
+         * A serializer for {@code String} objects, encoded as UTF-8.
+         * As with {@link String#getBytes(java.nio.charset.Charset)},
+         * unpaired surrogates are encoded as {@code '?'}.
+         */
+        Serializer<String> STRING = new Serializer<String>() {
+            public int serializedSize(String s) {
+                int n = s.length(), len = n;
+                for (int i = 0; i < n; i++) {
+                    char c = s.charAt(i);
+                    if (c < 0x80)
+                        continue;
+                    if (c < 0x800)
+                        len += 1;
+                    else if (!Character.isSurrogate(c))
+                        len += 2;
+                    else if (Character.isHighSurrogate(c) && i + 1 < n &&
+                             Character.isLowSurrogate(s.charAt(i + 1))) {
+                        len += 2;            // 4 bytes for the pair
+                        ++i;
+                    }                        // else 1 byte for '?'
+                }
+                return len;
+            }
+            public void serialize(String s, ByteBuffer buf) {
+                buf.put(s.getBytes(StandardCharsets.UTF_8));
+            }
+            public String deserialize(ByteBuffer buf) {
+                byte[] b = new byte[buf.remaining()];
+                buf.get(b);
+                return new String(b, StandardCharsets.UTF_8);
+            }
+        };
+
+        /** A serializer for {@code Integer} objects. */
+        Serializer<Integer> INTEGER = new Serializer<Integer>() {
+            public int serializedSize(Integer i)           { return 4; }
+            public void serialize(Integer i, ByteBuffer b) { b.putInt(i); }
+            public Integer deserialize(ByteBuffer b)       { return b.getInt(); }
+        };
+
+        /** A serializer for {@code Long} objects. */
+        Serializer<Long> LONG = new Serializer<Long>() {
+            public int serializedSize(Long l)           { return 8; }
+            public void serialize(Long l, ByteBuffer b) { b.putLong(l); }
+            public Long deserialize(ByteBuffer b)       { return b.getLong(); }
+        };
+    }
+
+    /**
+     * Supplies and releases the slabs that hold serialized mappings.
+     * Implementations must be thread-safe.
+     */
+    public interface SlabAllocator {
+        /**
+         * Returns a new buffer of exactly the given capacity, positioned
+         * at zero.  All buffers returned to one map must have the same
+         * {@linkplain ByteBuffer#order byte order}, since records are
+         * copied between them as bytes.
+         *
+         * @param capacity the capacity of the slab in bytes
+         * @return the new slab
+         */
+        ByteBuffer allocate(int capacity);
+
+        /**
+         * Releases a slab that is no longer referenced by the map.  The
+         * default implementation does nothing and leaves reclamation to
+         * the garbage collector.
+         *
+         * @param slab the slab to release
+         */
+        default void release(ByteBuffer slab) { }
+
+        /**
+         * Allocates direct buffers and frees their native memory as
+         * soon as they are released rather than waiting for a GC.
+         */
+        SlabAllocator DIRECT = new SlabAllocator() {
+            public ByteBuffer allocate(int capacity) {
+                return ByteBuffer.allocateDirect(capacity);
+            }
+            public void release(ByteBuffer slab) {
+                if (slab instanceof DirectBuffer) {
+                    Cleaner c = ((DirectBuffer) slab).cleaner();
+                    if (c != null)
+                        c.clean();
+                }
+            }
+        };
+    }
+
+    /* ---------------- Constants -------------- */
+
+    /**
+     * The maximum number of segments.
+     */
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    /**
+     * The maximum index capacity of a segment.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The default initial capacity, used when not otherwise specified.
+     */
+    private static final int DEFAULT_CAPACITY = 1 << 10;
+
+    /**
+     * The default number of segments, used when not otherwise specified.
+     */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * The default maximum slab size (64 MB).
+     */
+    private static final int DEFAULT_MAX_SLAB_SIZE = 1 << 26;
+
+    /**
+     * The size of the first slab of a segment.  Subsequent slabs double
+     * in size up to the maximum slab size, so that small maps do not
+     * reserve large amounts of native memory.
+     */
+    private static final int MIN_SLAB_SIZE = 1 << 16;
+
+    /**
+     * The load factor of segment indexes.
+     */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /**
+     * Size of the record header: key length and value length.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /* ---------------- Fields -------------- */
+
+    final Serializer<K> keySerializer;
+    final Serializer<V> valueSerializer;
+    final SlabAllocator allocator;
+    final int maxSlabSize;
+
+    /**
+     * Shift and mask used to select a segment from the high bits of a
+     * spread hash; the low bits select the index slot.
+     */
+    final int segmentShift;
+    final int segmentMask;
+    final Segment[] segments;
+
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /* ---------------- Constructors -------------- */
+
+    /**
+     * Creates a new, empty map using the given serializers, direct
+     * buffer slabs and default sizing.
+     *
+     * @param keySerializer the serializer for keys
+     * @param valueSerializer the serializer for values
+     * @throws NullPointerException if either serializer is null
+     */
+    public OffHeapHashMap(Serializer<K> keySerializer,
+                          Serializer<V> valueSerializer) {
+        this(keySerializer, valueSerializer, DEFAULT_CAPACITY,
+             DEFAULT_CONCURRENCY_LEVEL, DEFAULT_MAX_SLAB_SIZE,
+             SlabAllocator.DIRECT);
+    }
+
+    /**
+     * Creates a new, empty map with the given serializers, sizing and
+     * slab allocator.
+     *
+     * @param keySerializer the serializer for keys
+     * @param valueSerializer the serializer for values
+     * @param initialCapacity the implementation performs internal
+     *        sizing to accommodate this many elements
+     * @param concurrencyLevel the estimated number of concurrently
+     *        updating threads, used as the number of segments
+     * @param maxSlabSize the largest slab to request from the allocator;
+     *        records larger than this get a slab of their own
+     * @param allocator the source of slabs
+     * @throws IllegalArgumentException if the initial capacity is
+     *         negative or the concurrency level or maximum slab size are
+     *         nonpositive
+     * @throws NullPointerException if a serializer or the allocator is
+     *         null
+     */
+    public OffHeapHashMap(Serializer<K> keySerializer,
+                          Serializer<V> valueSerializer,
+                          int initialCapacity, int concurrencyLevel,
+                          int maxSlabSize, SlabAllocator allocator) {
+        if (keySerializer == null || valueSerializer == null ||
+            allocator == null)
+            throw new NullPointerException();
+        if (initialCapacity < 0 || concurrencyLevel <= 0 || maxSlabSize <= 0)
+            throw new IllegalArgumentException();
+        if (concurrencyLevel > MAX_SEGMENTS)
+            concurrencyLevel = MAX_SEGMENTS;
+        int sshift = 0, ssize = 1;
+        while (ssize < concurrencyLevel) {
+            ++sshift;
+            ssize <<= 1;
+        }
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.allocator = allocator;
+        this.maxSlabSize = Math.max(maxSlabSize, HEADER_SIZE);
+        this.segmentShift = 32 - sshift;
+        this.segmentMask = ssize - 1;
+        long perSegment = ((long)initialCapacity + ssize - 1) / ssize;
+        int cap = 2;
+        while (cap < MAXIMUM_CAPACITY && cap * (double)LOAD_FACTOR < perSegment)
+            cap <<= 1;
+        @SuppressWarnings("unchecked")
+        Segment[] segs = (Segment[])new OffHeapHashMap<?,?>.Segment[ssize];
+        for (int i = 0; i < ssize; ++i)
+            segs[i] = new Segment(cap);
+        this.segments = segs;
+    }
+
+    /* ---------------- Hashing -------------- */
+
+    /**
+     * Spreads the key's hashCode over all 32 bits, since the high bits
+     * select the segment and the low bits the index slot.
+     */
+    static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    final Segment segmentFor(int h) {
+        return segments[(h >>> segmentShift) & segmentMask];
+    }
+
+    /* ---------------- Segments -------------- */
+
+    /**
+     * A lock-guarded part of the table with its own index and slabs.
+     * Addresses encode {@code (slab + 1) << 32 | offset}, so that zero
+     * can mark a free index slot.
+     */
+    final class Segment extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        int[] hashes;          // spread hash per index slot
+        long[] addrs;          // record address per index slot, 0 if free
+        // Headers are read with absolute gets on the slabs, whose
+        // position and limit never change; the views are repositioned
+        // to frame a key or value for the serializers.
+        volatile int count;    // number of mappings
+        int threshold;
+
+        ByteBuffer[] slabs = new ByteBuffer[4];
+        ByteBuffer[] views = new ByteBuffer[4]; // reusable positional views
+        int slabCount;
+        int top;               // allocation offset in the last slab
+        long allocated;        // bytes of records written to slabs
+        long garbage;          // bytes of dead records
+
+        Segment(int cap) {
+            hashes = new int[cap];
+            addrs = new long[cap];
+            threshold = (int)(cap * LOAD_FACTOR);
+        }
+
+        /** Returns a view of the record's key, for deserialization. */
+        ByteBuffer keyAt(long addr) {
+            int n = (int)(addr >>> 32) - 1, off = (int)addr;
+            ByteBuffer v = views[n];
+            int klen = slabs[n].getInt(off);
+            v.limit(off + HEADER_SIZE + klen).position(off + HEADER_SIZE);
+            return v;
+        }
+
+        /** Returns a view of the record's value, for deserialization. */
+        ByteBuffer valueAt(long addr) {
+            int n = (int)(addr >>> 32) - 1, off = (int)addr;
+            ByteBuffer v = views[n], slab = slabs[n];
+            int klen = slab.getInt(off), vlen = slab.getInt(off + 4);
+            int start = off + HEADER_SIZE + klen;
+            v.limit(start + vlen).position(start);
+            return v;
+        }
+
+        int recordSize(long addr) {
+            ByteBuffer slab = slabs[(int)(addr >>> 32) - 1];
+            int off = (int)addr;
+            return align(HEADER_SIZE + slab.getInt(off) + slab.getInt(off + 4));
+        }
+
+        V valueOf(long addr) {
+            return valueSerializer.deserialize(valueAt(addr));
+        }
+
+        /**
+         * Returns the index slot of the key, or the complement of the
+         * free slot at which it would be inserted.
+         */
+        int find(Object key, int h) {
+            int[] hs = hashes;
+            long[] as = addrs;
+            int m = as.length - 1;
+            long a;
+            int i = h & m;
+            for (; (a = as[i]) != 0L; i = (i + 1) & m) {
+                if (hs[i] == h &&
+                    key.equals(keySerializer.deserialize(keyAt(a))))
+                    return i;
+            }
+            return ~i;
+        }
+
+        /**
+         * Reserves space for a record of the given (aligned) size.
+         */
+        long allocate(int size) {
+            int n = slabCount;
+            ByteBuffer last = (n == 0) ? null : slabs[n - 1];
+            if (last == null || last.capacity() - top < size) {
+                int cap = (last == null) ? MIN_SLAB_SIZE :
+                    Math.min(last.capacity() << 1, maxSlabSize);
+                if (cap < size)
+                    cap = size;
+                ByteBuffer slab = allocator.allocate(cap);
+                if (n == slabs.length) {
+                    slabs = Arrays.copyOf(slabs, n << 1);
+                    views = Arrays.copyOf(views, n << 1);
+                }
+                slabs[n] = slab;
+                // duplicate() resets the order to BIG_ENDIAN
+                views[n] = slab.duplicate().order(slab.order());
+                slabCount = ++n;
+                top = 0;
+            }
+            long addr = ((long)n << 32) | top;
+            top += size;
+            allocated += size;
+            return addr;
+        }
+
+        /**
+         * Serializes a mapping into newly allocated slab space and
+         * returns its address.
+         */
+        long write(K key, V value) {
+            int klen = keySerializer.serializedSize(key);
+            int vlen = valueSerializer.serializedSize(value);
+            if (klen < 0 || vlen < 0 ||
+                (long)HEADER_SIZE + klen + vlen > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("Record too large");
+            int size = align(HEADER_SIZE + klen + vlen);
+            long addr = allocate(size);
+            ByteBuffer v = views[(int)(addr >>> 32) - 1];
+            int off = (int)addr;
+            try {
+                v.limit(v.capacity()).position(off);
+                v.putInt(klen).putInt(vlen);
+                v.limit(off + HEADER_SIZE + klen);
+                keySerializer.serialize(key, v);
+                v.limit(v.position() + vlen);
+                valueSerializer.serialize(value, v);
+            } catch (RuntimeException | Error ex) {
+                garbage += size; // the space is lost until the next compaction
+                throw ex;
+            }
+            return addr;
+        }
+
+        boolean containsKey(Object key, int h) {
+            lock();
+            try {
+                return find(key, h) >= 0;
+            } finally {
+                unlock();
+            }
+        }
+
+        V get(Object key, int h) {
+            lock();
+            try {
+                int i = find(key, h);
+                return (i < 0) ? null : valueOf(addrs[i]);
+            } finally {
+                unlock();
+            }
+        }
+
+        V put(K key, int h, V value, boolean onlyIfAbsent) {
+            lock();
+            try {
+                int i = find(key, h);
+                if (i >= 0) {
+                    long a = addrs[i];
+                    V oldValue = valueOf(a);
+                    if (!onlyIfAbsent) {
+                        addrs[i] = write(key, value);
+                        release(a);
+                    }
+                    return oldValue;
+                }
+                insert(~i, h, write(key, value));
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Implements remove and the replace methods.  Replaces the
+         * value with {@code value} (or removes the mapping if it is
+         * null), provided {@code expect} is null or matches the current
+         * value.  Returns the previous value, or null if nothing changed.
+         */
+        V replace(Object key, int h, V value, Object expect) {
+            lock();
+            try {
+                int i = find(key, h);
+                if (i < 0)
+                    return null;
+                long a = addrs[i];
+                V oldValue = valueOf(a);
+                if (expect != null && !expect.equals(oldValue))
+                    return null;
+                if (value != null) {
+                    @SuppressWarnings("unchecked") K k = (K) key;
+                    addrs[i] = write(k, value);
+                }
+                else
+                    removeAt(i);
+                release(a);
+                return oldValue;
+            } finally {
+                unlock();
+            }
+        }
+
+        void insert(int i, int h, long addr) {
+            if (count >= threshold) {
+                rehash();
+                int m = addrs.length - 1;
+                for (i = h & m; addrs[i] != 0L; i = (i + 1) & m)
+                    ;
+            }
+            hashes[i] = h;
+            addrs[i] = addr;
+            ++count;
+        }
+
+        void removeAt(int i) {
+            int[] hs = hashes;
+            long[] as = addrs;
+            int m = as.length - 1;
+            for (int j = i;;) {
+                j = (j + 1) & m;
+                if (as[j] == 0L)
+                    break;
+                int s = hs[j] & m;
+                if (i <= j ? (s <= i || s > j) : (s <= i && s > j)) {
+                    hs[i] = hs[j];
+                    as[i] = as[j];
+                    i = j;
+                }
+            }
+            as[i] = 0L;
+            hs[i] = 0;
+            --count;
+        }
+
+        /**
+         * Accounts for a dead record, compacting the slabs once more than
+         * half of the written bytes are garbage.
+         */
+        void release(long addr) {
+            garbage += recordSize(addr);
+            if (garbage > allocated - garbage && allocated > MIN_SLAB_SIZE)
+                compact();
+        }
+
+        void rehash() {
+            int[] oldHashes = hashes;
+            long[] oldAddrs = addrs;
+            int oldCap = oldAddrs.length;
+            if (oldCap >= MAXIMUM_CAPACITY)
+                throw new IllegalStateException("Segment capacity exceeded");
+            int newCap = oldCap << 1, m = newCap - 1;
+            int[] hs = new int[newCap];
+            long[] as = new long[newCap];
+            for (int j = 0; j < oldCap; ++j) {
+                long a;
+                if ((a = oldAddrs[j]) != 0L) {
+                    int h = oldHashes[j], i = h & m;
+                    while (as[i] != 0L)
+                        i = (i + 1) & m;
+                    hs[i] = h;
+                    as[i] = a;
+                }
+            }
+            hashes = hs;
+            addrs = as;
+            threshold = (int)(newCap * LOAD_FACTOR);
+        }
+
+        /**
+         * Copies all live records into fresh slabs and releases the old
+         * ones.
+         */
+        void compact() {
+            ByteBuffer[] oldViews = views;
+            ByteBuffer[] oldSlabs = slabs;
+            int oldCount = slabCount;
+            slabs = new ByteBuffer[4];
+            views = new ByteBuffer[4];
+            slabCount = top = 0;
+            allocated = garbage = 0L;
+            long[] as = addrs;
+            for (int i = 0; i < as.length; ++i) {
+                long a;
+                if ((a = as[i]) != 0L) {
+                    int n = (int)(a >>> 32) - 1, off = (int)a;
+                    ByteBuffer src = oldViews[n], slab = oldSlabs[n];
+                    int size = align(HEADER_SIZE + slab.getInt(off) +
+                                     slab.getInt(off + 4));
+                    long na = allocate(size);
+                    ByteBuffer dst = views[(int)(na >>> 32) - 1];
+                    src.limit(off + size).position(off);
+                    dst.limit(dst.capacity()).position((int)na);
+                    dst.put(src);
+                    as[i] = na;
+                }
+            }
+            for (int j = 0; j < oldCount; ++j)
+                allocator.release(oldSlabs[j]);
+        }
+
+        void clear() {
+            lock();
+            try {
+                Arrays.fill(addrs, 0L);
+                Arrays.fill(hashes, 0);
+                count = 0;
+                for (int j = 0; j < slabCount; ++j)
+                    allocator.release(slabs[j]);
+                slabs = new ByteBuffer[4];
+                views = new ByteBuffer[4];
+                slabCount = top = 0;
+                allocated = garbage = 0L;
+            } finally {
+                unlock();
+            }
+        }
+
+        boolean containsValue(Object value) {
+            lock();
+            try {
+                for (long a : addrs) {
+                    if (a != 0L && value.equals(valueOf(a)))
+                        return true;
+                }
+                return false;
+            } finally {
+                unlock();
+            }
+        }
+
+        long slabBytes() {
+            lock();
+            try {
+                long n = 0L;
+                for (int j = 0; j < slabCount; ++j)
+                    n += slabs[j].capacity();
+                return n;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Returns a snapshot of the segment's mappings as alternating
+         * keys and values.
+         */
+        Object[] snapshot() {
+            lock();
+            try {
+                Object[] kvs = new Object[count << 1];
+                int n = 0;
+                for (long a : addrs) {
+                    if (a != 0L) {
+                        kvs[n++] = keySerializer.deserialize(keyAt(a));
+                        kvs[n++] = valueOf(a);
+                    }
+                }
+                return kvs;
+            } finally {
+                unlock();
+            }
+        }
+    }
+
+    /**
+     * Rounds a record size up to a multiple of eight so that the headers
+     * of all records are aligned.
+     */
+    static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        long n = mappingCount();
+        return (n > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * Returns the number of mappings.  This method should be used instead
+     * of {@link #size} because a map of this kind may contain more
+     * mappings than can be represented as an int.  The value returned is
+     * an estimate; the actual count may differ if there are concurrent
+     * insertions or removals.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = 0L;
+        for (Segment s : segments)
+            n += s.count;
+        return n;
+    }
+
+    /**
+     * Returns the total capacity of the slabs currently held by this
+     * map, in bytes.  This is the native (or mapped) memory footprint of
+     * the stored mappings, excluding the on-heap index.
+     *
+     * @return the number of slab bytes held by this map
+     */
+    public long offHeapBytes() {
+        long n = 0L;
+        for (Segment s : segments)
+            n += s.slabBytes();
+        return n;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty() {
+        for (Segment s : segments) {
+            if (s.count != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code null} if this map contains no mapping for the key.  The
+     * returned value is a freshly deserialized copy.
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        int h = spread(key.hashCode());
+        return segmentFor(h).get(key, h);
+    }
+
+    /**
+     * Tests if the specified object is a key in this table.
+     *
+     * @param  key possible key
+     * @return {@code true} if and only if the specified object
+     *         is a key in this table, as determined by the
+     *         {@code equals} method; {@code false} otherwise
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        int h = spread(key.hashCode());
+        return segmentFor(h).containsKey(key, h);
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  Note: This method requires a full traversal and
+     * deserialization of all values.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Segment s : segments) {
+            if (s.containsValue(value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Maps the specified key to the specified value in this table.
+     * Neither the key nor the value can be null.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        int h = spread(key.hashCode());
+        return segmentFor(h).put(key, h, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        int h = spread(key.hashCode());
+        return segmentFor(h).put(key, h, value, true);
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param  key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        int h = spread(key.hashCode());
+        return segmentFor(h).replace(key, h, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        if (value == null)
+            return false;
+        int h = spread(key.hashCode());
+        return segmentFor(h).replace(key, h, null, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null)
+            throw new NullPointerException();
+        int h = spread(key.hashCode());
+        return segmentFor(h).replace(key, h, newValue, oldValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        if (value == null)
+            throw new NullPointerException();
+        int h = spread(key.hashCode());
+        return segmentFor(h).replace(key, h, value, null);
+    }
+
+    /**
+     * Removes all of the mappings from this map and releases all slabs.
+     */
+    public void clear() {
+        for (Segment s : segments)
+            s.clear();
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so removals through the set or its
+     * iterator are reflected in the map.  The iterator is weakly
+     * consistent and returns deserialized copies of the mappings;
+     * {@code setValue} on a returned entry writes through to the map.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) != null ? es : (entrySet = new EntrySet());
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public boolean contains(Object o) {
+            Object k, v, r; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (r = get(k)) != null &&
+                    (v = e.getValue()) != null &&
+                    (v == r || v.equals(r)));
+        }
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    OffHeapHashMap.this.remove(k, v));
+        }
+        public int size()     { return OffHeapHashMap.this.size(); }
+        public boolean isEmpty() { return OffHeapHashMap.this.isEmpty(); }
+        public void clear()   { OffHeapHashMap.this.clear(); }
+    }
+
+    /**
+     * Iterates over segment snapshots, taking each one only once the
+     * previous one is exhausted.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<K,V>> {
+        int nextSegment;
+        Object[] kvs = new Object[0];
+        int index;
+        K lastKey;
+
+        public boolean hasNext() {
+            while (index >= kvs.length) {
+                if (nextSegment >= segments.length)
+                    return false;
+                kvs = segments[nextSegment++].snapshot();
+                index = 0;
+            }
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K,V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            K k = lastKey = (K) kvs[index];
+            V v = (V) kvs[index + 1];
+            index += 2;
+            return new SimpleEntry<K,V>(k, v) {
+                private static final long serialVersionUID = 1L;
+                public V setValue(V value) {
+                    if (value == null)
+                        throw new NullPointerException();
+                    put(getKey(), value);
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        public void remove() {
+            K k;
+            if ((k = lastKey) == null)
+                throw new IllegalStateException();
+            lastKey = null;
+            OffHeapHashMap.this.remove(k);
+        }
+    }
+}
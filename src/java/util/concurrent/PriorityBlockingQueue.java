@@ -70,6 +70,12 @@ import java.util.function.Consumer;
  * can be used to <em>remove</em> some or all elements in priority
  * order and place them in another collection.
  *
+ * <p>As with {@code PriorityQueue}, the heap is binary by default and
+ * may be given a wider arity, such as 4 or 8, at construction; see
+ * {@link PriorityQueue} for the trade-off.  A shallower heap also
+ * shortens the time the lock is held by {@code offer} and {@code poll}
+ * on large queues.
+ *
  * <p>Operations on this class make no guarantees about the ordering
  * of elements with equal priority. If you need to enforce an
  * ordering, you can define custom classes or comparators that use a
@@ -140,8 +146,14 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
     private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
     /**
-     * Priority queue represented as a balanced binary heap: the two
-     * children of queue[n] are queue[2*n+1] and queue[2*(n+1)].  The
+     * The largest supported heap arity.
+     */
+    private static final int MAXIMUM_ARITY = 64;
+
+    /**
+     * Priority queue represented as a balanced d-ary heap: the children
+     * of queue[n] are queue[d*n+1] through queue[d*n+d], where d is
+     * 1 << arityShift (2, that is a binary heap, by default).  The
      * priority queue is ordered by comparator, or by the elements'
      * natural ordering, if comparator is null: For each node n in the
      * heap and each descendant d of n, n <= d.  The element with the
@@ -160,6 +172,11 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      */
     private transient Comparator<? super E> comparator;
 
+    /**
+     * log2 of the heap arity.
+     */
+    private transient int arityShift = 1;
+
     /**
      * Lock used for all public operations
      */
@@ -218,11 +235,35 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      */
     public PriorityBlockingQueue(int initialCapacity,
                                  Comparator<? super E> comparator) {
+        this(initialCapacity, comparator, 2);
+    }
+
+    /**
+     * Creates a {@code PriorityBlockingQueue} with the specified initial
+     * capacity and heap arity that orders its elements according to the
+     * specified comparator.
+     *
+     * @param initialCapacity the initial capacity for this priority queue
+     * @param  comparator the comparator that will be used to order this
+     *         priority queue.  If {@code null}, the {@linkplain Comparable
+     *         natural ordering} of the elements will be used.
+     * @param arity the number of children of each node of the heap; 2
+     *        for a binary heap
+     * @throws IllegalArgumentException if {@code initialCapacity} is less
+     *         than 1, or {@code arity} is not a power of two between 2
+     *         and 64
+     */
+    public PriorityBlockingQueue(int initialCapacity,
+                                 Comparator<? super E> comparator,
+                                 int arity) {
         if (initialCapacity < 1)
             throw new IllegalArgumentException();
+        if (arity < 2 || arity > MAXIMUM_ARITY || (arity & (arity - 1)) != 0)
+            throw new IllegalArgumentException("Illegal arity: " + arity);
         this.lock = new ReentrantLock();
         this.notEmpty = lock.newCondition();
         this.comparator = comparator;
+        this.arityShift = Integer.numberOfTrailingZeros(arity);
         this.queue = new Object[initialCapacity];
     }
 
@@ -231,6 +272,8 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      * in the specified collection.  If the specified collection is a
      * {@link SortedSet} or a {@link PriorityQueue}, this
      * priority queue will be ordered according to the same ordering.
+     * If it is a {@code PriorityBlockingQueue}, this priority queue will
+     * also have the same arity.
      * Otherwise, this priority queue will be ordered according to the
      * {@linkplain Comparable natural ordering} of its elements.
      *
@@ -256,6 +299,7 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
             PriorityBlockingQueue<? extends E> pq =
                 (PriorityBlockingQueue<? extends E>) c;
             this.comparator = (Comparator<? super E>) pq.comparator();
+            this.arityShift = pq.arityShift;
             screen = false;
             if (pq.getClass() == PriorityBlockingQueue.class) // exact match
                 heapify = false;
@@ -330,9 +374,9 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
             array[n] = null;
             Comparator<? super E> cmp = comparator;
             if (cmp == null)
-                siftDownComparable(0, x, array, n);
+                siftDownComparable(0, x, array, n, arityShift);
             else
-                siftDownUsingComparator(0, x, array, n, cmp);
+                siftDownUsingComparator(0, x, array, n, cmp, arityShift);
             size = n;
             return result;
         }
@@ -352,11 +396,13 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      * @param k the position to fill
      * @param x the item to insert
      * @param array the heap array
+     * @param shift log2 of the heap arity
      */
-    private static <T> void siftUpComparable(int k, T x, Object[] array) {
+    private static <T> void siftUpComparable(int k, T x, Object[] array,
+                                             int shift) {
         Comparable<? super T> key = (Comparable<? super T>) x;
         while (k > 0) {
-            int parent = (k - 1) >>> 1;
+            int parent = (k - 1) >>> shift;
             Object e = array[parent];
             if (key.compareTo((T) e) >= 0)
                 break;
@@ -367,9 +413,9 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
     }
 
     private static <T> void siftUpUsingComparator(int k, T x, Object[] array,
-                                       Comparator<? super T> cmp) {
+                                       Comparator<? super T> cmp, int shift) {
         while (k > 0) {
-            int parent = (k - 1) >>> 1;
+            int parent = (k - 1) >>> shift;
             Object e = array[parent];
             if (cmp.compare(x, (T) e) >= 0)
                 break;
@@ -388,10 +434,13 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
      * @param x the item to insert
      * @param array the heap array
      * @param n heap size
+     * @param shift log2 of the heap arity
      */
     private static <T> void siftDownComparable(int k, T x, Object[] array,
-                                               int n) {
-        if (n > 0) {
+                                               int n, int shift) {
+        if (shift != 1)
+            siftDownWideComparable(k, x, array, n, shift);
+        else if (n > 0) {
             Comparable<? super T> key = (Comparable<? super T>)x;
             int half = n >>> 1;           // loop while a non-leaf
             while (k < half) {
@@ -412,8 +461,11 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
 
     private static <T> void siftDownUsingComparator(int k, T x, Object[] array,
                                                     int n,
-                                                    Comparator<? super T> cmp) {
-        if (n > 0) {
+                                                    Comparator<? super T> cmp,
+                                                    int shift) {
+        if (shift != 1)
+            siftDownWideUsingComparator(k, x, array, n, cmp, shift);
+        else if (n > 0) {
             int half = n >>> 1;
             while (k < half) {
                 int child = (k << 1) + 1;
@@ -430,6 +482,60 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Versions of siftDown for heaps of arity greater than two, which
+     * pick the least of up to 1 << shift adjacent children at each
+     * level.
+     */
+    private static <T> void siftDownWideComparable(int k, T x, Object[] array,
+                                                   int n, int shift) {
+        Comparable<? super T> key = (Comparable<? super T>)x;
+        int lastParent = (n - 2) >> shift; // loop while a non-leaf
+        while (k <= lastParent) {
+            int child = (k << shift) + 1;  // find least of the children
+            int end = Math.min(child + (1 << shift), n);
+            Object c = array[child];
+            for (int i = child + 1; i < end; i++) {
+                Object e = array[i];
+                if (((Comparable<? super T>) c).compareTo((T) e) > 0) {
+                    c = e;
+                    child = i;
+                }
+            }
+            if (key.compareTo((T) c) <= 0)
+                break;
+            array[k] = c;
+            k = child;
+        }
+        if (n > 0)
+            array[k] = key;
+    }
+
+    private static <T> void siftDownWideUsingComparator(int k, T x,
+                                                        Object[] array, int n,
+                                                        Comparator<? super T> cmp,
+                                                        int shift) {
+        int lastParent = (n - 2) >> shift;
+        while (k <= lastParent) {
+            int child = (k << shift) + 1;
+            int end = Math.min(child + (1 << shift), n);
+            Object c = array[child];
+            for (int i = child + 1; i < end; i++) {
+                Object e = array[i];
+                if (cmp.compare((T) c, (T) e) > 0) {
+                    c = e;
+                    child = i;
+                }
+            }
+            if (cmp.compare(x, (T) c) <= 0)
+                break;
+            array[k] = c;
+            k = child;
+        }
+        if (n > 0)
+            array[k] = x;
+    }
+
     /**
      * Establishes the heap invariant (described above) in the entire tree,
      * assuming nothing about the order of the elements prior to the call.
@@ -437,15 +543,16 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
     private void heapify() {
         Object[] array = queue;
         int n = size;
-        int half = (n >>> 1) - 1;
+        int shift = arityShift;
+        int lastParent = (n - 2) >> shift;
         Comparator<? super E> cmp = comparator;
         if (cmp == null) {
-            for (int i = half; i >= 0; i--)
-                siftDownComparable(i, (E) array[i], array, n);
+            for (int i = lastParent; i >= 0; i--)
+                siftDownComparable(i, (E) array[i], array, n, shift);
         }
         else {
-            for (int i = half; i >= 0; i--)
-                siftDownUsingComparator(i, (E) array[i], array, n, cmp);
+            for (int i = lastParent; i >= 0; i--)
+                siftDownUsingComparator(i, (E) array[i], array, n, cmp, shift);
         }
     }
 
@@ -486,9 +593,9 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         try {
             Comparator<? super E> cmp = comparator;
             if (cmp == null)
-                siftUpComparable(n, e, array);
+                siftUpComparable(n, e, array, arityShift);
             else
-                siftUpUsingComparator(n, e, array, cmp);
+                siftUpUsingComparator(n, e, array, cmp, arityShift);
             size = n + 1;
             notEmpty.signal();
         } finally {
@@ -590,6 +697,16 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         return comparator;
     }
 
+    /**
+     * Returns the number of children of each node of this queue's heap,
+     * {@code 2} unless another arity was given at construction.
+     *
+     * @return the arity of this queue's heap
+     */
+    public int arity() {
+        return 1 << arityShift;
+    }
+
     public int size() {
         final ReentrantLock lock = this.lock;
         lock.lock();
@@ -632,15 +749,16 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
             E moved = (E) array[n];
             array[n] = null;
             Comparator<? super E> cmp = comparator;
+            int shift = arityShift;
             if (cmp == null)
-                siftDownComparable(i, moved, array, n);
+                siftDownComparable(i, moved, array, n, shift);
             else
-                siftDownUsingComparator(i, moved, array, n, cmp);
+                siftDownUsingComparator(i, moved, array, n, cmp, shift);
             if (array[i] == moved) {
                 if (cmp == null)
-                    siftUpComparable(i, moved, array);
+                    siftUpComparable(i, moved, array, shift);
                 else
-                    siftUpUsingComparator(i, moved, array, cmp);
+                    siftUpUsingComparator(i, moved, array, cmp, shift);
             }
         }
         size = n;
@@ -920,7 +1038,8 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         lock.lock();
         try {
             // avoid zero capacity argument
-            q = new PriorityQueue<E>(Math.max(size, 1), comparator);
+            q = new PriorityQueue<E>(Math.max(size, 1), comparator,
+                                     1 << arityShift);
             q.addAll(this);
             s.defaultWriteObject();
         } finally {
@@ -942,6 +1061,7 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
             s.defaultReadObject();
             this.queue = new Object[q.size()];
             comparator = q.comparator();
+            arityShift = Integer.numberOfTrailingZeros(q.arity());
             addAll(q);
         } finally {
             q = null;
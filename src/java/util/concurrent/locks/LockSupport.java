@@ -34,6 +34,10 @@
  */
 
 package java.util.concurrent.locks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
 /**
  * Basic thread blocking primitives for creating locks and other
  * synchronization classes.
@@ -70,6 +74,13 @@ package java.util.concurrent.locks;
  * parameter is strongly encouraged. The normal argument to supply as
  * a {@code blocker} within a lock implementation is {@code this}.
  *
+ * <p>When called by a worker thread of a {@link ForkJoinPool}
+ * constructed with managed parking, the {@code park} methods block
+ * as if by {@link ForkJoinPool#managedBlock}, so that the pool may
+ * activate a spare thread while the caller is blocked. This applies
+ * to all synchronizers built on this class, including {@link
+ * AbstractQueuedSynchronizer}.
+ *
  * <p>These methods are designed to be used as tools for creating
  * higher-level synchronization utilities, and are not in themselves
  * useful for most concurrency control applications.  The {@code park}
@@ -172,7 +183,7 @@ public class LockSupport {
     public static void park(Object blocker) {
         Thread t = Thread.currentThread();
         setBlocker(t, blocker);
-        UNSAFE.park(false, 0L);
+        park(t, false, 0L);
         setBlocker(t, null);
     }
 
@@ -213,7 +224,7 @@ public class LockSupport {
         if (nanos > 0) {
             Thread t = Thread.currentThread();
             setBlocker(t, blocker);
-            UNSAFE.park(false, nanos);
+            park(t, false, nanos);
             setBlocker(t, null);
         }
     }
@@ -255,7 +266,7 @@ public class LockSupport {
     public static void parkUntil(Object blocker, long deadline) {
         Thread t = Thread.currentThread();
         setBlocker(t, blocker);
-        UNSAFE.park(true, deadline);
+        park(t, true, deadline);
         setBlocker(t, null);
     }
 
@@ -307,7 +318,7 @@ public class LockSupport {
     // （1）别的线程调用unpark并且以此线程作为目的。（2）别的线程调用interrupt打断此线程。（3）不合逻辑的返回
     // 此方法不会指示线程因为什么原因返回
     public static void park() {
-        UNSAFE.park(false, 0L);
+        park(Thread.currentThread(), false, 0L);
     }
 
     /**
@@ -341,7 +352,7 @@ public class LockSupport {
      */
     public static void parkNanos(long nanos) {
         if (nanos > 0)
-            UNSAFE.park(false, nanos);
+            park(Thread.currentThread(), false, nanos);
     }
 
     /**
@@ -375,7 +386,49 @@ public class LockSupport {
      *        to wait until
      */
     public static void parkUntil(long deadline) {
-        UNSAFE.park(true, deadline);
+        park(Thread.currentThread(), true, deadline);
+    }
+
+    /**
+     * Parks the current thread t, first arranging compensation if t
+     * is a worker of a ForkJoinPool with managed parking that is not
+     * already inside ForkJoinPool.managedBlock.
+     */
+    private static void park(Thread t, boolean absolute, long time) {
+        if ((t instanceof ForkJoinWorkerThread) &&
+            UNSAFE.getInt(t, PARKMODE) > 0) {
+            try {
+                ForkJoinPool.managedBlock(new Parker(absolute, time));
+                return;
+            } catch (InterruptedException | RejectedExecutionException ex) {
+                // thread limit exceeded before parking; park uncompensated
+            }
+        }
+        UNSAFE.park(absolute, time);
+    }
+
+    /**
+     * A ManagedBlocker performing a single park.
+     */
+    static final class Parker implements ForkJoinPool.ManagedBlocker {
+        private final boolean absolute;
+        private final long time;
+        private boolean parked;
+
+        Parker(boolean absolute, long time) {
+            this.absolute = absolute;
+            this.time = time;
+        }
+
+        public boolean block() {
+            parked = true;
+            UNSAFE.park(absolute, time);
+            return true;
+        }
+
+        public boolean isReleasable() {
+            return parked;
+        }
     }
 
     /**
@@ -402,6 +455,7 @@ public class LockSupport {
     private static final long SEED;
     private static final long PROBE;
     private static final long SECONDARY;
+    private static final long PARKMODE;
     static {
         try {
             UNSAFE = sun.misc.Unsafe.getUnsafe();
@@ -414,6 +468,8 @@ public class LockSupport {
                 (tk.getDeclaredField("threadLocalRandomProbe"));
             SECONDARY = UNSAFE.objectFieldOffset
                 (tk.getDeclaredField("threadLocalRandomSecondarySeed"));
+            PARKMODE = UNSAFE.objectFieldOffset
+                (ForkJoinWorkerThread.class.getDeclaredField("parkMode"));
         } catch (Exception ex) { throw new Error(ex); }
     }
 
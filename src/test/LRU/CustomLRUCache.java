@@ -1,20 +1,36 @@
 package test.LRU;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntBiFunction;
+
 /**
  * 自己写的LRU算法
  * 基本思想：基于链表实现，使用过的节点放到尾部，删除时从头开始删除，保证第一个一定是最少使用的
+ * 链表之外再用HashMap做索引，key直接定位到节点，get和put都是O(1)
+ * 所有公开方法都加了锁，可以多线程使用；需要更高并发时用StripedLRUCache分段
  */
 public class CustomLRUCache<K, V> {
 
 	/**
-	 * 表示总容量
+	 * 表示总容量（没有weigher时就是元素数量，有weigher时是权重之和）
 	 */
-	private int size;
+	private final long size;
 
 	/**
-	 * 表示当前的元素数量
+	 * 计算每个元素的权重，为null表示每个元素权重都是1
 	 */
-	private int currentLength;
+	private final ToIntBiFunction<? super K, ? super V> weigher;
+
+	/**
+	 * 表示当前的权重之和
+	 */
+	private long currentWeight;
+
+	/**
+	 * key到链表节点的索引
+	 */
+	private final Map<K, Node> index = new HashMap<>();
 
 	/**
 	 * 表示头节点
@@ -26,93 +42,131 @@ public class CustomLRUCache<K, V> {
 	 */
 	private Node tail;
 
+	/**
+	 * 命中次数
+	 */
+	private long hitCount;
+
+	/**
+	 * 未命中次数
+	 */
+	private long missCount;
+
+	/**
+	 * 淘汰次数
+	 */
+	private long evictionCount;
+
 	public CustomLRUCache(int size) {
-		if (size <= 0) {
+		this(size, null);
+	}
+
+	/**
+	 * @param maxWeight 总权重上限
+	 * @param weigher   计算元素权重，为null时每个元素权重为1
+	 */
+	public CustomLRUCache(long maxWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+		if (maxWeight <= 0) {
 			throw new IllegalArgumentException("总容量必须大于0");
 		}
-		this.size = size;
+		this.size = maxWeight;
+		this.weigher = weigher;
 	}
 
 	// 把元素放到队尾
-	public void put(K key, V value) {
+	public synchronized void put(K key, V value) {
 		if (key == null) {
 			throw new IllegalArgumentException("非法参数！");
 		}
-		// 如果已经存在key直接覆盖原来的
-		Node n = getNode(key);
+		int weight = weigh(key, value);
+		if (weight > size) {
+			throw new IllegalArgumentException("元素权重超过总容量");
+		}
+		// 如果已经存在key直接覆盖原来的，并且移动到队尾
+		Node n = index.get(key);
 		if (n != null) {
+			currentWeight += weight - n.weight;
 			n.value = value;
+			n.weight = weight;
+			moveToTail(n);
 		}
 		// 不存在key，把新的节点放到队尾
 		else {
-			// 判断是否需要删除节点
-			if (currentLength + 1 > size) {
-				// 只有一个元素，直接移除
-				if (currentLength == 1) {
-					head = null;
-					tail = null;
-				} else {
-					// 移除头节点
-					Node next = head.next;
-					head.next = null;
-					next.prev = null;
-					head = next;
-				}
-			} else {
-				currentLength++;
-			}
-			putNode(key, value);
-		}
-	}
-
-	public V get(K key) {
-		Node node = getNode(key);
+			currentWeight += weight;
+			putNode(key, value, weight);
+		}
+		// 超出容量时从头节点开始删除
+		while (currentWeight > size) {
+			evictionCount++;
+			removeNode(head);
+		}
+	}
+
+	public synchronized V get(K key) {
+		Node node = index.get(key);
 		if (node == null) {
+			missCount++;
 			return null;
 		}
+		hitCount++;
 		// 每次获取元素都把元素移动到队尾
-		if (currentLength != 1 && node != tail) {
-			Node nodePrev = node.prev;
-			// 原来位置调整
-			Node nodeNext = node.next;
-			nodeNext.prev = nodePrev;
-			if (nodePrev != null) {
-				nodePrev.next = nodeNext;
-			} else {
-				head = nodeNext;
-			}
-
-			// 元素移动队尾
-			node.next = null;
-			Node t = tail;
-			t.next = node;
-			node.prev = t;
-			tail = node;
+		moveToTail(node);
+		return node.value;
+	}
+
+	public synchronized V remove(K key) {
+		Node node = index.get(key);
+		if (node == null) {
+			return null;
 		}
+		removeNode(node);
 		return node.value;
 	}
 
+	public synchronized int size() {
+		return index.size();
+	}
+
+	public synchronized long weight() {
+		return currentWeight;
+	}
+
+	public synchronized long hitCount() {
+		return hitCount;
+	}
+
+	public synchronized long missCount() {
+		return missCount;
+	}
+
+	public synchronized long evictionCount() {
+		return evictionCount;
+	}
+
 	/**
-	 * 遍历链表找到对应的node
+	 * 命中率，没有请求时为1
 	 */
-	private Node getNode(K key) {
-		if (head == null) {
-			return null;
+	public synchronized double hitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 1.0 : (double) hitCount / requests;
+	}
+
+	private int weigh(K key, V value) {
+		if (weigher == null) {
+			return 1;
 		}
-		// 遍历链表找到对应的key
-		for (Node h = head; h != null; h = h.next) {
-			if (h.key == key || h.key.equals(key)) {
-				return h;
-			}
+		int weight = weigher.applyAsInt(key, value);
+		if (weight < 0) {
+			throw new IllegalArgumentException("权重不能为负数");
 		}
-		return null;
+		return weight;
 	}
 
 	/**
 	 * 把元素放到队尾
 	 */
-	private void putNode(K key, V value) {
-		Node node = new Node(key, value, tail, null);
+	private void putNode(K key, V value, int weight) {
+		Node node = new Node(key, value, weight, tail, null);
 		if (head == null) {
 			head = node;
 		} else {
@@ -120,12 +174,56 @@ public class CustomLRUCache<K, V> {
 			t.next = node;
 		}
 		tail = node;
+		index.put(key, node);
+	}
+
+	/**
+	 * 节点从原来位置摘下来，放到队尾
+	 */
+	private void moveToTail(Node node) {
+		if (node == tail) {
+			return;
+		}
+		unlink(node);
+		node.prev = tail;
+		node.next = null;
+		tail.next = node;
+		tail = node;
+	}
+
+	/**
+	 * 删除节点，同时删除索引
+	 */
+	private void removeNode(Node node) {
+		unlink(node);
+		node.prev = null;
+		node.next = null;
+		currentWeight -= node.weight;
+		index.remove(node.key);
+	}
+
+	/**
+	 * 原来位置调整，前后节点直接相连
+	 */
+	private void unlink(Node node) {
+		Node nodePrev = node.prev;
+		Node nodeNext = node.next;
+		if (nodePrev != null) {
+			nodePrev.next = nodeNext;
+		} else {
+			head = nodeNext;
+		}
+		if (nodeNext != null) {
+			nodeNext.prev = nodePrev;
+		} else {
+			tail = nodePrev;
+		}
 	}
 
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		StringBuilder builder = new StringBuilder();
-		// 遍历链表找到对应的key
+		// 从头遍历链表
 		for (Node h = head; h != null; h = h.next) {
 			builder.append(h.key).append("：").append(h.value).append("\n");
 		}
@@ -142,9 +240,12 @@ public class CustomLRUCache<K, V> {
 
 		V value;
 
-		public Node(K key, V value, Node prev, Node next) {
+		int weight;
+
+		public Node(K key, V value, int weight, Node prev, Node next) {
 			this.key = key;
 			this.value = value;
+			this.weight = weight;
 			this.prev = prev;
 			this.next = next;
 		}
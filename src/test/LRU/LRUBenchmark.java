@@ -0,0 +1,120 @@
+package test.LRU;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRUCache(LinkedHashMap accessOrder)、CustomLRUCache、StripedLRUCache的吞吐量对比
+ * 分别用1、8、32个线程，80%读20%写，key集中在容量的2倍范围内
+ * 每组先预热再测量，输出每秒操作数
+ */
+public class LRUBenchmark {
+
+	private static final int CAPACITY = 10_000;
+
+	private static final int KEY_RANGE = CAPACITY * 2;
+
+	private static final int WARMUP_ITERATIONS = 3;
+
+	private static final int MEASURE_ITERATIONS = 5;
+
+	private static final long ITERATION_MILLIS = 1000;
+
+	/**
+	 * 被测缓存的统一操作
+	 */
+	interface Cache {
+
+		Integer get(Integer key);
+
+		void put(Integer key, Integer value);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		for (int threads : new int[]{1, 8, 32}) {
+			// LinkedHashMap本身不是线程安全的，get也会修改链表，只能整体加锁
+			Map<Integer, Integer> lru = Collections.synchronizedMap(new LRUCache<>(CAPACITY));
+			run("LRUCache", threads, new Cache() {
+				public Integer get(Integer key) {
+					return lru.get(key);
+				}
+
+				public void put(Integer key, Integer value) {
+					lru.put(key, value);
+				}
+			});
+			CustomLRUCache<Integer, Integer> custom = new CustomLRUCache<>(CAPACITY);
+			run("CustomLRUCache", threads, new Cache() {
+				public Integer get(Integer key) {
+					return custom.get(key);
+				}
+
+				public void put(Integer key, Integer value) {
+					custom.put(key, value);
+				}
+			});
+			StripedLRUCache<Integer, Integer> striped = new StripedLRUCache<>(CAPACITY, 64);
+			run("StripedLRUCache", threads, new Cache() {
+				public Integer get(Integer key) {
+					return striped.get(key);
+				}
+
+				public void put(Integer key, Integer value) {
+					striped.put(key, value);
+				}
+			});
+		}
+	}
+
+	private static void run(String name, int threads, Cache cache) throws InterruptedException {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iteration(threads, cache);
+		}
+		double total = 0;
+		for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+			total += iteration(threads, cache);
+		}
+		System.out.printf("%-16s threads=%-3d %,15.0f ops/s%n", name, threads, total / MEASURE_ITERATIONS);
+	}
+
+	/**
+	 * 跑一轮，返回每秒操作数
+	 */
+	private static double iteration(int threads, Cache cache) throws InterruptedException {
+		LongAdder ops = new LongAdder();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		long[] deadline = new long[1];
+		for (int t = 0; t < threads; t++) {
+			new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long count = 0;
+				while ((count & 1023) != 0 || System.nanoTime() < deadline[0]) {
+					// 两个随机数取较小的，让小的key更热
+					int key = Math.min(random.nextInt(KEY_RANGE), random.nextInt(KEY_RANGE));
+					if (random.nextInt(5) == 0) {
+						cache.put(key, key);
+					} else {
+						cache.get(key);
+					}
+					count++;
+				}
+				ops.add(count);
+				done.countDown();
+			}).start();
+		}
+		long begin = System.nanoTime();
+		deadline[0] = begin + ITERATION_MILLIS * 1_000_000;
+		start.countDown();
+		done.await();
+		return ops.sum() * 1e9 / (System.nanoTime() - begin);
+	}
+}
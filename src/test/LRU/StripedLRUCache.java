@@ -0,0 +1,147 @@
+package test.LRU;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * 分段的LRU缓存
+ * 基本思想：按key的hash分到多个CustomLRUCache，每段单独加锁，不同段之间的操作互不阻塞
+ * 每段只在自己内部做LRU淘汰，所以整体只是近似LRU
+ * 总权重平均分到每一段：权重不超过总容量、但超过所在段份额的元素不会被缓存，
+ * 相当于放入后立即被淘汰（计入淘汰次数），同时删除该key原有的值
+ */
+public class StripedLRUCache<K, V> {
+
+	/**
+	 * 分段，数量是2的幂
+	 */
+	private final CustomLRUCache<K, V>[] segments;
+
+	private final long maxWeight;
+
+	private final ToIntBiFunction<? super K, ? super V> weigher;
+
+	/**
+	 * 因超过段份额而没有缓存的次数
+	 */
+	private final LongAdder oversized = new LongAdder();
+
+	public StripedLRUCache(int size, int concurrencyLevel) {
+		this(size, concurrencyLevel, null);
+	}
+
+	/**
+	 * @param maxWeight        总权重上限，平均分到每一段
+	 * @param concurrencyLevel 预计的并发线程数，决定分段数量
+	 * @param weigher          计算元素权重，为null时每个元素权重为1
+	 */
+	public StripedLRUCache(long maxWeight, int concurrencyLevel, ToIntBiFunction<? super K, ? super V> weigher) {
+		if (maxWeight <= 0 || concurrencyLevel <= 0) {
+			throw new IllegalArgumentException("总容量和并发数必须大于0");
+		}
+		int n = 1;
+		// 分段数不超过容量，保证每段至少能放一个元素
+		while (n < concurrencyLevel && n * 2L <= maxWeight) {
+			n <<= 1;
+		}
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		segments = newSegments(n);
+		for (int i = 0; i < n; i++) {
+			segments[i] = new CustomLRUCache<>(segmentWeight(i), weigher);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, V> CustomLRUCache<K, V>[] newSegments(int n) {
+		return (CustomLRUCache<K, V>[]) new CustomLRUCache<?, ?>[n];
+	}
+
+	/**
+	 * 第i段的权重上限，余数分给前面几段
+	 */
+	private long segmentWeight(int i) {
+		int n = segments.length;
+		return maxWeight / n + (i < maxWeight % n ? 1 : 0);
+	}
+
+	private int segmentIndex(Object key) {
+		int h = key.hashCode();
+		// 和HashMap一样把高位混进来
+		h ^= h >>> 16;
+		return h & (segments.length - 1);
+	}
+
+	private CustomLRUCache<K, V> segmentFor(Object key) {
+		return segments[segmentIndex(key)];
+	}
+
+	/**
+	 * @throws IllegalArgumentException key为null，或元素权重为负数、超过总容量
+	 */
+	public void put(K key, V value) {
+		if (key == null) {
+			throw new IllegalArgumentException("非法参数！");
+		}
+		int i = segmentIndex(key);
+		if (weigher != null) {
+			int weight = weigher.applyAsInt(key, value);
+			if (weight > maxWeight) {
+				throw new IllegalArgumentException("元素权重超过总容量");
+			}
+			if (weight > segmentWeight(i)) {
+				// 段内放不下：不缓存，旧值也作废
+				segments[i].remove(key);
+				oversized.increment();
+				return;
+			}
+		}
+		segments[i].put(key, value);
+	}
+
+	public V get(K key) {
+		return segmentFor(key).get(key);
+	}
+
+	public V remove(K key) {
+		return segmentFor(key).remove(key);
+	}
+
+	public int size() {
+		int size = 0;
+		for (CustomLRUCache<K, V> segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	public long hitCount() {
+		long count = 0;
+		for (CustomLRUCache<K, V> segment : segments) {
+			count += segment.hitCount();
+		}
+		return count;
+	}
+
+	public long missCount() {
+		long count = 0;
+		for (CustomLRUCache<K, V> segment : segments) {
+			count += segment.missCount();
+		}
+		return count;
+	}
+
+	public long evictionCount() {
+		long count = oversized.sum();
+		for (CustomLRUCache<K, V> segment : segments) {
+			count += segment.evictionCount();
+		}
+		return count;
+	}
+
+	public double hitRate() {
+		long hits = hitCount();
+		long requests = hits + missCount();
+		return requests == 0 ? 1.0 : (double) hits / requests;
+	}
+}
@@ -1,5 +1,7 @@
 package test.LRU;
 
+import java.util.concurrent.ConcurrentCache;
+
 public class TestLRU {
 
 	public static void main(String[] args) {
@@ -25,5 +27,36 @@ public class TestLRU {
 		customLRUCache.get("d");
 		customLRUCache.put("a3", "a4");
 		System.out.println(customLRUCache);
+		System.out.println("命中率：" + customLRUCache.hitRate());
+
+		// 按value长度计算权重，总权重不超过4
+		CustomLRUCache<String, String> weightedCache = new CustomLRUCache<>(4, (k, v) -> v.length());
+		weightedCache.put("a", "aa");
+		weightedCache.put("b", "bb");
+		weightedCache.put("c", "c");
+		System.out.println("按权重淘汰之后：" + weightedCache + "淘汰次数：" + weightedCache.evictionCount());
+
+		// 分段LRU
+		StripedLRUCache<String, String> stripedCache = new StripedLRUCache<>(4, 2);
+		stripedCache.put("a", "v");
+		stripedCache.put("b", "c");
+		stripedCache.put("d", "e");
+		stripedCache.get("a");
+		stripedCache.get("x");
+		System.out.println("分段缓存数量：" + stripedCache.size() + "，命中率：" + stripedCache.hitRate());
+		// 总权重4分成2段，每段2：权重3的元素合法但超过段份额，不缓存也不抛异常
+		StripedLRUCache<String, String> weightedStriped = new StripedLRUCache<>(4, 2, (k, v) -> v.length());
+		weightedStriped.put("a", "aaa");
+		System.out.println("超过段份额：" + weightedStriped.get("a") + "，淘汰次数：" + weightedStriped.evictionCount());
+
+		// 基于ConcurrentHashMap的并发缓存，W-TinyLFU淘汰
+		ConcurrentCache<String, Integer> concurrentCache = new ConcurrentCache<>(2);
+		concurrentCache.put("a", 15);
+		concurrentCache.put("b", 17);
+		concurrentCache.getIfPresent("b");
+		// 不存在时通过loader加载
+		concurrentCache.get("c", key -> 18);
+		concurrentCache.cleanUp();
+		System.out.println("并发缓存数量：" + concurrentCache.estimatedSize() + "，" + concurrentCache.stats());
 	}
 }
@@ -0,0 +1,37 @@
+package test.benchmark;
+
+/**
+ * 一个被测的操作
+ * 每次调用run之前都会先调用setUp，setUp不计时，可以用来复制待排序的数组等
+ * run的返回值会交给Harness消费，防止JIT把整个计算优化掉
+ */
+public abstract class Benchmark {
+
+	private final String name;
+
+	protected Benchmark(String name) {
+		this.name = name;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * 每次调用run之前执行，不计入时间
+	 */
+	protected void setUp() {
+	}
+
+	/**
+	 * 被测的操作，返回值必须依赖计算结果
+	 */
+	protected abstract Object run();
+
+	/**
+	 * 一次run包含的操作次数，用来换算成每个操作的耗时
+	 */
+	protected int operations() {
+		return 1;
+	}
+}
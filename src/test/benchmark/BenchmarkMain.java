@@ -0,0 +1,21 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 集合和排序热点路径的基准测试入口
+ * 例：java -Dbench.filter=^sort\.int -Dbench.out=before.csv test.benchmark.BenchmarkMain
+ * 改动前后各跑一次，对比两个csv
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) {
+		List<Benchmark> benchmarks = new ArrayList<>();
+		benchmarks.addAll(MapBenchmarks.benchmarks());
+		benchmarks.addAll(CollectionBenchmarks.benchmarks());
+		benchmarks.addAll(SortBenchmarks.benchmarks());
+		benchmarks.addAll(BitSetBenchmarks.benchmarks());
+		Harness.run(benchmarks);
+	}
+}
@@ -0,0 +1,231 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.RoaringBitSet;
+
+/**
+ * BitSet和RoaringBitSet的and、or、cardinality
+ * 稀疏：10万个bit分布在1亿的范围内（倒排表的典型情况）；稠密：一半的bit被设置
+ * 另外对比多个BitSet逐个or/and和orAll/andAll一次合并，以及clone再and和写入目标BitSet
+ */
+public class BitSetBenchmarks {
+
+	private static final int BITS = 100_000;
+
+	/** 多路合并：16个1000万bit、各有约四分之一bit被设置的BitSet */
+	private static final int COMBINE_SETS = 16;
+	private static final int COMBINE_BITS = 10_000_000;
+
+	public static List<Benchmark> benchmarks() {
+		List<Benchmark> list = new ArrayList<>();
+		add(list, "sparse", 100_000_000);
+		add(list, "dense", 2 * BITS);
+		addCombine(list);
+		return list;
+	}
+
+	private static void addCombine(List<Benchmark> list) {
+		String prefix = "bitset.combine" + COMBINE_SETS + ".";
+		Random random = new Random(42);
+		BitSet[] sets = new BitSet[COMBINE_SETS];
+		for (int i = 0; i < COMBINE_SETS; i++) {
+			long[] words = new long[COMBINE_BITS / 64];
+			for (int j = 0; j < words.length; j++) {
+				words[j] = random.nextLong() & random.nextLong();
+			}
+			sets[i] = BitSet.valueOf(words);
+		}
+		BitSet target = new BitSet();
+		int words = COMBINE_BITS / 64;
+
+		list.add(new Benchmark(prefix + "or.loop") {
+			@Override
+			protected Object run() {
+				BitSet r = (BitSet) sets[0].clone();
+				for (int i = 1; i < COMBINE_SETS; i++) {
+					r.or(sets[i]);
+				}
+				return r;
+			}
+
+			@Override
+			protected int operations() {
+				return words;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "or.orAll") {
+			@Override
+			protected Object run() {
+				return BitSet.orAll(sets);
+			}
+
+			@Override
+			protected int operations() {
+				return words;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "or.parallelOrAll") {
+			@Override
+			protected Object run() {
+				return BitSet.parallelOrAll(sets);
+			}
+
+			@Override
+			protected int operations() {
+				return words;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "and.loop") {
+			@Override
+			protected Object run() {
+				BitSet r = (BitSet) sets[0].clone();
+				for (int i = 1; i < COMBINE_SETS; i++) {
+					r.and(sets[i]);
+				}
+				return r;
+			}
+
+			@Override
+			protected int operations() {
+				return words;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "and.andAll") {
+			@Override
+			protected Object run() {
+				return BitSet.andAll(sets);
+			}
+
+			@Override
+			protected int operations() {
+				return words;
+			}
+		});
+
+		list.add(new Benchmark("bitset.and.clone") {
+			@Override
+			protected Object run() {
+				BitSet r = (BitSet) sets[0].clone();
+				r.and(sets[1]);
+				return r;
+			}
+
+			@Override
+			protected int operations() {
+				return words;
+			}
+		});
+
+		list.add(new Benchmark("bitset.and.destination") {
+			@Override
+			protected Object run() {
+				// 目标BitSet复用，不再分配
+				BitSet.and(sets[0], sets[1], target);
+				return target;
+			}
+
+			@Override
+			protected int operations() {
+				return words;
+			}
+		});
+	}
+
+	private static void add(List<Benchmark> list, String distribution, int range) {
+		String prefix = "bitset." + distribution + ".";
+		Random random = new Random(42);
+		BitSet a = new BitSet(), b = new BitSet();
+		for (int i = 0; i < BITS; i++) {
+			a.set(random.nextInt(range));
+			b.set(random.nextInt(range));
+		}
+		RoaringBitSet ra = RoaringBitSet.valueOf(a), rb = RoaringBitSet.valueOf(b);
+
+		list.add(new Benchmark(prefix + "BitSet.and") {
+			@Override
+			protected Object run() {
+				BitSet r = (BitSet) a.clone();
+				r.and(b);
+				return r;
+			}
+
+			@Override
+			protected int operations() {
+				return BITS;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "RoaringBitSet.and") {
+			@Override
+			protected Object run() {
+				RoaringBitSet r = (RoaringBitSet) ra.clone();
+				r.and(rb);
+				return r;
+			}
+
+			@Override
+			protected int operations() {
+				return BITS;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "BitSet.or") {
+			@Override
+			protected Object run() {
+				BitSet r = (BitSet) a.clone();
+				r.or(b);
+				return r;
+			}
+
+			@Override
+			protected int operations() {
+				return BITS;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "RoaringBitSet.or") {
+			@Override
+			protected Object run() {
+				RoaringBitSet r = (RoaringBitSet) ra.clone();
+				r.or(rb);
+				return r;
+			}
+
+			@Override
+			protected int operations() {
+				return BITS;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "BitSet.cardinality") {
+			@Override
+			protected Object run() {
+				return a.cardinality();
+			}
+
+			@Override
+			protected int operations() {
+				return BITS;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "RoaringBitSet.cardinality") {
+			@Override
+			protected Object run() {
+				return ra.cardinality();
+			}
+
+			@Override
+			protected int operations() {
+				return BITS;
+			}
+		});
+	}
+}
@@ -0,0 +1,510 @@
+package test.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.ChunkedArrayDeque;
+import java.util.IntArrayList;
+import java.util.IntPriorityQueue;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.MpmcArrayBlockingQueue;
+import java.util.concurrent.MpscArrayBlockingQueue;
+import java.util.concurrent.SpscArrayBlockingQueue;
+
+/**
+ * ArrayList、ArrayDeque、LinkedList的添加删除，PriorityQueue的offer、poll
+ * IntArrayList和ArrayList<Integer>的添加、求和对比（int值按原始类型传入，ArrayList需要装箱）
+ * Dijkstra最短路：PriorityQueue重复插入跳过过期项，对比IntPriorityQueue的decreaseKey（二叉堆和4叉堆）
+ * 定时器队列：100万个元素的PriorityQueue反复poll再offer，对比二叉、4叉、8叉堆
+ * 突发缓冲：1000万个元素先全部加入再全部取出，对比ArrayDeque整体扩容和ChunkedArrayDeque分段增长
+ * 阻塞队列交接：一个生产者线程put，当前线程take，对比ArrayBlockingQueue、LinkedBlockingQueue和无锁的Mpmc、Mpsc、Spsc队列
+ */
+public class CollectionBenchmarks {
+
+	private static final int SIZE = 100_000;
+
+	public static List<Benchmark> benchmarks() {
+		List<Benchmark> list = new ArrayList<>();
+		Integer[] values = Inputs.randomKeys(SIZE);
+
+		list.add(new Benchmark("list.ArrayList.addLast") {
+			@Override
+			protected Object run() {
+				ArrayList<Integer> l = new ArrayList<>();
+				for (Integer v : values) {
+					l.add(v);
+				}
+				return l;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.ArrayList.removeLast") {
+			ArrayList<Integer> l;
+
+			@Override
+			protected void setUp() {
+				l = new ArrayList<>(Arrays.asList(values));
+			}
+
+			@Override
+			protected Object run() {
+				int h = 0;
+				while (!l.isEmpty()) {
+					h += l.remove(l.size() - 1);
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.ArrayList.addInt") {
+			@Override
+			protected Object run() {
+				// 每个int都要装箱，-128~127以外会分配Integer对象
+				ArrayList<Integer> l = new ArrayList<>();
+				for (int i = 0; i < SIZE; i++) {
+					l.add(i * 31);
+				}
+				return l;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.IntArrayList.addInt") {
+			@Override
+			protected Object run() {
+				IntArrayList l = new IntArrayList();
+				for (int i = 0; i < SIZE; i++) {
+					l.add(i * 31);
+				}
+				return l;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.ArrayList.sum") {
+			ArrayList<Integer> l = new ArrayList<>(Arrays.asList(values));
+
+			@Override
+			protected Object run() {
+				long h = 0;
+				for (int i = 0, n = l.size(); i < n; i++) {
+					h += l.get(i);
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.IntArrayList.sum") {
+			IntArrayList l = new IntArrayList();
+
+			{
+				for (Integer v : values) {
+					l.add(v);
+				}
+			}
+
+			@Override
+			protected Object run() {
+				long h = 0;
+				for (int i = 0, n = l.size(); i < n; i++) {
+					h += l.get(i);
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.ArrayDeque.addLast") {
+			@Override
+			protected Object run() {
+				ArrayDeque<Integer> d = new ArrayDeque<>();
+				for (Integer v : values) {
+					d.addLast(v);
+				}
+				return d;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.ArrayDeque.fifo") {
+			@Override
+			protected Object run() {
+				// 队列用法：尾部进头部出，队列长度保持在64
+				ArrayDeque<Integer> d = new ArrayDeque<>();
+				int h = 0;
+				for (Integer v : values) {
+					d.addLast(v);
+					if (d.size() > 64) {
+						h += d.pollFirst();
+					}
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.ChunkedArrayDeque.addLast") {
+			@Override
+			protected Object run() {
+				ChunkedArrayDeque<Integer> d = new ChunkedArrayDeque<>();
+				for (Integer v : values) {
+					d.addLast(v);
+				}
+				return d;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.ChunkedArrayDeque.fifo") {
+			@Override
+			protected Object run() {
+				ChunkedArrayDeque<Integer> d = new ChunkedArrayDeque<>();
+				int h = 0;
+				for (Integer v : values) {
+					d.addLast(v);
+					if (d.size() > 64) {
+						h += d.pollFirst();
+					}
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.LinkedList.addLast") {
+			@Override
+			protected Object run() {
+				LinkedList<Integer> l = new LinkedList<>();
+				for (Integer v : values) {
+					l.addLast(v);
+				}
+				return l;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("list.LinkedList.fifo") {
+			@Override
+			protected Object run() {
+				LinkedList<Integer> l = new LinkedList<>();
+				int h = 0;
+				for (Integer v : values) {
+					l.addLast(v);
+					if (l.size() > 64) {
+						h += l.pollFirst();
+					}
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+
+		list.add(new Benchmark("queue.PriorityQueue.offer") {
+			@Override
+			protected Object run() {
+				PriorityQueue<Integer> q = new PriorityQueue<>();
+				for (Integer v : values) {
+					q.offer(v);
+				}
+				return q;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		list.add(new Benchmark("queue.PriorityQueue.poll") {
+			PriorityQueue<Integer> q;
+
+			@Override
+			protected void setUp() {
+				q = new PriorityQueue<>(Arrays.asList(values));
+			}
+
+			@Override
+			protected Object run() {
+				int h = 0;
+				Integer v;
+				while ((v = q.poll()) != null) {
+					h += v;
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return SIZE;
+			}
+		});
+		addDijkstra(list);
+		addTimerQueue(list);
+		addBurst(list);
+		addHandoff(list);
+		return list;
+	}
+
+	private static final int BURST = 10_000_000;
+
+	private static void addBurst(List<Benchmark> list) {
+		Integer e = 1;
+		list.add(new Benchmark("deque.burst.ArrayDeque") {
+			@Override
+			protected Object run() {
+				ArrayDeque<Integer> d = new ArrayDeque<>();
+				for (int i = 0; i < BURST; i++) {
+					d.addLast(e);
+				}
+				int h = 0;
+				while (!d.isEmpty()) {
+					h += d.pollFirst();
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return BURST;
+			}
+		});
+		list.add(new Benchmark("deque.burst.ChunkedArrayDeque") {
+			@Override
+			protected Object run() {
+				ChunkedArrayDeque<Integer> d = new ChunkedArrayDeque<>();
+				for (int i = 0; i < BURST; i++) {
+					d.addLast(e);
+				}
+				int h = 0;
+				while (!d.isEmpty()) {
+					h += d.pollFirst();
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return BURST;
+			}
+		});
+	}
+
+	private static final int TIMERS = 1_000_000;
+	private static final int TIMER_OPS = 100_000;
+
+	private static void addTimerQueue(List<Benchmark> list) {
+		for (int arity : new int[] {2, 4, 8}) {
+			list.add(new Benchmark("queue.PriorityQueue.timers." + arity + "ary") {
+				PriorityQueue<Long> q;
+				Random random;
+
+				@Override
+				protected void setUp() {
+					q = new PriorityQueue<>(TIMERS, null, arity);
+					random = new Random(42);
+					for (int i = 0; i < TIMERS; i++) {
+						q.offer((long) random.nextInt(1 << 30));
+					}
+				}
+
+				@Override
+				protected Object run() {
+					// 取出最早到期的定时器，按随机延迟重新加入
+					long h = 0;
+					for (int i = 0; i < TIMER_OPS; i++) {
+						long t = q.poll();
+						h += t;
+						q.offer(t + random.nextInt(1 << 30));
+					}
+					return h;
+				}
+
+				@Override
+				protected int operations() {
+					return TIMER_OPS;
+				}
+			});
+		}
+	}
+
+	/** 随机图：顶点数和每个顶点的出边数 */
+	private static final int VERTICES = 20_000;
+	private static final int DEGREE = 8;
+
+	private static void addDijkstra(List<Benchmark> list) {
+		Random random = new Random(42);
+		int[] targets = new int[VERTICES * DEGREE];
+		int[] weights = new int[VERTICES * DEGREE];
+		for (int i = 0; i < targets.length; i++) {
+			targets[i] = random.nextInt(VERTICES);
+			weights[i] = 1 + random.nextInt(1000);
+		}
+
+		list.add(new Benchmark("queue.dijkstra.PriorityQueue") {
+			@Override
+			protected Object run() {
+				// 队列元素为{距离, 顶点}，距离变小时重复插入，poll到过期项时跳过
+				int[] dist = new int[VERTICES];
+				Arrays.fill(dist, Integer.MAX_VALUE);
+				PriorityQueue<int[]> q = new PriorityQueue<>((x, y) -> Integer.compare(x[0], y[0]));
+				dist[0] = 0;
+				q.offer(new int[] {0, 0});
+				int[] e;
+				while ((e = q.poll()) != null) {
+					int u = e[1];
+					if (e[0] > dist[u]) {
+						continue;
+					}
+					for (int i = u * DEGREE, end = i + DEGREE; i < end; i++) {
+						int v = targets[i], d = e[0] + weights[i];
+						if (d < dist[v]) {
+							dist[v] = d;
+							q.offer(new int[] {d, v});
+						}
+					}
+				}
+				return dist;
+			}
+
+			@Override
+			protected int operations() {
+				return VERTICES;
+			}
+		});
+		for (int arity : new int[] {2, 4}) {
+			list.add(new Benchmark("queue.dijkstra.IntPriorityQueue." + arity + "ary") {
+				@Override
+				protected Object run() {
+					// 所有顶点一次建堆，句柄就是顶点编号
+					int[] dist = new int[VERTICES];
+					Arrays.fill(dist, Integer.MAX_VALUE);
+					dist[0] = 0;
+					IntPriorityQueue q = new IntPriorityQueue(dist, arity);
+					while (!q.isEmpty()) {
+						int du = q.peek();
+						int u = q.pollHandle();
+						if (du == Integer.MAX_VALUE) {
+							break;
+						}
+						for (int i = u * DEGREE, end = i + DEGREE; i < end; i++) {
+							int v = targets[i], d = du + weights[i];
+							if (d < dist[v]) {
+								dist[v] = d;
+								q.decreaseKey(v, d);
+							}
+						}
+					}
+					return dist;
+				}
+
+				@Override
+				protected int operations() {
+					return VERTICES;
+				}
+			});
+		}
+	}
+
+	private static final int HANDOFF = 1_000_000;
+
+	private static void addHandoff(List<Benchmark> list) {
+		String[] names = {"ArrayBlockingQueue", "LinkedBlockingQueue", "MpmcArrayBlockingQueue",
+				"MpscArrayBlockingQueue", "SpscArrayBlockingQueue"};
+		for (int kind = 0; kind < names.length; kind++) {
+			final int k = kind;
+			String name = names[k];
+			list.add(new Benchmark("queue.handoff." + name) {
+				@Override
+				protected Object run() {
+					BlockingQueue<Integer> q = newQueue(k);
+					Integer e = 1;
+					Thread producer = new Thread(() -> {
+						try {
+							for (int i = 0; i < HANDOFF; i++) {
+								q.put(e);
+							}
+						} catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+						}
+					});
+					producer.start();
+					int h = 0;
+					try {
+						for (int i = 0; i < HANDOFF; i++) {
+							h += q.take();
+						}
+						producer.join();
+					} catch (InterruptedException ex) {
+						throw new IllegalStateException(ex);
+					}
+					return h;
+				}
+
+				@Override
+				protected int operations() {
+					return HANDOFF;
+				}
+			});
+		}
+	}
+
+	private static BlockingQueue<Integer> newQueue(int kind) {
+		switch (kind) {
+			case 0:
+				return new ArrayBlockingQueue<>(1024);
+			case 1:
+				return new LinkedBlockingQueue<>(1024);
+			case 2:
+				return new MpmcArrayBlockingQueue<>(1024);
+			case 3:
+				return new MpscArrayBlockingQueue<>(1024);
+			default:
+				return new SpscArrayBlockingQueue<>(1024);
+		}
+	}
+}
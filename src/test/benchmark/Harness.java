@@ -0,0 +1,105 @@
+package test.benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 简单的基准测试工具，代替JMH（这个工程没有依赖管理，引不进JMH）
+ * 每个Benchmark先预热若干轮，再测量若干轮，每轮跑满固定时间，输出每个操作的平均耗时和标准差
+ * 所有输入都用固定的随机种子生成，前后两次结果可以直接对比
+ *
+ * 可以用系统属性调整：
+ * -Dbench.filter=正则      只跑名字匹配的
+ * -Dbench.warmup=5        预热轮数
+ * -Dbench.iterations=10   测量轮数
+ * -Dbench.millis=500      每轮时长
+ * -Dbench.out=result.csv  结果另外写到csv文件
+ */
+public final class Harness {
+
+	private static final Pattern FILTER = Pattern.compile(System.getProperty("bench.filter", ".*"));
+
+	private static final int WARMUP = Integer.getInteger("bench.warmup", 5);
+
+	private static final int ITERATIONS = Integer.getInteger("bench.iterations", 10);
+
+	private static final long ITERATION_NANOS = Long.getLong("bench.millis", 500L) * 1_000_000L;
+
+	private static final String OUT = System.getProperty("bench.out");
+
+	/**
+	 * 消费结果，volatile写保证计算不会被当成死代码消除
+	 */
+	private static volatile int sink;
+
+	private static final List<String> results = new ArrayList<>();
+
+	private Harness() {
+	}
+
+	public static void run(List<Benchmark> benchmarks) {
+		for (Benchmark benchmark : benchmarks) {
+			if (FILTER.matcher(benchmark.name()).find()) {
+				run(benchmark);
+			}
+		}
+		flush();
+	}
+
+	private static void run(Benchmark benchmark) {
+		for (int i = 0; i < WARMUP; i++) {
+			iteration(benchmark);
+		}
+		double[] samples = new double[ITERATIONS];
+		double sum = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			samples[i] = iteration(benchmark);
+			sum += samples[i];
+		}
+		double mean = sum / ITERATIONS;
+		double variance = 0;
+		for (double sample : samples) {
+			variance += (sample - mean) * (sample - mean);
+		}
+		double stddev = ITERATIONS > 1 ? Math.sqrt(variance / (ITERATIONS - 1)) : 0;
+		System.out.printf("%-60s %,14.2f ns/op  ± %,10.2f%n", benchmark.name(), mean, stddev);
+		results.add(String.format("%s,%.3f,%.3f", benchmark.name(), mean, stddev));
+	}
+
+	/**
+	 * 跑一轮，返回每个操作的平均纳秒数
+	 */
+	private static double iteration(Benchmark benchmark) {
+		long elapsed = 0;
+		long operations = 0;
+		int h = 0;
+		while (elapsed < ITERATION_NANOS) {
+			benchmark.setUp();
+			long start = System.nanoTime();
+			Object result = benchmark.run();
+			elapsed += System.nanoTime() - start;
+			operations += benchmark.operations();
+			h += System.identityHashCode(result);
+		}
+		sink += h;
+		return (double) elapsed / operations;
+	}
+
+	private static void flush() {
+		if (OUT == null) {
+			return;
+		}
+		try (PrintWriter writer = new PrintWriter(new FileWriter(OUT, true))) {
+			for (String result : results) {
+				writer.println(result);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		results.clear();
+	}
+}
@@ -0,0 +1,113 @@
+package test.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 生成测试输入，全部使用固定种子
+ */
+public final class Inputs {
+
+	public static final long SEED = 42;
+
+	private Inputs() {
+	}
+
+	/**
+	 * 连续的key：0, 1, 2 ...
+	 */
+	public static Integer[] sequentialKeys(int size) {
+		Integer[] keys = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = i;
+		}
+		return keys;
+	}
+
+	/**
+	 * 均匀分布的随机key
+	 */
+	public static Integer[] randomKeys(int size) {
+		Random random = new Random(SEED);
+		Integer[] keys = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = random.nextInt();
+		}
+		return keys;
+	}
+
+	/**
+	 * hashCode全部相同的字符串
+	 * "Aa"和"BB"的hashCode相同，由它们拼出来的等长字符串hashCode也都相同，
+	 * 全部落到HashMap的同一个桶里，超过TREEIFY_THRESHOLD后转成红黑树
+	 */
+	public static String[] collidingKeys(int size) {
+		String[] keys = new String[size];
+		int length = 32 - Integer.numberOfLeadingZeros(Math.max(size - 1, 1));
+		for (int i = 0; i < size; i++) {
+			StringBuilder builder = new StringBuilder(length * 2);
+			for (int bit = length - 1; bit >= 0; bit--) {
+				builder.append((i >>> bit & 1) == 0 ? "Aa" : "BB");
+			}
+			keys[i] = builder.toString();
+		}
+		return keys;
+	}
+
+	/**
+	 * 打乱顺序，用于生成查询序列
+	 */
+	public static <T> T[] shuffle(T[] keys) {
+		T[] copy = Arrays.copyOf(keys, keys.length);
+		Random random = new Random(SEED + 1);
+		for (int i = copy.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			T t = copy[i];
+			copy[i] = copy[j];
+			copy[j] = t;
+		}
+		return copy;
+	}
+
+	public static int[] randomInts(int size) {
+		Random random = new Random(SEED);
+		int[] a = new int[size];
+		for (int i = 0; i < size; i++) {
+			a[i] = random.nextInt();
+		}
+		return a;
+	}
+
+	/**
+	 * 部分有序：整体升序，再随机交换一定比例的元素
+	 */
+	public static Integer[] partiallySorted(int size, double disorder) {
+		Random random = new Random(SEED);
+		Integer[] a = sequentialKeys(size);
+		int swaps = (int) (size * disorder);
+		for (int i = 0; i < swaps; i++) {
+			int x = random.nextInt(size);
+			int y = random.nextInt(size);
+			Integer t = a[x];
+			a[x] = a[y];
+			a[y] = t;
+		}
+		return a;
+	}
+
+	/**
+	 * 由若干段升序序列拼接而成，TimSort可以直接识别出run
+	 */
+	public static Integer[] ascendingRuns(int size, int runLength) {
+		Random random = new Random(SEED);
+		Integer[] a = new Integer[size];
+		for (int start = 0; start < size; start += runLength) {
+			int value = random.nextInt(size);
+			for (int i = start; i < Math.min(size, start + runLength); i++) {
+				a[i] = value;
+				value += random.nextInt(4);
+			}
+		}
+		return a;
+	}
+}
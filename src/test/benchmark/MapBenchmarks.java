@@ -0,0 +1,197 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.BTreeMap;
+import java.util.CompactLinkedHashMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentBTreeMap;
+import java.util.concurrent.ConcurrentSkipListLongMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * HashMap、LinkedHashMap、CompactLinkedHashMap、TreeMap、BTreeMap、ConcurrentSkipListMap、ConcurrentBTreeMap的get、put、遍历
+ * key分布：连续整数、随机整数、hashCode全部相同的字符串（HashMap会树化）
+ * 另外对比ConcurrentSkipListMap&lt;Long,?&gt;和ConcurrentSkipListLongMap在随机long key下的get、put
+ */
+public class MapBenchmarks {
+
+	private static final int[] SIZES = {1_000, 100_000};
+
+	public static List<Benchmark> benchmarks() {
+		List<Benchmark> list = new ArrayList<>();
+		for (int size : SIZES) {
+			addAll(list, "HashMap", HashMap::new, size);
+			addAll(list, "LinkedHashMap", LinkedHashMap::new, size);
+			addAll(list, "CompactLinkedHashMap", CompactLinkedHashMap::new, size);
+			addAll(list, "TreeMap", TreeMap::new, size);
+			addAll(list, "BTreeMap", BTreeMap::new, size);
+			addAll(list, "ConcurrentSkipListMap", ConcurrentSkipListMap::new, size);
+			addAll(list, "ConcurrentBTreeMap", ConcurrentBTreeMap::new, size);
+			addLongKeyed(list, size);
+		}
+		return list;
+	}
+
+	private static void addAll(List<Benchmark> list, String map, Supplier<Map<Object, Object>> factory, int size) {
+		add(list, map, "sequential", factory, Inputs.sequentialKeys(size));
+		add(list, map, "random", factory, Inputs.randomKeys(size));
+		// 碰撞的key只测小规模，大规模下每次put都在一棵树上，结果没有参考价值
+		if (size <= 1_000) {
+			add(list, map, "colliding", factory, Inputs.collidingKeys(size));
+		}
+	}
+
+	private static void add(List<Benchmark> list, String map, String distribution,
+							Supplier<Map<Object, Object>> factory, Object[] keys) {
+		String prefix = "map." + map + "." + distribution + "." + keys.length + ".";
+		Object[] lookups = Inputs.shuffle(keys);
+		Map<Object, Object> filled = factory.get();
+		for (Object key : keys) {
+			filled.put(key, key);
+		}
+
+		list.add(new Benchmark(prefix + "get") {
+			@Override
+			protected Object run() {
+				int found = 0;
+				for (Object key : lookups) {
+					if (filled.get(key) != null) {
+						found++;
+					}
+				}
+				return found;
+			}
+
+			@Override
+			protected int operations() {
+				return lookups.length;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "put") {
+			@Override
+			protected Object run() {
+				// 包含扩容，和真实的填充过程一致
+				Map<Object, Object> m = factory.get();
+				for (Object key : keys) {
+					m.put(key, key);
+				}
+				return m;
+			}
+
+			@Override
+			protected int operations() {
+				return keys.length;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "iterate") {
+			@Override
+			protected Object run() {
+				int h = 0;
+				for (Map.Entry<Object, Object> e : filled.entrySet()) {
+					h += e.getKey().hashCode();
+				}
+				return h;
+			}
+
+			@Override
+			protected int operations() {
+				return keys.length;
+			}
+		});
+	}
+
+	private static void addLongKeyed(List<Benchmark> list, int size) {
+		String prefix = "map.longKey.random." + size + ".";
+		long[] keys = new long[size];
+		Integer[] boxed = Inputs.randomKeys(size);
+		for (int i = 0; i < size; i++) {
+			keys[i] = boxed[i] * 0x9E3779B97F4A7C15L;
+		}
+		Long[] boxedKeys = new Long[size];
+		for (int i = 0; i < size; i++) {
+			boxedKeys[i] = keys[i];
+		}
+		ConcurrentSkipListMap<Long, Object> skipList = new ConcurrentSkipListMap<>();
+		ConcurrentSkipListLongMap<Object> longSkipList = new ConcurrentSkipListLongMap<>();
+		for (long key : keys) {
+			skipList.put(key, Boolean.TRUE);
+			longSkipList.put(key, Boolean.TRUE);
+		}
+
+		list.add(new Benchmark(prefix + "ConcurrentSkipListMap.get") {
+			@Override
+			protected Object run() {
+				int found = 0;
+				// 查找时装箱，和调用方拿着long查询的真实情况一致
+				for (long key : keys) {
+					if (skipList.get(key) != null) {
+						found++;
+					}
+				}
+				return found;
+			}
+
+			@Override
+			protected int operations() {
+				return size;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "ConcurrentSkipListLongMap.get") {
+			@Override
+			protected Object run() {
+				int found = 0;
+				for (long key : keys) {
+					if (longSkipList.get(key) != null) {
+						found++;
+					}
+				}
+				return found;
+			}
+
+			@Override
+			protected int operations() {
+				return size;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "ConcurrentSkipListMap.put") {
+			@Override
+			protected Object run() {
+				ConcurrentSkipListMap<Long, Object> m = new ConcurrentSkipListMap<>();
+				for (Long key : boxedKeys) {
+					m.put(key, Boolean.TRUE);
+				}
+				return m;
+			}
+
+			@Override
+			protected int operations() {
+				return size;
+			}
+		});
+
+		list.add(new Benchmark(prefix + "ConcurrentSkipListLongMap.put") {
+			@Override
+			protected Object run() {
+				ConcurrentSkipListLongMap<Object> m = new ConcurrentSkipListLongMap<>();
+				for (long key : keys) {
+					m.put(key, Boolean.TRUE);
+				}
+				return m;
+			}
+
+			@Override
+			protected int operations() {
+				return size;
+			}
+		});
+	}
+}
@@ -0,0 +1,186 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Arrays.sort：所有基本类型（DualPivotQuicksort，byte、short、char数组较大时走计数排序）
+ * 以及对象数组（ComparableTimSort和TimSort）在随机、部分有序、多段有序输入上的表现
+ */
+public class SortBenchmarks {
+
+	private static final int[] SIZES = {1_000, 1_000_000};
+
+	public static List<Benchmark> benchmarks() {
+		List<Benchmark> list = new ArrayList<>();
+		for (int size : SIZES) {
+			addPrimitive(list, size);
+			addObject(list, size);
+		}
+		return list;
+	}
+
+	private static void addPrimitive(List<Benchmark> list, int size) {
+		Random random = new Random(Inputs.SEED);
+		int[] ints = new int[size];
+		long[] longs = new long[size];
+		short[] shorts = new short[size];
+		char[] chars = new char[size];
+		byte[] bytes = new byte[size];
+		float[] floats = new float[size];
+		double[] doubles = new double[size];
+		for (int i = 0; i < size; i++) {
+			ints[i] = random.nextInt();
+			longs[i] = random.nextLong();
+			shorts[i] = (short) random.nextInt();
+			chars[i] = (char) random.nextInt();
+			bytes[i] = (byte) random.nextInt();
+			floats[i] = random.nextFloat() - 0.5f;
+			doubles[i] = random.nextDouble() - 0.5;
+		}
+		// 每次排序前把原始数据复制到工作数组，复制不计时
+		list.add(new Benchmark("sort.int.random." + size) {
+			final int[] a = new int[size];
+
+			@Override
+			protected void setUp() {
+				System.arraycopy(ints, 0, a, 0, size);
+			}
+
+			@Override
+			protected Object run() {
+				Arrays.sort(a);
+				return a;
+			}
+		});
+		list.add(new Benchmark("sort.long.random." + size) {
+			final long[] a = new long[size];
+
+			@Override
+			protected void setUp() {
+				System.arraycopy(longs, 0, a, 0, size);
+			}
+
+			@Override
+			protected Object run() {
+				Arrays.sort(a);
+				return a;
+			}
+		});
+		list.add(new Benchmark("sort.short.random." + size) {
+			final short[] a = new short[size];
+
+			@Override
+			protected void setUp() {
+				System.arraycopy(shorts, 0, a, 0, size);
+			}
+
+			@Override
+			protected Object run() {
+				Arrays.sort(a);
+				return a;
+			}
+		});
+		list.add(new Benchmark("sort.char.random." + size) {
+			final char[] a = new char[size];
+
+			@Override
+			protected void setUp() {
+				System.arraycopy(chars, 0, a, 0, size);
+			}
+
+			@Override
+			protected Object run() {
+				Arrays.sort(a);
+				return a;
+			}
+		});
+		list.add(new Benchmark("sort.byte.random." + size) {
+			final byte[] a = new byte[size];
+
+			@Override
+			protected void setUp() {
+				System.arraycopy(bytes, 0, a, 0, size);
+			}
+
+			@Override
+			protected Object run() {
+				Arrays.sort(a);
+				return a;
+			}
+		});
+		list.add(new Benchmark("sort.float.random." + size) {
+			final float[] a = new float[size];
+
+			@Override
+			protected void setUp() {
+				System.arraycopy(floats, 0, a, 0, size);
+			}
+
+			@Override
+			protected Object run() {
+				Arrays.sort(a);
+				return a;
+			}
+		});
+		list.add(new Benchmark("sort.double.random." + size) {
+			final double[] a = new double[size];
+
+			@Override
+			protected void setUp() {
+				System.arraycopy(doubles, 0, a, 0, size);
+			}
+
+			@Override
+			protected Object run() {
+				Arrays.sort(a);
+				return a;
+			}
+		});
+	}
+
+	private static void addObject(List<Benchmark> list, int size) {
+		addObject(list, "random", Inputs.shuffle(Inputs.sequentialKeys(size)));
+		addObject(list, "partial1pct", Inputs.partiallySorted(size, 0.01));
+		addObject(list, "runs64", Inputs.ascendingRuns(size, 64));
+		addObject(list, "runs4096", Inputs.ascendingRuns(size, 4096));
+	}
+
+	private static void addObject(List<Benchmark> list, String distribution, Integer[] input) {
+		int size = input.length;
+		// 不传Comparator走ComparableTimSort
+		list.add(new Benchmark("sort.ComparableTimSort." + distribution + "." + size) {
+			final Integer[] a = new Integer[size];
+
+			@Override
+			protected void setUp() {
+				System.arraycopy(input, 0, a, 0, size);
+			}
+
+			@Override
+			protected Object run() {
+				Arrays.sort(a);
+				return a;
+			}
+		});
+		// 传Comparator走TimSort
+		Comparator<Integer> comparator = Comparator.naturalOrder();
+		list.add(new Benchmark("sort.TimSort." + distribution + "." + size) {
+			final Integer[] a = new Integer[size];
+
+			@Override
+			protected void setUp() {
+				System.arraycopy(input, 0, a, 0, size);
+			}
+
+			@Override
+			protected Object run() {
+				Arrays.sort(a, comparator);
+				return a;
+			}
+		});
+	}
+}
@@ -0,0 +1,53 @@
+package test.concurrent.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.OffHeapHashMap;
+import java.util.concurrent.OffHeapHashMap.Serializer;
+import java.util.concurrent.OffHeapHashMap.SlabAllocator;
+
+/**
+ * OffHeapHashMap 用小端的 slab：
+ * 记录头是通过 view 写的，读的时候直接读 slab，
+ * 两者字节序不一致的话 klen/vlen 就读错了。
+ * slab 设得很小，让记录分散到多个 slab，并且删除后触发压缩。
+ */
+public class OffHeapByteOrderTest {
+
+	public static void main(String[] args) {
+		SlabAllocator littleEndian = new SlabAllocator() {
+			public ByteBuffer allocate(int capacity) {
+				return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+			}
+		};
+		OffHeapHashMap<String, Integer> map = new OffHeapHashMap<>(
+				Serializer.STRING, Serializer.INTEGER, 16, 4, 256, littleEndian);
+		int n = 2000;
+		for (int i = 0; i < n; i++)
+			map.put("key-" + i, i);
+		check(map.size() == n, "size " + map.size());
+		for (int i = 0; i < n; i++)
+			check(Integer.valueOf(i).equals(map.get("key-" + i)), "get key-" + i);
+
+		// 删掉大部分再覆盖写，压缩后的记录也要能读出来
+		for (int i = 0; i < n; i++)
+			if (i % 4 != 0)
+				map.remove("key-" + i);
+		for (int i = 0; i < n; i += 4)
+			map.put("key-" + i, -i);
+		check(map.size() == n / 4, "size after remove " + map.size());
+		for (int i = 0; i < n; i++) {
+			Integer v = map.get("key-" + i);
+			if (i % 4 == 0)
+				check(v != null && v == -i, "get after compact key-" + i + " = " + v);
+			else
+				check(v == null && !map.containsKey("key-" + i), "removed key-" + i);
+		}
+		System.out.println("ok");
+	}
+
+	private static void check(boolean ok, String what) {
+		if (!ok)
+			throw new AssertionError(what);
+	}
+}
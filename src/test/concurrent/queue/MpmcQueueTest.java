@@ -0,0 +1,94 @@
+package test.concurrent.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.MpmcArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MpmcArrayBlockingQueue 的边界情况：
+ * 容量1会让"已发布"和"已释放"的序号重合，必须拒绝；
+ * remove(Object) 留下的空槽要能唤醒阻塞的 put，且不计入 size；
+ * drainTo 的目标集合抛异常时，剩下的元素要留在队列里且保持顺序。
+ */
+public class MpmcQueueTest {
+
+	public static void main(String[] args) throws Exception {
+		capacityOne();
+		removeWakesPutter();
+		drainToFailure();
+		System.out.println("ok");
+	}
+
+	private static void capacityOne() {
+		try {
+			new MpmcArrayBlockingQueue<Integer>(1);
+			throw new AssertionError("capacity 1 accepted");
+		} catch (IllegalArgumentException expected) {
+		}
+		// 最小容量2：第三个元素必须被拒绝，不能覆盖前面的元素
+		MpmcArrayBlockingQueue<Integer> q = new MpmcArrayBlockingQueue<>(2);
+		check(q.offer(1) && q.offer(2) && !q.offer(3), "offer beyond capacity");
+		check(q.size() == 2, "size " + q.size());
+		check(q.poll() == 1 && q.poll() == 2 && q.poll() == null, "poll order");
+	}
+
+	private static void removeWakesPutter() throws Exception {
+		MpmcArrayBlockingQueue<Integer> q = new MpmcArrayBlockingQueue<>(2);
+		q.put(1);
+		q.put(2);
+		check(q.remove(1) && q.remove(2), "remove");
+		check(q.size() == 0 && q.isEmpty() && q.remainingCapacity() == 2, "size after remove " + q.size());
+		// 队列里只剩被删除的元素，put 不应该永远阻塞
+		check(q.offer(3, 1, TimeUnit.SECONDS), "put after remove");
+		check(q.poll(1, TimeUnit.SECONDS) == 3, "take after remove");
+
+		// 删除中间的元素：size 立即减少，消费者越过空槽后生产者被唤醒
+		q.put(4);
+		q.put(5);
+		check(q.remove(5) && q.size() == 1, "interior remove");
+		Thread putter = new Thread(() -> {
+			try {
+				q.put(6);
+				q.put(7);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		putter.start();
+		Thread.sleep(50);
+		check(q.take() == 4, "take 4");
+		check(q.take() == 6 && q.take() == 7, "take after tombstone");
+		putter.join(1000);
+		check(!putter.isAlive() && q.isEmpty(), "putter finished");
+	}
+
+	private static void drainToFailure() {
+		MpmcArrayBlockingQueue<Integer> q = new MpmcArrayBlockingQueue<>(8);
+		for (int i = 1; i <= 5; i++)
+			q.add(i);
+		List<Integer> sink = new ArrayList<Integer>() {
+			@Override
+			public boolean add(Integer e) {
+				if (e == 2)
+					throw new IllegalStateException();
+				return super.add(e);
+			}
+		};
+		try {
+			q.drainTo(sink);
+			throw new AssertionError("add failure swallowed");
+		} catch (IllegalStateException expected) {
+		}
+		// 正在添加的元素2允许丢失，其余元素不能丢也不能乱序
+		check(sink.size() == 1 && sink.get(0) == 1, "drained " + sink);
+		check(q.size() == 3, "size after failed drain " + q.size());
+		check(q.poll() == 3 && q.poll() == 4 && q.poll() == 5, "order after failed drain");
+		check(q.remainingCapacity() == 8, "capacity after failed drain");
+	}
+
+	private static void check(boolean ok, String what) {
+		if (!ok)
+			throw new AssertionError(what);
+	}
+}
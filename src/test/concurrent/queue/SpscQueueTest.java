@@ -0,0 +1,137 @@
+package test.concurrent.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.SpscArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SpscArrayBlockingQueue：一个生产者一个消费者。
+ * 检查元素顺序、容量1、drainTo（包括绕过数组末尾），
+ * 以及 put/take 的阻塞和 offer/poll 的超时。
+ */
+public class SpscQueueTest {
+
+	public static void main(String[] args) throws Exception {
+		ordering();
+		capacityOne();
+		drainTo();
+		timeouts();
+		System.out.println("ok");
+	}
+
+	// 生产者按顺序 put，消费者 take 到的必须是同样的顺序
+	private static void ordering() throws Exception {
+		SpscArrayBlockingQueue<Integer> q = new SpscArrayBlockingQueue<>(16);
+		int n = 100000;
+		Thread producer = new Thread(() -> {
+			try {
+				for (int i = 0; i < n; i++)
+					q.put(i);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		for (int i = 0; i < n; i++) {
+			int x = q.take();
+			check(x == i, "expected " + i + " but took " + x);
+		}
+		producer.join();
+		check(q.isEmpty(), "empty after ordering");
+	}
+
+	private static void capacityOne() throws Exception {
+		SpscArrayBlockingQueue<Integer> q = new SpscArrayBlockingQueue<>(1);
+		check(q.capacity() == 1, "capacity " + q.capacity());
+		check(q.offer(1) && !q.offer(2), "offer beyond capacity");
+		check(q.size() == 1 && q.remainingCapacity() == 0, "size when full");
+		check(q.peek() == 1 && q.poll() == 1 && q.poll() == null, "poll");
+		// 容量1时生产者和消费者每个元素都要交替阻塞
+		int n = 10000;
+		Thread producer = new Thread(() -> {
+			try {
+				for (int i = 0; i < n; i++)
+					q.put(i);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		for (int i = 0; i < n; i++)
+			check(q.take() == i, "capacity one order at " + i);
+		producer.join();
+	}
+
+	private static void drainTo() {
+		SpscArrayBlockingQueue<Integer> q = new SpscArrayBlockingQueue<>(8);
+		// 先让 head 走到数组中间，drainTo 时要绕过数组末尾
+		for (int i = 0; i < 5; i++) {
+			q.add(-1);
+			q.poll();
+		}
+		for (int i = 0; i < 8; i++)
+			q.add(i);
+		List<Integer> out = new ArrayList<>();
+		check(q.drainTo(out, 3) == 3 && q.size() == 5, "drain max 3");
+		check(q.drainTo(out) == 5 && q.isEmpty(), "drain rest");
+		for (int i = 0; i < 8; i++)
+			check(out.get(i) == i, "drained order " + out);
+		check(q.drainTo(out) == 0 && out.size() == 8, "drain empty");
+		check(q.remainingCapacity() == 8, "capacity after drain");
+		try {
+			q.drainTo(q);
+			throw new AssertionError("drainTo self accepted");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	private static void timeouts() throws Exception {
+		SpscArrayBlockingQueue<Integer> q = new SpscArrayBlockingQueue<>(2);
+		long t0 = System.nanoTime();
+		check(q.poll(50, TimeUnit.MILLISECONDS) == null, "poll on empty");
+		check(System.nanoTime() - t0 >= TimeUnit.MILLISECONDS.toNanos(50), "poll returned early");
+		q.put(1);
+		q.put(2);
+		t0 = System.nanoTime();
+		check(!q.offer(3, 50, TimeUnit.MILLISECONDS), "offer on full");
+		check(System.nanoTime() - t0 >= TimeUnit.MILLISECONDS.toNanos(50), "offer returned early");
+
+		// 满的时候 put 阻塞，直到消费者取走一个
+		Thread producer = new Thread(() -> {
+			try {
+				q.put(3);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		Thread.sleep(50);
+		check(producer.isAlive(), "put did not block");
+		check(q.take() == 1, "take 1");
+		producer.join(1000);
+		check(!producer.isAlive(), "put not woken");
+		check(q.take() == 2 && q.take() == 3, "take after put");
+
+		// 空的时候 take 阻塞，直到生产者放入一个
+		Integer[] taken = new Integer[1];
+		Thread consumer = new Thread(() -> {
+			try {
+				taken[0] = q.poll(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		consumer.start();
+		Thread.sleep(50);
+		check(consumer.isAlive(), "poll did not block");
+		check(q.offer(4, 1, TimeUnit.SECONDS), "offer to waiting consumer");
+		consumer.join(1000);
+		check(!consumer.isAlive() && taken[0] == 4 && q.isEmpty(), "poll not woken");
+	}
+
+	private static void check(boolean ok, String what) {
+		if (!ok)
+			throw new AssertionError(what);
+	}
+}
@@ -0,0 +1,96 @@
+package test.concurrent.thread.pool.lane;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LaneThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 车道溢出后的拒绝策略必须留在原车道：
+ * 阻塞式策略 getQueue().put(r) 要把任务放回它自己的车道，
+ * DiscardOldestPolicy 的子类只丢弃同一车道最老的任务。
+ */
+public class LaneRejectTest {
+
+	public static void main(String[] args) throws Exception {
+		blockingHandler();
+		discardOldestSubclass();
+		System.out.println("ok");
+	}
+
+	private static void blockingHandler() throws Exception {
+		LaneThreadPoolExecutor executor = new LaneThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+				new int[]{1, 1}, new int[]{2, 2});
+		// 常见的阻塞式拒绝策略：队列满时等待空位
+		executor.setRejectedExecutionHandler(1, (r, e) -> {
+			try {
+				e.getQueue().put(r);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger ran = new AtomicInteger();
+		executor.execute(() -> await(release), 1);
+		Thread submitter = new Thread(() -> {
+			for (int i = 0; i < 6; i++)
+				executor.execute(ran::incrementAndGet, 1);
+		});
+		submitter.start();
+		Thread.sleep(100);
+		// 提交线程阻塞在车道1，车道0不能被占用
+		check(Arrays.equals(sizes(executor), new int[]{0, 2}), "sizes " + Arrays.toString(sizes(executor)));
+		release.countDown();
+		submitter.join();
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+		check(ran.get() == 6, "ran " + ran.get());
+		check(executor.getLaneStatistics(1).getCompletedTaskCount() == 7, executor.getLaneStatistics(1).toString());
+		check(executor.getLaneStatistics(0).getSubmittedTaskCount() == 0, executor.getLaneStatistics(0).toString());
+	}
+
+	private static void discardOldestSubclass() throws Exception {
+		LaneThreadPoolExecutor executor = new LaneThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+				new int[]{1, 1}, new int[]{2, 2});
+		executor.setRejectedExecutionHandler(1, new ThreadPoolExecutor.DiscardOldestPolicy() {
+		});
+		CountDownLatch release = new CountDownLatch(1);
+		StringBuffer order = new StringBuffer();
+		executor.execute(() -> await(release), 0);
+		executor.execute(() -> order.append("a"), 0);
+		executor.execute(() -> order.append("b"), 0);
+		executor.execute(() -> order.append("1"), 1);
+		executor.execute(() -> order.append("2"), 1);
+		executor.execute(() -> order.append("3"), 1);
+		// 丢弃车道1的"1"，车道0不受影响
+		check(Arrays.equals(sizes(executor), new int[]{2, 2}), "sizes " + Arrays.toString(sizes(executor)));
+		release.countDown();
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+		String s = order.toString();
+		check(s.length() == 4 && s.contains("a") && s.contains("b") && s.indexOf('2') < s.indexOf('3')
+				&& !s.contains("1"), "order " + s);
+	}
+
+	private static int[] sizes(LaneThreadPoolExecutor executor) {
+		int[] sizes = new int[executor.getLaneCount()];
+		for (int i = 0; i < sizes.length; i++)
+			sizes[i] = executor.getLaneStatistics(i).getQueuedTaskCount();
+		return sizes;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void check(boolean ok, String what) {
+		if (!ok)
+			throw new AssertionError(what);
+	}
+}
@@ -0,0 +1,63 @@
+package test.concurrent.thread.pool.lane;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LaneThreadPoolExecutor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比单队列线程池与分道线程池下请求的延迟：
+ * 先压入大量耗时的后台压缩任务，再每2毫秒提交一个短请求。
+ */
+public class LaneTest {
+
+	private static final int REQUESTS = 200;
+
+	public static void main(String[] args) throws Exception {
+		// 单个FIFO队列：请求排在所有压缩任务后面
+		run("single FIFO", new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>()), false);
+		// 车道0给请求，权重16；车道1给压缩任务，权重1
+		LaneThreadPoolExecutor lanes = new LaneThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS,
+				new int[]{16, 1}, new int[]{10000, 10000});
+		run("lanes 16:1", lanes, true);
+		System.out.println(lanes.getLaneStatistics(0));
+		System.out.println(lanes.getLaneStatistics(1));
+	}
+
+	private static void run(String name, ThreadPoolExecutor executor, boolean useLanes) throws Exception {
+		for (int i = 0; i < 400; i++) {
+			Runnable compaction = () -> spin(2_000_000);
+			if (useLanes)
+				((LaneThreadPoolExecutor) executor).execute(compaction, 1);
+			else
+				executor.execute(compaction);
+		}
+		long[] latency = new long[REQUESTS];
+		CountDownLatch done = new CountDownLatch(REQUESTS);
+		for (int i = 0; i < REQUESTS; i++) {
+			long start = System.nanoTime();
+			int k = i;
+			executor.execute(() -> {
+				spin(100_000);
+				latency[k] = System.nanoTime() - start;
+				done.countDown();
+			});
+			Thread.sleep(2);
+		}
+		done.await();
+		executor.shutdownNow();
+		Arrays.sort(latency);
+		System.out.println(name + " p50=" + latency[REQUESTS / 2] / 1000 + "us p99="
+				+ latency[REQUESTS * 99 / 100] / 1000 + "us");
+	}
+
+	// 忙等指定纳秒，模拟CPU密集的任务
+	private static void spin(long nanos) {
+		long end = System.nanoTime() + nanos;
+		while (System.nanoTime() < end)
+			;
+	}
+}
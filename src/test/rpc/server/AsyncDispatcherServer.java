@@ -0,0 +1,124 @@
+package test.rpc.server;
+
+import test.rpc.common.ServerApi;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DispatcherServer 的异步版本：读写 socket 用 AsynchronousSocketChannel，
+ * 等待数据期间不占用任何线程，所以并发连接数不再受线程数限制。
+ * 回调运行在开启了 managed parking 的 async 模式 ForkJoinPool 上，
+ * 业务代码在 j.u.c 的锁、队列上阻塞时，池会补偿线程保持并行度。
+ * 注意 ServerImpl 里的 Thread.sleep 是 native 阻塞，仍会占住一个线程。
+ * 协议没有分隔符，和 DispatcherServer 一样只读一次、最多500字节，
+ * 请求必须在一个包里到达且不超过500字节，否则会被截断。
+ */
+public class AsyncDispatcherServer {
+
+	public static void main(String[] args) throws Exception {
+		Map<String, Class<?>> impl = new HashMap<>();
+		impl.put(ServerApi.class.getName(), ServerImpl.class);
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(parallelism,
+				ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true, true);
+		AsynchronousChannelGroup group = AsynchronousChannelGroup.withThreadPool(pool);
+		AsynchronousServerSocketChannel server = AsynchronousServerSocketChannel.open(group);
+		server.bind(new InetSocketAddress(8880));
+		server.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+			@Override
+			public void completed(AsynchronousSocketChannel socket, Void attachment) {
+				// 先挂上下一次accept，再处理当前连接
+				server.accept(null, this);
+				ByteBuffer b = ByteBuffer.allocate(500);
+				socket.read(b, b, new CompletionHandler<Integer, ByteBuffer>() {
+					@Override
+					public void completed(Integer n, ByteBuffer buf) {
+						String request = new String(buf.array(), 0, Math.max(n, 0), StandardCharsets.UTF_8);
+						String response = dispatch(impl, request);
+						ByteBuffer out = ByteBuffer.wrap(response.getBytes(StandardCharsets.UTF_8));
+						socket.write(out, out, new CompletionHandler<Integer, ByteBuffer>() {
+							@Override
+							public void completed(Integer result, ByteBuffer out) {
+								// 一次write可能只写出一部分，写完才能关闭
+								if (out.hasRemaining())
+									socket.write(out, out, this);
+								else
+									close(socket);
+							}
+
+							@Override
+							public void failed(Throwable exc, ByteBuffer out) {
+								exc.printStackTrace();
+								close(socket);
+							}
+						});
+					}
+
+					@Override
+					public void failed(Throwable exc, ByteBuffer buf) {
+						exc.printStackTrace();
+						close(socket);
+					}
+				});
+			}
+
+			@Override
+			public void failed(Throwable exc, Void attachment) {
+				exc.printStackTrace();
+			}
+		});
+		group.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+	}
+
+	// 与DispatcherServer相同的请求解析与反射调用
+	private static String dispatch(Map<String, Class<?>> impl, String request) {
+		Class<?> clazz = null;
+		String method = null;
+		String arg = null;
+		for (String s : request.split(",")) {
+			int index = s.indexOf("=");
+			if (index < 0)
+				continue;
+			String type = s.substring(0, index);
+			String value = s.substring(index + 1).trim();
+			switch (type) {
+				case "serviceName":
+					clazz = impl.get(value);
+					break;
+				case "method":
+					method = value;
+					break;
+				case "arg":
+					arg = value;
+			}
+		}
+		try {
+			Object o = clazz.newInstance();
+			Method m = clazz.getMethod(method, String.class);
+			return (String) m.invoke(o, arg);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return "";
+		}
+	}
+
+	private static void close(AsynchronousSocketChannel socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}